@@ -0,0 +1,31 @@
+package com.bostoneo.bostoneosolutions.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Shared Redis pub/sub listener container.
+ *
+ * Services register their own listeners against this container for cross-node
+ * invalidation. When Redis is unreachable the container keeps retrying in the
+ * background instead of failing startup, matching the fail-open behavior of the
+ * other Redis-backed services in local dev.
+ */
+@Slf4j
+@Configuration
+public class RedisPubSubConfig {
+
+    private static final long RECOVERY_INTERVAL_MS = 10_000;
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setRecoveryInterval(RECOVERY_INTERVAL_MS);
+        container.setErrorHandler(e -> log.warn("Redis pub/sub listener error: {}", e.getMessage()));
+        return container;
+    }
+}
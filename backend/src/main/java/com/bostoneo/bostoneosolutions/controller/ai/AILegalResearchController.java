@@ -4,6 +4,7 @@ import com.bostoneo.bostoneosolutions.annotation.AuditLog;
 import com.bostoneo.bostoneosolutions.service.AILegalResearchService;
 import com.bostoneo.bostoneosolutions.service.ResearchProgressPublisher;
 import com.bostoneo.bostoneosolutions.model.SearchHistory;
+import com.bostoneo.bostoneosolutions.multitenancy.TenantContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -53,10 +54,13 @@ public class AILegalResearchController {
      * Server-Sent Events endpoint for real-time research progress
      */
     @GetMapping(value = "/progress-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamResearchProgress(@RequestParam String sessionId) {
+    public SseEmitter streamResearchProgress(@RequestParam String sessionId,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
         log.info("Creating SSE stream for session: {}", sessionId);
         try {
-            return progressPublisher.createEmitter(sessionId);
+            // SECURITY: The session's stream is bound to the caller's organization and user
+            return progressPublisher.createEmitter(sessionId, lastEventId,
+                    TenantContext.getCurrentTenant(), getCurrentUserId());
         } catch (Exception e) {
             log.error("Error creating SSE emitter for session {}: {}", sessionId, e.getMessage());
             // Return a basic emitter that will immediately send an error and complete
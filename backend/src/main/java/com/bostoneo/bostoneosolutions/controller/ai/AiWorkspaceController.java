@@ -252,13 +252,24 @@ public class AiWorkspaceController {
 
     /**
      * SSE endpoint for draft streaming.
-     * Client connects BEFORE triggering generation.
+     * Client connects BEFORE triggering generation; on reconnect, Last-Event-ID resumes the stream.
+     * Only the user who owns the conversation, in the current organization, can connect.
      * GET /api/legal/ai-workspace/drafts/stream?conversationId={id}
      */
     @GetMapping(value = "/drafts/stream", produces = "text/event-stream")
-    public SseEmitter streamDraft(@RequestParam Long conversationId) {
+    public ResponseEntity<SseEmitter> streamDraft(@RequestParam Long conversationId,
+                                                  @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                                  @AuthenticationPrincipal UserDTO user) {
+        if (user == null || user.getId() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        // SECURITY: Tenant-filtered ownership check - the stream replays the whole draft
+        if (!documentService.isConversationOwner(conversationId, user.getId())) {
+            log.warn("SECURITY: User {} denied draft stream for conversation {}", user.getId(), conversationId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
         log.info("SSE connection opened for draft streaming, conversationId={}", conversationId);
-        return draftStreamingPublisher.createEmitter(conversationId);
+        return ResponseEntity.ok(draftStreamingPublisher.createEmitter(conversationId, lastEventId));
     }
 
     /**
@@ -1,5 +1,7 @@
 package com.bostoneo.bostoneosolutions.controller.ai;
 
+import com.bostoneo.bostoneosolutions.service.EmbeddingCacheService;
+import com.bostoneo.bostoneosolutions.service.ai.AIRequestRouter;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.RequiredArgsConstructor;
@@ -25,6 +27,8 @@ import java.util.Map;
 public class CacheAdminController {
 
     private final CacheManager cacheManager;
+    private final EmbeddingCacheService embeddingCacheService;
+    private final AIRequestRouter aiRequestRouter;
 
     /**
      * Get statistics for all caches
@@ -86,6 +90,31 @@ public class CacheAdminController {
         return ResponseEntity.ok(allStats);
     }
 
+    /**
+     * Get hit rate of the content-addressed document embedding cache
+     */
+    @GetMapping("/stats/embeddings")
+    public ResponseEntity<Map<String, Object>> getEmbeddingCacheStats() {
+        EmbeddingCacheService.EmbeddingCacheStats stats = embeddingCacheService.getStats();
+
+        Map<String, Object> cacheStats = new HashMap<>();
+        cacheStats.put("hitCount", stats.hits());
+        cacheStats.put("duplicateCount", stats.duplicates());
+        cacheStats.put("missCount", stats.misses());
+        cacheStats.put("hitRate", String.format("%.2f%%", stats.hitRate() * 100));
+        cacheStats.put("apiCallsAvoided", stats.hits() + stats.duplicates());
+
+        return ResponseEntity.ok(cacheStats);
+    }
+
+    /**
+     * Get size, evictions and per-operation hit/miss/coalesced counts of the AI router response cache
+     */
+    @GetMapping("/stats/ai-router")
+    public ResponseEntity<Map<String, Object>> getAIRouterCacheStats() {
+        return ResponseEntity.ok(aiRequestRouter.getCacheStats());
+    }
+
     /**
      * Get statistics for a specific cache
      */
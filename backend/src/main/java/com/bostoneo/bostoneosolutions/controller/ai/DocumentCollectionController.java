@@ -1,5 +1,6 @@
 package com.bostoneo.bostoneosolutions.controller.ai;
 
+import com.bostoneo.bostoneosolutions.event.CollectionDocumentsChangedEvent;
 import com.bostoneo.bostoneosolutions.model.CollectionDocument;
 import com.bostoneo.bostoneosolutions.model.DocumentCollection;
 import com.bostoneo.bostoneosolutions.model.AIDocumentAnalysis;
@@ -12,9 +13,9 @@ import com.bostoneo.bostoneosolutions.repository.AIDocumentAnalysisRepository;
 import com.bostoneo.bostoneosolutions.repository.TimelineEventRepository;
 import com.bostoneo.bostoneosolutions.repository.ActionItemRepository;
 import com.bostoneo.bostoneosolutions.repository.DocumentChunkRepository;
+import com.bostoneo.bostoneosolutions.service.EmbeddingService;
 import com.bostoneo.bostoneosolutions.service.SemanticSearchService;
 import com.bostoneo.bostoneosolutions.service.CollectionQAService;
-import com.bostoneo.bostoneosolutions.service.CollectionSearchCacheService;
 import com.bostoneo.bostoneosolutions.service.SearchSuggestionService;
 import com.bostoneo.bostoneosolutions.service.DocumentRelationshipService;
 import com.bostoneo.bostoneosolutions.multitenancy.TenantService;
@@ -22,6 +23,7 @@ import com.bostoneo.bostoneosolutions.dto.UserDTO;
 import com.bostoneo.bostoneosolutions.model.UserPrincipal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -49,7 +51,7 @@ public class DocumentCollectionController {
     private final DocumentChunkRepository documentChunkRepository;
     private final SemanticSearchService semanticSearchService;
     private final CollectionQAService collectionQAService;
-    private final CollectionSearchCacheService searchCacheService;
+    private final ApplicationEventPublisher eventPublisher;
     private final SearchSuggestionService searchSuggestionService;
     private final DocumentRelationshipService relationshipService;
     private final TenantService tenantService;
@@ -277,8 +279,9 @@ public class DocumentCollectionController {
 
         CollectionDocument saved = collectionDocumentRepository.save(collectionDoc);
 
-        // Invalidate search cache since documents changed
-        searchCacheService.invalidateCollectionCache(collectionId);
+        // Search caches for the collection are dropped by listeners
+        eventPublisher.publishEvent(new CollectionDocumentsChangedEvent(this, orgId, collectionId, analysisId,
+                CollectionDocumentsChangedEvent.Change.ADDED));
 
         // Trigger async indexing for semantic search
         final Long finalCollectionId = collectionId;
@@ -326,8 +329,9 @@ public class DocumentCollectionController {
 
         collectionDocumentRepository.deleteByCollectionIdAndAnalysisId(collectionId, analysisId);
 
-        // Invalidate search cache since documents changed
-        searchCacheService.invalidateCollectionCache(collectionId);
+        // Search caches for the collection are dropped by listeners
+        eventPublisher.publishEvent(new CollectionDocumentsChangedEvent(this, orgId, collectionId, analysisId,
+                CollectionDocumentsChangedEvent.Change.REMOVED));
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -519,6 +523,8 @@ public class DocumentCollectionController {
             response.put("expandedQuery", searchResponse.getExpandedQuery());
             response.put("fromCache", searchResponse.isFromCache());
             response.put("processingTimeMs", searchResponse.getProcessingTimeMs());
+            response.put("retrievalMode", searchResponse.getRetrievalMode());
+            response.put("stageTimingsMs", searchResponse.getStageTimingsMs());
             response.put("collectionId", collectionId);
 
             return ResponseEntity.ok(response);
@@ -631,6 +637,29 @@ public class DocumentCollectionController {
         }
     }
 
+    /**
+     * Embedding progress for a document being indexed
+     */
+    @GetMapping("/documents/{analysisId}/index-progress")
+    public ResponseEntity<Map<String, Object>> getIndexProgress(@PathVariable Long analysisId) {
+        Long orgId = getRequiredOrganizationId();
+
+        // SECURITY: Verify document belongs to this organization
+        if (analysisRepository.findByIdAndOrganizationId(analysisId, orgId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        EmbeddingService.EmbeddingProgress progress = semanticSearchService.getIndexingProgress(analysisId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("analysisId", analysisId);
+        response.put("totalChunks", progress.totalChunks());
+        response.put("embeddedChunks", progress.embeddedChunks());
+        response.put("failedChunks", progress.failedChunks());
+        response.put("percentComplete", progress.percentComplete());
+        response.put("inProgress", progress.inProgress());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Ask a question about all documents in a collection (Collection Q&A)
      * Uses RAG to retrieve relevant context and generate AI-powered answers
@@ -24,6 +24,7 @@ public class OrganizationStatsDTO {
     // User stats
     private Integer userCount;
     private Integer activeUserCount;
+    private Integer onlineUserCount;
 
     // Case stats
     private Integer caseCount;
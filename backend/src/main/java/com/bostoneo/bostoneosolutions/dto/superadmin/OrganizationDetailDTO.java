@@ -66,6 +66,7 @@ public class OrganizationDetailDTO {
     public static class OrganizationStatsInfo {
         private Integer userCount;
         private Integer activeUserCount;
+        private Integer onlineUserCount;
         private Integer caseCount;
         private Integer activeCaseCount;
         private Integer clientCount;
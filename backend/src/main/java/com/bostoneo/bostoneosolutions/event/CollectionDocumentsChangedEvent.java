@@ -0,0 +1,31 @@
+package com.bostoneo.bostoneosolutions.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when a document is added to or removed from a collection, so collection-scoped
+ * derived data (search result caches) can be dropped. Listeners should use AFTER_COMMIT.
+ */
+@Getter
+public class CollectionDocumentsChangedEvent extends ApplicationEvent {
+
+    public enum Change {
+        ADDED,
+        REMOVED
+    }
+
+    // SECURITY: Required for multi-tenant data isolation
+    private final Long organizationId;
+    private final Long collectionId;
+    private final Long analysisId;
+    private final Change change;
+
+    public CollectionDocumentsChangedEvent(Object source, Long organizationId, Long collectionId, Long analysisId, Change change) {
+        super(source);
+        this.organizationId = organizationId;
+        this.collectionId = collectionId;
+        this.analysisId = analysisId;
+        this.change = change;
+    }
+}
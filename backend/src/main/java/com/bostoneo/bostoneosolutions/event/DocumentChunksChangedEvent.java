@@ -0,0 +1,38 @@
+package com.bostoneo.bostoneosolutions.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published whenever the document_chunks rows of a document change, so derived
+ * search structures (vector index, keyword index, search caches) can refresh.
+ * Listeners should use AFTER_COMMIT so they never reload pre-commit state.
+ */
+@Getter
+public class DocumentChunksChangedEvent extends ApplicationEvent {
+
+    public enum Change {
+        /** Chunks were (re)created — previous chunks for the document are gone. */
+        CHUNKED,
+        /** Embeddings were written for the document's chunks. */
+        EMBEDDED,
+        /** The document's chunks were assigned to a collection. */
+        COLLECTION_ASSIGNED,
+        /** The document's chunks were deleted. */
+        DELETED
+    }
+
+    // SECURITY: Required for multi-tenant data isolation
+    private final Long organizationId;
+    private final Long analysisId;
+    private final Long collectionId;
+    private final Change change;
+
+    public DocumentChunksChangedEvent(Object source, Long organizationId, Long analysisId, Long collectionId, Change change) {
+        super(source);
+        this.organizationId = organizationId;
+        this.analysisId = analysisId;
+        this.collectionId = collectionId;
+        this.change = change;
+    }
+}
@@ -0,0 +1,46 @@
+package com.bostoneo.bostoneosolutions.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Published when an invoice row is inserted, updated or deleted, with the analytics-relevant
+ * fields before and after the change. It is published from the Hibernate flush, inside the writing
+ * transaction; listeners should use AFTER_COMMIT unless they write in that transaction (the
+ * analytics rollups).
+ *
+ * {@code before} is null for CREATED, and for UPDATED when Hibernate did not have the previous
+ * state; listeners that need it must recompute.
+ */
+@Getter
+public class InvoiceChangedEvent extends ApplicationEvent {
+
+    public enum Change {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public record Snapshot(String status, BigDecimal totalAmount, LocalDate issueDate, LocalDateTime createdAt) {}
+
+    // SECURITY: Required for multi-tenant data isolation
+    private final Long organizationId;
+    private final Long invoiceId;
+    private final Change change;
+    private final Snapshot before;
+    private final Snapshot after;
+
+    public InvoiceChangedEvent(Object source, Long organizationId, Long invoiceId, Change change,
+                               Snapshot before, Snapshot after) {
+        super(source);
+        this.organizationId = organizationId;
+        this.invoiceId = invoiceId;
+        this.change = change;
+        this.before = before;
+        this.after = after;
+    }
+}
@@ -0,0 +1,45 @@
+package com.bostoneo.bostoneosolutions.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when a legal case row is inserted, updated or deleted, with the analytics-relevant
+ * fields before and after the change. It is published from the Hibernate flush, inside the writing
+ * transaction; listeners should use AFTER_COMMIT unless they write in that transaction (the
+ * analytics rollups).
+ *
+ * {@code before} is null for CREATED, and for UPDATED when Hibernate did not have the previous
+ * state (e.g. an update without a prior load); listeners that need it must recompute.
+ */
+@Getter
+public class LegalCaseChangedEvent extends ApplicationEvent {
+
+    public enum Change {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public record Snapshot(String status, String practiceArea, Double totalAmount,
+                           LocalDateTime createdAt, LocalDateTime updatedAt) {}
+
+    // SECURITY: Required for multi-tenant data isolation
+    private final Long organizationId;
+    private final Long caseId;
+    private final Change change;
+    private final Snapshot before;
+    private final Snapshot after;
+
+    public LegalCaseChangedEvent(Object source, Long organizationId, Long caseId, Change change,
+                                 Snapshot before, Snapshot after) {
+        super(source);
+        this.organizationId = organizationId;
+        this.caseId = caseId;
+        this.change = change;
+        this.before = before;
+        this.after = after;
+    }
+}
@@ -2,10 +2,12 @@ package com.bostoneo.bostoneosolutions.filter;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.bostoneo.bostoneosolutions.exception.ApiException;
 import com.bostoneo.bostoneosolutions.multitenancy.TenantContext;
 import com.bostoneo.bostoneosolutions.provider.TokenProvider;
 import com.bostoneo.bostoneosolutions.service.OnlineUserService;
+import com.bostoneo.bostoneosolutions.service.TokenBlacklistService;
 import jakarta.servlet.DispatcherType;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -43,7 +45,7 @@ public class CustomAuthorizationFilter extends OncePerRequestFilter {
     private static final String ORG_NOT_FOUND_SENTINEL = "NOT_FOUND";
 
     private final TokenProvider tokenProvider;
-    private final com.bostoneo.bostoneosolutions.service.TokenBlacklistService tokenBlacklistService;
+    private final TokenBlacklistService tokenBlacklistService;
     private final OnlineUserService onlineUserService;
     private final NamedParameterJdbcTemplate jdbc;
     private final CacheManager cacheManager;
@@ -63,18 +65,21 @@ public class CustomAuthorizationFilter extends OncePerRequestFilter {
                 return;
             }
 
-            Long userId = getUserId(request);
+            // Verify once — every claim below is read from the same decoded token
+            DecodedJWT decodedToken = tokenProvider.verifyAccessToken(token, request);
+            Long userId = tokenProvider.getSubject(decodedToken);
 
-            boolean isTokenValid = tokenProvider.isTokenValid(userId, token);
+            boolean isTokenValid = tokenProvider.isTokenValid(userId, decodedToken);
 
-            // Check token blacklist (logout/password change)
-            if (isTokenValid && tokenBlacklistService.isTokenBlacklisted(token)) {
-                log.warn("Blacklisted token used for user {}", userId);
-                isTokenValid = false;
-            }
+            // Check token blacklist (logout/password change) — one near-cached or pipelined lookup
             if (isTokenValid) {
-                long tokenIssuedAt = tokenProvider.getIssuedAt(token);
-                if (tokenBlacklistService.isUserTokenBlacklisted(userId, tokenIssuedAt)) {
+                long tokenIssuedAt = tokenProvider.getIssuedAt(decodedToken);
+                TokenBlacklistService.BlacklistStatus blacklistStatus =
+                    tokenBlacklistService.checkRequest(token, userId, tokenIssuedAt);
+                if (blacklistStatus == TokenBlacklistService.BlacklistStatus.TOKEN_REVOKED) {
+                    log.warn("Blacklisted token used for user {}", userId);
+                    isTokenValid = false;
+                } else if (blacklistStatus == TokenBlacklistService.BlacklistStatus.USER_REVOKED) {
                     log.warn("BLOCKED: User {} session terminated — token blacklisted", userId);
                     response.setStatus(401);
                     response.setContentType("application/json");
@@ -84,8 +89,8 @@ public class CustomAuthorizationFilter extends OncePerRequestFilter {
             }
 
             if (isTokenValid){
-                Long organizationId = tokenProvider.getOrganizationId(token);
-                List<GrantedAuthority> authorities = tokenProvider.getAuthorities(token);
+                Long organizationId = tokenProvider.getOrganizationId(decodedToken);
+                List<GrantedAuthority> authorities = tokenProvider.getAuthorities(decodedToken);
 
                 if (organizationId == null) {
                     // SUPERADMIN users have no org — allow them through without tenant context
@@ -165,10 +170,6 @@ public class CustomAuthorizationFilter extends OncePerRequestFilter {
         }
     }
 
-    private Long getUserId(HttpServletRequest request) {
-        return tokenProvider.getSubject(getToken(request), request);
-    }
-
     private String getToken(HttpServletRequest request) {
         // 1. Check Authorization header (standard path)
         String headerToken = ofNullable(request.getHeader(AUTHORIZATION))
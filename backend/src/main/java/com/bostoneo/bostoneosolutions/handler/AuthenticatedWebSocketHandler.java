@@ -2,19 +2,45 @@ package com.bostoneo.bostoneosolutions.handler;
 
 import com.bostoneo.bostoneosolutions.provider.TokenProvider;
 import com.bostoneo.bostoneosolutions.service.TokenBlacklistService;
+import com.bostoneo.bostoneosolutions.service.WebSocketRelayService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.NativeWebSocketSession;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
-
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Authenticated WebSocket endpoint for notifications and tenant-scoped broadcasts.
+ *
+ * Sessions are indexed by organization and by user when they connect, so a broadcast only visits
+ * the target organization's sessions. Sends never block the caller: each session has a bounded
+ * queue drained by one task at a time on the ws-send pool. A client whose queue fills up, or whose
+ * current send has been stuck for longer than the send time limit, is disconnected and reconnects.
+ * Stuck sends are found by a timer as well as on the next send, closes run on their own ws-close
+ * threads, and the container fails a blocking write after the same limit, so unresponsive clients
+ * can't hold every ws-send thread.
+ *
+ * User and organization messages are also handed to {@link WebSocketRelayService}, which forwards
+ * them to the other nodes holding sessions for the target.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
@@ -23,17 +49,71 @@ public class AuthenticatedWebSocketHandler extends TextWebSocketHandler {
     private final TokenProvider tokenProvider;
     private final TokenBlacklistService tokenBlacklistService;
     private final ObjectMapper objectMapper;
+    private final WebSocketRelayService relayService;
 
     private static final int MAX_SESSIONS_PER_USER = 5;
     private static final int MAX_MESSAGE_SIZE = 4096;
+    private static final int MAX_QUEUED_MESSAGES = 256;
+    private static final long SEND_TIME_LIMIT_MS = 10_000;
+    private static final int SEND_THREADS = 8;
+    private static final int CLOSE_THREADS = 2;
+    // Tomcat's per-session limit for a blocking write (milliseconds)
+    private static final String BLOCKING_SEND_TIMEOUT_PROPERTY = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
 
     // Store authenticated sessions - sessionId -> session (supports multiple tabs per user)
-    private final Map<String, WebSocketSession> allSessions = new ConcurrentHashMap<>();
-    // Legacy map for single session per user (for backward compatibility with sendNotificationToUser)
-    private final Map<String, WebSocketSession> userSessions = new ConcurrentHashMap<>();
-    private final Map<String, String> sessionUsers = new ConcurrentHashMap<>();
-    // SECURITY: Track organization ID per session for tenant-isolated broadcasts
-    private final Map<String, Long> sessionOrganizations = new ConcurrentHashMap<>();
+    private final Map<String, SessionSender> allSessions = new ConcurrentHashMap<>();
+    // userId -> that user's sessions
+    private final Map<String, Set<SessionSender>> userSessions = new ConcurrentHashMap<>();
+    // SECURITY: organizationId -> sessions authenticated for that organization, for tenant-isolated broadcasts
+    private final Map<Long, Set<SessionSender>> organizationSessions = new ConcurrentHashMap<>();
+
+    private final ExecutorService sendExecutor = Executors.newFixedThreadPool(SEND_THREADS, r -> {
+        Thread t = new Thread(r, "ws-send");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Closing writes a close frame, which can block behind a stuck send; kept off the ws-send pool
+    private final ExecutorService closeExecutor = Executors.newFixedThreadPool(CLOSE_THREADS, r -> {
+        Thread t = new Thread(r, "ws-close");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    void attachRelay() {
+        relayService.attach(new WebSocketRelayService.LocalSessions() {
+            @Override
+            public void deliverToUser(String userId, String frame) {
+                deliverLocal(userSessions.get(userId), new TextMessage(frame), null);
+            }
+
+            @Override
+            public void deliverToOrganization(Long organizationId, String frame, String excludeUserId) {
+                deliverLocal(organizationSessions.get(organizationId), new TextMessage(frame), excludeUserId);
+            }
+
+            @Override
+            public boolean hasUser(String userId) {
+                return userSessions.containsKey(userId);
+            }
+
+            @Override
+            public boolean hasOrganization(Long organizationId) {
+                return organizationSessions.containsKey(organizationId);
+            }
+
+            @Override
+            public Set<String> userIds() {
+                return Set.copyOf(userSessions.keySet());
+            }
+
+            @Override
+            public Set<Long> organizationIds() {
+                return Set.copyOf(organizationSessions.keySet());
+            }
+        });
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
@@ -57,31 +137,22 @@ public class AuthenticatedWebSocketHandler extends TextWebSocketHandler {
 
                     String userIdStr = userId.toString();
 
+                    // SECURITY: Extract organization ID for tenant-isolated broadcasts
+                    Long organizationId = extractOrganizationIdFromToken(token);
+                    SessionSender sender = new SessionSender(session, userIdStr, organizationId);
+
                     // SECURITY: Limit concurrent sessions per user (DoS prevention)
-                    long userSessionCount = sessionUsers.values().stream()
-                            .filter(userIdStr::equals).count();
-                    if (userSessionCount >= MAX_SESSIONS_PER_USER) {
+                    if (!register(sender)) {
                         log.warn("WebSocket rejected — user {} exceeded max sessions ({})", userId, MAX_SESSIONS_PER_USER);
                         session.close(CloseStatus.SERVICE_OVERLOAD.withReason("Too many connections"));
                         return;
                     }
 
-                    // Store the session in ALL maps
-                    allSessions.put(session.getId(), session);
-                    userSessions.put(userIdStr, session);
-                    sessionUsers.put(session.getId(), userIdStr);
-
-                    // SECURITY: Extract and store organization ID for tenant-isolated broadcasts
-                    Long organizationId = extractOrganizationIdFromToken(token);
-                    if (organizationId != null) {
-                        sessionOrganizations.put(session.getId(), organizationId);
-                    }
-
                     log.info("WebSocket connected: user={}, org={}, session={}, totalSessions={}",
                         userId, organizationId, session.getId(), allSessions.size());
 
                     // Send welcome message
-                    sendMessage(session, createMessage("connected", "WebSocket connection authenticated successfully"));
+                    sender.send(new TextMessage(createMessage("connected", "WebSocket connection authenticated successfully")));
                 } else {
                     log.warn("WebSocket connection rejected - invalid token or user");
                     session.close(CloseStatus.NOT_ACCEPTABLE.withReason("Invalid authentication token"));
@@ -99,17 +170,13 @@ public class AuthenticatedWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         String sessionId = session.getId();
-        String userId = sessionUsers.remove(sessionId);
-        sessionOrganizations.remove(sessionId);
-        allSessions.remove(sessionId);
-
-        // Only remove from userSessions if this was the active session for that user
-        if (userId != null && userSessions.get(userId) != null &&
-            userSessions.get(userId).getId().equals(sessionId)) {
-            userSessions.remove(userId);
+        SessionSender sender = allSessions.get(sessionId);
+        if (sender != null) {
+            unregister(sender);
         }
 
-        log.debug("WebSocket closed: user={}, session={}, remainingSessions={}", userId, sessionId, allSessions.size());
+        log.debug("WebSocket closed: user={}, session={}, remainingSessions={}",
+            sender != null ? sender.userId : null, sessionId, allSessions.size());
     }
 
     /**
@@ -118,42 +185,52 @@ public class AuthenticatedWebSocketHandler extends TextWebSocketHandler {
      */
     @org.springframework.scheduling.annotation.Scheduled(fixedRate = 300000)
     public void cleanupStaleSessions() {
-        int before = allSessions.size();
-        allSessions.entrySet().removeIf(entry -> {
-            if (!entry.getValue().isOpen()) {
-                String sessionId = entry.getKey();
-                String userId = sessionUsers.remove(sessionId);
-                sessionOrganizations.remove(sessionId);
-                if (userId != null) userSessions.remove(userId);
-                return true;
+        int removed = 0;
+        for (SessionSender sender : allSessions.values()) {
+            if (!sender.session.isOpen()) {
+                unregister(sender);
+                removed++;
             }
-            return false;
-        });
-        int removed = before - allSessions.size();
+        }
         if (removed > 0) {
             log.info("Cleaned up {} stale WebSocket sessions, {} active remain", removed, allSessions.size());
         }
     }
 
+    /**
+     * Close sessions whose current send has been blocked past the send time limit, without waiting
+     * for another message to be sent to them.
+     */
+    @org.springframework.scheduling.annotation.Scheduled(fixedDelay = SEND_TIME_LIMIT_MS / 2)
+    public void closeStuckSessions() {
+        for (SessionSender sender : allSessions.values()) {
+            if (sender.isStuck()) {
+                log.warn("WebSocket session {} (user {}) stuck sending for over {} ms - closing", sender.sessionId, sender.userId, SEND_TIME_LIMIT_MS);
+                sender.closeAsync();
+            }
+        }
+    }
+
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        String userId = sessionUsers.get(session.getId());
-        if (userId != null) {
+        SessionSender sender = allSessions.get(session.getId());
+        if (sender != null) {
             String payload = message.getPayload();
             // SECURITY: Limit message size to prevent memory abuse
             if (payload.length() > MAX_MESSAGE_SIZE) {
-                sendMessage(session, createMessage("error", "Message too large"));
+                sender.send(new TextMessage(createMessage("error", "Message too large")));
                 return;
             }
             // SECURITY: Log length only, not raw content (prevent log injection)
-            log.trace("Received message from user {}: {} chars", userId, payload.length());
-            sendMessage(session, createMessage("echo", "Message received"));
+            log.trace("Received message from user {}: {} chars", sender.userId, payload.length());
+            sender.send(new TextMessage(createMessage("echo", "Message received")));
         }
     }
 
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
-        String userId = sessionUsers.get(session.getId());
+        SessionSender sender = allSessions.get(session.getId());
+        String userId = sender != null ? sender.userId : null;
         log.error("WebSocket transport error for user {}: {}", userId, exception.getMessage());
         
         if (session.isOpen()) {
@@ -162,22 +239,12 @@ public class AuthenticatedWebSocketHandler extends TextWebSocketHandler {
     }
 
     /**
-     * Send notification to a specific user
+     * Send notification to a specific user (every open tab)
      */
     public void sendNotificationToUser(String userId, Object notification) {
         log.debug("Sending WebSocket notification to user: {}", userId);
-        WebSocketSession session = userSessions.get(userId);
-        if (session != null && session.isOpen()) {
-            try {
-                String message = createMessage("notification", notification);
-                sendMessage(session, message);
-                log.debug("WebSocket notification delivered to user: {}", userId);
-            } catch (Exception e) {
-                log.error("Failed to send notification to user {}: {}", userId, e.getMessage());
-            }
-        } else {
-            log.debug("No active WebSocket session for user: {}", userId);
-        }
+        int sentCount = sendToUser(userId, "notification", notification);
+        log.debug("WebSocket notification queued for {} local sessions of user {}, relayed to other nodes", sentCount, userId);
     }
 
     /**
@@ -187,31 +254,22 @@ public class AuthenticatedWebSocketHandler extends TextWebSocketHandler {
      */
     public void sendDataToUser(String userId, Object data) {
         if (userId == null) return;
-        WebSocketSession session = userSessions.get(userId);
-        if (session != null && session.isOpen()) {
-            try {
-                String message = createMessage("data", data);
-                sendMessage(session, message);
-            } catch (Exception e) {
-                log.warn("Failed to send data to user {}: {}", userId, e.getMessage());
-            }
-        }
+        sendToUser(userId, "data", data);
     }
 
     /**
-     * Check if a user has an active WebSocket connection
+     * Check if a user has an active WebSocket connection on any node
      */
     public boolean isUserConnected(Long userId) {
         if (userId == null) return false;
-        WebSocketSession session = userSessions.get(userId.toString());
-        return session != null && session.isOpen();
+        return isUserConnected(userId.toString());
     }
 
     /**
-     * Get count of connected users
+     * Get count of users connected to this node
      */
     public int getConnectedUserCount() {
-        return (int) userSessions.values().stream().filter(WebSocketSession::isOpen).count();
+        return userSessions.size();
     }
 
     /**
@@ -238,26 +296,9 @@ public class AuthenticatedWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        String messageStr = createMessage("broadcast", message);
-        int sentCount = 0;
-
-        // Iterate over ALL sessions and send to those with matching org
-        for (Map.Entry<String, WebSocketSession> entry : allSessions.entrySet()) {
-            String sessionId = entry.getKey();
-            WebSocketSession session = entry.getValue();
-            Long sessionOrgId = sessionOrganizations.get(sessionId);
-
-            if (session.isOpen() && organizationId.equals(sessionOrgId)) {
-                try {
-                    sendMessage(session, messageStr);
-                    sentCount++;
-                } catch (Exception e) {
-                    log.error("Failed to send to session {}: {}", sessionId, e.getMessage());
-                }
-            }
-        }
+        int sentCount = broadcast(organizationId, message, null);
 
-        log.info("Broadcast sent to {} sessions in org {}", sentCount, organizationId);
+        log.info("Broadcast sent to {} local sessions in org {}, relayed to other nodes", sentCount, organizationId);
     }
 
     /**
@@ -271,27 +312,10 @@ public class AuthenticatedWebSocketHandler extends TextWebSocketHandler {
         }
 
         String excludeUserIdStr = excludeUserId != null ? excludeUserId.toString() : null;
-        String messageStr = createMessage("broadcast", message);
-        int sentCount = 0;
+        int sentCount = broadcast(organizationId, message, excludeUserIdStr);
 
-        for (Map.Entry<String, WebSocketSession> entry : allSessions.entrySet()) {
-            String sessionId = entry.getKey();
-            WebSocketSession session = entry.getValue();
-            Long sessionOrgId = sessionOrganizations.get(sessionId);
-            String sessionUserId = sessionUsers.get(sessionId);
-
-            if (session.isOpen() && organizationId.equals(sessionOrgId)
-                    && (excludeUserIdStr == null || !excludeUserIdStr.equals(sessionUserId))) {
-                try {
-                    sendMessage(session, messageStr);
-                    sentCount++;
-                } catch (Exception e) {
-                    log.error("Failed to send to session {}: {}", sessionId, e.getMessage());
-                }
-            }
-        }
-
-        log.info("Broadcast sent to {} sessions in org {} (excluded user {})", sentCount, organizationId, excludeUserId);
+        log.info("Broadcast sent to {} local sessions in org {} (excluded user {}), relayed to other nodes",
+            sentCount, organizationId, excludeUserId);
     }
 
     private String extractTokenFromSession(WebSocketSession session) {
@@ -311,12 +335,75 @@ public class AuthenticatedWebSocketHandler extends TextWebSocketHandler {
         return session.getHandshakeHeaders().getFirst("Authorization");
     }
 
-    private void sendMessage(WebSocketSession session, String message) throws IOException {
-        if (session.isOpen()) {
-            synchronized (session) {
-                session.sendMessage(new TextMessage(message));
+    /**
+     * SECURITY: Only sessions indexed under organizationId are visited, here and on other nodes.
+     * The payload is serialized once and the same frame queued for every recipient.
+     */
+    private int broadcast(Long organizationId, Object message, String excludeUserId) {
+        String frame = createMessage("broadcast", message);
+        relayService.relayToOrganization(organizationId, frame, excludeUserId);
+        return deliverLocal(organizationSessions.get(organizationId), new TextMessage(frame), excludeUserId);
+    }
+
+    private int sendToUser(String userId, String type, Object data) {
+        if (userId == null) return 0;
+        String frame = createMessage(type, data);
+        relayService.relayToUser(userId, frame);
+        return deliverLocal(userSessions.get(userId), new TextMessage(frame), null);
+    }
+
+    private int deliverLocal(Set<SessionSender> targets, TextMessage frame, String excludeUserId) {
+        if (targets == null || targets.isEmpty()) return 0;
+        int sentCount = 0;
+        for (SessionSender sender : targets) {
+            if (excludeUserId != null && excludeUserId.equals(sender.userId)) continue;
+            if (sender.send(frame)) {
+                sentCount++;
+            }
+        }
+        return sentCount;
+    }
+
+    /**
+     * Add a session to the indexes.
+     *
+     * @return false if the user already has MAX_SESSIONS_PER_USER sessions
+     */
+    private boolean register(SessionSender sender) {
+        AtomicBoolean accepted = new AtomicBoolean();
+        userSessions.compute(sender.userId, (key, sessions) -> {
+            if (sessions == null) {
+                sessions = ConcurrentHashMap.newKeySet();
+            }
+            if (sessions.size() < MAX_SESSIONS_PER_USER) {
+                sessions.add(sender);
+                accepted.set(true);
             }
+            return sessions.isEmpty() ? null : sessions;
+        });
+        if (!accepted.get()) return false;
+
+        allSessions.put(sender.sessionId, sender);
+        if (sender.organizationId != null) {
+            organizationSessions.computeIfAbsent(sender.organizationId, key -> ConcurrentHashMap.newKeySet()).add(sender);
         }
+        relayService.sessionsOpened(sender.userId, sender.organizationId);
+        return true;
+    }
+
+    private void unregister(SessionSender sender) {
+        if (!allSessions.remove(sender.sessionId, sender)) return;
+        userSessions.computeIfPresent(sender.userId, (key, sessions) -> {
+            sessions.remove(sender);
+            return sessions.isEmpty() ? null : sessions;
+        });
+        if (sender.organizationId != null) {
+            organizationSessions.computeIfPresent(sender.organizationId, (key, sessions) -> {
+                sessions.remove(sender);
+                return sessions.isEmpty() ? null : sessions;
+            });
+        }
+        relayService.sessionsClosed(sender.userId, sender.organizationId);
     }
 
     private String createMessage(String type, Object data) {
@@ -337,17 +424,16 @@ public class AuthenticatedWebSocketHandler extends TextWebSocketHandler {
      * Get count of active connections
      */
     public int getActiveConnectionCount() {
-        return (int) userSessions.values().stream()
-                .filter(WebSocketSession::isOpen)
-                .count();
+        return userSessions.size();
     }
 
     /**
-     * Check if user has active WebSocket connection
+     * Check if user has active WebSocket connection on any node
      */
     public boolean isUserConnected(String userId) {
-        WebSocketSession session = userSessions.get(userId);
-        return session != null && session.isOpen();
+        Set<SessionSender> sessions = userSessions.get(userId);
+        if (sessions != null && sessions.stream().anyMatch(sender -> sender.session.isOpen())) return true;
+        return relayService.isUserConnected(userId);
     }
 
     /** Reuse TokenProvider's verified extraction (enforces tokenType=access, issuer, audience) */
@@ -368,4 +454,118 @@ public class AuthenticatedWebSocketHandler extends TextWebSocketHandler {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+        closeExecutor.shutdownNow();
+    }
+
+    /**
+     * A session with a bounded outbound queue. Messages are sent in order by at most one ws-send task
+     * at a time, so callers only enqueue and a slow client only holds up its own queue.
+     */
+    private final class SessionSender {
+        final WebSocketSession session;
+        final String sessionId;
+        final String userId;
+        final Long organizationId;
+        private final Queue<TextMessage> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closing = new AtomicBoolean();
+        // Start of the send in progress, 0 when idle
+        private volatile long sendStartedAt;
+
+        SessionSender(WebSocketSession session, String userId, Long organizationId) {
+            this.session = session;
+            this.sessionId = session.getId();
+            this.userId = userId;
+            this.organizationId = organizationId;
+            if (session instanceof NativeWebSocketSession nativeSession) {
+                jakarta.websocket.Session standardSession = nativeSession.getNativeSession(jakarta.websocket.Session.class);
+                if (standardSession != null) {
+                    standardSession.getUserProperties().put(BLOCKING_SEND_TIMEOUT_PROPERTY, SEND_TIME_LIMIT_MS);
+                }
+            }
+        }
+
+        boolean isStuck() {
+            long started = sendStartedAt;
+            return started > 0 && System.currentTimeMillis() - started > SEND_TIME_LIMIT_MS;
+        }
+
+        /**
+         * @return true if the message was queued
+         */
+        boolean send(TextMessage message) {
+            if (!session.isOpen() || closing.get()) return false;
+
+            if (isStuck()) {
+                log.warn("WebSocket session {} (user {}) stuck sending for over {} ms - closing", sessionId, userId, SEND_TIME_LIMIT_MS);
+                closeAsync();
+                return false;
+            }
+            if (queued.incrementAndGet() > MAX_QUEUED_MESSAGES) {
+                queued.decrementAndGet();
+                log.warn("WebSocket session {} (user {}) has {} unsent messages - closing", sessionId, userId, MAX_QUEUED_MESSAGES);
+                closeAsync();
+                return false;
+            }
+            queue.add(message);
+            scheduleDrain();
+            return true;
+        }
+
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) return;
+            try {
+                sendExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                TextMessage message;
+                while ((message = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    if (!session.isOpen()) continue;
+                    sendStartedAt = System.currentTimeMillis();
+                    try {
+                        session.sendMessage(message);
+                    } catch (IOException | IllegalStateException e) {
+                        log.error("Failed to send to session {}: {}", sessionId, e.getMessage());
+                    } finally {
+                        sendStartedAt = 0;
+                    }
+                }
+            } finally {
+                draining.set(false);
+                // A message queued after the last poll but before draining was cleared
+                if (!queue.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+        }
+
+        private void closeAsync() {
+            if (!closing.compareAndSet(false, true)) return;
+            queue.clear();
+            queued.set(0);
+            unregister(this);
+            // Closing writes a close frame, so it must not run on the caller's thread either
+            try {
+                closeExecutor.execute(() -> {
+                    try {
+                        session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                    } catch (IOException | IllegalStateException e) {
+                        log.debug("Failed to close slow WebSocket session {}: {}", sessionId, e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException ignored) {
+            }
+        }
+    }
+}
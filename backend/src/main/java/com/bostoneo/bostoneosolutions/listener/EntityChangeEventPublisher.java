@@ -0,0 +1,150 @@
+package com.bostoneo.bostoneosolutions.listener;
+
+import com.bostoneo.bostoneosolutions.event.InvoiceChangedEvent;
+import com.bostoneo.bostoneosolutions.event.LegalCaseChangedEvent;
+import com.bostoneo.bostoneosolutions.model.Invoice;
+import com.bostoneo.bostoneosolutions.model.LegalCase;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * Turns Hibernate writes of {@link LegalCase} and {@link Invoice} into {@link LegalCaseChangedEvent}
+ * and {@link InvoiceChangedEvent}.
+ *
+ * Hooking the session rather than the services catches every write path (case creation, lead
+ * conversion, portal updates, status changes, ...). Bulk JPQL/native updates bypass Hibernate
+ * events; consumers must tolerate that (the analytics rollups are reconciled nightly).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EntityChangeEventPublisher implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        log.info("Registered entity change listener for legal cases and invoices");
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof LegalCase legalCase && legalCase.getOrganizationId() != null) {
+            eventPublisher.publishEvent(new LegalCaseChangedEvent(this, legalCase.getOrganizationId(), legalCase.getId(),
+                    LegalCaseChangedEvent.Change.CREATED, null, snapshot(legalCase)));
+        } else if (event.getEntity() instanceof Invoice invoice && invoice.getOrganizationId() != null) {
+            eventPublisher.publishEvent(new InvoiceChangedEvent(this, invoice.getOrganizationId(), invoice.getId(),
+                    InvoiceChangedEvent.Change.CREATED, null, snapshot(invoice)));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object[] oldState = event.getOldState();
+        if (event.getEntity() instanceof LegalCase legalCase && legalCase.getOrganizationId() != null) {
+            LegalCaseChangedEvent.Snapshot before = oldState != null ? caseSnapshot(event.getPersister(), oldState) : null;
+            LegalCaseChangedEvent.Snapshot after = snapshot(legalCase);
+            if (after.equals(before)) return;
+            eventPublisher.publishEvent(new LegalCaseChangedEvent(this, legalCase.getOrganizationId(), legalCase.getId(),
+                    LegalCaseChangedEvent.Change.UPDATED, before, after));
+        } else if (event.getEntity() instanceof Invoice invoice && invoice.getOrganizationId() != null) {
+            InvoiceChangedEvent.Snapshot before = oldState != null ? invoiceSnapshot(event.getPersister(), oldState) : null;
+            InvoiceChangedEvent.Snapshot after = snapshot(invoice);
+            if (after.equals(before)) return;
+            eventPublisher.publishEvent(new InvoiceChangedEvent(this, invoice.getOrganizationId(), invoice.getId(),
+                    InvoiceChangedEvent.Change.UPDATED, before, after));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof LegalCase legalCase && legalCase.getOrganizationId() != null) {
+            eventPublisher.publishEvent(new LegalCaseChangedEvent(this, legalCase.getOrganizationId(), legalCase.getId(),
+                    LegalCaseChangedEvent.Change.DELETED, snapshot(legalCase), null));
+        } else if (event.getEntity() instanceof Invoice invoice && invoice.getOrganizationId() != null) {
+            eventPublisher.publishEvent(new InvoiceChangedEvent(this, invoice.getOrganizationId(), invoice.getId(),
+                    InvoiceChangedEvent.Change.DELETED, snapshot(invoice), null));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private static LegalCaseChangedEvent.Snapshot snapshot(LegalCase legalCase) {
+        return new LegalCaseChangedEvent.Snapshot(
+                legalCase.getStatus() != null ? legalCase.getStatus().name() : null,
+                legalCase.getEffectivePracticeArea(),
+                legalCase.getTotalAmount(),
+                toLocalDateTime(legalCase.getCreatedAt()),
+                toLocalDateTime(legalCase.getUpdatedAt()));
+    }
+
+    private static LegalCaseChangedEvent.Snapshot caseSnapshot(EntityPersister persister, Object[] state) {
+        Object status = value(persister, state, "status");
+        String practiceArea = (String) value(persister, state, "practiceArea");
+        return new LegalCaseChangedEvent.Snapshot(
+                status != null ? ((Enum<?>) status).name() : null,
+                practiceArea != null ? practiceArea : (String) value(persister, state, "type"),
+                (Double) value(persister, state, "totalAmount"),
+                toLocalDateTime((Date) value(persister, state, "createdAt")),
+                toLocalDateTime((Date) value(persister, state, "updatedAt")));
+    }
+
+    private static InvoiceChangedEvent.Snapshot snapshot(Invoice invoice) {
+        return new InvoiceChangedEvent.Snapshot(
+                invoice.getStatus() != null ? invoice.getStatus().name() : null,
+                invoice.getTotalAmount(),
+                invoice.getIssueDate(),
+                invoice.getCreatedAt());
+    }
+
+    private static InvoiceChangedEvent.Snapshot invoiceSnapshot(EntityPersister persister, Object[] state) {
+        Object status = value(persister, state, "status");
+        return new InvoiceChangedEvent.Snapshot(
+                status != null ? ((Enum<?>) status).name() : null,
+                (BigDecimal) value(persister, state, "totalAmount"),
+                (LocalDate) value(persister, state, "issueDate"),
+                (LocalDateTime) value(persister, state, "createdAt"));
+    }
+
+    private static Object value(EntityPersister persister, Object[] state, String property) {
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(property)) return state[i];
+        }
+        return null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date != null ? new Timestamp(date.getTime()).toLocalDateTime() : null;
+    }
+}
@@ -37,6 +37,10 @@ public class AIResearchCache {
     @Column(name = "query_type", nullable = false)
     private QueryType queryType;
 
+    /** MinHash of the query's word set (see QueryMinHash), for similarity lookup via LSH buckets. */
+    @Column(name = "minhash_signature")
+    private byte[] minhashSignature;
+
     @Column(length = 100)
     private String jurisdiction;
 
@@ -47,17 +47,42 @@ public class DocumentChunk {
     private Integer tokenCount;
 
     /**
-     * Embedding vector stored as JSON array of floats.
+     * Legacy embedding vector stored as JSON array of floats.
      * Example: [0.123, -0.456, 0.789, ...]
-     * OpenAI embeddings are 1536 dimensions (text-embedding-ada-002)
-     * or 3072 dimensions (text-embedding-3-large)
+     * Only populated for chunks embedded before V80; new embeddings go to {@link #embeddingVector}.
      */
     @Column(name = "embedding", columnDefinition = "TEXT")
     private String embedding;
 
+    /**
+     * Embedding vector as packed little-endian float32 (see EmbeddingVectorCodec).
+     * OpenAI embeddings are 1536 dimensions (text-embedding-3-small)
+     * or 3072 dimensions (text-embedding-3-large)
+     */
+    @Column(name = "embedding_vector")
+    private byte[] embeddingVector;
+
+    @Column(name = "embedding_dimensions")
+    private Integer embeddingDimensions;
+
     @Column(name = "embedding_model")
     private String embeddingModel;
 
+    /**
+     * SHA-256 of the whitespace-normalized content; key into the organization's embedding cache.
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    /**
+     * Serialized term occurrences (see ChunkTermVector) backing the BM25 keyword index.
+     */
+    @Column(name = "term_vector")
+    private byte[] termVector;
+
+    @Column(name = "term_count")
+    private Integer termCount;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -65,4 +90,8 @@ public class DocumentChunk {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
+
+    public boolean hasEmbedding() {
+        return embeddingVector != null || (embedding != null && !embedding.isEmpty());
+    }
 }
@@ -34,7 +34,7 @@ public class ReminderQueueItem {
     private Integer minutesBefore;
     
     @Column(nullable = false)
-    private String status = "PENDING"; // PENDING, SENT, FAILED
+    private String status = "PENDING"; // PENDING, PROCESSING (claimed by a scheduler node), SENDING (delivery in progress), SENT, FAILED
     
     @Column(name = "retry_count")
     private Integer retryCount = 0;
@@ -6,9 +6,16 @@ import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.InvalidClaimException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.bostoneo.bostoneosolutions.model.UserPrincipal;
 import com.bostoneo.bostoneosolutions.service.UserService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.micrometer.common.util.StringUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,7 +27,12 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -39,11 +51,51 @@ import static java.util.stream.Collectors.toList;
 @Slf4j
 public class TokenProvider {
 
+    /** Upper bound on how long a verified access token is trusted without re-checking the signature. */
+    private static final Duration VERIFIED_TOKEN_TTL = Duration.ofSeconds(60);
+    private static final int VERIFIED_TOKEN_CACHE_SIZE = 10_000;
+
     private final UserService userService;
+    private final MeterRegistry meterRegistry;
 
     @Value("${jwt.secret}")
     private String secret;
 
+    /** Built lazily because {@link #secret} is field-injected after construction. JWTVerifier is thread-safe. */
+    private volatile JWTVerifier accessTokenVerifier;
+
+    /**
+     * Verified access tokens keyed by SHA-256 of the raw token. Entries never outlive the
+     * token's own exp claim, so a cache hit can never resurrect an expired token.
+     * Revocation is unaffected — the blacklist is still checked on every request.
+     */
+    private final Cache<String, DecodedJWT> verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(VERIFIED_TOKEN_CACHE_SIZE)
+            .expireAfter(new Expiry<String, DecodedJWT>() {
+                @Override
+                public long expireAfterCreate(String key, DecodedJWT jwt, long currentTime) {
+                    long untilExpiry = jwt.getExpiresAt().getTime() - currentTimeMillis();
+                    return Duration.ofMillis(Math.max(0, Math.min(untilExpiry, VERIFIED_TOKEN_TTL.toMillis()))).toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, DecodedJWT jwt, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String key, DecodedJWT jwt, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+
+    @PostConstruct
+    void bindCacheMetrics() {
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
+    }
+
     public String createAccessToken(UserPrincipal userPrincipal){
         // Extract permissions and roles for JWT claims - put all authorities into permissions array
         List<String> allAuthorities = userPrincipal.getAuthorities().stream()
@@ -99,20 +151,38 @@ public class TokenProvider {
                 .sign(HMAC512(secret.getBytes()));
     }
 
-    public Long getSubject(String token, HttpServletRequest request) {
+    /**
+     * Verify an access token once and return the decoded claims. Every per-request accessor
+     * below takes the result, so the HMAC check and claim parsing happen a single time per
+     * request — and not at all when the same token was verified within the last minute.
+     */
+    public DecodedJWT verifyAccessToken(String token, HttpServletRequest request) {
+        String key = hashToken(token);
+        DecodedJWT cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) return cached;
         try {
-            return Long.valueOf(getJWTVerifier().verify(token).getSubject());
+            DecodedJWT decoded = getJWTVerifier().verify(token);
+            if (decoded.getExpiresAt() != null) {
+                verifiedTokens.put(key, decoded);
+            }
+            return decoded;
         } catch (TokenExpiredException exception) {
             if (request != null) request.setAttribute("expiredMessage", exception.getMessage());
             throw exception;
         } catch (InvalidClaimException exception) {
             if (request != null) request.setAttribute("invalidClaim", exception.getMessage());
             throw exception;
-        } catch (Exception exception) {
-            throw exception;
         }
     }
 
+    public Long getSubject(String token, HttpServletRequest request) {
+        return getSubject(verifyAccessToken(token, request));
+    }
+
+    public Long getSubject(DecodedJWT decodedToken) {
+        return Long.valueOf(decodedToken.getSubject());
+    }
+
     /** Verify a refresh token and return the user ID. Only accepts tokenType=refresh. */
     public Long getSubjectFromRefreshToken(String token, HttpServletRequest request) {
         try {
@@ -142,7 +212,11 @@ public class TokenProvider {
 
 
     public List<GrantedAuthority> getAuthorities(String token){
-        String[] claims = getClaimsFromToken(token);
+        return getAuthorities(verifyAccessToken(token, null));
+    }
+
+    public List<GrantedAuthority> getAuthorities(DecodedJWT decodedToken){
+        String[] claims = decodedToken.getClaim(AUTHORITIES).asArray(String.class);
         return stream(claims).map(SimpleGrantedAuthority::new).collect(toList());
     }
 
@@ -153,55 +227,71 @@ public class TokenProvider {
     }
 
     public boolean isTokenValid(Long userId, String token){
-        JWTVerifier verifier = getJWTVerifier();
-        return !Objects.isNull(userId) && !isTokenExpired(verifier, token);
+        return isTokenValid(userId, verifyAccessToken(token, null));
+    }
+
+    public boolean isTokenValid(Long userId, DecodedJWT decodedToken){
+        return !Objects.isNull(userId) && !isTokenExpired(decodedToken);
     }
 
-    /**
-     * Extract organization ID from JWT token
-     * This allows setting tenant context without a database lookup
-     */
     public long getIssuedAt(String token) {
         try {
-            return getJWTVerifier().verify(token).getIssuedAt().getTime();
+            return getIssuedAt(verifyAccessToken(token, null));
         } catch (Exception e) {
             return 0;
         }
     }
 
+    public long getIssuedAt(DecodedJWT decodedToken) {
+        Date issuedAt = decodedToken.getIssuedAt();
+        return issuedAt == null ? 0 : issuedAt.getTime();
+    }
+
+    /**
+     * Extract organization ID from JWT token
+     * This allows setting tenant context without a database lookup
+     */
     public Long getOrganizationId(String token) {
         try {
-            JWTVerifier verifier = getJWTVerifier();
-            var decodedToken = verifier.verify(token);
-            var claim = decodedToken.getClaim("organizationId");
-            if (claim.isNull()) {
-                log.warn("Token does not contain organizationId claim");
-                return null;
-            }
-            Long orgId = claim.asLong();
-            log.debug("Extracted organizationId {} from token", orgId);
-            return orgId;
+            return getOrganizationId(verifyAccessToken(token, null));
         } catch (Exception e) {
             log.error("Failed to extract organizationId from token: {}", e.getMessage());
             return null;
         }
     }
-   private boolean isTokenExpired(JWTVerifier verifier, String token) {
-        Date expiration = verifier.verify(token).getExpiresAt();
-        return expiration.before(new Date());
+
+    public Long getOrganizationId(DecodedJWT decodedToken) {
+        var claim = decodedToken.getClaim("organizationId");
+        if (claim.isNull()) {
+            log.warn("Token does not contain organizationId claim");
+            return null;
+        }
+        Long orgId = claim.asLong();
+        log.debug("Extracted organizationId {} from token", orgId);
+        return orgId;
+    }
+
+    private boolean isTokenExpired(DecodedJWT decodedToken) {
+        Date expiration = decodedToken.getExpiresAt();
+        return expiration == null || expiration.before(new Date());
     }
 
     private String[] getClaimsFromUser(UserPrincipal userPrincipal) {
         return userPrincipal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toArray(String[]::new);
     }
 
-    private String[] getClaimsFromToken(String token) {
-        JWTVerifier verifier = getJWTVerifier();
-        return verifier.verify(token).getClaim(AUTHORITIES).asArray(String.class);
+    private static String hashToken(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     private JWTVerifier getJWTVerifier() {
-        JWTVerifier verifier;
+        JWTVerifier verifier = accessTokenVerifier;
+        if (verifier != null) return verifier;
         try {
             Algorithm algorithm = HMAC512(secret);
             verifier = JWT.require(algorithm)
@@ -210,6 +300,7 @@ public class TokenProvider {
                 .withClaim("tokenType", "access")
                 .build();
         } catch (JWTVerificationException exception) { throw new JWTVerificationException(TOKEN_CANNOT_BE_VERIFIED); }
+        accessTokenVerifier = verifier;
         return verifier;
     }
 
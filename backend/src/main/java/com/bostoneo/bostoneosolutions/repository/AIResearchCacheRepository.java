@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -67,6 +68,40 @@ public interface AIResearchCacheRepository extends JpaRepository<AIResearchCache
      */
     boolean existsByIdAndOrganizationId(Long id, Long organizationId);
 
+    List<AIResearchCache> findByOrganizationIdAndQueryHashIn(Long organizationId, Collection<String> queryHashes);
+
+    // ==================== SIMILARITY INDEX ====================
+
+    /**
+     * What the per-tenant LSH index needs from a cached query; the query text only for rows
+     * without a signature (cached before V83).
+     */
+    interface CachedQuerySignature {
+        String getQueryHash();
+        QueryType getQueryType();
+        String getResearchMode();
+        String getJurisdiction();
+        String getCaseId();
+        LocalDateTime getExpiresAt();
+        byte[] getMinhashSignature();
+        String getQueryText();
+    }
+
+    @Query("SELECT c.queryHash AS queryHash, c.queryType AS queryType, c.researchMode AS researchMode, " +
+        "c.jurisdiction AS jurisdiction, c.caseId AS caseId, c.expiresAt AS expiresAt, " +
+        "c.minhashSignature AS minhashSignature, " +
+        "CASE WHEN c.minhashSignature IS NULL THEN c.queryText ELSE NULL END AS queryText " +
+        "FROM AIResearchCache c WHERE c.organizationId = :organizationId AND c.isValid = true AND c.expiresAt > :now")
+    List<CachedQuerySignature> findValidSignaturesByOrganizationId(@Param("organizationId") Long organizationId,
+                                                                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE AIResearchCache c SET c.minhashSignature = :signature " +
+        "WHERE c.organizationId = :organizationId AND c.queryHash = :queryHash")
+    void updateMinhashSignature(@Param("organizationId") Long organizationId, @Param("queryHash") String queryHash,
+                                @Param("signature") byte[] signature);
+
     /**
      * Atomic upsert: INSERT or UPDATE on query_hash conflict.
      * Prevents duplicate key violations from race conditions.
@@ -75,12 +110,12 @@ public interface AIResearchCacheRepository extends JpaRepository<AIResearchCache
     @Transactional
     @Query(value = "INSERT INTO ai_research_cache (organization_id, query_hash, query_text, query_type, " +
         "jurisdiction, research_mode, case_id, ai_response, ai_model_used, confidence_score, " +
-        "usage_count, expires_at, is_valid, last_used, created_at) " +
+        "usage_count, expires_at, is_valid, last_used, created_at, minhash_signature) " +
         "VALUES (:orgId, :queryHash, :queryText, :queryType, :jurisdiction, :researchMode, " +
-        ":caseId, :aiResponse, :aiModelUsed, :confidenceScore, 1, :expiresAt, true, NOW(), NOW()) " +
+        ":caseId, :aiResponse, :aiModelUsed, :confidenceScore, 1, :expiresAt, true, NOW(), NOW(), :minhashSignature) " +
         "ON CONFLICT (query_hash) DO UPDATE SET " +
         "ai_response = :aiResponse, usage_count = ai_research_cache.usage_count + 1, " +
-        "expires_at = :expiresAt, is_valid = true, last_used = NOW()",
+        "expires_at = :expiresAt, is_valid = true, last_used = NOW(), minhash_signature = :minhashSignature",
         nativeQuery = true)
     void upsertCache(
         @Param("orgId") Long orgId,
@@ -93,6 +128,7 @@ public interface AIResearchCacheRepository extends JpaRepository<AIResearchCache
         @Param("aiResponse") String aiResponse,
         @Param("aiModelUsed") String aiModelUsed,
         @Param("confidenceScore") java.math.BigDecimal confidenceScore,
-        @Param("expiresAt") LocalDateTime expiresAt
+        @Param("expiresAt") LocalDateTime expiresAt,
+        @Param("minhashSignature") byte[] minhashSignature
     );
 }
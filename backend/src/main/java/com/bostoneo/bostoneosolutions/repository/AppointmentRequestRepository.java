@@ -113,7 +113,8 @@ public interface AppointmentRequestRepository extends JpaRepository<AppointmentR
     // =====================================================
 
     /**
-     * Find appointments needing 24-hour reminder
+     * Find appointments needing 24-hour reminder.
+     * NOTE: Used by background scheduler - processes all orgs intentionally.
      */
     @Query("SELECT a FROM AppointmentRequest a WHERE a.status = 'CONFIRMED' " +
            "AND a.reminder24hSent = false " +
@@ -123,7 +124,8 @@ public interface AppointmentRequestRepository extends JpaRepository<AppointmentR
             @Param("end") LocalDateTime end);
 
     /**
-     * Find appointments needing 1-hour reminder
+     * Find appointments needing 1-hour reminder.
+     * NOTE: Used by background scheduler - processes all orgs intentionally.
      */
     @Query("SELECT a FROM AppointmentRequest a WHERE a.status = 'CONFIRMED' " +
            "AND a.reminder1hSent = false " +
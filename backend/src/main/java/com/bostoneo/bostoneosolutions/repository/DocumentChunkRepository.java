@@ -84,12 +84,18 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
     @Query("SELECT dc FROM DocumentChunk dc WHERE dc.collectionId = :collectionId AND dc.organizationId = :organizationId ORDER BY dc.analysisId ASC, dc.chunkIndex ASC")
     List<DocumentChunk> findByCollectionIdAndOrganizationIdOrderByAnalysisIdAscChunkIndexAsc(@Param("collectionId") Long collectionId, @Param("organizationId") Long organizationId);
 
-    @Query("SELECT dc FROM DocumentChunk dc WHERE dc.analysisId = :analysisId AND dc.organizationId = :organizationId AND dc.embedding IS NOT NULL")
+    @Query("SELECT dc FROM DocumentChunk dc WHERE dc.analysisId = :analysisId AND dc.organizationId = :organizationId AND (dc.embeddingVector IS NOT NULL OR dc.embedding IS NOT NULL)")
     List<DocumentChunk> findByAnalysisIdAndOrganizationIdAndEmbeddingIsNotNull(@Param("analysisId") Long analysisId, @Param("organizationId") Long organizationId);
 
-    @Query("SELECT dc FROM DocumentChunk dc WHERE dc.collectionId = :collectionId AND dc.organizationId = :organizationId AND dc.embedding IS NOT NULL")
+    @Query("SELECT dc FROM DocumentChunk dc WHERE dc.collectionId = :collectionId AND dc.organizationId = :organizationId AND (dc.embeddingVector IS NOT NULL OR dc.embedding IS NOT NULL)")
     List<DocumentChunk> findByCollectionIdAndOrganizationIdAndEmbeddingIsNotNull(@Param("collectionId") Long collectionId, @Param("organizationId") Long organizationId);
 
+    @Query("SELECT COUNT(dc) FROM DocumentChunk dc WHERE dc.analysisId = :analysisId AND dc.organizationId = :organizationId")
+    long countByAnalysisIdAndOrganizationId(@Param("analysisId") Long analysisId, @Param("organizationId") Long organizationId);
+
+    @Query("SELECT COUNT(dc) FROM DocumentChunk dc WHERE dc.analysisId = :analysisId AND dc.organizationId = :organizationId AND (dc.embeddingVector IS NOT NULL OR dc.embedding IS NOT NULL)")
+    long countEmbeddedByAnalysisIdAndOrganizationId(@Param("analysisId") Long analysisId, @Param("organizationId") Long organizationId);
+
     @Modifying
     @Transactional
     @Query("DELETE FROM DocumentChunk dc WHERE dc.analysisId = :analysisId AND dc.organizationId = :organizationId")
@@ -106,4 +112,95 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
      */
     @Query("SELECT dc FROM DocumentChunk dc WHERE dc.organizationId = :organizationId")
     List<DocumentChunk> findByOrganizationId(@Param("organizationId") Long organizationId);
+
+    /**
+     * SECURITY: Load specific chunks by ID with organization filter (hydrates vector top-k hits)
+     */
+    @Query("SELECT dc FROM DocumentChunk dc WHERE dc.id IN :ids AND dc.organizationId = :organizationId")
+    List<DocumentChunk> findByIdInAndOrganizationId(@Param("ids") List<Long> ids, @Param("organizationId") Long organizationId);
+
+    // ========== VECTOR SEARCH ==========
+
+    /**
+     * Chunk ID + stored embedding, without the chunk text (for in-process vector scoring).
+     */
+    interface ChunkEmbedding {
+        Long getId();
+        Long getAnalysisId();
+        byte[] getEmbeddingVector();
+        String getEmbedding();
+    }
+
+    @Query("SELECT dc.id AS id, dc.analysisId AS analysisId, dc.embeddingVector AS embeddingVector, dc.embedding AS embedding FROM DocumentChunk dc " +
+            "WHERE dc.collectionId = :collectionId AND dc.organizationId = :organizationId " +
+            "AND (dc.embeddingVector IS NOT NULL OR dc.embedding IS NOT NULL)")
+    List<ChunkEmbedding> findEmbeddingsByCollectionIdAndOrganizationId(@Param("collectionId") Long collectionId, @Param("organizationId") Long organizationId);
+
+    @Query("SELECT dc.id AS id, dc.analysisId AS analysisId, dc.embeddingVector AS embeddingVector, dc.embedding AS embedding FROM DocumentChunk dc " +
+            "WHERE dc.analysisId = :analysisId AND dc.organizationId = :organizationId " +
+            "AND (dc.embeddingVector IS NOT NULL OR dc.embedding IS NOT NULL)")
+    List<ChunkEmbedding> findEmbeddingsByAnalysisIdAndOrganizationId(@Param("analysisId") Long analysisId, @Param("organizationId") Long organizationId);
+
+    // ========== KEYWORD INDEX ==========
+
+    /**
+     * Chunk ID + persisted term vector; content only for chunks that predate term vectors (V82).
+     */
+    interface ChunkTerms {
+        Long getId();
+        Integer getTermCount();
+        byte[] getTermVector();
+        String getContent();
+    }
+
+    @Query("SELECT dc.id AS id, dc.termCount AS termCount, dc.termVector AS termVector, " +
+            "CASE WHEN dc.termVector IS NULL THEN dc.content ELSE NULL END AS content FROM DocumentChunk dc " +
+            "WHERE dc.analysisId = :analysisId AND dc.organizationId = :organizationId ORDER BY dc.id ASC")
+    List<ChunkTerms> findTermsByAnalysisIdAndOrganizationId(@Param("analysisId") Long analysisId, @Param("organizationId") Long organizationId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentChunk dc SET dc.termVector = :termVector, dc.termCount = :termCount WHERE dc.id = :id AND dc.organizationId = :organizationId")
+    void updateTermVector(@Param("id") Long id, @Param("organizationId") Long organizationId,
+                          @Param("termVector") byte[] termVector, @Param("termCount") Integer termCount);
+
+    // ========== VECTOR TOP-K (pgvector, only when V80 created embedding_pgv) ==========
+
+    /**
+     * Chunk ID + cosine similarity for a top-k vector hit.
+     */
+    interface ChunkSimilarity {
+        Long getId();
+        Double getScore();
+    }
+
+    /**
+     * SECURITY: Top-k chunks in a collection by cosine similarity, org-scoped.
+     * @param queryVector pgvector literal, e.g. "[0.1,0.2,...]"
+     */
+    @Query(value = "SELECT dc.id AS id, 1 - (dc.embedding_pgv <=> CAST(:queryVector AS vector)) AS score " +
+            "FROM document_chunks dc " +
+            "WHERE dc.organization_id = :organizationId AND dc.collection_id = :collectionId AND dc.embedding_pgv IS NOT NULL " +
+            "ORDER BY dc.embedding_pgv <=> CAST(:queryVector AS vector) LIMIT :k", nativeQuery = true)
+    List<ChunkSimilarity> findTopKByCollectionIdAndOrganizationId(@Param("collectionId") Long collectionId,
+                                                                  @Param("organizationId") Long organizationId,
+                                                                  @Param("queryVector") String queryVector,
+                                                                  @Param("k") int k);
+
+    /**
+     * SECURITY: Top-k chunks in a single document by cosine similarity, org-scoped.
+     */
+    @Query(value = "SELECT dc.id AS id, 1 - (dc.embedding_pgv <=> CAST(:queryVector AS vector)) AS score " +
+            "FROM document_chunks dc " +
+            "WHERE dc.organization_id = :organizationId AND dc.analysis_id = :analysisId AND dc.embedding_pgv IS NOT NULL " +
+            "ORDER BY dc.embedding_pgv <=> CAST(:queryVector AS vector) LIMIT :k", nativeQuery = true)
+    List<ChunkSimilarity> findTopKByAnalysisIdAndOrganizationId(@Param("analysisId") Long analysisId,
+                                                                @Param("organizationId") Long organizationId,
+                                                                @Param("queryVector") String queryVector,
+                                                                @Param("k") int k);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE document_chunks SET embedding_pgv = CAST(:vector AS vector) WHERE id = :id AND organization_id = :organizationId", nativeQuery = true)
+    void updatePgVector(@Param("id") Long id, @Param("organizationId") Long organizationId, @Param("vector") String vector);
 }
@@ -0,0 +1,98 @@
+package com.bostoneo.bostoneosolutions.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Content-addressed extracted-text store (V87). All access is scoped by organization.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentTextCacheRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public record Entry(String extractionMethod, String mimeType, String text, String pageOffsetsJson, int pageCount) {}
+
+    private static final String SELECT_BY_HASH = """
+        SELECT extraction_method, mime_type, extracted_text, page_offsets::text AS page_offsets, page_count
+          FROM document_text_cache
+         WHERE organization_id = :organizationId
+           AND content_hash = :contentHash
+        """;
+
+    // Text-layer extractions never replace what is already there (possibly an OCR result)
+    private static final String INSERT_ENTRY = """
+        INSERT INTO document_text_cache (organization_id, content_hash, extraction_method, mime_type,
+                                         extracted_text, page_offsets, page_count, char_count)
+        VALUES (:organizationId, :contentHash, :method, :mimeType, :text, CAST(:pageOffsets AS jsonb), :pageCount, :charCount)
+        ON CONFLICT (organization_id, content_hash) DO NOTHING
+        """;
+
+    private static final String UPSERT_ENTRY = """
+        INSERT INTO document_text_cache (organization_id, content_hash, extraction_method, mime_type,
+                                         extracted_text, page_offsets, page_count, char_count)
+        VALUES (:organizationId, :contentHash, :method, :mimeType, :text, CAST(:pageOffsets AS jsonb), :pageCount, :charCount)
+        ON CONFLICT (organization_id, content_hash) DO UPDATE
+           SET extraction_method = EXCLUDED.extraction_method,
+               mime_type = COALESCE(EXCLUDED.mime_type, document_text_cache.mime_type),
+               extracted_text = EXCLUDED.extracted_text,
+               page_offsets = EXCLUDED.page_offsets,
+               page_count = EXCLUDED.page_count,
+               char_count = EXCLUDED.char_count,
+               last_used_at = NOW()
+        """;
+
+    private static final String RECORD_HIT = """
+        UPDATE document_text_cache
+           SET hit_count = hit_count + 1, last_used_at = NOW()
+         WHERE organization_id = :organizationId
+           AND content_hash = :contentHash
+        """;
+
+    /**
+     * SECURITY: Cached extraction for the given file hash, org-scoped.
+     */
+    public Optional<Entry> find(Long organizationId, String contentHash) {
+        var params = new MapSqlParameterSource()
+                .addValue("organizationId", organizationId)
+                .addValue("contentHash", contentHash);
+        List<Entry> rows = jdbc.query(SELECT_BY_HASH, params, (rs, i) -> new Entry(
+                rs.getString("extraction_method"),
+                rs.getString("mime_type"),
+                rs.getString("extracted_text"),
+                rs.getString("page_offsets"),
+                rs.getInt("page_count")));
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Store an extraction. With {@code replace} false an existing entry for the hash is kept.
+     */
+    public void save(Long organizationId, String contentHash, Entry entry, boolean replace) {
+        var params = new MapSqlParameterSource()
+                .addValue("organizationId", organizationId)
+                .addValue("contentHash", contentHash)
+                .addValue("method", entry.extractionMethod())
+                .addValue("mimeType", entry.mimeType())
+                .addValue("text", entry.text())
+                .addValue("pageOffsets", entry.pageOffsetsJson())
+                .addValue("pageCount", entry.pageCount())
+                .addValue("charCount", entry.text().length());
+        jdbc.update(replace ? UPSERT_ENTRY : INSERT_ENTRY, params);
+    }
+
+    public void recordHit(Long organizationId, String contentHash) {
+        var params = new MapSqlParameterSource()
+                .addValue("organizationId", organizationId)
+                .addValue("contentHash", contentHash);
+        jdbc.update(RECORD_HIT, params);
+    }
+}
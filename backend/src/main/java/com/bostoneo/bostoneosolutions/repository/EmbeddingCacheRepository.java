@@ -0,0 +1,87 @@
+package com.bostoneo.bostoneosolutions.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content-addressed embedding store (V81). All access is scoped by organization.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddingCacheRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    private static final String SELECT_BY_HASHES = """
+        SELECT content_hash, embedding_vector
+          FROM embedding_cache
+         WHERE organization_id = :organizationId
+           AND embedding_model = :model
+           AND content_hash IN (:hashes)
+        """;
+
+    private static final String INSERT_ENTRY = """
+        INSERT INTO embedding_cache (organization_id, content_hash, embedding_model, embedding_vector, embedding_dimensions)
+        VALUES (:organizationId, :contentHash, :model, :vector, :dimensions)
+        ON CONFLICT (organization_id, embedding_model, content_hash) DO NOTHING
+        """;
+
+    private static final String RECORD_HITS = """
+        UPDATE embedding_cache
+           SET hit_count = hit_count + 1, last_used_at = NOW()
+         WHERE organization_id = :organizationId
+           AND embedding_model = :model
+           AND content_hash IN (:hashes)
+        """;
+
+    /**
+     * SECURITY: Packed embeddings for the given content hashes, org-scoped.
+     */
+    public Map<String, byte[]> findVectors(Long organizationId, String model, Collection<String> hashes) {
+        Map<String, byte[]> vectors = new HashMap<>();
+        if (hashes.isEmpty()) return vectors;
+        var params = new MapSqlParameterSource()
+                .addValue("organizationId", organizationId)
+                .addValue("model", model)
+                .addValue("hashes", hashes);
+        jdbc.query(SELECT_BY_HASHES, params, rs -> {
+            vectors.put(rs.getString("content_hash"), rs.getBytes("embedding_vector"));
+        });
+        return vectors;
+    }
+
+    /**
+     * Insert new entries; hashes already cached for the organization are left untouched.
+     */
+    public void saveAll(Long organizationId, String model, Map<String, byte[]> vectorsByHash) {
+        if (vectorsByHash.isEmpty()) return;
+        SqlParameterSource[] batch = vectorsByHash.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("organizationId", organizationId)
+                        .addValue("contentHash", entry.getKey())
+                        .addValue("model", model)
+                        .addValue("vector", entry.getValue())
+                        .addValue("dimensions", entry.getValue().length / Float.BYTES))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate(INSERT_ENTRY, batch);
+    }
+
+    public void recordHits(Long organizationId, String model, List<String> hashes) {
+        if (hashes.isEmpty()) return;
+        var params = new MapSqlParameterSource()
+                .addValue("organizationId", organizationId)
+                .addValue("model", model)
+                .addValue("hashes", hashes);
+        jdbc.update(RECORD_HITS, params);
+    }
+}
@@ -1,14 +1,14 @@
 package com.bostoneo.bostoneosolutions.resource;
 
+import com.bostoneo.bostoneosolutions.service.AnalyticsRollupService;
+import com.bostoneo.bostoneosolutions.service.DashboardSnapshotService;
 import com.bostoneo.bostoneosolutions.service.InvoiceService;
-import com.bostoneo.bostoneosolutions.service.LegalCaseService;
 import com.bostoneo.bostoneosolutions.service.ClientService;
 import com.bostoneo.bostoneosolutions.service.UserService;
 import com.bostoneo.bostoneosolutions.repository.InvoiceRepository;
 import com.bostoneo.bostoneosolutions.repository.LegalCaseRepository;
 import com.bostoneo.bostoneosolutions.repository.ClientRepository;
 import com.bostoneo.bostoneosolutions.dto.InvoiceAnalyticsDTO;
-import com.bostoneo.bostoneosolutions.dto.LegalCaseDTO;
 import com.bostoneo.bostoneosolutions.enumeration.CaseStatus;
 import com.bostoneo.bostoneosolutions.model.Client;
 import com.bostoneo.bostoneosolutions.model.User;
@@ -19,13 +19,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
@@ -41,7 +45,6 @@ import java.math.BigDecimal;
 public class AnalyticsResource {
 
     private final InvoiceService invoiceService;
-    private final LegalCaseService legalCaseService;
     private final ClientService clientService;
     private final UserService userService;
     private final com.bostoneo.bostoneosolutions.multitenancy.TenantService tenantService;
@@ -50,6 +53,8 @@ public class AnalyticsResource {
     private final InvoiceRepository invoiceRepository;
     private final LegalCaseRepository legalCaseRepository;
     private final ClientRepository clientRepository;
+    private final AnalyticsRollupService rollupService;
+    private final DashboardSnapshotService dashboardSnapshotService;
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
@@ -77,42 +82,29 @@ public class AnalyticsResource {
     @GetMapping("/cases")
     public Map<String, Object> getCaseAnalytics() {
         Map<String, Object> analytics = new HashMap<>();
-        
-        // Get all cases (using a large page size to get all)
-        Page<LegalCaseDTO> allCasesPage = legalCaseService.getAllCases(0, 1000);
-        List<LegalCaseDTO> allCases = allCasesPage.getContent();
-        
-        analytics.put("totalCases", allCases.size());
-        
+
+        AnalyticsRollupService.CaseRollup rollup = rollupService.getCaseRollup(getRequiredOrganizationId());
+
+        analytics.put("totalCases", rollup.total());
+
         // Count by status
-        Map<String, Long> statusCounts = allCases.stream()
-            .collect(Collectors.groupingBy(
-                case_ -> case_.getStatus() != null ? case_.getStatus().toString() : "UNKNOWN",
-                Collectors.counting()
-            ));
-        
+        Map<String, Long> statusCounts = rollup.countByStatus();
+
         analytics.put("activeCases", statusCounts.getOrDefault("OPEN", 0L) + statusCounts.getOrDefault("IN_PROGRESS", 0L));
         analytics.put("closedCases", statusCounts.getOrDefault("CLOSED", 0L));
         analytics.put("pendingCases", statusCounts.getOrDefault("PENDING", 0L));
         analytics.put("casesByStatus", statusCounts);
-        
+
         // Count by practice area
-        Map<String, Long> typeCounts = allCases.stream()
-            .collect(Collectors.groupingBy(
-                case_ -> case_.getEffectivePracticeArea() != null ? case_.getEffectivePracticeArea() : "Other",
-                Collectors.counting()
-            ));
+        Map<String, Long> typeCounts = new HashMap<>();
+        rollup.countByPracticeArea().forEach((area, count) -> typeCounts.merge(area != null ? area : "Other", count, Long::sum));
         analytics.put("casesByType", typeCounts);
 
         // Revenue by practice area
-        Map<String, Double> revenueByType = allCases.stream()
-            .filter(case_ -> case_.getTotalAmount() != null)
-            .collect(Collectors.groupingBy(
-                case_ -> case_.getEffectivePracticeArea() != null ? case_.getEffectivePracticeArea() : "Other",
-                Collectors.summingDouble(LegalCaseDTO::getTotalAmount)
-            ));
+        Map<String, Double> revenueByType = new HashMap<>();
+        rollup.amountByPracticeArea().forEach((area, amount) -> revenueByType.merge(area != null ? area : "Other", amount, Double::sum));
         analytics.put("revenueByType", revenueByType);
-        
+
         return analytics;
     }
 
@@ -251,59 +243,15 @@ public class AnalyticsResource {
     // Real database query methods using JdbcTemplate
     private Map<String, Double> getMonthlyRevenueFromDB() {
         Map<String, Double> monthlyRevenue = new HashMap<>();
-        Long orgId = getRequiredOrganizationId();
-
-        try {
-            String sql = "SELECT TO_CHAR(date, 'YYYY-MM') as month, SUM(total) as revenue " +
-                        "FROM invoice " +
-                        "WHERE date IS NOT NULL AND organization_id = ? " +
-                        "GROUP BY TO_CHAR(date, 'YYYY-MM') " +
-                        "ORDER BY month";
-
-            List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, orgId);
-
-            for (Map<String, Object> row : results) {
-                String month = (String) row.get("month");
-                Double revenue = ((Number) row.get("revenue")).doubleValue();
-                monthlyRevenue.put(month, revenue);
-            }
-
-            log.debug("Retrieved monthly revenue from DB: " + monthlyRevenue);
-
-        } catch (Exception e) {
-            log.error("Error querying monthly revenue: " + e.getMessage());
-            e.printStackTrace();
-        }
-
+        rollupService.getMonthly(getRequiredOrganizationId(), AnalyticsRollupService.Metric.INVOICE_ISSUED)
+            .forEach((month, bucket) -> monthlyRevenue.put(month, bucket.amount().doubleValue()));
         return monthlyRevenue;
     }
 
     private Map<String, Integer> getMonthlyCasesFromDB() {
         Map<String, Integer> monthlyCases = new HashMap<>();
-        Long orgId = getRequiredOrganizationId();
-
-        try {
-            String sql = "SELECT TO_CHAR(created_at, 'YYYY-MM') as month, COUNT(*) as cases " +
-                        "FROM legal_cases " +
-                        "WHERE created_at IS NOT NULL AND organization_id = ? " +
-                        "GROUP BY TO_CHAR(created_at, 'YYYY-MM') " +
-                        "ORDER BY month";
-
-            List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, orgId);
-
-            for (Map<String, Object> row : results) {
-                String month = (String) row.get("month");
-                Integer cases = ((Number) row.get("cases")).intValue();
-                monthlyCases.put(month, cases);
-            }
-
-            log.debug("Retrieved monthly cases from DB: " + monthlyCases);
-
-        } catch (Exception e) {
-            log.error("Error querying monthly cases: " + e.getMessage());
-            e.printStackTrace();
-        }
-
+        rollupService.getMonthly(getRequiredOrganizationId(), AnalyticsRollupService.Metric.CASE_CREATED)
+            .forEach((month, bucket) -> monthlyCases.put(month, (int) bucket.count()));
         return monthlyCases;
     }
 
@@ -339,17 +287,12 @@ public class AnalyticsResource {
     @GetMapping("/revenue-by-practice")
     public Map<String, Double> getRevenueByPracticeArea() {
         Map<String, Double> revenueData = new HashMap<>();
-        
-        Page<LegalCaseDTO> allCasesPage = legalCaseService.getAllCases(0, 1000);
-        List<LegalCaseDTO> allCases = allCasesPage.getContent();
-        
+
+        AnalyticsRollupService.CaseRollup rollup = rollupService.getCaseRollup(getRequiredOrganizationId());
+
         // Calculate actual revenue by practice area (values are already human-readable)
-        Map<String, Double> actualRevenue = allCases.stream()
-            .filter(case_ -> case_.getTotalAmount() != null && case_.getEffectivePracticeArea() != null)
-            .collect(Collectors.groupingBy(
-                LegalCaseDTO::getEffectivePracticeArea,
-                Collectors.summingDouble(LegalCaseDTO::getTotalAmount)
-            ));
+        Map<String, Double> actualRevenue = new HashMap<>(rollup.amountByPracticeArea());
+        actualRevenue.remove(null);
 
         log.debug("Actual revenue by practice area: " + actualRevenue);
 
@@ -363,12 +306,8 @@ public class AnalyticsResource {
             double totalInvoiceRevenue = invoiceService.calculateTotalEarnings();
             log.debug("Using total invoice revenue for distribution: " + totalInvoiceRevenue);
 
-            Map<String, Long> practiceAreaCounts = allCases.stream()
-                .filter(case_ -> case_.getEffectivePracticeArea() != null)
-                .collect(Collectors.groupingBy(
-                    LegalCaseDTO::getEffectivePracticeArea,
-                    Collectors.counting()
-                ));
+            Map<String, Long> practiceAreaCounts = new HashMap<>(rollup.countByPracticeArea());
+            practiceAreaCounts.remove(null);
 
             if (!practiceAreaCounts.isEmpty() && totalInvoiceRevenue > 0) {
                 double totalCases = practiceAreaCounts.values().stream().mapToLong(Long::longValue).sum();
@@ -380,68 +319,41 @@ public class AnalyticsResource {
                 });
             }
         }
-        
+
         return revenueData;
     }
 
     @GetMapping("/kpis")
     public Map<String, Object> getPerformanceKPIs() {
         Map<String, Object> kpis = new HashMap<>();
-        
-        Page<LegalCaseDTO> allCasesPage = legalCaseService.getAllCases(0, 1000);
-        List<LegalCaseDTO> allCases = allCasesPage.getContent();
-        
+
+        AnalyticsRollupService.CaseRollup rollup = rollupService.getCaseRollup(getRequiredOrganizationId());
+        long totalCases = rollup.total();
+
         // Calculate case success rate (closed cases / total cases)
-        long closedCases = allCases.stream()
-            .filter(case_ -> "CLOSED".equals(case_.getStatus() != null ? case_.getStatus().toString() : ""))
-            .count();
-        double successRate = allCases.isEmpty() ? 0 : (double) closedCases / allCases.size() * 100;
-        
+        long closedCases = rollup.count("CLOSED");
+        double successRate = totalCases == 0 ? 0 : (double) closedCases / totalCases * 100;
+
         // Calculate client satisfaction based on case completion and payment status
         InvoiceAnalyticsDTO invoiceAnalytics = invoiceService.countPaidVsUnpaidInvoices();
         double totalInvoices = invoiceAnalytics.getPaidInvoices() + invoiceAnalytics.getUnpaidInvoices();
         double paymentRate = totalInvoices > 0 ? (double) invoiceAnalytics.getPaidInvoices() / totalInvoices * 100 : 0;
-        
+
         // System efficiency based on case progression (in progress + closed vs total)
-        long progressiveCases = allCases.stream()
-            .filter(case_ -> "IN_PROGRESS".equals(case_.getStatus() != null ? case_.getStatus().toString() : "") ||
-                           "CLOSED".equals(case_.getStatus() != null ? case_.getStatus().toString() : ""))
-            .count();
-        double systemEfficiency = allCases.isEmpty() ? 0 : (double) progressiveCases / allCases.size() * 100;
-        
-        // Calculate average resolution time using real data (simplified)
-        double avgResolutionTime = calculateAverageResolutionTimeFromDB();
-        
+        long progressiveCases = rollup.count("IN_PROGRESS", "CLOSED");
+        double systemEfficiency = totalCases == 0 ? 0 : (double) progressiveCases / totalCases * 100;
+
+        // Average resolution time in months
+        double avgResolutionTime = Math.round(rollup.averageResolutionDays() / 30.0 * 10.0) / 10.0;
+
         kpis.put("caseSuccessRate", Math.round(successRate * 100.0) / 100.0);
         kpis.put("clientSatisfactionRate", Math.round(paymentRate * 100.0) / 100.0);
         kpis.put("systemEfficiency", Math.round(systemEfficiency * 100.0) / 100.0);
         kpis.put("averageResolutionTime", avgResolutionTime);
-        
-        log.debug("Calculated KPIs from real data: " + kpis);
-        
-        return kpis;
-    }
-
-    private double calculateAverageResolutionTimeFromDB() {
-        Long orgId = getRequiredOrganizationId();
-        try {
-            String sql = "SELECT AVG(EXTRACT(DAY FROM (updated_at - created_at))) as avg_days " +
-                        "FROM legal_cases " +
-                        "WHERE status = 'CLOSED' AND created_at IS NOT NULL AND updated_at IS NOT NULL AND organization_id = ?";
 
-            Double avgDays = jdbcTemplate.queryForObject(sql, Double.class, orgId);
-
-            if (avgDays != null && avgDays > 0) {
-                // Convert days to months
-                double avgMonths = avgDays / 30.0;
-                return Math.round(avgMonths * 10.0) / 10.0; // Round to 1 decimal place
-            }
-        } catch (Exception e) {
-            log.error("Error calculating average resolution time: " + e.getMessage());
-        }
+        log.debug("Calculated KPIs from real data: " + kpis);
 
-        // If no closed cases or error, return 0
-        return 0.0;
+        return kpis;
     }
 
     @GetMapping("/activity-heatmap")
@@ -475,121 +387,62 @@ public class AnalyticsResource {
     private Map<String, Integer> getRealActivityDataFromDB() {
         Map<String, Integer> activityData = new HashMap<>();
         Long orgId = getRequiredOrganizationId();
+        LocalDate today = LocalDate.now();
 
-        try {
-            // Query case activity (created and updated) - TENANT FILTERED
-            // PostgreSQL EXTRACT(ISODOW FROM ...) returns 1=Monday, 7=Sunday
-            String caseActivitySql = "SELECT EXTRACT(ISODOW FROM created_at)::int - 1 as day_of_week, " +
-                                   "EXTRACT(HOUR FROM created_at)::int as hour, " +
-                                   "COUNT(*) as activity_count " +
-                                   "FROM legal_cases " +
-                                   "WHERE created_at >= NOW() - INTERVAL '30 days' AND organization_id = ? " +
-                                   "GROUP BY EXTRACT(ISODOW FROM created_at), EXTRACT(HOUR FROM created_at)";
-
-            List<Map<String, Object>> caseResults = jdbcTemplate.queryForList(caseActivitySql, orgId);
-
-            for (Map<String, Object> row : caseResults) {
-                Integer dayOfWeek = ((Number) row.get("day_of_week")).intValue();
-                Integer hour = ((Number) row.get("hour")).intValue();
-                Integer count = ((Number) row.get("activity_count")).intValue();
-
-                String key = dayOfWeek + "-" + hour;
-                activityData.put(key, activityData.getOrDefault(key, 0) + count);
-            }
-
-            // Query invoice activity - TENANT FILTERED
-            String invoiceActivitySql = "SELECT EXTRACT(ISODOW FROM date)::int - 1 as day_of_week, " +
-                                      "EXTRACT(HOUR FROM date)::int as hour, " +
-                                      "COUNT(*) as activity_count " +
-                                      "FROM invoice " +
-                                      "WHERE date >= NOW() - INTERVAL '30 days' AND organization_id = ? " +
-                                      "GROUP BY EXTRACT(ISODOW FROM date), EXTRACT(HOUR FROM date)";
-
-            List<Map<String, Object>> invoiceResults = jdbcTemplate.queryForList(invoiceActivitySql, orgId);
-
-            for (Map<String, Object> row : invoiceResults) {
-                Integer dayOfWeek = ((Number) row.get("day_of_week")).intValue();
-                Integer hour = ((Number) row.get("hour")).intValue();
-                Integer count = ((Number) row.get("activity_count")).intValue();
-
-                String key = dayOfWeek + "-" + hour;
-                activityData.put(key, activityData.getOrDefault(key, 0) + (count * 2)); // Weight invoices higher
-            }
-
-            // Query case updates (for ongoing activity) - TENANT FILTERED
-            String updateActivitySql = "SELECT EXTRACT(ISODOW FROM updated_at)::int - 1 as day_of_week, " +
-                                     "EXTRACT(HOUR FROM updated_at)::int as hour, " +
-                                     "COUNT(*) as activity_count " +
-                                     "FROM legal_cases " +
-                                     "WHERE updated_at >= NOW() - INTERVAL '7 days' " +
-                                     "AND updated_at != created_at AND organization_id = ? " +
-                                     "GROUP BY EXTRACT(ISODOW FROM updated_at), EXTRACT(HOUR FROM updated_at)";
-
-            List<Map<String, Object>> updateResults = jdbcTemplate.queryForList(updateActivitySql, orgId);
+        // Case creation and invoice activity over 30 days, case updates over 7 days.
+        // Keys are "dayOfWeek-hour" with 0 = Monday; invoices weigh 2, updates 3.
+        addActivity(activityData, rollupService.getDaily(orgId, AnalyticsRollupService.Metric.CASE_CREATED, today.minusDays(30)), 1);
+        addActivity(activityData, rollupService.getDaily(orgId, AnalyticsRollupService.Metric.INVOICE_CREATED, today.minusDays(30)), 2);
+        addActivity(activityData, rollupService.getDaily(orgId, AnalyticsRollupService.Metric.CASE_UPDATED, today.minusDays(7)), 3);
 
-            for (Map<String, Object> row : updateResults) {
-                Integer dayOfWeek = ((Number) row.get("day_of_week")).intValue();
-                Integer hour = ((Number) row.get("hour")).intValue();
-                Integer count = ((Number) row.get("activity_count")).intValue();
-
-                String key = dayOfWeek + "-" + hour;
-                activityData.put(key, activityData.getOrDefault(key, 0) + (count * 3)); // Weight updates highest
-            }
+        log.debug("Real activity data points: " + activityData.size());
 
-            log.debug("Real activity data points: " + activityData.size());
+        return activityData;
+    }
 
-        } catch (Exception e) {
-            log.error("Error querying real activity data: " + e.getMessage());
-            e.printStackTrace();
+    private void addActivity(Map<String, Integer> activityData, List<AnalyticsRollupService.DailyBucket> buckets, int weight) {
+        for (AnalyticsRollupService.DailyBucket bucket : buckets) {
+            String key = (bucket.date().getDayOfWeek().getValue() - 1) + "-" + bucket.hour();
+            activityData.merge(key, (int) bucket.count() * weight, Integer::sum);
         }
-
-        return activityData;
     }
 
     @GetMapping("/case-funnel")
     public List<Map<String, Object>> getCaseProgressionFunnel() {
         List<Map<String, Object>> funnelData = new ArrayList<>();
-        
-        Page<LegalCaseDTO> allCasesPage = legalCaseService.getAllCases(0, 1000);
-        List<LegalCaseDTO> allCases = allCasesPage.getContent();
-        
-        int totalCases = allCases.size();
-        
+
+        AnalyticsRollupService.CaseRollup rollup = rollupService.getCaseRollup(getRequiredOrganizationId());
+
+        long totalCases = rollup.total();
+
         if (totalCases > 0) {
             // Calculate actual funnel stages based on real data
-            
+
             // Stage 1: Initial Inquiries (assume total cases represent successful inquiries)
             long inquiries = totalCases;
-            
+
             // Stage 2: Consultations (cases that progressed beyond initial inquiry)
             // Estimate that accepted cases had consultations
-            long consultations = allCases.stream()
-                .filter(case_ -> !"ARCHIVED".equals(case_.getStatus() != null ? case_.getStatus().toString() : ""))
-                .count();
-            
+            long consultations = totalCases - rollup.count("ARCHIVED");
+
             // Stage 3: Cases Accepted (all non-archived cases)
             long casesAccepted = consultations;
-            
+
             // Stage 4: In Progress (actively being worked on)
-            long inProgress = allCases.stream()
-                .filter(case_ -> "IN_PROGRESS".equals(case_.getStatus() != null ? case_.getStatus().toString() : "") ||
-                               "OPEN".equals(case_.getStatus() != null ? case_.getStatus().toString() : ""))
-                .count();
-            
+            long inProgress = rollup.count("IN_PROGRESS", "OPEN");
+
             // Stage 5: Successfully Resolved (closed cases)
-            long casesWon = allCases.stream()
-                .filter(case_ -> "CLOSED".equals(case_.getStatus() != null ? case_.getStatus().toString() : ""))
-                .count();
-            
+            long casesWon = rollup.count("CLOSED");
+
             funnelData.add(createFunnelStage("Initial Inquiries", (int)inquiries, 100.0));
             funnelData.add(createFunnelStage("Consultations", (int)consultations, (double)consultations/inquiries * 100));
             funnelData.add(createFunnelStage("Cases Accepted", (int)casesAccepted, (double)casesAccepted/inquiries * 100));
             funnelData.add(createFunnelStage("In Progress", (int)inProgress, (double)inProgress/inquiries * 100));
             funnelData.add(createFunnelStage("Successfully Resolved", (int)casesWon, (double)casesWon/inquiries * 100));
         }
-        
+
         log.debug("Case funnel data based on real cases: " + funnelData);
-        
+
         return funnelData;
     }
 
@@ -597,51 +450,62 @@ public class AnalyticsResource {
     @GetMapping("/dashboard-metrics")
     public Map<String, Object> getDashboardMetrics() {
         Map<String, Object> metrics = new HashMap<>();
-        
+
         // Total clients
-        Page<Client> clientsPage = clientService.getClients(0, 1000);
+        Page<Client> clientsPage = clientService.getClients(0, 1);
         metrics.put("totalClients", clientsPage.getTotalElements());
-        
+
         // Total invoices (from analytics DTO)
         InvoiceAnalyticsDTO invoiceAnalytics = invoiceService.countPaidVsUnpaidInvoices();
         metrics.put("totalInvoices", invoiceAnalytics.getPaidInvoices() + invoiceAnalytics.getUnpaidInvoices());
-        
+
         // Total billed amount
         metrics.put("totalBilled", invoiceService.calculateTotalEarnings());
-        
+
         // Active cases
-        Page<LegalCaseDTO> allCasesPage = legalCaseService.getAllCases(0, 1000);
-        List<LegalCaseDTO> allCases = allCasesPage.getContent();
-        long activeCases = allCases.stream()
-            .filter(case_ -> "OPEN".equals(case_.getStatus() != null ? case_.getStatus().toString() : "") || 
-                           "IN_PROGRESS".equals(case_.getStatus() != null ? case_.getStatus().toString() : ""))
-            .count();
+        AnalyticsRollupService.CaseRollup rollup = rollupService.getCaseRollup(getRequiredOrganizationId());
+        long activeCases = rollup.count("OPEN", "IN_PROGRESS");
         metrics.put("activeCases", activeCases);
-        
+
         // Total users (team members)
         Collection<User> users = userService.getUsers(0, 1000);
         metrics.put("teamMembers", users.size());
-        
+
         // Current month revenue
         double currentMonthRevenue = calculateCurrentMonthRevenue();
         metrics.put("monthlyRevenue", Math.round(currentMonthRevenue / 1000)); // Convert to K
-        
+
         // Case completion rate
-        long closedCases = allCases.stream()
-            .filter(case_ -> "CLOSED".equals(case_.getStatus() != null ? case_.getStatus().toString() : ""))
-            .count();
-        double completionRate = allCases.isEmpty() ? 0 : (double) closedCases / allCases.size() * 100;
+        long totalCases = rollup.total();
+        long closedCases = rollup.count("CLOSED");
+        double completionRate = totalCases == 0 ? 0 : (double) closedCases / totalCases * 100;
         metrics.put("caseCompletionRate", Math.round(completionRate * 100.0) / 100.0);
-        
+
         // Additional metrics for role-specific dashboards
-        metrics.put("upcomingHearings", calculateUpcomingHearings(allCases));
-        metrics.put("documentsToReview", calculateDocumentsToReview(allCases));
+        metrics.put("upcomingHearings", calculateUpcomingHearings(activeCases));
+        metrics.put("documentsToReview", calculateDocumentsToReview(activeCases));
         metrics.put("pendingTasks", calculatePendingTasks(users));
         metrics.put("todayAppointments", calculateTodayAppointments(users));
-        
+
         return metrics;
     }
 
+    /**
+     * All dashboard metrics in one response, cached per organization. Clients that send the
+     * previous ETag in If-None-Match get a 304 while nothing has changed.
+     */
+    @GetMapping("/dashboard-snapshot")
+    public ResponseEntity<Map<String, Object>> getDashboardSnapshot(WebRequest request) {
+        DashboardSnapshotService.Snapshot snapshot = dashboardSnapshotService.getSnapshot(getRequiredOrganizationId());
+        if (request.checkNotModified(snapshot.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noCache().cachePrivate())
+            .eTag(snapshot.etag())
+            .body(snapshot.data());
+    }
+
     @GetMapping("/client-count")
     public long getClientCount() {
         try {
@@ -665,13 +529,7 @@ public class AnalyticsResource {
     @GetMapping("/active-cases")
     public long getActiveCases() {
         try {
-            Page<LegalCaseDTO> allCasesPage = legalCaseService.getAllCases(0, 1000);
-            List<LegalCaseDTO> allCases = allCasesPage.getContent();
-            
-            return allCases.stream()
-                .filter(case_ -> "OPEN".equals(case_.getStatus() != null ? case_.getStatus().toString() : "") || 
-                               "IN_PROGRESS".equals(case_.getStatus() != null ? case_.getStatus().toString() : ""))
-                .count();
+            return rollupService.getCaseRollup(getRequiredOrganizationId()).count("OPEN", "IN_PROGRESS");
         } catch (Exception e) {
             return 0;
         }
@@ -694,43 +552,27 @@ public class AnalyticsResource {
 
     // Helper methods for dashboard metrics
     private double calculateCurrentMonthRevenue() {
-        Long orgId = getRequiredOrganizationId();
         try {
-            String currentMonth = YearMonth.now().toString();
-            String sql = "SELECT COALESCE(SUM(total), 0) as revenue " +
-                        "FROM invoice " +
-                        "WHERE TO_CHAR(date, 'YYYY-MM') = ? " +
-                        "AND status = 'PAID' AND organization_id = ?";
-
-            Double revenue = jdbcTemplate.queryForObject(sql, Double.class, currentMonth, orgId);
-            return revenue != null ? revenue : 0.0;
-
+            LocalDate monthStart = YearMonth.now().atDay(1);
+            return rollupService.getDaily(getRequiredOrganizationId(), AnalyticsRollupService.Metric.INVOICE_PAID, monthStart)
+                .stream()
+                .filter(bucket -> YearMonth.from(bucket.date()).equals(YearMonth.now()))
+                .mapToDouble(bucket -> bucket.amount().doubleValue())
+                .sum();
         } catch (Exception e) {
             log.error("Error calculating current month revenue: " + e.getMessage());
             return 0.0;
         }
     }
 
-    private int calculateUpcomingHearings(List<LegalCaseDTO> cases) {
+    private int calculateUpcomingHearings(long activeCases) {
         // This would integrate with a calendar/event system
-        // For now, return a calculated value based on active cases
-        long activeCases = cases.stream()
-            .filter(case_ -> "OPEN".equals(case_.getStatus() != null ? case_.getStatus().toString() : "") || 
-                           "IN_PROGRESS".equals(case_.getStatus() != null ? case_.getStatus().toString() : ""))
-            .count();
-        
         // Estimate ~20% of active cases have upcoming hearings
         return Math.max(0, (int) Math.round(activeCases * 0.2));
     }
 
-    private int calculateDocumentsToReview(List<LegalCaseDTO> cases) {
+    private int calculateDocumentsToReview(long activeCases) {
         // This would integrate with a document management system
-        // For now, estimate based on active cases
-        long activeCases = cases.stream()
-            .filter(case_ -> "OPEN".equals(case_.getStatus() != null ? case_.getStatus().toString() : "") || 
-                           "IN_PROGRESS".equals(case_.getStatus() != null ? case_.getStatus().toString() : ""))
-            .count();
-        
         // Estimate ~50% of active cases have documents to review
         return Math.max(0, (int) Math.round(activeCases * 0.5));
     }
@@ -863,9 +705,9 @@ public class AnalyticsResource {
             Integer recentCases = jdbcTemplate.queryForObject(recentCasesSql, Integer.class, orgId);
 
             // Recent invoices (last 30 days) - TENANT FILTERED
-            String recentInvoicesSql = "SELECT COUNT(*) as count, COALESCE(SUM(total), 0) as total " +
-                                      "FROM invoice " +
-                                      "WHERE date >= NOW() - INTERVAL '30 days' AND organization_id = ?";
+            String recentInvoicesSql = "SELECT COUNT(*) as count, COALESCE(SUM(total_amount), 0) as total " +
+                                      "FROM invoices " +
+                                      "WHERE issue_date >= CURRENT_DATE - 30 AND organization_id = ?";
 
             Map<String, Object> invoiceData = jdbcTemplate.queryForMap(recentInvoicesSql, orgId);
             Integer recentInvoices = ((Number) invoiceData.get("count")).intValue();
@@ -992,14 +834,14 @@ public class AnalyticsResource {
             // Outstanding receivables analysis - TENANT FILTERED
             String receivablesSQL = """
                 SELECT
-                    COALESCE(SUM(CASE WHEN status = 'PENDING' THEN total ELSE 0 END), 0) as pending_amount,
-                    COALESCE(SUM(CASE WHEN status = 'OVERDUE' THEN total ELSE 0 END), 0) as overdue_amount,
-                    COALESCE(SUM(CASE WHEN status = 'PAID' THEN total ELSE 0 END), 0) as collected_amount,
-                    COUNT(CASE WHEN status = 'OVERDUE' AND EXTRACT(DAY FROM (NOW() - date)) > 90 THEN 1 END) as overdue_90_plus,
-                    COUNT(CASE WHEN status = 'OVERDUE' AND EXTRACT(DAY FROM (NOW() - date)) BETWEEN 60 AND 90 THEN 1 END) as overdue_60_90,
-                    COUNT(CASE WHEN status = 'OVERDUE' AND EXTRACT(DAY FROM (NOW() - date)) BETWEEN 30 AND 60 THEN 1 END) as overdue_30_60,
-                    COUNT(CASE WHEN status = 'OVERDUE' AND EXTRACT(DAY FROM (NOW() - date)) < 30 THEN 1 END) as overdue_under_30
-                FROM invoice WHERE organization_id = ?
+                    COALESCE(SUM(CASE WHEN status = 'PENDING' THEN total_amount ELSE 0 END), 0) as pending_amount,
+                    COALESCE(SUM(CASE WHEN status = 'OVERDUE' THEN total_amount ELSE 0 END), 0) as overdue_amount,
+                    COALESCE(SUM(CASE WHEN status = 'PAID' THEN total_amount ELSE 0 END), 0) as collected_amount,
+                    COUNT(CASE WHEN status = 'OVERDUE' AND CURRENT_DATE - issue_date > 90 THEN 1 END) as overdue_90_plus,
+                    COUNT(CASE WHEN status = 'OVERDUE' AND CURRENT_DATE - issue_date BETWEEN 60 AND 90 THEN 1 END) as overdue_60_90,
+                    COUNT(CASE WHEN status = 'OVERDUE' AND CURRENT_DATE - issue_date BETWEEN 30 AND 59 THEN 1 END) as overdue_30_60,
+                    COUNT(CASE WHEN status = 'OVERDUE' AND CURRENT_DATE - issue_date < 30 THEN 1 END) as overdue_under_30
+                FROM invoices WHERE organization_id = ?
                 """;
 
             Map<String, Object> receivables = jdbcTemplate.queryForMap(receivablesSQL, orgId);
@@ -1008,9 +850,9 @@ public class AnalyticsResource {
             // Collection rate analysis - TENANT FILTERED
             String collectionSQL = """
                 SELECT
-                    ROUND(COALESCE(SUM(CASE WHEN status = 'PAID' THEN total ELSE 0 END), 0) * 100.0 / NULLIF(SUM(total), 0), 2) as collection_rate,
-                    ROUND(AVG(EXTRACT(DAY FROM (NOW() - date))), 0) as avg_days_outstanding
-                FROM invoice WHERE organization_id = ?
+                    ROUND(COALESCE(SUM(CASE WHEN status = 'PAID' THEN total_amount ELSE 0 END), 0) * 100.0 / NULLIF(SUM(total_amount), 0), 2) as collection_rate,
+                    ROUND(AVG(CURRENT_DATE - issue_date), 0) as avg_days_outstanding
+                FROM invoices WHERE organization_id = ?
                 """;
 
             Map<String, Object> collection = jdbcTemplate.queryForMap(collectionSQL, orgId);
@@ -1019,13 +861,13 @@ public class AnalyticsResource {
             // Revenue by month for trend analysis - TENANT FILTERED
             String monthlyRevenueSQL = """
                 SELECT
-                    TO_CHAR(date, 'YYYY-MM') as month,
-                    COALESCE(SUM(CASE WHEN status = 'PAID' THEN total ELSE 0 END), 0) as revenue,
+                    TO_CHAR(issue_date, 'YYYY-MM') as month,
+                    COALESCE(SUM(CASE WHEN status = 'PAID' THEN total_amount ELSE 0 END), 0) as revenue,
                     COUNT(CASE WHEN status = 'PAID' THEN 1 END) as paid_invoices,
-                    COALESCE(SUM(total), 0) as total_billed
-                FROM invoice
-                WHERE date >= NOW() - INTERVAL '12 months' AND organization_id = ?
-                GROUP BY TO_CHAR(date, 'YYYY-MM')
+                    COALESCE(SUM(total_amount), 0) as total_billed
+                FROM invoices
+                WHERE issue_date >= CURRENT_DATE - INTERVAL '12 months' AND organization_id = ?
+                GROUP BY TO_CHAR(issue_date, 'YYYY-MM')
                 ORDER BY month
                 """;
 
@@ -109,7 +109,7 @@ public class UserResource {
             // Mark user offline immediately instead of waiting for 5-min TTL expiry
             try {
                 Long userId = tokenProvider.getSubject(token, request);
-                onlineUserService.markOffline(userId);
+                onlineUserService.markOffline(userId, tokenProvider.getOrganizationId(token));
             } catch (Exception ignored) { }
         }
         return ResponseEntity.ok().body(
@@ -4,12 +4,11 @@ import com.bostoneo.bostoneosolutions.enumeration.InvoiceStatus;
 import com.bostoneo.bostoneosolutions.model.Invoice;
 import com.bostoneo.bostoneosolutions.model.InvoiceReminder;
 import com.bostoneo.bostoneosolutions.model.InvoiceWorkflowRule;
-import com.bostoneo.bostoneosolutions.model.Organization;
 import com.bostoneo.bostoneosolutions.repository.InvoiceReminderRepository;
 import com.bostoneo.bostoneosolutions.repository.InvoiceRepository;
 import com.bostoneo.bostoneosolutions.repository.InvoiceWorkflowRuleRepository;
-import com.bostoneo.bostoneosolutions.repository.OrganizationRepository;
 import com.bostoneo.bostoneosolutions.service.InvoiceWorkflowService;
+import com.bostoneo.bostoneosolutions.service.ScheduledJobLeaseService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,6 +16,7 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -24,7 +24,7 @@ import java.util.List;
 
 /**
  * Invoice workflow scheduler.
- * TENANT ISOLATED: Processes each organization separately
+ * TENANT ISOLATED: Processes each organization separately, sharded across nodes by ScheduledJobLeaseService
  */
 @Component
 @RequiredArgsConstructor
@@ -35,7 +35,7 @@ public class InvoiceWorkflowScheduler {
     private final InvoiceWorkflowRuleRepository workflowRuleRepository;
     private final InvoiceReminderRepository reminderRepository;
     private final InvoiceWorkflowService workflowService;
-    private final OrganizationRepository organizationRepository;
+    private final ScheduledJobLeaseService jobLeaseService;
 
     @Value("${app.invoice-workflows.enabled:true}")
     private boolean workflowsEnabled;
@@ -54,58 +54,54 @@ public class InvoiceWorkflowScheduler {
             // Process scheduled workflow rules
             List<InvoiceWorkflowRule> scheduledRules = workflowRuleRepository
                     .findByTriggerEventAndIsActiveTrue(InvoiceWorkflowRule.TriggerEvent.SCHEDULED);
-            
-            for (InvoiceWorkflowRule rule : scheduledRules) {
-                processScheduledRule(rule);
-            }
-            
-            // Process overdue invoices
-            checkAndMarkOverdueInvoices();
-            
-            // Process pending reminders
-            processPendingReminders();
-            
-           
-            
+
+            // Runs once per hour across the cluster; each node takes a share of the organizations
+            jobLeaseService.runSharded("invoice-workflow-scheduler", Duration.ofMinutes(50), Duration.ofMinutes(30), orgId -> {
+                for (InvoiceWorkflowRule rule : scheduledRules) {
+                    processScheduledRule(rule, orgId);
+                }
+
+                // Process overdue invoices
+                checkAndMarkOverdueInvoices(orgId);
+
+                // Process pending reminders
+                processPendingReminders(orgId);
+            });
+
         } catch (Exception e) {
             log.error("Error running scheduled workflows", e);
         }
     }
     
-    private void processScheduledRule(InvoiceWorkflowRule rule) {
+    private void processScheduledRule(InvoiceWorkflowRule rule, Long orgId) {
         try {
             Integer daysBeforeDue = rule.getDaysBeforeDue();
             Integer daysAfterDue = rule.getDaysAfterDue();
 
-            // Process each organization separately for tenant isolation
-            List<Organization> organizations = organizationRepository.findAll();
-
-            for (Organization org : organizations) {
-                if (daysBeforeDue != null && daysBeforeDue > 0) {
-                    // Find invoices due in X days
-                    LocalDate targetDate = LocalDate.now().plusDays(daysBeforeDue);
-                    List<Invoice> invoices = invoiceRepository.findByOrganizationIdAndDueDateAndStatusIn(
-                            org.getId(),
-                            targetDate,
-                            List.of(InvoiceStatus.ISSUED, InvoiceStatus.PENDING)
-                    );
-
-                    for (Invoice invoice : invoices) {
-                        workflowService.executeWorkflowRule(rule, invoice);
-                    }
-
-                } else if (daysAfterDue != null && daysAfterDue > 0) {
-                    // Find invoices overdue by X days
-                    LocalDate targetDate = LocalDate.now().minusDays(daysAfterDue);
-                    List<Invoice> invoices = invoiceRepository.findByOrganizationIdAndDueDateAndStatusIn(
-                            org.getId(),
-                            targetDate,
-                            List.of(InvoiceStatus.ISSUED, InvoiceStatus.PENDING, InvoiceStatus.OVERDUE)
-                    );
-
-                    for (Invoice invoice : invoices) {
-                        workflowService.executeWorkflowRule(rule, invoice);
-                    }
+            if (daysBeforeDue != null && daysBeforeDue > 0) {
+                // Find invoices due in X days
+                LocalDate targetDate = LocalDate.now().plusDays(daysBeforeDue);
+                List<Invoice> invoices = invoiceRepository.findByOrganizationIdAndDueDateAndStatusIn(
+                        orgId,
+                        targetDate,
+                        List.of(InvoiceStatus.ISSUED, InvoiceStatus.PENDING)
+                );
+
+                for (Invoice invoice : invoices) {
+                    workflowService.executeWorkflowRule(rule, invoice);
+                }
+
+            } else if (daysAfterDue != null && daysAfterDue > 0) {
+                // Find invoices overdue by X days
+                LocalDate targetDate = LocalDate.now().minusDays(daysAfterDue);
+                List<Invoice> invoices = invoiceRepository.findByOrganizationIdAndDueDateAndStatusIn(
+                        orgId,
+                        targetDate,
+                        List.of(InvoiceStatus.ISSUED, InvoiceStatus.PENDING, InvoiceStatus.OVERDUE)
+                );
+
+                for (Invoice invoice : invoices) {
+                    workflowService.executeWorkflowRule(rule, invoice);
                 }
             }
 
@@ -116,36 +112,30 @@ public class InvoiceWorkflowScheduler {
     
     /**
      * Check and mark overdue invoices
-     * TENANT ISOLATED: Processes each organization separately
+     * TENANT ISOLATED: Processes one organization
      */
-    private void checkAndMarkOverdueInvoices() {
+    private void checkAndMarkOverdueInvoices(Long orgId) {
         try {
             LocalDate today = LocalDate.now();
-            List<Organization> organizations = organizationRepository.findAll();
-            int totalOverdue = 0;
-
-            for (Organization org : organizations) {
-                List<Invoice> overdueInvoices = invoiceRepository.findByOrganizationIdAndDueDateLessThanEqualAndStatusIn(
-                        org.getId(),
-                        today,
-                        List.of(InvoiceStatus.ISSUED, InvoiceStatus.PENDING)
-                );
-
-                for (Invoice invoice : overdueInvoices) {
-                    log.debug("Marking invoice {} as overdue", invoice.getInvoiceNumber());
-                    invoice.setStatus(InvoiceStatus.OVERDUE);
-                    invoiceRepository.save(invoice);
-
-                    // Trigger overdue workflows
-                    workflowService.triggerWorkflows(invoice,
-                            InvoiceWorkflowRule.TriggerEvent.OVERDUE,
-                            InvoiceStatus.PENDING.toString());
-                    totalOverdue++;
-                }
+            List<Invoice> overdueInvoices = invoiceRepository.findByOrganizationIdAndDueDateLessThanEqualAndStatusIn(
+                    orgId,
+                    today,
+                    List.of(InvoiceStatus.ISSUED, InvoiceStatus.PENDING)
+            );
+
+            for (Invoice invoice : overdueInvoices) {
+                log.debug("Marking invoice {} as overdue", invoice.getInvoiceNumber());
+                invoice.setStatus(InvoiceStatus.OVERDUE);
+                invoiceRepository.save(invoice);
+
+                // Trigger overdue workflows
+                workflowService.triggerWorkflows(invoice,
+                        InvoiceWorkflowRule.TriggerEvent.OVERDUE,
+                        InvoiceStatus.PENDING.toString());
             }
 
-            if (totalOverdue > 0) {
-                log.info("Marked {} invoices as overdue", totalOverdue);
+            if (!overdueInvoices.isEmpty()) {
+                log.info("Marked {} invoices as overdue for org {}", overdueInvoices.size(), orgId);
             }
 
         } catch (Exception e) {
@@ -155,30 +145,25 @@ public class InvoiceWorkflowScheduler {
     
     /**
      * Process pending reminders scheduled for today
-     * TENANT ISOLATED: Processes each organization separately
+     * TENANT ISOLATED: Processes one organization
      */
-    private void processPendingReminders() {
+    private void processPendingReminders(Long orgId) {
         try {
             LocalDate today = LocalDate.now();
             LocalTime now = LocalTime.now();
 
-            // Process each organization separately for tenant isolation
-            List<Organization> organizations = organizationRepository.findAll();
-
-            for (Organization org : organizations) {
-                List<InvoiceReminder> pendingReminders = reminderRepository
-                        .findByOrganizationIdAndStatusAndScheduledDate(
-                                org.getId(),
-                                InvoiceReminder.ReminderStatus.PENDING,
-                                today);
+            List<InvoiceReminder> pendingReminders = reminderRepository
+                    .findByOrganizationIdAndStatusAndScheduledDate(
+                            orgId,
+                            InvoiceReminder.ReminderStatus.PENDING,
+                            today);
 
-                for (InvoiceReminder reminder : pendingReminders) {
-                    // Check if scheduled time has passed (if specified)
-                    if (reminder.getScheduledTime() == null ||
-                            reminder.getScheduledTime().isBefore(now)) {
+            for (InvoiceReminder reminder : pendingReminders) {
+                // Check if scheduled time has passed (if specified)
+                if (reminder.getScheduledTime() == null ||
+                        reminder.getScheduledTime().isBefore(now)) {
 
-                        processReminder(reminder, org.getId());
-                    }
+                    processReminder(reminder, orgId);
                 }
             }
 
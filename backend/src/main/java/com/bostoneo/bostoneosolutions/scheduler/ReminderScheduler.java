@@ -1,43 +1,79 @@
 package com.bostoneo.bostoneosolutions.scheduler;
 
-import com.bostoneo.bostoneosolutions.model.Organization;
-import com.bostoneo.bostoneosolutions.multitenancy.TenantContext;
-import com.bostoneo.bostoneosolutions.repository.OrganizationRepository;
+import com.bostoneo.bostoneosolutions.model.ReminderQueueItem;
 import com.bostoneo.bostoneosolutions.service.AppointmentRequestService;
 import com.bostoneo.bostoneosolutions.service.ReminderQueueService;
-import com.bostoneo.bostoneosolutions.service.CalendarEventService;
+import com.bostoneo.bostoneosolutions.service.ScheduledJobLeaseService;
+import com.bostoneo.bostoneosolutions.util.HierarchicalTimingWheel;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.InvalidDataAccessResourceUsageException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 
+/**
+ * Due-time reminder engine.
+ *
+ * Calendar reminders are materialized into reminder_queue when events are saved. Every
+ * check-interval this node claims the reminders due within the lookahead window
+ * (FOR UPDATE SKIP LOCKED, so nodes never claim the same row) and parks them in an in-memory
+ * timing wheel that fires each one at its scheduled time. Work per tick is proportional to the
+ * number of due reminders, not to organizations or events.
+ *
+ * Claimed reminders are PROCESSING in the database; if this node stops before delivering them
+ * they are released on shutdown, or by any node once the claim is older than the stale timeout.
+ * Delivery moves the row to SENDING first and skips it if it is no longer PROCESSING, so a
+ * released claim is never sent twice. Delivery is at-most-once: a row a dead node left in
+ * SENDING is marked FAILED after the same timeout instead of being sent again.
+ */
 @Component
 @Slf4j
 public class ReminderScheduler {
 
+    private static final long WHEEL_TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 60;
+
     @Autowired
     private ReminderQueueService reminderQueueService;
 
     @Autowired
-    private CalendarEventService calendarEventService;
+    private AppointmentRequestService appointmentRequestService;
 
     @Autowired
-    private AppointmentRequestService appointmentRequestService;
+    private ScheduledJobLeaseService jobLeaseService;
 
     @Autowired
-    private OrganizationRepository organizationRepository;
+    @Qualifier("taskExecutor")
+    private TaskExecutor taskExecutor;
 
     @Value("${app.reminders.enabled:true}")
     private boolean remindersEnabled;
 
+    @Value("${app.reminders.lookahead-seconds:120}")
+    private long lookaheadSeconds;
+
+    @Value("${app.reminders.claim-batch-size:200}")
+    private int claimBatchSize;
+
+    @Value("${app.reminders.stale-claim-minutes:15}")
+    private long staleClaimMinutes;
+
+    private final HierarchicalTimingWheel<ReminderQueueItem> wheel =
+            new HierarchicalTimingWheel<>(WHEEL_TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+
     /**
-     * Process all reminders every minute
-     * SECURITY: Iterates through each organization and sets tenant context
-     * to ensure proper data isolation during reminder processing.
+     * Claim reminders due within the lookahead window and schedule them on the wheel.
+     * The lookahead must exceed the check interval so reminders are claimed before they are due.
      */
     @Scheduled(fixedDelayString = "${app.reminders.check-interval:60000}")
     public void processReminders() {
@@ -47,32 +83,31 @@ public class ReminderScheduler {
         }
 
         try {
-            // SECURITY: Process reminder queue items (uses its own org-filtered queries)
-            reminderQueueService.processReminderQueue();
-
-            // SECURITY: Get all active organizations and process reminders per-org
-            List<Organization> organizations = organizationRepository.findAll();
-
-            for (Organization org : organizations) {
-                try {
-                    // SECURITY: Set tenant context for this organization
-                    TenantContext.setCurrentTenant(org.getId());
-                    log.trace("Processing reminders for organization: {} (ID: {})", org.getName(), org.getId());
-
-                    // Process calendar event reminders within org context
-                    calendarEventService.processEventReminders();
-
-                    // Process appointment reminders within org context
-                    appointmentRequestService.processAppointmentReminders();
-
-                } catch (Exception e) {
-                    log.error("Error processing reminders for organization {}: {}", org.getId(), e.getMessage());
-                } finally {
-                    // SECURITY: Always clear tenant context after processing
-                    TenantContext.clear();
+            reminderQueueService.releaseStaleClaims(
+                    LocalDateTime.now().minusSeconds(lookaheadSeconds).minusMinutes(staleClaimMinutes));
+
+            LocalDateTime horizon = LocalDateTime.now().plusSeconds(lookaheadSeconds);
+            List<ReminderQueueItem> claimed;
+            int total = 0;
+            do {
+                claimed = reminderQueueService.claimDueReminders(horizon, claimBatchSize);
+                for (ReminderQueueItem reminder : claimed) {
+                    long dueAt = reminder.getScheduledTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                    if (!wheel.schedule(dueAt, reminder)) {
+                        dispatch(reminder);
+                    }
                 }
+                total += claimed.size();
+            } while (claimed.size() == claimBatchSize);
+
+            if (total > 0) {
+                log.debug("Claimed {} reminders due before {} ({} pending on wheel)", total, horizon, wheel.size());
             }
 
+            // Appointment reminders use two indexed cross-organization window queries, on one node per interval
+            jobLeaseService.runExclusive("appointment-reminders", Duration.ofSeconds(30), Duration.ofMinutes(5),
+                    appointmentRequestService::processAppointmentReminders);
+
         } catch (InvalidDataAccessResourceUsageException e) {
             // This is likely due to the reminder_queue table not existing yet or column mismatch
             log.info("Reminder queue database access issue: {} - SQL Error: {}",
@@ -80,9 +115,39 @@ public class ReminderScheduler {
                     e.getCause() != null ? e.getCause().getMessage() : "Unknown");
         } catch (Exception e) {
             log.error("Error processing reminders: {}", e.getMessage(), e);
-        } finally {
-            // SECURITY: Ensure tenant context is cleared even on error
-            TenantContext.clear();
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Fire reminders whose scheduled time has passed.
+     */
+    @Scheduled(fixedRate = WHEEL_TICK_MILLIS)
+    public void fireDueReminders() {
+        for (ReminderQueueItem reminder : wheel.advance(System.currentTimeMillis())) {
+            dispatch(reminder);
+        }
+    }
+
+    @PreDestroy
+    public void releasePendingReminders() {
+        List<Long> ids = wheel.drainAll().stream().map(ReminderQueueItem::getId).toList();
+        if (ids.isEmpty()) return;
+        try {
+            reminderQueueService.releaseClaims(ids);
+            log.info("Released {} claimed reminders on shutdown", ids.size());
+        } catch (Exception e) {
+            log.warn("Could not release {} claimed reminders on shutdown; they will be reclaimed after {} minutes: {}",
+                    ids.size(), staleClaimMinutes, e.getMessage());
+        }
+    }
+
+    private void dispatch(ReminderQueueItem reminder) {
+        try {
+            // Delivery sets and clears the reminder's own tenant context
+            taskExecutor.execute(() -> reminderQueueService.deliverReminder(reminder));
+        } catch (TaskRejectedException e) {
+            log.warn("Executor saturated, returning reminder {} to the queue", reminder.getId());
+            reminderQueueService.releaseClaims(List.of(reminder.getId()));
+        }
+    }
+}
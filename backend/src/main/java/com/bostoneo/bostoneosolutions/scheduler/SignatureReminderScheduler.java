@@ -1,9 +1,8 @@
 package com.bostoneo.bostoneosolutions.scheduler;
 
 import com.bostoneo.bostoneosolutions.enumeration.SignatureStatus;
-import com.bostoneo.bostoneosolutions.model.Organization;
-import com.bostoneo.bostoneosolutions.repository.OrganizationRepository;
 import com.bostoneo.bostoneosolutions.repository.SignatureRequestRepository;
+import com.bostoneo.bostoneosolutions.service.ScheduledJobLeaseService;
 import com.bostoneo.bostoneosolutions.service.SignatureReminderService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,8 +10,9 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Scheduler for processing signature reminders and updating expired requests.
@@ -23,6 +23,8 @@ import java.util.List;
  * 4. Clean up old reminder records
  *
  * TENANT ISOLATED: Processes each organization separately
+ * Each job runs once per trigger across the cluster (ScheduledJobLeaseService); per-organization
+ * jobs are sharded across nodes.
  */
 @Component
 @RequiredArgsConstructor
@@ -31,7 +33,7 @@ public class SignatureReminderScheduler {
 
     private final SignatureReminderService signatureReminderService;
     private final SignatureRequestRepository signatureRequestRepository;
-    private final OrganizationRepository organizationRepository;
+    private final ScheduledJobLeaseService jobLeaseService;
 
     /**
      * Process pending reminders every 15 minutes.
@@ -40,7 +42,8 @@ public class SignatureReminderScheduler {
     @Scheduled(cron = "0 */15 * * * *") // Every 15 minutes
     public void processPendingReminders() {
         try {
-            signatureReminderService.processPendingReminders();
+            jobLeaseService.runExclusive("signature-pending-reminders", Duration.ofMinutes(10), Duration.ofMinutes(10),
+                    signatureReminderService::processPendingReminders);
         } catch (Exception e) {
             log.error("Error during scheduled reminder processing: {}", e.getMessage(), e);
         }
@@ -56,12 +59,11 @@ public class SignatureReminderScheduler {
     public void processExpiredRequests() {
         log.trace("Checking for expired signature requests...");
         try {
-            List<Organization> organizations = organizationRepository.findAll();
             LocalDateTime now = LocalDateTime.now();
-            int totalCount = 0;
+            AtomicInteger totalCount = new AtomicInteger();
 
-            for (Organization org : organizations) {
-                var expiredRequests = signatureRequestRepository.findExpiredByOrganizationId(org.getId(), now);
+            jobLeaseService.runSharded("signature-expired-requests", Duration.ofMinutes(50), Duration.ofMinutes(30), orgId -> {
+                var expiredRequests = signatureRequestRepository.findExpiredByOrganizationId(orgId, now);
 
                 for (var request : expiredRequests) {
                     request.setStatus(SignatureStatus.EXPIRED);
@@ -70,12 +72,12 @@ public class SignatureReminderScheduler {
                     // Cancel any pending reminders
                     signatureReminderService.cancelReminders(request.getId());
 
-                    totalCount++;
+                    totalCount.incrementAndGet();
                 }
-            }
+            });
 
-            if (totalCount > 0) {
-                log.info("Marked {} signature requests as expired", totalCount);
+            if (totalCount.get() > 0) {
+                log.info("Marked {} signature requests as expired", totalCount.get());
             }
         } catch (Exception e) {
             log.error("Error processing expired requests: {}", e.getMessage(), e);
@@ -89,7 +91,8 @@ public class SignatureReminderScheduler {
     @Scheduled(cron = "0 0 6 * * *") // Every day at 6 AM
     public void retryFailedReminders() {
         try {
-            signatureReminderService.retryFailedReminders();
+            jobLeaseService.runExclusive("signature-retry-failed", Duration.ofHours(20), Duration.ofHours(1),
+                    signatureReminderService::retryFailedReminders);
         } catch (Exception e) {
             log.error("Error retrying failed reminders: {}", e.getMessage(), e);
         }
@@ -102,7 +105,8 @@ public class SignatureReminderScheduler {
     @Scheduled(cron = "0 0 3 * * SUN") // Every Sunday at 3 AM
     public void cleanupOldReminders() {
         try {
-            signatureReminderService.cleanupOldReminders(30);
+            jobLeaseService.runExclusive("signature-reminder-cleanup", Duration.ofDays(6), Duration.ofHours(1),
+                    () -> signatureReminderService.cleanupOldReminders(30));
         } catch (Exception e) {
             log.error("Error cleaning up reminders: {}", e.getMessage(), e);
         }
@@ -117,12 +121,11 @@ public class SignatureReminderScheduler {
     public void sendExpiryWarnings() {
         log.trace("Checking for signature requests expiring soon...");
         try {
-            List<Organization> organizations = organizationRepository.findAll();
             LocalDateTime now = LocalDateTime.now();
             LocalDateTime tomorrow = now.plusDays(1);
 
-            for (Organization org : organizations) {
-                var expiringSoon = signatureRequestRepository.findExpiringSoonByOrganizationId(org.getId(), now, tomorrow);
+            jobLeaseService.runSharded("signature-expiry-warnings", Duration.ofHours(20), Duration.ofHours(1), orgId -> {
+                var expiringSoon = signatureRequestRepository.findExpiringSoonByOrganizationId(orgId, now, tomorrow);
 
                 for (var request : expiringSoon) {
                     // Only send if no reminder was sent in the last 12 hours
@@ -138,7 +141,7 @@ public class SignatureReminderScheduler {
                         }
                     }
                 }
-            }
+            });
         } catch (Exception e) {
             log.error("Error sending expiry warnings: {}", e.getMessage(), e);
         }
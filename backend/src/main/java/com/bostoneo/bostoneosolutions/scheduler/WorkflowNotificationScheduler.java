@@ -2,11 +2,10 @@ package com.bostoneo.bostoneosolutions.scheduler;
 
 import com.bostoneo.bostoneosolutions.dto.WorkflowRecommendation;
 import com.bostoneo.bostoneosolutions.model.CaseAssignment;
-import com.bostoneo.bostoneosolutions.model.Organization;
 import com.bostoneo.bostoneosolutions.multitenancy.TenantContext;
 import com.bostoneo.bostoneosolutions.repository.CaseAssignmentRepository;
-import com.bostoneo.bostoneosolutions.repository.OrganizationRepository;
 import com.bostoneo.bostoneosolutions.service.NotificationService;
+import com.bostoneo.bostoneosolutions.service.ScheduledJobLeaseService;
 import com.bostoneo.bostoneosolutions.service.WorkflowRecommendationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,7 +13,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -41,7 +42,7 @@ public class WorkflowNotificationScheduler {
     private CaseAssignmentRepository caseAssignmentRepository;
 
     @Autowired
-    private OrganizationRepository organizationRepository;
+    private ScheduledJobLeaseService jobLeaseService;
 
     @Value("${app.workflow.notifications.enabled:false}")
     private boolean notificationsEnabled;
@@ -52,6 +53,7 @@ public class WorkflowNotificationScheduler {
     /**
      * Run workflow recommendation check every day at 8 AM
      * SECURITY: Iterates through each organization with proper tenant isolation
+     * Organizations are sharded across nodes so each is notified once per run.
      */
     @Scheduled(cron = "${app.workflow.notifications.cron:0 0 8 * * MON-FRI}")
     public void checkWorkflowRecommendations() {
@@ -63,28 +65,26 @@ public class WorkflowNotificationScheduler {
         log.info("Starting workflow recommendation notification check");
 
         try {
-            List<Organization> organizations = organizationRepository.findAll();
+            AtomicInteger totalNotificationsSent = new AtomicInteger();
 
-            int totalNotificationsSent = 0;
-
-            for (Organization org : organizations) {
+            jobLeaseService.runSharded("workflow-notifications", Duration.ofHours(20), Duration.ofHours(2), orgId -> {
                 try {
                     // SECURITY: Set tenant context for this organization
-                    TenantContext.setCurrentTenant(org.getId());
-                    log.debug("Checking workflow recommendations for organization: {} (ID: {})", org.getName(), org.getId());
+                    TenantContext.setCurrentTenant(orgId);
+                    log.debug("Checking workflow recommendations for organization ID: {}", orgId);
 
-                    int orgNotifications = processOrganizationRecommendations(org.getId());
-                    totalNotificationsSent += orgNotifications;
+                    int orgNotifications = processOrganizationRecommendations(orgId);
+                    totalNotificationsSent.addAndGet(orgNotifications);
 
                 } catch (Exception e) {
-                    log.error("Error processing workflow recommendations for organization {}: {}", org.getId(), e.getMessage());
+                    log.error("Error processing workflow recommendations for organization {}: {}", orgId, e.getMessage());
                 } finally {
                     // SECURITY: Always clear tenant context after processing
                     TenantContext.clear();
                 }
-            }
+            });
 
-            log.info("Workflow recommendation check completed. Total notifications sent: {}", totalNotificationsSent);
+            log.info("Workflow recommendation check completed. Notifications sent from this node: {}", totalNotificationsSent.get());
 
         } catch (Exception e) {
             log.error("Error in workflow recommendation scheduler: {}", e.getMessage(), e);
@@ -8,7 +8,6 @@ import com.bostoneo.bostoneosolutions.service.ai.ClaudeSonnet4Service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.tika.Tika;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -47,7 +46,7 @@ public class AIDocumentAnalysisService {
     private final DocumentMetadataExtractor metadataExtractor;
     private final AnalysisTextParser analysisTextParser;
     private final TenantService tenantService;
-    private final Tika tika = new Tika();
+    private final DocumentTextCacheService documentTextCacheService;
 
     /**
      * @deprecated Use getRequiredOrganizationId() instead to ensure tenant isolation
@@ -119,8 +118,8 @@ public class AIDocumentAnalysisService {
         AIDocumentAnalysis savedAnalysis = analysis;
 
         try {
-            // Extract text using Tika
-            String content = extractTextFromFile(file);
+            // Extract text (shared per-organization extraction cache)
+            String content = extractTextFromFile(file, orgId);
             // Store full document content for semantic search (up to 500KB)
             savedAnalysis.setDocumentContent(content.substring(0, Math.min(content.length(), 500000)));
 
@@ -362,42 +361,29 @@ public class AIDocumentAnalysisService {
         return uniqueFilename;
     }
 
-    private String extractTextFromFile(MultipartFile file) throws IOException {
+    private String extractTextFromFile(MultipartFile file, Long orgId) throws IOException {
         byte[] fileBytes = file.getBytes();
-        try (InputStream inputStream = new java.io.ByteArrayInputStream(fileBytes)) {
-            String content;
-            String contentType = file.getContentType();
-
-            // Use PDFParser directly for PDFs — Tika's AutoDetectParser has a bug where
-            // DefaultZipContainerDetector throws "No Archiver found" for some valid PDFs
-            if (contentType != null && contentType.contains("pdf")) {
-                org.apache.tika.parser.pdf.PDFParser pdfParser = new org.apache.tika.parser.pdf.PDFParser();
-                org.apache.tika.sax.BodyContentHandler handler = new org.apache.tika.sax.BodyContentHandler(-1);
-                org.apache.tika.metadata.Metadata metadata = new org.apache.tika.metadata.Metadata();
-                org.apache.tika.parser.ParseContext parseContext = new org.apache.tika.parser.ParseContext();
-                pdfParser.parse(inputStream, handler, metadata, parseContext);
-                content = handler.toString();
-            } else {
-                // Use Tika auto-detect for non-PDF files (DOCX, images, etc.)
-                content = tika.parseToString(inputStream);
-            }
-
-            // If content extracted successfully, return it
-            if (content != null && !content.trim().isEmpty()) {
-                log.info("Text extracted successfully from {}: {} chars", file.getOriginalFilename(), content.length());
-                return content.trim();
-            }
-
-            // Try OCR extraction for scanned documents
-            log.info("No text found, attempting OCR extraction for: {}", file.getOriginalFilename());
-            return extractTextWithOCR(file);
-
-        } catch (TikaException | org.xml.sax.SAXException e) {
-            log.error("Tika extraction error for file {}: {}", file.getOriginalFilename(), e.getMessage());
+        DocumentTextCacheService.ExtractedText extracted;
+        try {
+            // Shared per-organization extraction cache: PDFBox for PDFs, Tika auto-detect otherwise
+            extracted = documentTextCacheService.extract(orgId, fileBytes, file.getOriginalFilename(), file.getContentType());
+        } catch (IOException e) {
+            log.error("Text extraction error for file {}: {}", file.getOriginalFilename(), e.getMessage());
             // Try OCR as fallback
             log.info("Attempting OCR fallback for: {}", file.getOriginalFilename());
-            return extractTextWithOCR(file);
+            return extractTextWithOCR(file, orgId, DocumentTextCacheService.sha256(fileBytes));
         }
+
+        // If content extracted successfully (or was OCR'd before by any pipeline), return it
+        if (!extracted.isEmpty()) {
+            log.info("Text extracted successfully from {}: {} chars ({})",
+                    file.getOriginalFilename(), extracted.text().length(), extracted.method());
+            return extracted.text();
+        }
+
+        // Try OCR extraction for scanned documents
+        log.info("No text found, attempting OCR extraction for: {}", file.getOriginalFilename());
+        return extractTextWithOCR(file, orgId, extracted.contentHash());
     }
 
     /**
@@ -407,7 +393,7 @@ public class AIDocumentAnalysisService {
      * - Ubuntu: sudo apt-get install tesseract-ocr
      * - Windows: Download from https://github.com/UB-Mannheim/tesseract/wiki
      */
-    private String extractTextWithOCR(MultipartFile file) throws IOException {
+    private String extractTextWithOCR(MultipartFile file, Long orgId, String contentHash) throws IOException {
         try (InputStream inputStream = file.getInputStream()) {
             // Configure Tesseract OCR
             TesseractOCRConfig ocrConfig = new TesseractOCRConfig();
@@ -449,6 +435,8 @@ public class AIDocumentAnalysisService {
             }
 
             log.info("OCR extraction successful for {}: {} chars", file.getOriginalFilename(), content.length());
+            documentTextCacheService.saveOcrResult(orgId, contentHash, List.of(content),
+                    DocumentTextCacheService.METHOD_TESSERACT, file.getContentType());
             return content;
 
         } catch (TikaException | SAXException e) {
@@ -108,6 +108,19 @@ public class AILegalResearchService {
         // Use sanitized query and include warnings/suggestions in response metadata
         query = validation.sanitizedQuery;
 
+        // SECURITY: Progress is only published to a session stream owned by this organization and user
+        if (sessionId != null) {
+            Long ownerUserId = tenantService.getCurrentUserId().orElse(userId);
+            if (!progressPublisher.claimSession(sessionId, tenantService.getCurrentOrganizationId().orElse(null), ownerUserId)) {
+                log.warn("SECURITY: Research session {} is not owned by user {}", sessionId, ownerUserId);
+                Map<String, Object> sessionError = new HashMap<>();
+                sessionError.put("success", false);
+                sessionError.put("error", "Research session is not available");
+                sessionError.put("errorType", "SESSION_FORBIDDEN");
+                return sessionError;
+            }
+        }
+
         // Phase 4: Rate limiting check
         if (!rateLimitService.allowRequest(userId, researchModeStr)) {
             Map<String, Integer> remaining = rateLimitService.getRemainingRequests(userId, researchModeStr);
@@ -3109,12 +3122,15 @@ public class AILegalResearchService {
             if (shouldCache) {
                 try {
                     int cacheDays = (caseId != null && !caseId.isEmpty()) ? 1 : 7;
+                    LocalDateTime expiresAt = LocalDateTime.now().plusDays(cacheDays);
                     cacheRepository.upsertCache(
                         currentOrgId, queryHash, query, searchType.toUpperCase(),
                         jurisdiction, "THOROUGH", caseId, aiResponse,
                         "claude-sonnet-4-6", new BigDecimal("0.90"),
-                        LocalDateTime.now().plusDays(cacheDays)
+                        expiresAt, similarityService.signatureFor(query)
                     );
+                    similarityService.indexCachedQuery(currentOrgId, queryHash, query, searchType,
+                        jurisdiction, "THOROUGH", caseId, expiresAt);
                     log.info("✓ Cached THOROUGH result (TTL: {} days, quality: {}/10): {}", cacheDays, scoreOutOf10, queryHash.substring(0, 16) + "...");
                 } catch (Exception e) {
                     log.warn("Failed to cache THOROUGH result: {}", e.getMessage());
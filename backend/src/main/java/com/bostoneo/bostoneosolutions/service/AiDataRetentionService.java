@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,7 @@ public class AiDataRetentionService {
 
     private final NamedParameterJdbcTemplate jdbc;
     private final AiAuditLogService aiAuditLogService;
+    private final ScheduledJobLeaseService jobLeaseService;
 
     @Value("${ai.data-retention.days:90}")
     private int retentionDays;
@@ -34,10 +36,14 @@ public class AiDataRetentionService {
     private String documentsOutputPath;
 
     /**
-     * Runs daily at 2:00 AM. Deletes AI data older than the retention period.
+     * Runs daily at 2:00 AM on one node. Deletes AI data older than the retention period.
      */
     @Scheduled(cron = "0 0 2 * * *")
     public void cleanupExpiredData() {
+        jobLeaseService.runExclusive("ai-data-retention", Duration.ofHours(20), Duration.ofHours(1), this::runCleanup);
+    }
+
+    private void runCleanup() {
         log.info("Starting AI data retention cleanup (retention: {} days)", retentionDays);
         LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
 
@@ -895,6 +895,13 @@ public class AiWorkspaceDocumentService {
         };
     }
 
+    /**
+     * SECURITY: Whether the conversation belongs to the user in the current organization
+     */
+    public boolean isConversationOwner(Long conversationId, Long userId) {
+        return conversationRepository.existsByIdAndUserIdAndOrganizationId(conversationId, userId, getRequiredOrganizationId());
+    }
+
     /**
      * Create draft conversation session (returns immediately with conversation ID)
      */
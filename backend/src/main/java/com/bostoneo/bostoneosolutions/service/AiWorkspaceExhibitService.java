@@ -27,9 +27,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.*;
 
-import com.itextpdf.kernel.pdf.PdfDocument;
-import com.itextpdf.kernel.pdf.PdfReader;
-import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
 
 /**
  * Service for managing exhibits attached to AI workspace documents.
@@ -47,6 +44,7 @@ public class AiWorkspaceExhibitService {
     private final AIConfig aiConfig;
     private final software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient bedrockClient;
     private final ObjectMapper objectMapper;
+    private final DocumentTextCacheService documentTextCacheService;
 
     private static final int MAX_VISION_PAGES = 10;
 
@@ -247,8 +245,8 @@ public class AiWorkspaceExhibitService {
 
     /**
      * Asynchronously extract text from an exhibit's file.
-     * Uses iText for PDFs (with Vision OCR fallback for scanned docs) and
-     * Claude Vision API for images.
+     * PDFs go through the shared {@link DocumentTextCacheService} (with Vision OCR fallback for
+     * scanned docs, recorded back into the cache) and images through the Claude Vision API.
      */
     @Async
     public void extractTextAsync(Long exhibitId, Long orgId) {
@@ -265,14 +263,30 @@ public class AiWorkspaceExhibitService {
             int pageCount = 0;
 
             if (mimeType.equals("application/pdf")) {
-                // Try iText text extraction first
-                extractedText = extractTextFromPdf(fileBytes);
-                pageCount = countPdfPages(fileBytes);
+                // Text layer (or an earlier OCR result) from the organization's shared extraction cache
+                DocumentTextCacheService.ExtractedText extracted = null;
+                try {
+                    extracted = documentTextCacheService.extract(orgId, fileBytes, exhibit.getFileName(), mimeType);
+                    pageCount = extracted.pageCount();
+                } catch (Exception e) {
+                    log.warn("PDF text extraction failed for exhibit {}: {}", exhibitId, e.getMessage());
+                }
 
-                // If extracted text is too short (likely scanned), fall back to Vision OCR
-                if (extractedText.trim().length() < 50) {
+                if (extracted != null && extracted.isOcr()) {
+                    // Tesseract results keep per-page offsets; a Vision OCR result is stored as one page
+                    extractedText = DocumentTextCacheService.METHOD_VISION_OCR.equals(extracted.method())
+                            ? extracted.text() : extracted.withPageMarkers();
+                } else if (extracted == null || extracted.text().length() < 50) {
+                    // If extracted text is too short (likely scanned), fall back to Vision OCR
                     log.info("PDF appears scanned (minimal text extracted), falling back to OCR for exhibit {}", exhibitId);
                     extractedText = extractTextViaOcr(fileBytes, mimeType);
+                    // Failure messages come back in brackets — only real text is worth keeping
+                    if (extracted != null && !extractedText.startsWith("[")) {
+                        documentTextCacheService.saveOcrResult(orgId, extracted.contentHash(), List.of(extractedText),
+                                DocumentTextCacheService.METHOD_VISION_OCR, mimeType);
+                    }
+                } else {
+                    extractedText = extracted.withPageMarkers();
                 }
             } else if (mimeType.startsWith("image/")) {
                 extractedText = extractTextViaOcr(fileBytes, mimeType);
@@ -291,40 +305,6 @@ public class AiWorkspaceExhibitService {
         }
     }
 
-    /**
-     * Extract text from a PDF using iText PdfTextExtractor.
-     * Returns page-delimited text content.
-     */
-    private String extractTextFromPdf(byte[] pdfBytes) {
-        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdfBytes)))) {
-            StringBuilder text = new StringBuilder();
-            for (int i = 1; i <= pdfDoc.getNumberOfPages(); i++) {
-                text.append("--- Page ").append(i).append(" ---\n");
-                String pageText = PdfTextExtractor.getTextFromPage(pdfDoc.getPage(i));
-                if (pageText != null) {
-                    text.append(pageText);
-                }
-                text.append("\n\n");
-            }
-            return text.toString();
-        } catch (Exception e) {
-            log.warn("iText PDF text extraction failed: {}", e.getMessage());
-            return "";
-        }
-    }
-
-    /**
-     * Count the number of pages in a PDF.
-     */
-    private int countPdfPages(byte[] pdfBytes) {
-        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdfBytes)))) {
-            return pdfDoc.getNumberOfPages();
-        } catch (Exception e) {
-            log.warn("Failed to count PDF pages: {}", e.getMessage());
-            return 0;
-        }
-    }
-
     /**
      * Extract text via Claude Vision API (OCR).
      * For PDFs: renders pages to JPEG images via PDFBox, then sends to Claude Haiku.
@@ -0,0 +1,515 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import com.bostoneo.bostoneosolutions.event.InvoiceChangedEvent;
+import com.bostoneo.bostoneosolutions.event.LegalCaseChangedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Per-organization analytics rollups (see V84__analytics_rollups.sql).
+ *
+ * Reads cost a handful of rows per organization regardless of case count. Every metric is a pure
+ * function of a case's or invoice's current row, so a write is applied as "remove the old row's
+ * contribution, add the new one's". Updates whose previous state Hibernate did not have and bulk
+ * SQL updates are corrected by the nightly {@link #reconcileAll()}, which rebuilds each
+ * organization from the source tables.
+ *
+ * Deltas are applied in the transaction that made the change: they are collected while it
+ * flushes and written just before it commits, holding the organization's advisory lock shared.
+ * A rebuild holds the same lock exclusively, so each change and its delta commit either before
+ * the rebuild reads the source tables (and the rebuild replaces the delta) or after the rebuild
+ * commits (and the delta is added to it), never both.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsRollupService {
+
+    /**
+     * Order of the rollup change listeners. Deltas commit with the change, so AFTER_COMMIT caches
+     * built from the rollups (ordered after this) always recompute from the applied delta.
+     */
+    public static final int LISTENER_ORDER = 0;
+
+    /** First key of the two-int advisory lock between rebuilds (exclusive) and deltas (shared) of one organization. */
+    private static final int REBUILD_LOCK_NAMESPACE = 0x414E4C59;
+
+    public enum Metric {
+        CASE_CREATED,
+        CASE_UPDATED,
+        INVOICE_CREATED,
+        INVOICE_ISSUED,
+        INVOICE_PAID
+    }
+
+    public record CaseBucket(String status, String practiceArea, long count, double totalAmount, long resolutionDays) {}
+
+    public record DailyBucket(LocalDate date, int hour, long count, BigDecimal amount) {}
+
+    /**
+     * Current case counts for one organization, by status and effective practice area.
+     */
+    public record CaseRollup(List<CaseBucket> buckets) {
+
+        public long total() {
+            return buckets.stream().mapToLong(CaseBucket::count).sum();
+        }
+
+        public long count(String... statuses) {
+            Set<String> wanted = Set.of(statuses);
+            return buckets.stream().filter(b -> wanted.contains(b.status())).mapToLong(CaseBucket::count).sum();
+        }
+
+        public Map<String, Long> countByStatus() {
+            Map<String, Long> counts = new HashMap<>();
+            buckets.forEach(b -> counts.merge(b.status(), b.count(), Long::sum));
+            return counts;
+        }
+
+        /** Keyed by practice area; cases with none are under {@code null}. */
+        public Map<String, Long> countByPracticeArea() {
+            Map<String, Long> counts = new HashMap<>();
+            buckets.forEach(b -> counts.merge(b.practiceArea(), b.count(), Long::sum));
+            return counts;
+        }
+
+        /** Keyed by practice area; cases with none are under {@code null}. */
+        public Map<String, Double> amountByPracticeArea() {
+            Map<String, Double> amounts = new HashMap<>();
+            buckets.stream()
+                    .filter(b -> b.totalAmount() != 0)
+                    .forEach(b -> amounts.merge(b.practiceArea(), b.totalAmount(), Double::sum));
+            return amounts;
+        }
+
+        /** Average whole days from creation to last update over closed cases, or 0 if none. */
+        public double averageResolutionDays() {
+            long closed = 0;
+            long days = 0;
+            for (CaseBucket b : buckets) {
+                if ("CLOSED".equals(b.status())) {
+                    closed += b.count();
+                    days += b.resolutionDays();
+                }
+            }
+            return closed == 0 ? 0 : (double) days / closed;
+        }
+    }
+
+    private record CaseKey(String status, String practiceArea) {}
+
+    private record DailyKey(Metric metric, LocalDate date, int hour) {}
+
+    private static final Comparator<CaseKey> CASE_KEY_ORDER =
+            Comparator.comparing(CaseKey::status).thenComparing(CaseKey::practiceArea);
+
+    private static final Comparator<DailyKey> DAILY_KEY_ORDER =
+            Comparator.comparing(DailyKey::metric).thenComparing(DailyKey::date).thenComparingInt(DailyKey::hour);
+
+    private static final class Delta {
+        long count;
+        double caseAmount;
+        BigDecimal amount = BigDecimal.ZERO;
+        long resolutionDays;
+
+        boolean isZero() {
+            return count == 0 && caseAmount == 0 && amount.signum() == 0 && resolutionDays == 0;
+        }
+    }
+
+    /**
+     * Deltas collected in one transaction, per organization. Sorted so concurrent transactions lock
+     * organizations and rollup rows in the same order.
+     */
+    private static final class PendingDeltas {
+        final Map<Long, Map<CaseKey, Delta>> cases = new TreeMap<>();
+        final Map<Long, Map<DailyKey, Delta>> daily = new TreeMap<>();
+        final Set<Long> stale = new TreeSet<>();
+        // Set once the pre-commit flush has run; later events are applied as they arrive
+        boolean flushed;
+
+        Map<CaseKey, Delta> cases(Long orgId) {
+            return cases.computeIfAbsent(orgId, k -> new TreeMap<>(CASE_KEY_ORDER));
+        }
+
+        Map<DailyKey, Delta> daily(Long orgId) {
+            return daily.computeIfAbsent(orgId, k -> new TreeMap<>(DAILY_KEY_ORDER));
+        }
+
+        Set<Long> organizations() {
+            Set<Long> orgIds = new TreeSet<>(stale);
+            orgIds.addAll(cases.keySet());
+            orgIds.addAll(daily.keySet());
+            return orgIds;
+        }
+
+        void clear() {
+            cases.clear();
+            daily.clear();
+            stale.clear();
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ScheduledJobLeaseService jobLeaseService;
+    private final EntityManagerFactory entityManagerFactory;
+
+    // ==================== Reads ====================
+
+    public CaseRollup getCaseRollup(Long orgId) {
+        ensureBuilt(orgId);
+        // SECURITY: Tenant-filtered query
+        List<CaseBucket> buckets = jdbcTemplate.query(
+                "SELECT status, practice_area, case_count, total_amount, resolution_days " +
+                "FROM analytics_case_rollup WHERE organization_id = ? AND case_count <> 0",
+                (rs, i) -> new CaseBucket(
+                        rs.getString("status"),
+                        rs.getString("practice_area").isEmpty() ? null : rs.getString("practice_area"),
+                        rs.getLong("case_count"),
+                        rs.getDouble("total_amount"),
+                        rs.getLong("resolution_days")),
+                orgId);
+        return new CaseRollup(buckets);
+    }
+
+    /**
+     * Buckets for one metric on or after {@code from}, oldest first.
+     */
+    public List<DailyBucket> getDaily(Long orgId, Metric metric, LocalDate from) {
+        ensureBuilt(orgId);
+        // SECURITY: Tenant-filtered query
+        return jdbcTemplate.query(
+                "SELECT bucket_date, bucket_hour, event_count, amount FROM analytics_daily_rollup " +
+                "WHERE organization_id = ? AND metric = ? AND bucket_date >= ? AND event_count <> 0 " +
+                "ORDER BY bucket_date, bucket_hour",
+                (rs, i) -> new DailyBucket(
+                        rs.getDate("bucket_date").toLocalDate(),
+                        rs.getInt("bucket_hour"),
+                        rs.getLong("event_count"),
+                        rs.getBigDecimal("amount")),
+                orgId, metric.name(), from);
+    }
+
+    /**
+     * Monthly totals ("YYYY-MM" → bucket) for one metric; {@code hour} is always 0.
+     */
+    public Map<String, DailyBucket> getMonthly(Long orgId, Metric metric) {
+        ensureBuilt(orgId);
+        Map<String, DailyBucket> months = new TreeMap<>();
+        // SECURITY: Tenant-filtered query
+        jdbcTemplate.query(
+                "SELECT date_trunc('month', bucket_date)::date AS month, SUM(event_count) AS event_count, SUM(amount) AS amount " +
+                "FROM analytics_daily_rollup WHERE organization_id = ? AND metric = ? " +
+                "GROUP BY date_trunc('month', bucket_date) HAVING SUM(event_count) <> 0",
+                rs -> {
+                    LocalDate month = rs.getDate("month").toLocalDate();
+                    months.put(YearMonth.from(month).toString(),
+                            new DailyBucket(month, 0, rs.getLong("event_count"), rs.getBigDecimal("amount")));
+                },
+                orgId, metric.name());
+        return months;
+    }
+
+    // ==================== Incremental updates ====================
+
+    /**
+     * Published from the Hibernate flush, inside the writing transaction.
+     */
+    @EventListener
+    @Order(LISTENER_ORDER)
+    public void onLegalCaseChanged(LegalCaseChangedEvent event) {
+        Long orgId = event.getOrganizationId();
+        PendingDeltas pending = pendingDeltas();
+        if (event.getChange() == LegalCaseChangedEvent.Change.UPDATED && event.getBefore() == null) {
+            pending.stale.add(orgId);
+        } else {
+            addCase(event.getBefore(), -1, pending.cases(orgId), pending.daily(orgId));
+            addCase(event.getAfter(), 1, pending.cases(orgId), pending.daily(orgId));
+        }
+        applyIfFlushed(pending);
+    }
+
+    /**
+     * Published from the Hibernate flush, inside the writing transaction.
+     */
+    @EventListener
+    @Order(LISTENER_ORDER)
+    public void onInvoiceChanged(InvoiceChangedEvent event) {
+        Long orgId = event.getOrganizationId();
+        PendingDeltas pending = pendingDeltas();
+        if (event.getChange() == InvoiceChangedEvent.Change.UPDATED && event.getBefore() == null) {
+            pending.stale.add(orgId);
+        } else {
+            addInvoice(event.getBefore(), -1, pending.daily(orgId));
+            addInvoice(event.getAfter(), 1, pending.daily(orgId));
+        }
+        applyIfFlushed(pending);
+    }
+
+    /**
+     * The current transaction's deltas, registering the pre-commit write on first use. Outside a
+     * transaction a fresh, already-flushed set is returned so the event is applied at once.
+     */
+    private PendingDeltas pendingDeltas() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingDeltas immediate = new PendingDeltas();
+            immediate.flushed = true;
+            return immediate;
+        }
+        PendingDeltas pending = (PendingDeltas) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            PendingDeltas created = new PendingDeltas();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // Hibernate flushes inside commit, after this callback; flush first so that
+                    // flush's events are collected here rather than missed
+                    EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+                    if (holder != null && !readOnly) {
+                        holder.getEntityManager().flush();
+                    }
+                    created.flushed = true;
+                    applyPending(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AnalyticsRollupService.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+
+    private void applyIfFlushed(PendingDeltas pending) {
+        if (!pending.flushed) return;
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            applyPending(pending);
+        } else {
+            // Writes outside a transaction are already committed; a concurrent rebuild may count
+            // one twice until the nightly reconcile
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> applyPending(pending));
+        }
+    }
+
+    private void applyPending(PendingDeltas pending) {
+        for (Long orgId : pending.organizations()) {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock_shared(?, ?)", REBUILD_LOCK_NAMESPACE, orgId.intValue());
+            if (pending.stale.contains(orgId)) {
+                // Deltas can't be applied; the next read rebuilds the organization
+                jdbcTemplate.update("DELETE FROM analytics_rollup_state WHERE organization_id = ?", orgId);
+                log.debug("Analytics rollups for org {} marked stale", orgId);
+            } else if (isBuilt(orgId)) {
+                applyCaseDeltas(orgId, pending.cases.getOrDefault(orgId, Map.of()));
+                applyDailyDeltas(orgId, pending.daily.getOrDefault(orgId, Map.of()));
+            }
+            // Not built: the next read rebuilds from the source tables, this change included
+        }
+        pending.clear();
+    }
+
+    private static void addCase(LegalCaseChangedEvent.Snapshot snapshot, int sign,
+                                Map<CaseKey, Delta> caseDeltas, Map<DailyKey, Delta> dailyDeltas) {
+        if (snapshot == null) return;
+
+        Delta caseDelta = caseDeltas.computeIfAbsent(new CaseKey(
+                snapshot.status() != null ? snapshot.status() : "UNKNOWN",
+                snapshot.practiceArea() != null ? snapshot.practiceArea() : ""), k -> new Delta());
+        caseDelta.count += sign;
+        if (snapshot.totalAmount() != null) caseDelta.caseAmount += sign * snapshot.totalAmount();
+        if ("CLOSED".equals(snapshot.status()) && snapshot.createdAt() != null && snapshot.updatedAt() != null) {
+            caseDelta.resolutionDays += sign * Duration.between(snapshot.createdAt(), snapshot.updatedAt()).toDays();
+        }
+
+        if (snapshot.createdAt() != null) {
+            hourly(dailyDeltas, Metric.CASE_CREATED, snapshot.createdAt()).count += sign;
+        }
+        if (snapshot.updatedAt() != null && !snapshot.updatedAt().equals(snapshot.createdAt())) {
+            hourly(dailyDeltas, Metric.CASE_UPDATED, snapshot.updatedAt()).count += sign;
+        }
+    }
+
+    private static void addInvoice(InvoiceChangedEvent.Snapshot snapshot, int sign, Map<DailyKey, Delta> dailyDeltas) {
+        if (snapshot == null) return;
+
+        if (snapshot.createdAt() != null) {
+            hourly(dailyDeltas, Metric.INVOICE_CREATED, snapshot.createdAt()).count += sign;
+        }
+        if (snapshot.issueDate() != null) {
+            BigDecimal amount = snapshot.totalAmount() != null ? snapshot.totalAmount() : BigDecimal.ZERO;
+            BigDecimal signed = sign < 0 ? amount.negate() : amount;
+
+            Delta issued = dailyDeltas.computeIfAbsent(new DailyKey(Metric.INVOICE_ISSUED, snapshot.issueDate(), 0), k -> new Delta());
+            issued.count += sign;
+            issued.amount = issued.amount.add(signed);
+
+            if ("PAID".equals(snapshot.status())) {
+                Delta paid = dailyDeltas.computeIfAbsent(new DailyKey(Metric.INVOICE_PAID, snapshot.issueDate(), 0), k -> new Delta());
+                paid.count += sign;
+                paid.amount = paid.amount.add(signed);
+            }
+        }
+    }
+
+    private static Delta hourly(Map<DailyKey, Delta> dailyDeltas, Metric metric, LocalDateTime at) {
+        return dailyDeltas.computeIfAbsent(new DailyKey(metric, at.toLocalDate(), at.getHour()), k -> new Delta());
+    }
+
+    private void applyCaseDeltas(Long orgId, Map<CaseKey, Delta> deltas) {
+        List<Object[]> args = new ArrayList<>();
+        deltas.forEach((key, delta) -> {
+            if (!delta.isZero()) {
+                args.add(new Object[]{orgId, key.status(), key.practiceArea(), delta.count, delta.caseAmount, delta.resolutionDays});
+            }
+        });
+        if (args.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO analytics_case_rollup (organization_id, status, practice_area, case_count, total_amount, resolution_days) " +
+                "VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (organization_id, status, practice_area) DO UPDATE SET " +
+                "case_count = analytics_case_rollup.case_count + EXCLUDED.case_count, " +
+                "total_amount = analytics_case_rollup.total_amount + EXCLUDED.total_amount, " +
+                "resolution_days = analytics_case_rollup.resolution_days + EXCLUDED.resolution_days",
+                args);
+    }
+
+    private void applyDailyDeltas(Long orgId, Map<DailyKey, Delta> deltas) {
+        List<Object[]> args = new ArrayList<>();
+        deltas.forEach((key, delta) -> {
+            if (!delta.isZero()) {
+                args.add(new Object[]{orgId, key.metric().name(), key.date(), key.hour(), delta.count, delta.amount});
+            }
+        });
+        if (args.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO analytics_daily_rollup (organization_id, metric, bucket_date, bucket_hour, event_count, amount) " +
+                "VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (organization_id, metric, bucket_date, bucket_hour) DO UPDATE SET " +
+                "event_count = analytics_daily_rollup.event_count + EXCLUDED.event_count, " +
+                "amount = analytics_daily_rollup.amount + EXCLUDED.amount",
+                args);
+    }
+
+    // ==================== Rebuild / reconcile ====================
+
+    /**
+     * Nightly: rebuild every organization's rollups from the source tables to correct drift.
+     * Organizations are sharded across nodes.
+     */
+    @Scheduled(cron = "${analytics.rollup.reconcile-cron:0 30 3 * * *}")
+    public void reconcileAll() {
+        int[] counts = new int[2]; // rebuilt, failed
+        jobLeaseService.runSharded("analytics-rollup-reconcile", Duration.ofHours(20), Duration.ofHours(2), orgId -> {
+            try {
+                rebuild(orgId);
+                counts[0]++;
+            } catch (Exception e) {
+                counts[1]++;
+                log.error("Analytics rollup reconcile failed for org {}: {}", orgId, e.getMessage());
+            }
+        });
+        log.info("Reconciled analytics rollups for {} organizations on this node ({} failed)", counts[0], counts[1]);
+    }
+
+    /**
+     * Replace one organization's rollups with aggregates computed from legal_cases and invoices.
+     */
+    public void rebuild(Long orgId) {
+        rebuild(orgId, false);
+    }
+
+    /**
+     * @param onlyIfMissing skip if the organization was built by the time the lock is held,
+     *                      e.g. by another reader that was waiting on the same lock
+     */
+    private void rebuild(Long orgId, boolean onlyIfMissing) {
+        boolean rebuilt = Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status -> {
+            // Waits for transactions applying deltas to commit; later ones wait for this rebuild
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?, ?)", REBUILD_LOCK_NAMESPACE, orgId.intValue());
+            if (onlyIfMissing && isBuilt(orgId)) {
+                return false;
+            }
+
+            jdbcTemplate.update("DELETE FROM analytics_case_rollup WHERE organization_id = ?", orgId);
+            jdbcTemplate.update("DELETE FROM analytics_daily_rollup WHERE organization_id = ?", orgId);
+
+            jdbcTemplate.update(
+                    "INSERT INTO analytics_case_rollup (organization_id, status, practice_area, case_count, total_amount, resolution_days) " +
+                    "SELECT organization_id, status, COALESCE(practice_area, type, ''), COUNT(*), COALESCE(SUM(total_amount), 0), " +
+                    "COALESCE(SUM(CASE WHEN status = 'CLOSED' AND updated_at IS NOT NULL " +
+                    "THEN EXTRACT(DAY FROM (updated_at - created_at)) ELSE 0 END), 0) " +
+                    "FROM legal_cases WHERE organization_id = ? " +
+                    "GROUP BY organization_id, status, COALESCE(practice_area, type, '')",
+                    orgId);
+
+            String dailyInsert = "INSERT INTO analytics_daily_rollup (organization_id, metric, bucket_date, bucket_hour, event_count, amount) ";
+            jdbcTemplate.update(dailyInsert +
+                    "SELECT organization_id, 'CASE_CREATED', created_at::date, EXTRACT(HOUR FROM created_at)::int, COUNT(*), 0 " +
+                    "FROM legal_cases WHERE organization_id = ? AND created_at IS NOT NULL " +
+                    "GROUP BY organization_id, created_at::date, EXTRACT(HOUR FROM created_at)",
+                    orgId);
+            jdbcTemplate.update(dailyInsert +
+                    "SELECT organization_id, 'CASE_UPDATED', updated_at::date, EXTRACT(HOUR FROM updated_at)::int, COUNT(*), 0 " +
+                    "FROM legal_cases WHERE organization_id = ? AND updated_at IS NOT NULL AND updated_at <> created_at " +
+                    "GROUP BY organization_id, updated_at::date, EXTRACT(HOUR FROM updated_at)",
+                    orgId);
+            jdbcTemplate.update(dailyInsert +
+                    "SELECT organization_id, 'INVOICE_CREATED', created_at::date, EXTRACT(HOUR FROM created_at)::int, COUNT(*), 0 " +
+                    "FROM invoices WHERE organization_id = ? AND created_at IS NOT NULL " +
+                    "GROUP BY organization_id, created_at::date, EXTRACT(HOUR FROM created_at)",
+                    orgId);
+            jdbcTemplate.update(dailyInsert +
+                    "SELECT organization_id, 'INVOICE_ISSUED', issue_date, 0, COUNT(*), COALESCE(SUM(total_amount), 0) " +
+                    "FROM invoices WHERE organization_id = ? AND issue_date IS NOT NULL " +
+                    "GROUP BY organization_id, issue_date",
+                    orgId);
+            jdbcTemplate.update(dailyInsert +
+                    "SELECT organization_id, 'INVOICE_PAID', issue_date, 0, COUNT(*), COALESCE(SUM(total_amount), 0) " +
+                    "FROM invoices WHERE organization_id = ? AND issue_date IS NOT NULL AND status = 'PAID' " +
+                    "GROUP BY organization_id, issue_date",
+                    orgId);
+
+            jdbcTemplate.update(
+                    "INSERT INTO analytics_rollup_state (organization_id, rebuilt_at) VALUES (?, NOW()) " +
+                    "ON CONFLICT (organization_id) DO UPDATE SET rebuilt_at = EXCLUDED.rebuilt_at",
+                    orgId);
+            return true;
+        }));
+        if (rebuilt) {
+            log.debug("Rebuilt analytics rollups for org {}", orgId);
+        }
+    }
+
+    private void ensureBuilt(Long orgId) {
+        if (!isBuilt(orgId)) {
+            rebuild(orgId, true);
+        }
+    }
+
+    private boolean isBuilt(Long orgId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM analytics_rollup_state WHERE organization_id = ?)", Boolean.class, orgId));
+    }
+}
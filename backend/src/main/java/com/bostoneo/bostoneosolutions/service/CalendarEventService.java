@@ -34,6 +34,7 @@ public interface CalendarEventService {
     List<CalendarEventDTO> getEventsByType(String eventType);
     
     // Automated operations
+    /** Scan the current organization's events for due reminders (manual trigger; scheduled delivery uses reminder_queue) */
     void processEventReminders();
     
     // External calendar operations
@@ -0,0 +1,259 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import com.bostoneo.bostoneosolutions.model.DocumentChunk;
+import com.bostoneo.bostoneosolutions.repository.DocumentChunkRepository;
+import com.bostoneo.bostoneosolutions.util.EmbeddingVectorCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Top-k vector retrieval over document chunk embeddings.
+ *
+ * Uses the pgvector HNSW index (V80) when the database has the extension, so ranking
+ * happens in SQL and only k chunk IDs come back. Without pgvector, falls back to the
+ * cached {@link InMemoryVectorIndex}.
+ *
+ * The HNSW index is global, so the organization and collection/document filters apply to its
+ * candidates. Each query raises {@code hnsw.ef_search} for its transaction and, on pgvector 0.8+,
+ * enables iterative scans so a small scope in a large table still fills k. A scope that still has
+ * chunks without a pgvector copy (embedded before V80, or dimensions other than
+ * {@value #PGVECTOR_DIMENSIONS}) is ranked in-process; {@link #backfillPgVectors} copies them over.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkVectorSearchService {
+
+    private final DocumentChunkRepository chunkRepository;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final InMemoryVectorIndex inMemoryVectorIndex;
+    private final PlatformTransactionManager transactionManager;
+    private final ScheduledJobLeaseService jobLeaseService;
+
+    /** Dimensions of document_chunks.embedding_pgv (V80). */
+    static final int PGVECTOR_DIMENSIONS = 1536;
+
+    // pgvector's upper bound for hnsw.ef_search
+    private static final int MAX_EF_SEARCH = 1000;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private static final String PENDING = "embedding_pgv IS NULL AND (embedding_vector IS NOT NULL OR embedding IS NOT NULL)";
+
+    // Served by the V88 partial indexes
+    private static final String COLLECTION_HAS_PENDING =
+            "SELECT EXISTS (SELECT 1 FROM document_chunks WHERE organization_id = :organizationId " +
+            "AND collection_id = :collectionId AND " + PENDING + ")";
+    private static final String DOCUMENT_HAS_PENDING =
+            "SELECT EXISTS (SELECT 1 FROM document_chunks WHERE organization_id = :organizationId " +
+            "AND analysis_id = :analysisId AND " + PENDING + ")";
+
+    private static final String SELECT_PENDING_BATCH =
+            "SELECT id, organization_id, embedding_vector, embedding FROM document_chunks " +
+            "WHERE id > :afterId AND " + PENDING + " ORDER BY id LIMIT :limit";
+
+    @Value("${search.pgvector.ef-search:200}")
+    private int efSearch;
+
+    private volatile Boolean pgVectorEnabled;
+    private volatile Boolean iterativeScan;
+
+    private record PendingChunk(Long id, Long organizationId, byte[] packed, String legacyJson) {}
+
+    /** Hits above minScore, plus how many rows the query returned before that filter. */
+    private record PgVectorResult(List<ScoredChunk> hits, int rowCount, boolean iterative) {}
+
+    /**
+     * Search scope: a whole collection, or a single document when collectionId is null.
+     */
+    public record Scope(Long organizationId, Long collectionId, Long analysisId) {
+        public static Scope collection(Long organizationId, Long collectionId) {
+            return new Scope(organizationId, collectionId, null);
+        }
+
+        public static Scope document(Long organizationId, Long analysisId) {
+            return new Scope(organizationId, null, analysisId);
+        }
+    }
+
+    public record ScoredChunk(Long chunkId, double score) {}
+
+    /**
+     * Whether document_chunks.embedding_pgv exists (pgvector installed when V80 ran).
+     */
+    public boolean isPgVectorEnabled() {
+        Boolean enabled = pgVectorEnabled;
+        if (enabled == null) {
+            try {
+                enabled = Boolean.TRUE.equals(jdbc.queryForObject(
+                        "SELECT EXISTS (SELECT 1 FROM information_schema.columns " +
+                        "WHERE table_name = 'document_chunks' AND column_name = 'embedding_pgv')",
+                        Map.of(), Boolean.class));
+            } catch (Exception e) {
+                log.warn("Could not detect pgvector column, using in-process vector scoring: {}", e.getMessage());
+                enabled = false;
+            }
+            pgVectorEnabled = enabled;
+            log.info("Chunk vector search backend: {}", enabled ? "pgvector HNSW" : "in-process scan");
+        }
+        return enabled;
+    }
+
+    /**
+     * Whether the installed pgvector supports {@code hnsw.iterative_scan} (0.8.0 and later).
+     */
+    private boolean isIterativeScanSupported() {
+        Boolean supported = iterativeScan;
+        if (supported == null) {
+            try {
+                String version = jdbc.queryForObject(
+                        "SELECT extversion FROM pg_extension WHERE extname = 'vector'", Map.of(), String.class);
+                supported = version != null && compareVersions(version, "0.8.0") >= 0;
+                log.info("pgvector {} - HNSW iterative scans {}", version, supported ? "enabled" : "unavailable");
+            } catch (Exception e) {
+                log.warn("Could not read pgvector version, HNSW iterative scans disabled: {}", e.getMessage());
+                supported = false;
+            }
+            iterativeScan = supported;
+        }
+        return supported;
+    }
+
+    /**
+     * Mirror freshly saved embeddings into the pgvector column. No-op without pgvector.
+     */
+    public void indexEmbeddings(List<DocumentChunk> chunks, List<float[]> embeddings) {
+        if (!isPgVectorEnabled()) return;
+        for (int i = 0; i < chunks.size() && i < embeddings.size(); i++) {
+            DocumentChunk chunk = chunks.get(i);
+            try {
+                chunkRepository.updatePgVector(chunk.getId(), chunk.getOrganizationId(),
+                        EmbeddingVectorCodec.toPgVectorLiteral(embeddings.get(i)));
+            } catch (Exception e) {
+                log.warn("Failed to write pgvector embedding for chunk {}: {}", chunk.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Top-k chunks by cosine similarity, highest first, dropping anything below minScore.
+     */
+    public List<ScoredChunk> topK(Scope scope, float[] queryEmbedding, int k, double minScore) {
+        if (queryEmbedding == null || k <= 0) return List.of();
+
+        if (isPgVectorEnabled() && queryEmbedding.length == PGVECTOR_DIMENSIONS) {
+            try {
+                // Chunks without a pgvector copy would be missing from the HNSW ranking — rank this scope in-process
+                if (!hasPendingChunks(scope)) {
+                    PgVectorResult result = topKPgVector(scope, queryEmbedding, k, minScore);
+                    // Without iterative scans the scope filter runs after the HNSW scan and can leave
+                    // fewer than k of the ef_search candidates, so a short result may be incomplete
+                    if (result.rowCount() >= k || result.iterative()) return result.hits();
+                }
+            } catch (Exception e) {
+                log.warn("pgvector top-k failed, falling back to in-process scan: {}", e.getMessage());
+            }
+        }
+        return topKInProcess(scope, queryEmbedding, k, minScore);
+    }
+
+    private boolean hasPendingChunks(Scope scope) {
+        // SECURITY: Org-scoped existence probe
+        var params = new MapSqlParameterSource().addValue("organizationId", scope.organizationId());
+        Boolean pending = scope.collectionId() != null
+                ? jdbc.queryForObject(COLLECTION_HAS_PENDING, params.addValue("collectionId", scope.collectionId()), Boolean.class)
+                : jdbc.queryForObject(DOCUMENT_HAS_PENDING, params.addValue("analysisId", scope.analysisId()), Boolean.class);
+        return Boolean.TRUE.equals(pending);
+    }
+
+    private PgVectorResult topKPgVector(Scope scope, float[] queryEmbedding, int k, double minScore) {
+        String literal = EmbeddingVectorCodec.toPgVectorLiteral(queryEmbedding);
+        boolean iterative = isIterativeScanSupported();
+        // SET LOCAL only lasts for the transaction, so the settings and the query share one
+        List<DocumentChunkRepository.ChunkSimilarity> rows = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbc.queryForObject("SELECT set_config('hnsw.ef_search', :efSearch, true)",
+                    Map.of("efSearch", Integer.toString(Math.min(MAX_EF_SEARCH, Math.max(efSearch, k * 4)))), String.class);
+            if (iterative) {
+                jdbc.queryForObject("SELECT set_config('hnsw.iterative_scan', 'strict_order', true)", Map.of(), String.class);
+            }
+            return scope.collectionId() != null
+                    ? chunkRepository.findTopKByCollectionIdAndOrganizationId(scope.collectionId(), scope.organizationId(), literal, k)
+                    : chunkRepository.findTopKByAnalysisIdAndOrganizationId(scope.analysisId(), scope.organizationId(), literal, k);
+        });
+
+        List<ScoredChunk> hits = new ArrayList<>(rows.size());
+        for (DocumentChunkRepository.ChunkSimilarity row : rows) {
+            if (row.getScore() != null && row.getScore() >= minScore) {
+                hits.add(new ScoredChunk(row.getId(), row.getScore()));
+            }
+        }
+        return new PgVectorResult(hits, rows.size(), iterative);
+    }
+
+    private List<ScoredChunk> topKInProcess(Scope scope, float[] queryEmbedding, int k, double minScore) {
+        return inMemoryVectorIndex.topK(scope, queryEmbedding, k, minScore);
+    }
+
+    /**
+     * Copy embeddings that predate V80 into embedding_pgv, on one node at a time. Embeddings of
+     * other dimensions can't be stored there and stay on the in-process path.
+     */
+    @Scheduled(initialDelayString = "${search.pgvector.backfill-initial-delay-ms:60000}",
+               fixedDelayString = "${search.pgvector.backfill-interval-ms:3600000}")
+    public void backfillPgVectors() {
+        if (!isPgVectorEnabled()) return;
+        jobLeaseService.runExclusive("pgvector-backfill", Duration.ofMinutes(5), Duration.ofHours(1), () -> {
+            long afterId = 0;
+            int copied = 0;
+            int skipped = 0;
+            while (true) {
+                // NOTE: Cross-organization by design - each row is updated under its own organization_id
+                List<PendingChunk> batch = jdbc.query(SELECT_PENDING_BATCH,
+                        new MapSqlParameterSource().addValue("afterId", afterId).addValue("limit", BACKFILL_BATCH_SIZE),
+                        (rs, i) -> new PendingChunk(rs.getLong("id"), rs.getLong("organization_id"),
+                                rs.getBytes("embedding_vector"), rs.getString("embedding")));
+                if (batch.isEmpty()) break;
+                for (PendingChunk chunk : batch) {
+                    float[] vector = EmbeddingVectorCodec.read(chunk.packed(), chunk.legacyJson());
+                    if (vector == null || vector.length != PGVECTOR_DIMENSIONS) {
+                        skipped++;
+                        continue;
+                    }
+                    chunkRepository.updatePgVector(chunk.id(), chunk.organizationId(), EmbeddingVectorCodec.toPgVectorLiteral(vector));
+                    copied++;
+                }
+                afterId = batch.get(batch.size() - 1).id();
+            }
+            if (copied > 0) {
+                log.info("pgvector backfill: copied {} chunk embeddings, {} left for in-process search", copied, skipped);
+            }
+        });
+    }
+
+    private static int compareVersions(String a, String b) {
+        String[] left = a.split("\\.");
+        String[] right = b.split("\\.");
+        for (int i = 0; i < Math.max(left.length, right.length); i++) {
+            int l = i < left.length ? parseVersionPart(left[i]) : 0;
+            int r = i < right.length ? parseVersionPart(right[i]) : 0;
+            if (l != r) return Integer.compare(l, r);
+        }
+        return 0;
+    }
+
+    private static int parseVersionPart(String part) {
+        String digits = part.replaceAll("\\D.*", "");
+        return digits.isEmpty() ? 0 : Integer.parseInt(digits);
+    }
+}
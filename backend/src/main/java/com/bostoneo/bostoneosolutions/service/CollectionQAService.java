@@ -46,7 +46,10 @@ public class CollectionQAService {
         public String sectionTitle;
         public String excerpt;
         public Long chunkId;
+        /** Cosine similarity of the chunk to the question (keyword score when embeddings are unavailable). */
         public double relevanceScore;
+        /** Ranking score from hybrid RRF fusion or the reranker; equals relevanceScore outside hybrid mode. */
+        public double fusedScore;
 
         public Source() {}
     }
@@ -103,7 +106,8 @@ public class CollectionQAService {
             source.sectionTitle = result.sectionTitle;
             source.excerpt = truncateExcerpt(result.content, 200);
             source.chunkId = result.chunkId;
-            source.relevanceScore = result.score;
+            source.relevanceScore = result.similarity;
+            source.fusedScore = result.score;
             response.sources.add(source);
         }
 
@@ -292,7 +296,8 @@ public class CollectionQAService {
         source.sectionTitle = result.sectionTitle;
         source.excerpt = truncateExcerpt(result.content, 200);
         source.chunkId = result.chunkId;
-        source.relevanceScore = result.score;
+        source.relevanceScore = result.similarity;
+        source.fusedScore = result.score;
         response.sources.add(source);
     }
 }
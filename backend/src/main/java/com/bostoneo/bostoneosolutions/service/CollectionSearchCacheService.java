@@ -1,16 +1,31 @@
 package com.bostoneo.bostoneosolutions.service;
 
+import com.bostoneo.bostoneosolutions.event.CollectionDocumentsChangedEvent;
+import com.bostoneo.bostoneosolutions.event.DocumentChunksChangedEvent;
 import com.bostoneo.bostoneosolutions.model.CollectionSearchCache;
 import com.bostoneo.bostoneosolutions.multitenancy.TenantService;
+import com.bostoneo.bostoneosolutions.repository.CollectionDocumentRepository;
 import com.bostoneo.bostoneosolutions.repository.CollectionSearchCacheRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -19,20 +34,64 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for managing search result caching.
  * Caches semantic search results to avoid repeated API calls.
+ *
+ * Two tiers with the same org/collection/user/query-hash key:
+ * - L1: per-node Caffeine cache of typed {@link SemanticSearchService.SearchResult} lists, so a hit
+ *   is a map lookup with no DB round trip or JSON parsing
+ * - L2: the collection_search_cache table, shared by all nodes and surviving restarts; L2 hits
+ *   are promoted into L1
+ *
+ * Both tiers for a collection are dropped after commit when documents are added to or removed
+ * from it ({@link CollectionDocumentsChangedEvent}) or a member document's chunks change
+ * ({@link DocumentChunksChangedEvent}). Other nodes drop their L1 entries via {@link #INVALIDATION_CHANNEL};
+ * {@link #L1_TTL} bounds staleness if a pub/sub message is lost.
+ *
+ * Invalidations stamp the collection with a node-local generation. Results computed or read from
+ * L2 before that stamp are not stored, so a search racing an invalidation can't re-cache stale
+ * results. L1 holds private copies of the results and every hit returns fresh copies, since
+ * callers modify {@link SemanticSearchService.SearchResult} fields.
  */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class CollectionSearchCacheService {
 
+    private static final String INVALIDATION_CHANNEL = "search:collection-cache:events";
+    private static final Duration L1_TTL = Duration.ofMinutes(10);
+    private static final int L1_MAX_ENTRIES = 10_000;
+
     private final CollectionSearchCacheRepository cacheRepository;
+    private final CollectionDocumentRepository collectionDocumentRepository;
     private final ObjectMapper objectMapper;
     private final TenantService tenantService;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private record CacheKey(Long organizationId, Long collectionId, Long userId, String queryHash) {}
+
+    private record CollectionKey(Long organizationId, Long collectionId) {}
+
+    private final Cache<CacheKey, CachedSearchResult> localCache = Caffeine.newBuilder()
+            .maximumSize(L1_MAX_ENTRIES)
+            .expireAfterWrite(L1_TTL)
+            .recordStats()
+            .build();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /** Generation at which each collection was last invalidated; kept as long as an L1 entry can live. */
+    private final Cache<CollectionKey, Long> invalidatedAt = Caffeine.newBuilder()
+            .expireAfterWrite(L1_TTL)
+            .build();
+
+    private final MessageListener invalidationListener = this::onInvalidationMessage;
 
     private Long getRequiredOrganizationId() {
         return tenantService.getCurrentOrganizationId()
@@ -44,6 +103,25 @@ public class CollectionSearchCacheService {
      */
     private static final Duration CACHE_TTL = Duration.ofHours(24);
 
+    @PostConstruct
+    void subscribe() {
+        try {
+            listenerContainer.addMessageListener(invalidationListener, new ChannelTopic(INVALIDATION_CHANNEL));
+        } catch (Exception e) {
+            log.warn("Could not subscribe to search cache invalidations - L1 staleness limited to {}: {}",
+                    L1_TTL, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        try {
+            listenerContainer.removeMessageListener(invalidationListener);
+        } catch (Exception e) {
+            log.debug("Failed to remove search cache listener: {}", e.getMessage());
+        }
+    }
+
     /**
      * Get cached search results if available and not expired.
      *
@@ -54,10 +132,18 @@ public class CollectionSearchCacheService {
      */
     public Optional<CachedSearchResult> getCachedResults(Long collectionId, String query, Long userId) {
         Long orgId = getRequiredOrganizationId();
-        String queryHash = hashQuery(query);
+        CacheKey key = new CacheKey(orgId, collectionId, userId, hashQuery(query));
+        long readGeneration = generation.get();
+
+        CachedSearchResult local = localCache.getIfPresent(key);
+        if (local != null) {
+            log.debug("L1 cache HIT for query '{}' in collection {} - {} results",
+                    query, collectionId, local.results().size());
+            return Optional.of(local.copy());
+        }
 
         Optional<CollectionSearchCache> cached = cacheRepository
-                .findByOrganizationIdAndCollectionIdAndQueryHashAndUserId(orgId, collectionId, queryHash, userId);
+                .findByOrganizationIdAndCollectionIdAndQueryHashAndUserId(orgId, collectionId, key.queryHash(), userId);
 
         if (cached.isPresent()) {
             CollectionSearchCache cache = cached.get();
@@ -68,21 +154,23 @@ public class CollectionSearchCacheService {
                 return Optional.empty();
             }
 
-            // Parse cached results
+            // Parse cached results once; later hits on this node come from L1
             try {
-                List<Map<String, Object>> results = objectMapper.readValue(
+                List<SemanticSearchService.SearchResult> results = objectMapper.readValue(
                         cache.getResultsJson(),
-                        new TypeReference<List<Map<String, Object>>>() {}
+                        new TypeReference<List<SemanticSearchService.SearchResult>>() {}
                 );
 
-                log.info("Cache HIT for query '{}' in collection {} - {} results",
+                log.info("L2 cache HIT for query '{}' in collection {} - {} results",
                         query, collectionId, results.size());
 
-                return Optional.of(new CachedSearchResult(
-                        results,
+                CachedSearchResult result = new CachedSearchResult(
+                        List.copyOf(results),
                         cache.getExpandedQuery(),
                         cache.getCreatedAt()
-                ));
+                );
+                putLocal(key, result, readGeneration);
+                return Optional.of(result.copy());
             } catch (JsonProcessingException e) {
                 log.error("Failed to parse cached results: {}", e.getMessage());
                 return Optional.empty();
@@ -101,13 +189,21 @@ public class CollectionSearchCacheService {
      * @param userId User ID
      * @param results Search results to cache
      * @param expandedQuery Query expanded with synonyms
+     * @param searchGeneration {@link #currentGeneration()} taken before the search ran
      */
     @Transactional
     public void cacheResults(Long collectionId, String query, Long userId,
-                             List<Map<String, Object>> results, String expandedQuery) {
+                             List<SemanticSearchService.SearchResult> results, String expandedQuery,
+                             long searchGeneration) {
         Long orgId = getRequiredOrganizationId();
         String queryHash = hashQuery(query);
 
+        CachedSearchResult local = new CachedSearchResult(results, expandedQuery, LocalDateTime.now()).copy();
+        if (!putLocal(new CacheKey(orgId, collectionId, userId, queryHash), local, searchGeneration)) {
+            log.debug("Collection {} was invalidated during the search - not caching query '{}'", collectionId, query);
+            return;
+        }
+
         try {
             String resultsJson = objectMapper.writeValueAsString(results);
 
@@ -154,11 +250,88 @@ public class CollectionSearchCacheService {
      */
     @Transactional
     public void invalidateCollectionCache(Long collectionId) {
-        Long orgId = getRequiredOrganizationId();
+        invalidateCollectionCache(getRequiredOrganizationId(), collectionId);
+    }
+
+    /**
+     * Drop both tiers for a collection and tell other nodes to drop their L1 entries.
+     */
+    @Transactional
+    public void invalidateCollectionCache(Long orgId, Long collectionId) {
+        evictLocal(orgId, collectionId);
         cacheRepository.deleteByOrganizationIdAndCollectionId(orgId, collectionId);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, orgId + ":" + collectionId);
+        } catch (Exception e) {
+            log.warn("Could not broadcast search cache invalidation for collection {}: {}", collectionId, e.getMessage());
+        }
         log.info("Invalidated search cache for collection {}", collectionId);
     }
 
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onCollectionDocumentsChanged(CollectionDocumentsChangedEvent event) {
+        invalidateCollectionCache(event.getOrganizationId(), event.getCollectionId());
+    }
+
+    /**
+     * Re-chunked, re-embedded or deleted chunks change the results of every collection holding the document.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onChunksChanged(DocumentChunksChangedEvent event) {
+        // SECURITY: Use tenant-filtered query
+        List<Long> collectionIds = event.getCollectionId() != null
+                ? List.of(event.getCollectionId())
+                : collectionDocumentRepository.findCollectionIdsByAnalysisIdAndOrganizationId(
+                        event.getOrganizationId(), event.getAnalysisId());
+        for (Long collectionId : collectionIds) {
+            invalidateCollectionCache(event.getOrganizationId(), collectionId);
+        }
+    }
+
+    /**
+     * Generation to pass to {@link #cacheResults} for a search starting now.
+     */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    private boolean invalidatedSince(CacheKey key, long sinceGeneration) {
+        Long stamp = invalidatedAt.getIfPresent(new CollectionKey(key.organizationId(), key.collectionId()));
+        return stamp != null && stamp > sinceGeneration;
+    }
+
+    /**
+     * Store in L1 unless the collection was invalidated after {@code sinceGeneration}. Checked again
+     * after the put: an invalidation stamps before it evicts, so one that ran in between is seen.
+     */
+    private boolean putLocal(CacheKey key, CachedSearchResult result, long sinceGeneration) {
+        if (invalidatedSince(key, sinceGeneration)) return false;
+        localCache.put(key, result);
+        if (invalidatedSince(key, sinceGeneration)) {
+            localCache.invalidate(key);
+            return false;
+        }
+        return true;
+    }
+
+    private void evictLocal(Long orgId, Long collectionId) {
+        invalidatedAt.put(new CollectionKey(orgId, collectionId), generation.incrementAndGet());
+        localCache.asMap().keySet().removeIf(key ->
+                Objects.equals(key.organizationId(), orgId) && Objects.equals(key.collectionId(), collectionId));
+    }
+
+    private void onInvalidationMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            String[] parts = body.split(":");
+            evictLocal(Long.valueOf(parts[0]), Long.valueOf(parts[1]));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed search cache event: {}", e.getMessage());
+        }
+    }
+
     /**
      * Clean up expired cache entries.
      * Runs every hour.
@@ -202,19 +375,30 @@ public class CollectionSearchCacheService {
     public Map<String, Object> getCacheStats(Long collectionId) {
         Long orgId = getRequiredOrganizationId();
         long count = cacheRepository.countByOrganizationIdAndCollectionId(orgId, collectionId);
+        long localCount = localCache.asMap().keySet().stream()
+                .filter(key -> Objects.equals(key.organizationId(), orgId) && Objects.equals(key.collectionId(), collectionId))
+                .count();
         return Map.of(
                 "collectionId", collectionId,
                 "cacheEntries", count,
+                "localCacheEntries", localCount,
+                "localCacheHitRate", localCache.stats().hitRate(),
                 "cacheTtlHours", CACHE_TTL.toHours()
         );
     }
 
     /**
-     * Cached search result wrapper.
+     * Cached search result wrapper. Each hit gets its own copies of the results.
      */
     public record CachedSearchResult(
-            List<Map<String, Object>> results,
+            List<SemanticSearchService.SearchResult> results,
             String expandedQuery,
             LocalDateTime cachedAt
-    ) {}
+    ) {
+        CachedSearchResult copy() {
+            return new CachedSearchResult(
+                    results.stream().map(SemanticSearchService.SearchResult::copy).toList(),
+                    expandedQuery, cachedAt);
+        }
+    }
 }
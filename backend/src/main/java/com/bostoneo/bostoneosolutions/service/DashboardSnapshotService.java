@@ -0,0 +1,247 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import com.bostoneo.bostoneosolutions.event.InvoiceChangedEvent;
+import com.bostoneo.bostoneosolutions.event.LegalCaseChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Everything the analytics dashboard shows, computed in one pass for {@code GET /analytics/dashboard-snapshot}.
+ *
+ * The invoice, trend, activity and case aggregates run as parallel SQL queries on the task
+ * executor. Snapshots are cached per organization for {@code analytics.dashboard.snapshot-ttl-seconds}
+ * and dropped on this node after any case or invoice commit; other nodes pick changes up when their
+ * copy expires. Each snapshot carries an ETag over its content so unchanged dashboards get a 304.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardSnapshotService {
+
+    private static final int MAX_CACHED_ORGANIZATIONS = 5_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AnalyticsRollupService rollupService;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor taskExecutor;
+
+    @Value("${analytics.dashboard.snapshot-ttl-seconds:60}")
+    private long snapshotTtlSeconds;
+
+    private Cache<Long, Snapshot> snapshots;
+
+    public record Snapshot(Map<String, Object> data, String etag) {}
+
+    @PostConstruct
+    void init() {
+        snapshots = Caffeine.newBuilder()
+                .maximumSize(MAX_CACHED_ORGANIZATIONS)
+                .expireAfterWrite(Duration.ofSeconds(snapshotTtlSeconds))
+                .build();
+    }
+
+    /**
+     * Cached snapshot for the organization, computing it if missing. Concurrent requests for the
+     * same organization share one computation.
+     */
+    public Snapshot getSnapshot(Long orgId) {
+        return snapshots.get(orgId, this::compute);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Order(AnalyticsRollupService.LISTENER_ORDER + 1)
+    public void onLegalCaseChanged(LegalCaseChangedEvent event) {
+        snapshots.invalidate(event.getOrganizationId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Order(AnalyticsRollupService.LISTENER_ORDER + 1)
+    public void onInvoiceChanged(InvoiceChangedEvent event) {
+        snapshots.invalidate(event.getOrganizationId());
+    }
+
+    private Snapshot compute(Long orgId) {
+        long start = System.currentTimeMillis();
+
+        CompletableFuture<Map<String, Object>> invoiceTotals = async(() -> queryInvoiceTotals(orgId));
+        CompletableFuture<List<Map<String, Object>>> monthlyTrends = async(() -> queryMonthlyTrends(orgId));
+        CompletableFuture<Map<String, Object>> activity = async(() -> queryActivity(orgId));
+        CompletableFuture<AnalyticsRollupService.CaseRollup> cases = async(() -> rollupService.getCaseRollup(orgId));
+
+        try {
+            CompletableFuture.allOf(invoiceTotals, monthlyTrends, activity, cases).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+
+        Map<String, Object> data = assemble(invoiceTotals.join(), monthlyTrends.join(), activity.join(), cases.join());
+        Snapshot snapshot = new Snapshot(data, etag(data));
+        log.debug("Computed dashboard snapshot for org {} in {}ms", orgId, System.currentTimeMillis() - start);
+        return snapshot;
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, taskExecutor);
+    }
+
+    // SECURITY: All queries below are tenant-filtered
+
+    private Map<String, Object> queryInvoiceTotals(Long orgId) {
+        return jdbcTemplate.queryForMap("""
+            SELECT
+                COUNT(*) AS total_invoices,
+                COUNT(*) FILTER (WHERE status = 'PAID') AS paid_invoices,
+                COUNT(*) FILTER (WHERE status IN ('PENDING', 'OVERDUE')) AS unpaid_invoices,
+                COUNT(*) FILTER (WHERE status = 'OVERDUE') AS overdue_invoices,
+                COALESCE(SUM(total_amount) FILTER (WHERE status = 'PAID'), 0) AS collected_amount,
+                COALESCE(SUM(total_amount) FILTER (WHERE status = 'PENDING'), 0) AS pending_amount,
+                COALESCE(SUM(total_amount) FILTER (WHERE status = 'OVERDUE'), 0) AS overdue_amount,
+                COALESCE(SUM(total_amount) FILTER (WHERE status = 'PAID'
+                    AND issue_date >= date_trunc('month', CURRENT_DATE)
+                    AND issue_date < date_trunc('month', CURRENT_DATE) + INTERVAL '1 month'), 0) AS current_month_revenue,
+                COUNT(*) FILTER (WHERE status = 'OVERDUE' AND CURRENT_DATE - issue_date > 90) AS overdue_90_plus,
+                COUNT(*) FILTER (WHERE status = 'OVERDUE' AND CURRENT_DATE - issue_date BETWEEN 60 AND 90) AS overdue_60_90,
+                COUNT(*) FILTER (WHERE status = 'OVERDUE' AND CURRENT_DATE - issue_date BETWEEN 30 AND 59) AS overdue_30_60,
+                COUNT(*) FILTER (WHERE status = 'OVERDUE' AND CURRENT_DATE - issue_date < 30) AS overdue_under_30,
+                ROUND(COALESCE(SUM(total_amount) FILTER (WHERE status = 'PAID'), 0) * 100.0 / NULLIF(SUM(total_amount), 0), 2) AS collection_rate,
+                ROUND(AVG(CURRENT_DATE - issue_date), 0) AS avg_days_outstanding
+            FROM invoices WHERE organization_id = ?
+            """, orgId);
+    }
+
+    private List<Map<String, Object>> queryMonthlyTrends(Long orgId) {
+        return jdbcTemplate.queryForList("""
+            SELECT
+                TO_CHAR(issue_date, 'YYYY-MM') AS month,
+                COALESCE(SUM(total_amount) FILTER (WHERE status = 'PAID'), 0) AS revenue,
+                COUNT(*) FILTER (WHERE status = 'PAID') AS paid_invoices,
+                COALESCE(SUM(total_amount), 0) AS total_billed
+            FROM invoices
+            WHERE issue_date >= CURRENT_DATE - INTERVAL '12 months' AND organization_id = ?
+            GROUP BY TO_CHAR(issue_date, 'YYYY-MM')
+            ORDER BY month
+            """, orgId);
+    }
+
+    private Map<String, Object> queryActivity(Long orgId) {
+        return jdbcTemplate.queryForMap("""
+            SELECT
+                (SELECT COUNT(*) FROM legal_cases
+                    WHERE organization_id = ? AND created_at >= NOW() - INTERVAL '30 days') AS recent_cases,
+                (SELECT COUNT(*) FROM legal_cases
+                    WHERE organization_id = ? AND updated_at >= NOW() - INTERVAL '7 days') AS recent_status_changes,
+                (SELECT COUNT(*) FROM invoices
+                    WHERE organization_id = ? AND issue_date >= CURRENT_DATE - 30) AS recent_invoices,
+                (SELECT COALESCE(SUM(total_amount), 0) FROM invoices
+                    WHERE organization_id = ? AND issue_date >= CURRENT_DATE - 30) AS recent_revenue,
+                (SELECT COUNT(*) FROM clients WHERE organization_id = ?) AS total_clients,
+                (SELECT COUNT(*) FROM users WHERE organization_id = ?) AS team_members
+            """, orgId, orgId, orgId, orgId, orgId, orgId);
+    }
+
+    /**
+     * Same keys, rounding and source table ({@code invoices}) as the individual /analytics endpoints,
+     * so the dashboard can switch over without remapping.
+     */
+    private Map<String, Object> assemble(Map<String, Object> invoices, List<Map<String, Object>> monthlyTrends,
+                                         Map<String, Object> activity, AnalyticsRollupService.CaseRollup cases) {
+        long paidInvoices = number(invoices.get("paid_invoices")).longValue();
+        long unpaidInvoices = number(invoices.get("unpaid_invoices")).longValue();
+        long totalCases = cases.total();
+        long activeCases = cases.count("OPEN", "IN_PROGRESS");
+        long closedCases = cases.count("CLOSED");
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("totalEarnings", number(invoices.get("collected_amount")).doubleValue());
+        data.put("paidInvoices", paidInvoices);
+        data.put("unpaidInvoices", unpaidInvoices);
+        data.put("overdueInvoices", number(invoices.get("overdue_invoices")).longValue());
+        data.put("totalInvoices", paidInvoices + unpaidInvoices);
+        data.put("currentMonthRevenue", number(invoices.get("current_month_revenue")).doubleValue());
+        data.put("totalClients", number(activity.get("total_clients")).longValue());
+        data.put("teamMembers", number(activity.get("team_members")).longValue());
+        data.put("activeCases", activeCases);
+
+        Map<String, Object> caseAnalytics = new LinkedHashMap<>();
+        Map<String, Long> statusCounts = new TreeMap<>(cases.countByStatus());
+        caseAnalytics.put("totalCases", totalCases);
+        caseAnalytics.put("activeCases", activeCases);
+        caseAnalytics.put("closedCases", closedCases);
+        caseAnalytics.put("pendingCases", statusCounts.getOrDefault("PENDING", 0L));
+        caseAnalytics.put("casesByStatus", statusCounts);
+        Map<String, Long> casesByType = new TreeMap<>();
+        cases.countByPracticeArea().forEach((area, count) -> casesByType.merge(area != null ? area : "Other", count, Long::sum));
+        caseAnalytics.put("casesByType", casesByType);
+        Map<String, Double> revenueByType = new TreeMap<>();
+        cases.amountByPracticeArea().forEach((area, amount) -> revenueByType.merge(area != null ? area : "Other", amount, Double::sum));
+        caseAnalytics.put("revenueByType", revenueByType);
+        data.put("cases", caseAnalytics);
+
+        double invoiceCount = paidInvoices + unpaidInvoices;
+        Map<String, Object> kpis = new LinkedHashMap<>();
+        kpis.put("caseSuccessRate", percent(closedCases, totalCases));
+        kpis.put("clientSatisfactionRate", percent(paidInvoices, invoiceCount));
+        kpis.put("systemEfficiency", percent(cases.count("IN_PROGRESS", "CLOSED"), totalCases));
+        kpis.put("averageResolutionTime", Math.round(cases.averageResolutionDays() / 30.0 * 10.0) / 10.0);
+        data.put("kpis", kpis);
+
+        Map<String, Object> receivables = new LinkedHashMap<>();
+        for (String key : List.of("pending_amount", "overdue_amount", "collected_amount",
+                "overdue_90_plus", "overdue_60_90", "overdue_30_60", "overdue_under_30")) {
+            receivables.put(key, invoices.get(key));
+        }
+        Map<String, Object> collection = new LinkedHashMap<>();
+        collection.put("collection_rate", invoices.get("collection_rate"));
+        collection.put("avg_days_outstanding", invoices.get("avg_days_outstanding"));
+        Map<String, Object> financialSummary = new LinkedHashMap<>();
+        financialSummary.put("receivables", receivables);
+        financialSummary.put("collection", collection);
+        financialSummary.put("monthlyTrends", monthlyTrends);
+        data.put("financialSummary", financialSummary);
+
+        Map<String, Object> recentActivity = new LinkedHashMap<>();
+        recentActivity.put("recentCases", number(activity.get("recent_cases")).intValue());
+        recentActivity.put("recentInvoices", number(activity.get("recent_invoices")).intValue());
+        recentActivity.put("recentRevenue", number(activity.get("recent_revenue")).doubleValue());
+        recentActivity.put("recentStatusChanges", number(activity.get("recent_status_changes")).intValue());
+        data.put("recentActivity", recentActivity);
+
+        return data;
+    }
+
+    private String etag(Map<String, Object> data) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(data)) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize dashboard snapshot", e);
+        }
+    }
+
+    private static Number number(Object value) {
+        return value instanceof Number n ? n : 0;
+    }
+
+    private static double percent(double part, double whole) {
+        double rate = whole == 0 ? 0 : part / whole * 100;
+        return Math.round(rate * 100.0) / 100.0;
+    }
+}
@@ -1,11 +1,14 @@
 package com.bostoneo.bostoneosolutions.service;
 
+import com.bostoneo.bostoneosolutions.event.DocumentChunksChangedEvent;
 import com.bostoneo.bostoneosolutions.model.AIDocumentAnalysis;
 import com.bostoneo.bostoneosolutions.model.DocumentChunk;
 import com.bostoneo.bostoneosolutions.repository.AIDocumentAnalysisRepository;
 import com.bostoneo.bostoneosolutions.repository.DocumentChunkRepository;
+import com.bostoneo.bostoneosolutions.service.search.ChunkTermVector;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +29,7 @@ public class DocumentChunkingService {
     private final DocumentChunkRepository chunkRepository;
     private final AIDocumentAnalysisRepository analysisRepository;
     private final com.bostoneo.bostoneosolutions.multitenancy.TenantService tenantService;
+    private final ApplicationEventPublisher eventPublisher;
 
     private Long getRequiredOrganizationId() {
         return tenantService.getCurrentOrganizationId()
@@ -61,15 +65,29 @@ public class DocumentChunkingService {
         String content = analysis.getDocumentContent();
         if (content == null || content.trim().isEmpty()) {
             log.warn("No document content found for analysis: {}", analysisId);
+            eventPublisher.publishEvent(new DocumentChunksChangedEvent(this, orgId, analysisId, null,
+                    DocumentChunksChangedEvent.Change.DELETED));
             return new ArrayList<>();
         }
 
         // Split into chunks
         List<DocumentChunk> chunks = createChunks(content, analysisId);
 
+        // Content hash keys the organization's embedding cache (EmbeddingCacheService);
+        // the term vector feeds the keyword index (KeywordIndexService)
+        for (DocumentChunk chunk : chunks) {
+            chunk.setOrganizationId(orgId);
+            chunk.setContentHash(EmbeddingCacheService.contentHash(chunk.getContent()));
+            ChunkTermVector termVector = ChunkTermVector.of(chunk.getContent());
+            chunk.setTermVector(termVector.toBytes());
+            chunk.setTermCount(termVector.getTokenCount());
+        }
+
         // Save chunks
         chunks = chunkRepository.saveAll(chunks);
         log.info("Created {} chunks for document: {}", chunks.size(), analysisId);
+        eventPublisher.publishEvent(new DocumentChunksChangedEvent(this, orgId, analysisId, null,
+                DocumentChunksChangedEvent.Change.CHUNKED));
 
         return chunks;
     }
@@ -91,6 +109,8 @@ public class DocumentChunkingService {
                     chunk.setCollectionId(collectionId);
                 }
                 chunkRepository.saveAll(chunks);
+                eventPublisher.publishEvent(new DocumentChunksChangedEvent(this, getRequiredOrganizationId(), analysisId,
+                        collectionId, DocumentChunksChangedEvent.Change.COLLECTION_ASSIGNED));
 
                 totalChunks += chunks.size();
             } catch (Exception e) {
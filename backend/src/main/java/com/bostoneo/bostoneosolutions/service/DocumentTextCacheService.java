@@ -0,0 +1,333 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import com.bostoneo.bostoneosolutions.repository.DocumentTextCacheRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.pdf.PDFParser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Organization-wide, content-addressed text extraction shared by every document pipeline
+ * (medical-record scanning, AI workspace exhibits, template import, document analysis).
+ *
+ * Files are keyed by SHA-256 of their bytes, so a file the organization has already extracted —
+ * in any pipeline, on any node — is not parsed again. Entries live in document_text_cache (V87)
+ * with an in-memory LRU in front ({@code app.text-cache.memory-max-chars} characters of text).
+ * Empty text-layer results are not kept in memory, so an OCR result saved on another node is
+ * picked up from the database on the next lookup.
+ *
+ * - PDFs are read with PDFBox page by page (layout-sorted), so entries carry page boundaries;
+ *   other formats go through Tika's AutoDetectParser.
+ * - Text is normalized once: Unicode NFC, LF line endings, no NUL characters, trimmed.
+ * - A pipeline that has to OCR a scanned file stores the result with {@link #saveOcrResult}; it
+ *   replaces the empty text-layer entry, so every pipeline gets the OCR text next time.
+ *
+ * Lookups are published to Micrometer as {@code document.text.cache.lookups} (result=memory|database|miss).
+ * The cache is best-effort: if the database is unavailable, extraction still runs uncached.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentTextCacheService {
+
+    public static final String METHOD_PDFBOX = "pdfbox";
+    public static final String METHOD_TIKA = "tika";
+    public static final String METHOD_TESSERACT = "tesseract";
+    public static final String METHOD_VISION_OCR = "vision-ocr";
+
+    private static final Set<String> OCR_METHODS = Set.of(METHOD_TESSERACT, METHOD_VISION_OCR);
+    private static final String PAGE_SEPARATOR = "\n\n";
+    private static final TypeReference<List<Integer>> OFFSET_LIST = new TypeReference<>() {};
+
+    private final DocumentTextCacheRepository repository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.text-cache.memory-max-chars:50000000}")
+    private long memoryMaxChars;
+
+    // "{organizationId}:{contentHash}" -> extraction
+    private Cache<String, ExtractedText> memory;
+
+    private Counter memoryHitCounter;
+    private Counter databaseHitCounter;
+    private Counter missCounter;
+
+    /**
+     * Normalized text of one file.
+     *
+     * @param pageOffsets char offset in {@code text} where each page starts; empty when the
+     *                    format has no page structure (DOCX, plain text, ...)
+     * @param method      how the text was produced — one of the METHOD_* constants
+     */
+    public record ExtractedText(String contentHash, String text, List<Integer> pageOffsets, String method) {
+
+        public int pageCount() {
+            return pageOffsets.size();
+        }
+
+        public boolean isEmpty() {
+            return text.isBlank();
+        }
+
+        public boolean isOcr() {
+            return OCR_METHODS.contains(method);
+        }
+
+        /** Text of each page, or the whole text as a single entry when there are no page boundaries. */
+        public List<String> pages() {
+            if (pageOffsets.isEmpty()) return List.of(text);
+            List<String> pages = new ArrayList<>(pageOffsets.size());
+            for (int i = 0; i < pageOffsets.size(); i++) {
+                int end = i + 1 < pageOffsets.size() ? pageOffsets.get(i + 1) : text.length();
+                pages.add(text.substring(pageOffsets.get(i), end).strip());
+            }
+            return pages;
+        }
+
+        /** Text with a "--- Page N ---" line before each page, for prompts that cite page numbers. */
+        public String withPageMarkers() {
+            if (pageOffsets.isEmpty()) return text;
+            StringBuilder sb = new StringBuilder(text.length() + pageOffsets.size() * 20);
+            List<String> pages = pages();
+            for (int i = 0; i < pages.size(); i++) {
+                sb.append("--- Page ").append(i + 1).append(" ---\n").append(pages.get(i)).append("\n\n");
+            }
+            return sb.toString();
+        }
+    }
+
+    /** Thrown when the document is password-protected and can't be read. */
+    public static class EncryptedDocumentException extends IOException {
+        public EncryptedDocumentException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        memory = Caffeine.newBuilder()
+                .maximumWeight(memoryMaxChars)
+                .weigher((String key, ExtractedText value) -> Math.max(1, value.text().length()))
+                .expireAfterWrite(Duration.ofHours(1))
+                .build();
+        memoryHitCounter = Counter.builder("document.text.cache.lookups").tag("result", "memory")
+                .description("Extractions served from the in-memory LRU")
+                .register(meterRegistry);
+        databaseHitCounter = Counter.builder("document.text.cache.lookups").tag("result", "database")
+                .description("Extractions served from document_text_cache")
+                .register(meterRegistry);
+        missCounter = Counter.builder("document.text.cache.lookups").tag("result", "miss")
+                .description("Files that had to be parsed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Text of a file, from the cache when the organization has seen identical bytes before.
+     * May return an OCR result stored by another pipeline; an empty text-layer result means the
+     * caller should OCR the file and {@link #saveOcrResult} what it gets.
+     *
+     * @throws EncryptedDocumentException if the file is password-protected
+     * @throws IOException                if the file can't be parsed
+     */
+    public ExtractedText extract(Long organizationId, byte[] bytes, String fileName, String mimeType) throws IOException {
+        String contentHash = sha256(bytes);
+        ExtractedText cached = lookup(organizationId, contentHash);
+        if (cached != null) return cached;
+
+        long start = System.currentTimeMillis();
+        ExtractedText extracted;
+        if (isPdf(fileName, mimeType)) {
+            try (PDDocument doc = Loader.loadPDF(bytes)) {
+                extracted = extractPdfPages(contentHash, doc);
+            } catch (org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException e) {
+                throw new EncryptedDocumentException("PDF is password-protected", e);
+            } catch (IOException e) {
+                // PDFBox can't open some damaged files that Tika's more lenient PDF parser still reads
+                log.debug("PDFBox could not read {} ({}), retrying with Tika", fileName, e.getMessage());
+                extracted = extractWithTika(contentHash, bytes, fileName, mimeType, new PDFParser());
+            }
+        } else {
+            extracted = extractWithTika(contentHash, bytes, fileName, mimeType, new AutoDetectParser());
+        }
+        log.info("Extracted {} chars ({} pages) from {} via {} in {} ms", extracted.text().length(),
+                extracted.pageCount(), fileName, extracted.method(), System.currentTimeMillis() - start);
+        store(organizationId, extracted, mimeType, false);
+        return extracted;
+    }
+
+    /**
+     * Same as {@link #extract} for a PDF the caller has already loaded (e.g. to check encryption or
+     * collect layout), so a cache miss doesn't parse the file a second time.
+     */
+    public ExtractedText extractPdf(Long organizationId, byte[] bytes, PDDocument doc) throws IOException {
+        String contentHash = sha256(bytes);
+        ExtractedText cached = lookup(organizationId, contentHash);
+        if (cached != null) return cached;
+        ExtractedText extracted = extractPdfPages(contentHash, doc);
+        store(organizationId, extracted, "application/pdf", false);
+        return extracted;
+    }
+
+    /**
+     * Record OCR output for a scanned file, replacing its (empty) text-layer entry.
+     *
+     * @param pages  text of each page in order, or a single entry when page boundaries are unknown
+     * @param method {@link #METHOD_TESSERACT} or {@link #METHOD_VISION_OCR}
+     */
+    public ExtractedText saveOcrResult(Long organizationId, String contentHash, List<String> pages,
+                                       String method, String mimeType) {
+        ExtractedText extracted = pages.size() == 1
+                ? new ExtractedText(contentHash, normalize(pages.get(0)), List.of(), method)
+                : fromPages(contentHash, pages, method);
+        store(organizationId, extracted, mimeType, true);
+        return extracted;
+    }
+
+    /** SHA-256 hex of the file bytes — the cache key. */
+    public static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private ExtractedText lookup(Long organizationId, String contentHash) {
+        // SECURITY: Keys and queries are organization-scoped; identical files in two orgs never share an entry
+        String key = organizationId + ":" + contentHash;
+        ExtractedText inMemory = memory.getIfPresent(key);
+        if (inMemory != null) {
+            memoryHitCounter.increment();
+            return inMemory;
+        }
+        try {
+            var entry = repository.find(organizationId, contentHash);
+            if (entry.isPresent()) {
+                List<Integer> offsets = objectMapper.readValue(entry.get().pageOffsetsJson(), OFFSET_LIST);
+                ExtractedText cached = new ExtractedText(contentHash, entry.get().text(), List.copyOf(offsets),
+                        entry.get().extractionMethod());
+                remember(key, cached);
+                repository.recordHit(organizationId, contentHash);
+                databaseHitCounter.increment();
+                return cached;
+            }
+        } catch (Exception e) {
+            log.warn("Text cache lookup failed for {} — extracting uncached: {}", contentHash, e.getMessage());
+        }
+        missCounter.increment();
+        return null;
+    }
+
+    /**
+     * An empty text layer is about to be replaced by an OCR result, possibly on another node, so only
+     * the database copy of it is authoritative.
+     */
+    private void remember(String key, ExtractedText extracted) {
+        if (extracted.isEmpty() && !extracted.isOcr()) {
+            memory.invalidate(key);
+            return;
+        }
+        memory.put(key, extracted);
+    }
+
+    private void store(Long organizationId, ExtractedText extracted, String mimeType, boolean replace) {
+        remember(organizationId + ":" + extracted.contentHash(), extracted);
+        try {
+            repository.save(organizationId, extracted.contentHash(), new DocumentTextCacheRepository.Entry(
+                    extracted.method(), mimeType, extracted.text(),
+                    objectMapper.writeValueAsString(extracted.pageOffsets()), extracted.pageCount()), replace);
+        } catch (Exception e) {
+            log.warn("Failed to store extracted text {}: {}", extracted.contentHash(), e.getMessage());
+        }
+    }
+
+    private ExtractedText extractPdfPages(String contentHash, PDDocument doc) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        // Preserve reading order and paragraph spacing so placeholder detection sees structure.
+        stripper.setSortByPosition(true);
+        stripper.setParagraphEnd("\n\n");
+        int pageCount = doc.getNumberOfPages();
+        List<String> pages = new ArrayList<>(pageCount);
+        for (int page = 1; page <= pageCount; page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            pages.add(stripper.getText(doc));
+        }
+        return fromPages(contentHash, pages, METHOD_PDFBOX);
+    }
+
+    private ExtractedText extractWithTika(String contentHash, byte[] bytes, String fileName, String mimeType,
+                                          org.apache.tika.parser.Parser parser) throws IOException {
+        BodyContentHandler handler = new BodyContentHandler(-1);  // no char limit
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+        if (mimeType != null && !mimeType.isBlank()) {
+            metadata.set(Metadata.CONTENT_TYPE, mimeType);
+        }
+        try (InputStream in = new ByteArrayInputStream(bytes)) {
+            parser.parse(in, handler, metadata, new ParseContext());
+        } catch (org.apache.tika.exception.EncryptedDocumentException e) {
+            throw new EncryptedDocumentException("Document is password-protected", e);
+        } catch (TikaException | SAXException e) {
+            throw new IOException("Could not extract text from " + fileName + ": " + e.getMessage(), e);
+        }
+        return new ExtractedText(contentHash, normalize(handler.toString()), List.of(), METHOD_TIKA);
+    }
+
+    private static ExtractedText fromPages(String contentHash, List<String> pages, String method) {
+        StringBuilder text = new StringBuilder();
+        List<Integer> offsets = new ArrayList<>(pages.size());
+        for (String page : pages) {
+            if (!offsets.isEmpty()) text.append(PAGE_SEPARATOR);
+            offsets.add(text.length());
+            text.append(normalize(page));
+        }
+        return new ExtractedText(contentHash, text.toString(), List.copyOf(offsets), method);
+    }
+
+    private static String normalize(String text) {
+        if (text == null) return "";
+        return Normalizer.normalize(text, Normalizer.Form.NFC)
+                .replace("\r\n", "\n")
+                .replace('\r', '\n')
+                .replace("\u0000", "")
+                .strip();
+    }
+
+    private static boolean isPdf(String fileName, String mimeType) {
+        return (mimeType != null && mimeType.toLowerCase(Locale.ROOT).contains("pdf"))
+                || (fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(".pdf"));
+    }
+}
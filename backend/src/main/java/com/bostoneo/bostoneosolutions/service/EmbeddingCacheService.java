@@ -0,0 +1,156 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import com.bostoneo.bostoneosolutions.model.DocumentChunk;
+import com.bostoneo.bostoneosolutions.repository.EmbeddingCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Organization-wide, content-addressed embedding cache.
+ *
+ * Chunks are keyed by SHA-256 of their whitespace-normalized text plus the embedding model, so
+ * boilerplate clauses, repeated exhibits and re-uploaded documents reuse the embedding computed
+ * the first time the organization saw that text. Hit/miss counts are published to Micrometer as
+ * {@code embedding.cache.lookups} and summarized by {@link #getStats()}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddingCacheService {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // Keep IN (...) lists well below driver/planner limits
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    private final EmbeddingCacheRepository cacheRepository;
+    private final MeterRegistry meterRegistry;
+
+    private Counter hitCounter;
+    private Counter duplicateCounter;
+    private Counter missCounter;
+
+    public record EmbeddingCacheStats(long hits, long duplicates, long misses, double hitRate) {}
+
+    @PostConstruct
+    void registerMetrics() {
+        hitCounter = Counter.builder("embedding.cache.lookups").tag("result", "hit")
+                .description("Chunks whose embedding was reused from the organization cache")
+                .register(meterRegistry);
+        duplicateCounter = Counter.builder("embedding.cache.lookups").tag("result", "duplicate")
+                .description("Chunks that shared an API call with identical text in the same document")
+                .register(meterRegistry);
+        missCounter = Counter.builder("embedding.cache.lookups").tag("result", "miss")
+                .description("Chunks that required an embeddings API call")
+                .register(meterRegistry);
+        Gauge.builder("embedding.cache.hit.ratio", this, service -> service.getStats().hitRate())
+                .register(meterRegistry);
+    }
+
+    /**
+     * SHA-256 hex of the chunk text after Unicode NFC normalization and whitespace collapsing,
+     * so re-extracted copies of the same text with different line wrapping hash the same.
+     */
+    public static String contentHash(String content) {
+        String normalized = WHITESPACE.matcher(Normalizer.normalize(content, Normalizer.Form.NFC).strip()).replaceAll(" ");
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Fill chunks from the organization's cache in place (vector, dimensions, model).
+     * Assigns {@link DocumentChunk#getContentHash()} to chunks that do not have one yet.
+     *
+     * @return the chunks that were filled; the caller persists them
+     */
+    public List<DocumentChunk> applyCached(Long organizationId, String model, List<DocumentChunk> chunks) {
+        if (chunks.isEmpty()) return List.of();
+        for (DocumentChunk chunk : chunks) {
+            if (chunk.getContentHash() == null) {
+                chunk.setContentHash(contentHash(chunk.getContent()));
+            }
+        }
+
+        Map<String, byte[]> cached = new HashMap<>();
+        List<String> hashes = chunks.stream().map(DocumentChunk::getContentHash).distinct().toList();
+        try {
+            for (int i = 0; i < hashes.size(); i += LOOKUP_BATCH_SIZE) {
+                cached.putAll(cacheRepository.findVectors(organizationId, model,
+                        hashes.subList(i, Math.min(i + LOOKUP_BATCH_SIZE, hashes.size()))));
+            }
+        } catch (Exception e) {
+            log.warn("Embedding cache lookup failed for org {} - embedding all chunks: {}", organizationId, e.getMessage());
+            return List.of();
+        }
+
+        List<DocumentChunk> filled = new ArrayList<>();
+        for (DocumentChunk chunk : chunks) {
+            byte[] vector = cached.get(chunk.getContentHash());
+            if (vector != null) {
+                chunk.setEmbeddingVector(vector);
+                chunk.setEmbeddingDimensions(vector.length / Float.BYTES);
+                chunk.setEmbedding(null);
+                chunk.setEmbeddingModel(model);
+                filled.add(chunk);
+            }
+        }
+
+        hitCounter.increment(filled.size());
+        if (!cached.isEmpty()) {
+            try {
+                cacheRepository.recordHits(organizationId, model, new ArrayList<>(cached.keySet()));
+            } catch (Exception e) {
+                log.debug("Failed to record embedding cache hits: {}", e.getMessage());
+            }
+            log.info("Embedding cache: reused {} of {} chunk embeddings for org {}", filled.size(), chunks.size(), organizationId);
+        }
+        return filled;
+    }
+
+    /**
+     * Add freshly embedded chunks to the organization's cache. Failures are logged, never thrown:
+     * the chunks themselves are already saved.
+     */
+    public void store(Long organizationId, String model, List<DocumentChunk> chunks) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (DocumentChunk chunk : chunks) {
+            if (chunk.getContentHash() != null && chunk.getEmbeddingVector() != null) {
+                entries.putIfAbsent(chunk.getContentHash(), chunk.getEmbeddingVector());
+            }
+        }
+        try {
+            cacheRepository.saveAll(organizationId, model, entries);
+        } catch (Exception e) {
+            log.warn("Failed to store {} embeddings in cache for org {}: {}", entries.size(), organizationId, e.getMessage());
+        }
+    }
+
+    /** Count chunks embedded by the API ({@code misses}) and chunks that copied a same-run result ({@code duplicates}). */
+    public void recordApiEmbeddings(int misses, int duplicates) {
+        missCounter.increment(misses);
+        duplicateCounter.increment(duplicates);
+    }
+
+    public EmbeddingCacheStats getStats() {
+        long hits = (long) hitCounter.count();
+        long duplicates = (long) duplicateCounter.count();
+        long misses = (long) missCounter.count();
+        long total = hits + duplicates + misses;
+        return new EmbeddingCacheStats(hits, duplicates, misses, total == 0 ? 0.0 : (double) (hits + duplicates) / total);
+    }
+}
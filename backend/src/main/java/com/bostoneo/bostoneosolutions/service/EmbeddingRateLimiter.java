@@ -0,0 +1,119 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket over both requests and input tokens per minute for the embeddings API.
+ *
+ * Callers block in {@link #acquire} until both buckets can cover the request. A 429 halves the
+ * effective rate and pauses every caller until the provider's Retry-After has elapsed; each
+ * success then recovers the rate in small steps back to the configured ceiling.
+ */
+@Slf4j
+class EmbeddingRateLimiter {
+
+    private static final double MIN_RATE_FACTOR = 0.1;
+    private static final double RECOVERY_STEP = 0.05;
+    /** Buckets hold at most this many seconds of budget, so an idle limiter cannot burst a full minute at once. */
+    private static final double BURST_SECONDS = 10.0;
+
+    private final double requestsPerSecond;
+    private final double tokensPerSecond;
+    private final LongSupplier nanoClock;
+
+    private double rateFactor = 1.0;
+    private double availableRequests;
+    private double availableTokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    EmbeddingRateLimiter(int requestsPerMinute, int tokensPerMinute) {
+        this(requestsPerMinute, tokensPerMinute, System::nanoTime);
+    }
+
+    EmbeddingRateLimiter(int requestsPerMinute, int tokensPerMinute, LongSupplier nanoClock) {
+        this.requestsPerSecond = Math.max(1, requestsPerMinute) / 60.0;
+        this.tokensPerSecond = Math.max(1, tokensPerMinute) / 60.0;
+        this.nanoClock = nanoClock;
+        this.lastRefillNanos = nanoClock.getAsLong();
+        this.availableRequests = requestCapacity();
+        this.availableTokens = tokenCapacity();
+    }
+
+    /**
+     * Block until one request carrying {@code tokens} input tokens may be sent.
+     */
+    void acquire(int tokens) throws InterruptedException {
+        while (true) {
+            long waitNanos = tryAcquire(tokens);
+            if (waitNanos <= 0) return;
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(5)));
+        }
+    }
+
+    /**
+     * Take budget for one request if available.
+     *
+     * @return 0 when acquired, otherwise how long to wait before trying again
+     */
+    synchronized long tryAcquire(int tokens) {
+        long now = nanoClock.getAsLong();
+        refill(now);
+        if (now < pausedUntilNanos) {
+            return pausedUntilNanos - now;
+        }
+        // A request larger than the bucket could never fit; let it through once the bucket is full
+        double needed = Math.min(tokens, tokenCapacity());
+        if (availableRequests >= 1.0 && availableTokens >= needed) {
+            availableRequests -= 1.0;
+            availableTokens -= needed;
+            return 0;
+        }
+        double requestWait = Math.max(0, 1.0 - availableRequests) / (requestsPerSecond * rateFactor);
+        double tokenWait = Math.max(0, needed - availableTokens) / (tokensPerSecond * rateFactor);
+        return Math.max(1, (long) (Math.max(requestWait, tokenWait) * 1_000_000_000L));
+    }
+
+    /**
+     * Provider returned 429: back off for {@code retryAfter} and slow down subsequent requests.
+     */
+    synchronized void onRateLimited(Duration retryAfter) {
+        long now = nanoClock.getAsLong();
+        refill(now);
+        rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor * 0.5);
+        pausedUntilNanos = Math.max(pausedUntilNanos, now + retryAfter.toNanos());
+        availableRequests = 0;
+        availableTokens = 0;
+        log.warn("Embedding API rate limited; pausing {} ms, rate reduced to {}%",
+                retryAfter.toMillis(), Math.round(rateFactor * 100));
+    }
+
+    synchronized void onSuccess() {
+        if (rateFactor < 1.0) {
+            rateFactor = Math.min(1.0, rateFactor + RECOVERY_STEP);
+        }
+    }
+
+    synchronized double getRateFactor() {
+        return rateFactor;
+    }
+
+    private void refill(long now) {
+        double elapsedSeconds = Math.max(0, now - lastRefillNanos) / 1_000_000_000.0;
+        lastRefillNanos = now;
+        availableRequests = Math.min(requestCapacity(), availableRequests + elapsedSeconds * requestsPerSecond * rateFactor);
+        availableTokens = Math.min(tokenCapacity(), availableTokens + elapsedSeconds * tokensPerSecond * rateFactor);
+    }
+
+    private double requestCapacity() {
+        return Math.max(1.0, requestsPerSecond * BURST_SECONDS);
+    }
+
+    private double tokenCapacity() {
+        return tokensPerSecond * BURST_SECONDS;
+    }
+}
@@ -1,25 +1,38 @@
 package com.bostoneo.bostoneosolutions.service;
 
+import com.bostoneo.bostoneosolutions.event.DocumentChunksChangedEvent;
 import com.bostoneo.bostoneosolutions.model.DocumentChunk;
 import com.bostoneo.bostoneosolutions.multitenancy.TenantService;
 import com.bostoneo.bostoneosolutions.repository.DocumentChunkRepository;
+import com.bostoneo.bostoneosolutions.util.EmbeddingVectorCodec;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * Service for generating embeddings using OpenAI API.
  * Uses text-embedding-3-small model for cost efficiency.
+ * Document embedding runs on a small dedicated pool paced by {@link EmbeddingRateLimiter}.
  */
 @Service
 @Slf4j
@@ -29,16 +42,87 @@ public class EmbeddingService {
     private final ObjectMapper objectMapper;
     private final WebClient openAiClient;
     private final TenantService tenantService;
+    private final ChunkVectorSearchService vectorSearchService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EmbeddingCacheService embeddingCacheService;
 
     @Value("${openai.api.key:}")
     private String apiKey;
 
+    @Value("${embedding.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${embedding.rate-limit.requests-per-minute:3000}")
+    private int requestsPerMinute;
+
+    @Value("${embedding.rate-limit.tokens-per-minute:1000000}")
+    private int tokensPerMinute;
+
+    @Value("${embedding.batch.max-tokens:100000}")
+    private int maxBatchTokens;
+
     private static final String EMBEDDING_MODEL = "text-embedding-3-small";
+    // OpenAI accepts up to 2048 inputs per embeddings request
+    private static final int MAX_BATCH_INPUTS = 2048;
+    private static final int MAX_ATTEMPTS = 6;
+    private static final Duration DEFAULT_RETRY_DELAY = Duration.ofSeconds(5);
+
+    private ExecutorService embeddingExecutor;
+    private EmbeddingRateLimiter rateLimiter;
+
+    /** Progress of recent document runs, kept for an hour after each run starts. */
+    private final Cache<ProgressKey, ProgressTracker> progress = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    /**
+     * Embedding progress for one document.
+     */
+    public record EmbeddingProgress(Long analysisId, int totalChunks, int embeddedChunks, int failedChunks,
+                                    boolean inProgress) {
+        public int percentComplete() {
+            return totalChunks == 0 ? 100 : (int) (embeddedChunks * 100L / totalChunks);
+        }
+    }
+
+    private record ProgressKey(Long organizationId, Long analysisId) {}
 
-    public EmbeddingService(DocumentChunkRepository chunkRepository, ObjectMapper objectMapper, TenantService tenantService) {
+    private static final class ProgressTracker {
+        private final Long analysisId;
+        private final int total;
+        private final AtomicInteger embedded;
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile boolean running = true;
+
+        ProgressTracker(Long analysisId, int total, int alreadyEmbedded) {
+            this.analysisId = analysisId;
+            this.total = total;
+            this.embedded = new AtomicInteger(alreadyEmbedded);
+        }
+
+        void embedded(int count) { embedded.addAndGet(count); }
+
+        void failed(int count) { failed.addAndGet(count); }
+
+        void finish() { running = false; }
+
+        boolean isRunning() { return running; }
+
+        EmbeddingProgress snapshot() {
+            return new EmbeddingProgress(analysisId, total, embedded.get(), failed.get(), running);
+        }
+    }
+
+    public EmbeddingService(DocumentChunkRepository chunkRepository, ObjectMapper objectMapper, TenantService tenantService,
+                            ChunkVectorSearchService vectorSearchService, ApplicationEventPublisher eventPublisher,
+                            EmbeddingCacheService embeddingCacheService) {
         this.chunkRepository = chunkRepository;
         this.objectMapper = objectMapper;
         this.tenantService = tenantService;
+        this.vectorSearchService = vectorSearchService;
+        this.eventPublisher = eventPublisher;
+        this.embeddingCacheService = embeddingCacheService;
         this.openAiClient = WebClient.builder()
                 .baseUrl("https://api.openai.com/v1")
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
@@ -46,6 +130,22 @@ public class EmbeddingService {
                 .build();
     }
 
+    @PostConstruct
+    void startPipeline() {
+        rateLimiter = new EmbeddingRateLimiter(requestsPerMinute, tokensPerMinute);
+        AtomicInteger threadCount = new AtomicInteger();
+        embeddingExecutor = Executors.newFixedThreadPool(Math.max(1, maxInFlight), runnable -> {
+            Thread thread = new Thread(runnable, "embedding-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopPipeline() {
+        embeddingExecutor.shutdownNow();
+    }
+
     private Long getRequiredOrganizationId() {
         return tenantService.getCurrentOrganizationId()
                 .orElseThrow(() -> new RuntimeException("Organization context required"));
@@ -59,7 +159,12 @@ public class EmbeddingService {
     }
 
     /**
-     * Generate embeddings for all chunks of a document.
+     * Generate embeddings for every chunk of a document that does not have one yet.
+     *
+     * Chunks are packed into requests up to the token/input limits and sent with up to
+     * {@code embedding.max-in-flight} requests in parallel, paced by the shared rate limiter.
+     * Each request's results are saved as soon as they arrive, so a crash or failure only
+     * loses in-flight batches and a rerun picks up the remaining chunks.
      */
     public void generateEmbeddingsForDocument(Long analysisId) {
         if (!isAvailable()) {
@@ -75,74 +180,180 @@ public class EmbeddingService {
             return;
         }
 
-        log.info("Generating embeddings for {} chunks (analysisId: {})", chunks.size(), analysisId);
-
-        // Process chunks in smaller batches with longer delays to avoid rate limits
-        int batchSize = 5; // Reduced from 20
-        for (int i = 0; i < chunks.size(); i += batchSize) {
-            List<DocumentChunk> batch = chunks.subList(i, Math.min(i + batchSize, chunks.size()));
-            generateEmbeddingsForBatch(batch);
-
-            // Longer delay between batches to avoid rate limits
-            if (i + batchSize < chunks.size()) {
-                try {
-                    Thread.sleep(2000); // 2 seconds between batches
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
+        List<DocumentChunk> pending = chunks.stream()
+                .filter(chunk -> !chunk.hasEmbedding())
+                .collect(Collectors.toList());
+        int alreadyEmbedded = chunks.size() - pending.size();
+        ProgressTracker tracker = new ProgressTracker(analysisId, chunks.size(), alreadyEmbedded);
+        progress.put(new ProgressKey(orgId, analysisId), tracker);
+
+        // Reuse embeddings for text this organization has embedded before (boilerplate, re-uploads)
+        List<DocumentChunk> reused = embeddingCacheService.applyCached(orgId, EMBEDDING_MODEL, pending);
+        if (!reused.isEmpty()) {
+            saveEmbedded(reused);
+            tracker.embedded(reused.size());
+            pending.removeIf(DocumentChunk::hasEmbedding);
+        }
+
+        if (pending.isEmpty()) {
+            tracker.finish();
+            publishEmbedded(orgId, analysisId, chunks, tracker.snapshot(), alreadyEmbedded);
+            log.info("All {} chunks embedded for analysisId: {} ({} from cache)", chunks.size(), analysisId, reused.size());
+            return;
+        }
+
+        // Identical text within the document is sent once and copied to its siblings
+        Map<String, List<DocumentChunk>> sameContent = new LinkedHashMap<>();
+        for (DocumentChunk chunk : pending) {
+            sameContent.computeIfAbsent(chunk.getContentHash(), hash -> new ArrayList<>()).add(chunk);
+        }
+        List<DocumentChunk> unique = sameContent.values().stream().map(group -> group.get(0)).collect(Collectors.toList());
+        embeddingCacheService.recordApiEmbeddings(unique.size(), pending.size() - unique.size());
+
+        List<List<DocumentChunk>> batches = packBatches(unique);
+        log.info("Generating embeddings for {} of {} chunks ({} unique, {} from cache) in {} requests (analysisId: {})",
+                pending.size(), chunks.size(), unique.size(), reused.size(), batches.size(), analysisId);
+
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>(batches.size());
+        for (List<DocumentChunk> batch : batches) {
+            inFlight.add(CompletableFuture.runAsync(
+                    () -> generateEmbeddingsForBatch(orgId, batch, sameContent, tracker), embeddingExecutor));
+        }
+        try {
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+        } finally {
+            tracker.finish();
+        }
+
+        EmbeddingProgress result = tracker.snapshot();
+        publishEmbedded(orgId, analysisId, chunks, result, alreadyEmbedded);
+        log.info("Completed embedding generation for analysisId: {} ({}/{} embedded, {} failed)",
+                analysisId, result.embeddedChunks(), result.totalChunks(), result.failedChunks());
+    }
+
+    private void publishEmbedded(Long orgId, Long analysisId, List<DocumentChunk> chunks,
+                                 EmbeddingProgress result, int alreadyEmbedded) {
+        if (result.embeddedChunks() > alreadyEmbedded) {
+            eventPublisher.publishEvent(new DocumentChunksChangedEvent(this, orgId, analysisId,
+                    chunks.get(0).getCollectionId(), DocumentChunksChangedEvent.Change.EMBEDDED));
+        }
+    }
+
+    /**
+     * Persist chunks whose embedding fields are set and mirror them into pgvector.
+     */
+    private void saveEmbedded(List<DocumentChunk> chunks) {
+        chunkRepository.saveAll(chunks);
+        List<float[]> vectors = chunks.stream()
+                .map(chunk -> EmbeddingVectorCodec.decode(chunk.getEmbeddingVector()))
+                .collect(Collectors.toList());
+        vectorSearchService.indexEmbeddings(chunks, vectors);
+    }
+
+    /**
+     * Embedding progress for a document: live counters while a run is active,
+     * otherwise the persisted state of its chunks.
+     */
+    public EmbeddingProgress getProgress(Long analysisId) {
+        Long orgId = getRequiredOrganizationId();
+        ProgressTracker tracker = progress.getIfPresent(new ProgressKey(orgId, analysisId));
+        if (tracker != null && tracker.isRunning()) {
+            return tracker.snapshot();
+        }
+        // SECURITY: Use tenant-filtered counts
+        int total = (int) chunkRepository.countByAnalysisIdAndOrganizationId(analysisId, orgId);
+        int embedded = (int) chunkRepository.countEmbeddedByAnalysisIdAndOrganizationId(analysisId, orgId);
+        int failed = tracker != null ? Math.min(tracker.snapshot().failedChunks(), total - embedded) : 0;
+        return new EmbeddingProgress(analysisId, total, embedded, failed, false);
+    }
+
+    /**
+     * Pack chunks into requests that stay under the per-request token and input limits.
+     */
+    List<List<DocumentChunk>> packBatches(List<DocumentChunk> chunks) {
+        List<List<DocumentChunk>> batches = new ArrayList<>();
+        List<DocumentChunk> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (DocumentChunk chunk : chunks) {
+            int tokens = estimateTokens(chunk);
+            if (!current.isEmpty() && (currentTokens + tokens > maxBatchTokens || current.size() >= MAX_BATCH_INPUTS)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
             }
+            current.add(chunk);
+            currentTokens += tokens;
         }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    private static int estimateTokens(DocumentChunk chunk) {
+        int length = Math.min(chunk.getContent().length(), MAX_EMBEDDING_CHARS);
+        Integer counted = chunk.getTokenCount();
+        return counted != null && counted > 0 && length == chunk.getContent().length()
+                ? counted : estimateTokens(length);
+    }
 
-        log.info("Completed embedding generation for analysisId: {}", analysisId);
+    private static int estimateTokens(int chars) {
+        // ~4 chars per token for English text, rounded up so batches err on the small side
+        return chars / 4 + 1;
     }
 
     // Max tokens for text-embedding-3-small is 8191 (~32000 chars)
     private static final int MAX_EMBEDDING_CHARS = 30000;
 
     /**
-     * Generate embeddings for a batch of chunks.
+     * Generate and persist embeddings for one packed request, copying each result to chunks
+     * with identical content and adding it to the organization's cache.
      */
-    private void generateEmbeddingsForBatch(List<DocumentChunk> chunks) {
+    private void generateEmbeddingsForBatch(Long orgId, List<DocumentChunk> chunks,
+                                            Map<String, List<DocumentChunk>> sameContent, ProgressTracker tracker) {
+        int attempted = chunks.stream().mapToInt(chunk -> sameContent.get(chunk.getContentHash()).size()).sum();
         try {
             // Truncate texts that are too long for embedding API
-            List<String> texts = chunks.stream()
-                    .map(chunk -> {
-                        String content = chunk.getContent();
-                        if (content.length() > MAX_EMBEDDING_CHARS) {
-                            log.warn("Truncating chunk {} from {} to {} chars for embedding",
-                                    chunk.getId(), content.length(), MAX_EMBEDDING_CHARS);
-                            return content.substring(0, MAX_EMBEDDING_CHARS);
-                        }
-                        return content;
-                    })
-                    .collect(Collectors.toList());
-
-            List<float[]> embeddings = callOpenAIEmbeddings(texts);
-
-            for (int i = 0; i < chunks.size() && i < embeddings.size(); i++) {
-                DocumentChunk chunk = chunks.get(i);
-                float[] embedding = embeddings.get(i);
+            int tokens = 0;
+            List<String> texts = new ArrayList<>(chunks.size());
+            for (DocumentChunk chunk : chunks) {
+                String content = chunk.getContent();
+                if (content.length() > MAX_EMBEDDING_CHARS) {
+                    log.warn("Truncating chunk {} from {} to {} chars for embedding",
+                            chunk.getId(), content.length(), MAX_EMBEDDING_CHARS);
+                    content = content.substring(0, MAX_EMBEDDING_CHARS);
+                }
+                texts.add(content);
+                tokens += estimateTokens(chunk);
+            }
+
+            List<float[]> embeddings = callOpenAIEmbeddings(texts, tokens);
 
-                // Store embedding as JSON array
-                chunk.setEmbedding(objectMapper.writeValueAsString(toDoubleList(embedding)));
-                chunk.setEmbeddingModel(EMBEDDING_MODEL);
+            int count = Math.min(chunks.size(), embeddings.size());
+            List<DocumentChunk> embedded = new ArrayList<>(attempted);
+            for (int i = 0; i < count; i++) {
+                float[] embedding = embeddings.get(i);
+                byte[] packed = EmbeddingVectorCodec.encode(embedding);
+                for (DocumentChunk chunk : sameContent.get(chunks.get(i).getContentHash())) {
+                    // Store embedding as packed float32; clear any legacy JSON copy
+                    chunk.setEmbeddingVector(packed);
+                    chunk.setEmbeddingDimensions(embedding.length);
+                    chunk.setEmbedding(null);
+                    chunk.setEmbeddingModel(EMBEDDING_MODEL);
+                    embedded.add(chunk);
+                }
             }
 
-            chunkRepository.saveAll(chunks);
-            log.debug("Generated embeddings for {} chunks", chunks.size());
+            saveEmbedded(embedded);
+            embeddingCacheService.store(orgId, EMBEDDING_MODEL, chunks.subList(0, count));
+            tracker.embedded(embedded.size());
+            tracker.failed(attempted - embedded.size());
+            log.debug("Generated embeddings for {} chunks", embedded.size());
 
         } catch (Exception e) {
-            log.error("Failed to generate embeddings for batch", e);
-        }
-    }
-
-    private List<Double> toDoubleList(float[] arr) {
-        List<Double> list = new ArrayList<>(arr.length);
-        for (float f : arr) {
-            list.add((double) f);
+            tracker.failed(attempted);
+            log.error("Failed to generate embeddings for batch of {} chunks", attempted, e);
         }
-        return list;
     }
 
     /**
@@ -154,7 +365,7 @@ public class EmbeddingService {
         }
 
         try {
-            List<float[]> embeddings = callOpenAIEmbeddings(List.of(query));
+            List<float[]> embeddings = callOpenAIEmbeddings(List.of(query), estimateTokens(query.length()));
             return embeddings.isEmpty() ? null : embeddings.get(0);
         } catch (Exception e) {
             log.error("Failed to generate query embedding", e);
@@ -163,9 +374,10 @@ public class EmbeddingService {
     }
 
     /**
-     * Call OpenAI embeddings API with retry logic for rate limits.
+     * Call OpenAI embeddings API through the shared rate limiter, retrying rate-limited calls
+     * after the provider's Retry-After.
      */
-    private List<float[]> callOpenAIEmbeddings(List<String> texts) {
+    private List<float[]> callOpenAIEmbeddings(List<String> texts, int estimatedTokens) {
         if (!isAvailable()) {
             throw new IllegalStateException("OpenAI API key not configured");
         }
@@ -174,10 +386,14 @@ public class EmbeddingService {
         requestBody.put("model", EMBEDDING_MODEL);
         requestBody.put("input", texts);
 
-        int maxRetries = 5;
-        int retryDelay = 5000; // Start with 5 seconds
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                rateLimiter.acquire(estimatedTokens);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for embedding rate limit", ie);
+            }
 
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
             try {
                 String response = openAiClient.post()
                         .uri("/embeddings")
@@ -187,36 +403,49 @@ public class EmbeddingService {
                         .bodyToMono(String.class)
                         .block();
 
+                rateLimiter.onSuccess();
                 return parseEmbeddingsResponse(response);
 
-            } catch (Exception e) {
-                String errorMsg = e.getMessage();
-                boolean isRateLimit = errorMsg != null && errorMsg.contains("429");
-                boolean isBadRequest = errorMsg != null && errorMsg.contains("400");
-
-                if (isRateLimit && attempt < maxRetries) {
-                    log.warn("Rate limited (attempt {}/{}), waiting {}ms before retry...",
-                            attempt, maxRetries, retryDelay);
-                    try {
-                        Thread.sleep(retryDelay);
-                        retryDelay *= 2; // Exponential backoff
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Interrupted during retry wait", ie);
-                    }
-                } else {
-                    // Log detailed error info
-                    log.error("OpenAI API call failed: {}", errorMsg);
-                    if (isBadRequest) {
-                        log.error("Bad request - texts count: {}, first text length: {}",
-                                texts.size(), texts.isEmpty() ? 0 : texts.get(0).length());
-                    }
-                    throw new RuntimeException("Failed to call OpenAI embeddings API", e);
+            } catch (WebClientResponseException e) {
+                if (e.getStatusCode().value() == 429 && attempt < MAX_ATTEMPTS) {
+                    log.warn("Rate limited (attempt {}/{})", attempt, MAX_ATTEMPTS);
+                    rateLimiter.onRateLimited(retryAfter(e, attempt));
+                    continue;
+                }
+                log.error("OpenAI API call failed: {} {}", e.getStatusCode(), e.getMessage());
+                if (e.getStatusCode().value() == 400) {
+                    log.error("Bad request - texts count: {}, first text length: {}",
+                            texts.size(), texts.isEmpty() ? 0 : texts.get(0).length());
                 }
+                throw new RuntimeException("Failed to call OpenAI embeddings API", e);
+            } catch (Exception e) {
+                log.error("OpenAI API call failed: {}", e.getMessage());
+                throw new RuntimeException("Failed to call OpenAI embeddings API", e);
             }
         }
 
-        throw new RuntimeException("Failed after " + maxRetries + " retries");
+        throw new RuntimeException("Failed after " + MAX_ATTEMPTS + " attempts");
+    }
+
+    /**
+     * Wait requested by the provider: OpenAI's retry-after-ms, the standard Retry-After seconds,
+     * or exponential backoff when neither header is present.
+     */
+    static Duration retryAfter(WebClientResponseException e, int attempt) {
+        HttpHeaders headers = e.getHeaders();
+        try {
+            String millis = headers.getFirst("retry-after-ms");
+            if (millis != null) {
+                return Duration.ofMillis((long) Double.parseDouble(millis.trim()));
+            }
+            String seconds = headers.getFirst(HttpHeaders.RETRY_AFTER);
+            if (seconds != null) {
+                return Duration.ofMillis((long) (Double.parseDouble(seconds.trim()) * 1000));
+            }
+        } catch (NumberFormatException ignored) {
+            // HTTP-date form or garbage - fall through to backoff
+        }
+        return DEFAULT_RETRY_DELAY.multipliedBy(1L << Math.min(attempt - 1, 4));
     }
 
     /**
@@ -226,38 +455,28 @@ public class EmbeddingService {
         JsonNode root = objectMapper.readTree(response);
         JsonNode dataArray = root.get("data");
 
-        List<float[]> embeddings = new ArrayList<>();
+        // Place each vector by its "index" so the result lines up with the input order
+        float[][] embeddings = new float[dataArray.size()][];
+        int position = 0;
         for (JsonNode item : dataArray) {
             JsonNode embeddingArray = item.get("embedding");
             float[] embedding = new float[embeddingArray.size()];
             for (int i = 0; i < embeddingArray.size(); i++) {
                 embedding[i] = (float) embeddingArray.get(i).asDouble();
             }
-            embeddings.add(embedding);
+            int index = item.path("index").asInt(position);
+            embeddings[index >= 0 && index < embeddings.length ? index : position] = embedding;
+            position++;
         }
 
-        return embeddings;
+        return Arrays.asList(embeddings);
     }
 
     /**
-     * Parse stored embedding from JSON string.
+     * Parse legacy stored embedding from JSON string.
      */
     public float[] parseEmbedding(String embeddingJson) {
-        if (embeddingJson == null || embeddingJson.isEmpty()) {
-            return null;
-        }
-
-        try {
-            List<Double> values = objectMapper.readValue(embeddingJson, new TypeReference<List<Double>>() {});
-            float[] embedding = new float[values.size()];
-            for (int i = 0; i < values.size(); i++) {
-                embedding[i] = values.get(i).floatValue();
-            }
-            return embedding;
-        } catch (JsonProcessingException e) {
-            log.error("Failed to parse embedding JSON", e);
-            return null;
-        }
+        return EmbeddingVectorCodec.parseJson(embeddingJson);
     }
 
     /**
@@ -1,10 +1,8 @@
 package com.bostoneo.bostoneosolutions.service;
 
 import com.bostoneo.bostoneosolutions.model.FileItem;
-import com.bostoneo.bostoneosolutions.model.Organization;
 import com.bostoneo.bostoneosolutions.multitenancy.TenantService;
 import com.bostoneo.bostoneosolutions.repository.FileItemRepository;
-import com.bostoneo.bostoneosolutions.repository.OrganizationRepository;
 import com.bostoneo.bostoneosolutions.service.FileStorageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,6 +11,7 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -23,7 +22,7 @@ public class FileCleanupService {
 
     private final FileItemRepository fileItemRepository;
     private final FileStorageService fileStorageService;
-    private final OrganizationRepository organizationRepository;
+    private final ScheduledJobLeaseService jobLeaseService;
     private final TenantService tenantService;
 
     /**
@@ -46,7 +45,7 @@ public class FileCleanupService {
     /**
      * Scheduled cleanup task that runs daily at 2 AM
      * Permanently deletes files that have been soft-deleted for more than the retention period
-     * TENANT ISOLATED: Processes each organization separately
+     * TENANT ISOLATED: Processes each organization separately, sharded across nodes
      */
     @Scheduled(cron = "${app.file-cleanup.cron:0 0 2 * * ?}")
     @Transactional
@@ -61,16 +60,13 @@ public class FileCleanupService {
 
         try {
             // Process each organization separately for proper tenant isolation
-            List<Organization> organizations = organizationRepository.findAll();
-            int totalDeleted = 0;
-            int totalFailed = 0;
+            int[] totals = new int[2]; // deleted, failed
 
-            for (Organization org : organizations) {
-                Long orgId = org.getId();
+            jobLeaseService.runSharded("file-cleanup", Duration.ofHours(20), Duration.ofHours(2), orgId -> {
                 List<FileItem> filesToDelete = fileItemRepository.findDeletedFilesOlderThanByOrganization(cutoffDate, orgId);
 
                 if (filesToDelete.isEmpty()) {
-                    continue;
+                    return;
                 }
 
                 log.info("Found {} files to permanently delete for organization {}", filesToDelete.size(), orgId);
@@ -83,10 +79,10 @@ public class FileCleanupService {
                     for (FileItem fileItem : batch) {
                         try {
                             permanentlyDeleteFile(fileItem);
-                            totalDeleted++;
+                            totals[0]++;
                         } catch (Exception e) {
                             log.error("Failed to permanently delete file {}: {}", fileItem.getId(), e.getMessage());
-                            totalFailed++;
+                            totals[1]++;
                         }
                     }
 
@@ -95,11 +91,12 @@ public class FileCleanupService {
                         Thread.sleep(100);
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
-                        log.warn("Cleanup interrupted");
-                        return;
+                        throw new IllegalStateException("Cleanup interrupted");
                     }
                 }
-            }
+            });
+            int totalDeleted = totals[0];
+            int totalFailed = totals[1];
 
             log.info("Cleanup completed. Successfully deleted: {}, Failed: {}", totalDeleted, totalFailed);
 
@@ -0,0 +1,266 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import com.bostoneo.bostoneosolutions.event.DocumentChunksChangedEvent;
+import com.bostoneo.bostoneosolutions.repository.DocumentChunkRepository;
+import com.bostoneo.bostoneosolutions.util.EmbeddingVectorCodec;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * In-process vector index used when the database has no pgvector.
+ *
+ * Each scope (collection or single document) is loaded lazily into one contiguous row-major
+ * float[] of pre-normalized vectors, so a query is a straight dot-product sweep with no
+ * per-row allocation, followed by bounded-heap top-k selection. Matrices are evicted LRU by
+ * byte weight and dropped after commit whenever {@link DocumentChunksChangedEvent} reports
+ * that a document's chunks or embeddings changed. Other nodes drop theirs via
+ * {@link #INVALIDATION_CHANNEL}; {@code search.vector-index.ttl-minutes} bounds staleness if a
+ * pub/sub message is lost.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InMemoryVectorIndex {
+
+    private static final String INVALIDATION_CHANNEL = "search:vector-index:events";
+
+    private final DocumentChunkRepository chunkRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${search.vector-index.max-bytes:268435456}")
+    private long maxBytes;
+
+    @Value("${search.vector-index.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    private Cache<ChunkVectorSearchService.Scope, VectorMatrix> matrices;
+
+    private final MessageListener invalidationListener = this::onInvalidationMessage;
+
+    @PostConstruct
+    void init() {
+        matrices = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((ChunkVectorSearchService.Scope scope, VectorMatrix matrix) -> matrix.weight())
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        log.info("In-memory vector index bounded to {} MB", maxBytes / (1024 * 1024));
+        try {
+            listenerContainer.addMessageListener(invalidationListener, new ChannelTopic(INVALIDATION_CHANNEL));
+        } catch (Exception e) {
+            log.warn("Could not subscribe to vector index invalidations - staleness limited to {} minutes: {}",
+                    ttlMinutes, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        try {
+            listenerContainer.removeMessageListener(invalidationListener);
+        } catch (Exception e) {
+            log.debug("Failed to remove vector index listener: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Top-k chunks for the scope by cosine similarity, highest first.
+     */
+    public List<ChunkVectorSearchService.ScoredChunk> topK(ChunkVectorSearchService.Scope scope, float[] queryEmbedding,
+                                                           int k, double minScore) {
+        VectorMatrix matrix = matrices.get(scope, this::load);
+        if (matrix.rows == 0 || queryEmbedding.length != matrix.dims) {
+            return List.of();
+        }
+        float[] query = EmbeddingVectorCodec.normalize(queryEmbedding.clone());
+        return matrix.topK(query, k, (float) minScore);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onChunksChanged(DocumentChunksChangedEvent event) {
+        invalidate(event.getOrganizationId(), event.getAnalysisId(), event.getCollectionId());
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, event.getOrganizationId() + ":"
+                    + Objects.toString(event.getAnalysisId(), "") + ":" + Objects.toString(event.getCollectionId(), ""));
+        } catch (Exception e) {
+            log.warn("Could not broadcast vector index invalidation for document {}: {}", event.getAnalysisId(), e.getMessage());
+        }
+    }
+
+    private void onInvalidationMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            String[] parts = body.split(":", -1);
+            invalidate(Long.valueOf(parts[0]),
+                    parts[1].isEmpty() ? null : Long.valueOf(parts[1]),
+                    parts[2].isEmpty() ? null : Long.valueOf(parts[2]));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed vector index event: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drop every cached matrix that could include the document's chunks.
+     */
+    public void invalidate(Long organizationId, Long analysisId, Long collectionId) {
+        matrices.asMap().entrySet().removeIf(entry -> {
+            ChunkVectorSearchService.Scope scope = entry.getKey();
+            if (!Objects.equals(scope.organizationId(), organizationId)) return false;
+            return Objects.equals(scope.analysisId(), analysisId)
+                    || (collectionId != null && Objects.equals(scope.collectionId(), collectionId))
+                    || entry.getValue().containsAnalysis(analysisId);
+        });
+    }
+
+    private VectorMatrix load(ChunkVectorSearchService.Scope scope) {
+        List<DocumentChunkRepository.ChunkEmbedding> rows = scope.collectionId() != null
+                ? chunkRepository.findEmbeddingsByCollectionIdAndOrganizationId(scope.collectionId(), scope.organizationId())
+                : chunkRepository.findEmbeddingsByAnalysisIdAndOrganizationId(scope.analysisId(), scope.organizationId());
+
+        int dims = 0;
+        List<float[]> vectors = new ArrayList<>(rows.size());
+        List<DocumentChunkRepository.ChunkEmbedding> kept = new ArrayList<>(rows.size());
+        for (DocumentChunkRepository.ChunkEmbedding row : rows) {
+            float[] vector = EmbeddingVectorCodec.read(row.getEmbeddingVector(), row.getEmbedding());
+            if (vector == null) continue;
+            if (dims == 0) dims = vector.length;
+            if (vector.length != dims) continue; // mixed embedding models — keep the first dimension seen
+            vectors.add(EmbeddingVectorCodec.normalize(vector));
+            kept.add(row);
+        }
+
+        int n = vectors.size();
+        float[] data = new float[n * dims];
+        long[] chunkIds = new long[n];
+        long[] analysisIds = new long[n];
+        for (int r = 0; r < n; r++) {
+            System.arraycopy(vectors.get(r), 0, data, r * dims, dims);
+            chunkIds[r] = kept.get(r).getId();
+            analysisIds[r] = kept.get(r).getAnalysisId();
+        }
+        long[] distinctAnalyses = Arrays.stream(analysisIds).distinct().sorted().toArray();
+        log.debug("Loaded vector matrix for {}: {} rows x {} dims", scope, n, dims);
+        return new VectorMatrix(data, chunkIds, distinctAnalyses, n, dims);
+    }
+
+    /**
+     * Row-major matrix of unit vectors for one scope.
+     */
+    static final class VectorMatrix {
+        private final float[] data;
+        private final long[] chunkIds;
+        private final long[] analysisIds;
+        private final int rows;
+        private final int dims;
+
+        VectorMatrix(float[] data, long[] chunkIds, long[] analysisIds, int rows, int dims) {
+            this.data = data;
+            this.chunkIds = chunkIds;
+            this.analysisIds = analysisIds;
+            this.rows = rows;
+            this.dims = dims;
+        }
+
+        int weight() {
+            long bytes = (long) data.length * Float.BYTES + (long) (chunkIds.length + analysisIds.length) * Long.BYTES + 64;
+            return (int) Math.min(Integer.MAX_VALUE, bytes);
+        }
+
+        boolean containsAnalysis(Long analysisId) {
+            return analysisId != null && Arrays.binarySearch(analysisIds, analysisId) >= 0;
+        }
+
+        List<ChunkVectorSearchService.ScoredChunk> topK(float[] query, int k, float minScore) {
+            int capacity = Math.min(k, rows);
+            // Min-heap of the best rows seen so far, stored as parallel primitive arrays
+            int[] heapRows = new int[capacity];
+            float[] heapScores = new float[capacity];
+            int size = 0;
+
+            for (int r = 0; r < rows; r++) {
+                float score = dot(query, data, r * dims, dims);
+                if (score < minScore) continue;
+                if (size < capacity) {
+                    heapRows[size] = r;
+                    heapScores[size] = score;
+                    siftUp(heapRows, heapScores, size++);
+                } else if (score > heapScores[0]) {
+                    heapRows[0] = r;
+                    heapScores[0] = score;
+                    siftDown(heapRows, heapScores, size);
+                }
+            }
+
+            List<ChunkVectorSearchService.ScoredChunk> hits = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                hits.add(new ChunkVectorSearchService.ScoredChunk(chunkIds[heapRows[i]], heapScores[i]));
+            }
+            hits.sort((a, b) -> Double.compare(b.score(), a.score()));
+            return hits;
+        }
+
+        /** Dot product unrolled by 4 with independent accumulators so the JIT can vectorize it. */
+        static float dot(float[] q, float[] m, int offset, int dims) {
+            float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+            int i = 0;
+            int bound = dims - (dims & 3);
+            for (; i < bound; i += 4) {
+                s0 += q[i] * m[offset + i];
+                s1 += q[i + 1] * m[offset + i + 1];
+                s2 += q[i + 2] * m[offset + i + 2];
+                s3 += q[i + 3] * m[offset + i + 3];
+            }
+            for (; i < dims; i++) {
+                s0 += q[i] * m[offset + i];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        private static void siftUp(int[] rows, float[] scores, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= scores[i]) break;
+                swap(rows, scores, i, parent);
+                i = parent;
+            }
+        }
+
+        private static void siftDown(int[] rows, float[] scores, int size) {
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) break;
+                int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+                if (scores[i] <= scores[smallest]) break;
+                swap(rows, scores, i, smallest);
+                i = smallest;
+            }
+        }
+
+        private static void swap(int[] rows, float[] scores, int a, int b) {
+            int r = rows[a]; rows[a] = rows[b]; rows[b] = r;
+            float s = scores[a]; scores[a] = scores[b]; scores[b] = s;
+        }
+    }
+}
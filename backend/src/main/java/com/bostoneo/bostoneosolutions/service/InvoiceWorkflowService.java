@@ -19,6 +19,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -41,6 +42,7 @@ public class InvoiceWorkflowService {
     private final OrganizationRepository organizationRepository;
     private final EmailTemplateEngine templateEngine;
     private final com.bostoneo.bostoneosolutions.multitenancy.TenantService tenantService;
+    private final ScheduledJobLeaseService jobLeaseService;
 
     @Value("${app.invoice-workflows.enabled:true}")
     private boolean workflowsEnabled;
@@ -110,22 +112,21 @@ public class InvoiceWorkflowService {
         List<InvoiceWorkflowRule> scheduledRules = workflowRuleRepository
             .findByTriggerEventAndIsActiveTrue(InvoiceWorkflowRule.TriggerEvent.SCHEDULED);
 
-        // Process rules for each organization's invoices
-        List<Organization> organizations = organizationRepository.findAll();
-        for (Organization org : organizations) {
+        // Process rules for each organization's invoices, sharded across nodes
+        jobLeaseService.runSharded("invoice-scheduled-workflows", Duration.ofMinutes(50), Duration.ofMinutes(30), orgId -> {
             try {
                 // Set tenant context for this organization
-                TenantContext.setCurrentTenant(org.getId());
+                TenantContext.setCurrentTenant(orgId);
 
                 for (InvoiceWorkflowRule rule : scheduledRules) {
-                    processScheduledRule(rule, org.getId());
+                    processScheduledRule(rule, orgId);
                 }
             } catch (Exception e) {
-                log.error("Error processing scheduled workflows for org {}: {}", org.getId(), e.getMessage());
+                log.error("Error processing scheduled workflows for org {}: {}", orgId, e.getMessage());
             } finally {
                 TenantContext.clear();
             }
-        }
+        });
     }
 
     private void processScheduledRule(InvoiceWorkflowRule rule, Long orgId) {
@@ -1,35 +1,58 @@
 package com.bostoneo.bostoneosolutions.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 /**
- * Tracks which users are currently online using Redis keys with TTL.
- * Every authenticated HTTP request refreshes the user's key with a 5-minute TTL.
- * If no requests arrive within 5 minutes, the key expires and the user is considered offline.
+ * Tracks which users are currently online using Redis sorted sets scored by last-seen time (epoch millis).
+ * Every authenticated HTTP request refreshes the user's score; users not seen for 5 minutes are offline.
  *
- * Note: Uses Redis KEYS command for counting, which is safe for < 1000 concurrent users.
- * If the platform scales beyond that, replace with SCAN or a Redis SET-based approach.
+ * - online:all holds every user; online:org:{id} holds one organization's users (online:org:platform
+ *   for users without one). Counts are ZCOUNT over the last 5 minutes, O(log n), and each write
+ *   trims expired members with ZREMRANGEBYSCORE.
+ * - When app.presence.active-users-hll is on, users are also added to per-day HyperLogLogs
+ *   (active:day:{date} and active:day:{date}:org:{id}, kept 8 days) for approximate daily and
+ *   weekly active counts.
  */
 @Service
 @Slf4j
 public class OnlineUserService {
 
-    private static final String PREFIX = "online:user:";
-    private static final long TTL_MINUTES = 5;
+    private static final String ALL_KEY = "online:all";
+    private static final String ORG_PREFIX = "online:org:";
+    private static final String PLATFORM_ORG = "platform";
+    private static final String ACTIVE_DAY_PREFIX = "active:day:";
+    private static final Duration TTL = Duration.ofMinutes(5);
     private static final Duration DEBOUNCE = Duration.ofSeconds(60);
+    private static final Duration ACTIVE_DAY_RETENTION = Duration.ofDays(8);
+    private static final int DEBOUNCE_MAX_USERS = 100_000;
 
     private final StringRedisTemplate redisTemplate;
-    private final ConcurrentHashMap<Long, Instant> recentMarks = new ConcurrentHashMap<>();
+
+    // userId -> organization key last written; an entry means the user was marked within DEBOUNCE
+    private final Cache<Long, String> recentMarks = Caffeine.newBuilder()
+            .expireAfterWrite(DEBOUNCE)
+            .maximumSize(DEBOUNCE_MAX_USERS)
+            .build();
+
+    @Value("${app.presence.active-users-hll:true}")
+    private boolean activeUsersHll;
 
     public OnlineUserService(StringRedisTemplate redisTemplate) {
         this.redisTemplate = redisTemplate;
@@ -40,7 +63,7 @@ public class OnlineUserService {
      */
     public boolean isAvailable() {
         try {
-            redisTemplate.getConnectionFactory().getConnection().ping();
+            redisTemplate.execute((RedisCallback<String>) RedisConnection::ping);
             return true;
         } catch (Exception e) {
             return false;
@@ -52,61 +75,86 @@ public class OnlineUserService {
      * Debounces writes so we only hit Redis once per user per 60 seconds.
      */
     public void markOnline(Long userId, Long organizationId) {
-        Instant lastMark = recentMarks.get(userId);
-        if (lastMark != null && lastMark.plus(DEBOUNCE).isAfter(Instant.now())) {
+        String orgKey = orgKey(organizationId);
+        if (orgKey.equals(recentMarks.getIfPresent(userId))) {
             return; // Recently marked, skip Redis write
         }
         try {
-            String key = PREFIX + userId;
-            String value = organizationId != null ? organizationId.toString() : "platform";
-            redisTemplate.opsForValue().set(key, value, Duration.ofMinutes(TTL_MINUTES));
-            recentMarks.put(userId, Instant.now());
+            long now = System.currentTimeMillis();
+            String member = userId.toString();
+            double cutoff = now - TTL.toMillis();
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                for (String key : List.of(ALL_KEY, orgKey)) {
+                    conn.zAdd(key, now, member);
+                    conn.zRemRangeByScore(key, Double.NEGATIVE_INFINITY, cutoff);
+                }
+                // An organization nobody is using any more disappears on its own
+                conn.expire(orgKey, TTL.toSeconds() * 2);
+                if (activeUsersHll) {
+                    String dayKey = ACTIVE_DAY_PREFIX + LocalDate.now(ZoneOffset.UTC);
+                    String orgDayKey = dayKey + ":org:" + orgSuffix(organizationId);
+                    conn.pfAdd(dayKey, member);
+                    conn.pfAdd(orgDayKey, member);
+                    conn.expire(dayKey, ACTIVE_DAY_RETENTION.toSeconds());
+                    conn.expire(orgDayKey, ACTIVE_DAY_RETENTION.toSeconds());
+                }
+                return null;
+            });
+            recentMarks.put(userId, orgKey);
         } catch (Exception e) {
             log.debug("Redis unavailable — skipping online mark for user {}", userId);
         }
     }
 
     /**
-     * Mark a user as offline (e.g., on logout). Removes the Redis key immediately.
+     * Mark a user as offline (e.g., on logout). Removes the user from the online sets immediately.
      */
-    public void markOffline(Long userId) {
+    public void markOffline(Long userId, Long organizationId) {
         try {
-            redisTemplate.delete(PREFIX + userId);
-            recentMarks.remove(userId);
+            String member = userId.toString();
+            String lastOrgKey = recentMarks.getIfPresent(userId);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                conn.zRem(ALL_KEY, member);
+                conn.zRem(orgKey(organizationId), member);
+                if (lastOrgKey != null && !lastOrgKey.equals(orgKey(organizationId))) {
+                    conn.zRem(lastOrgKey, member);
+                }
+                return null;
+            });
+            recentMarks.invalidate(userId);
         } catch (Exception e) {
             log.debug("Redis unavailable — skipping offline mark for user {}", userId);
         }
     }
 
     /**
-     * Count of currently online users (keys that haven't expired).
+     * Count of currently online users across the platform.
      */
     public int getOnlineUserCount() {
-        try {
-            Set<String> keys = redisTemplate.keys(PREFIX + "*");
-            return keys != null ? keys.size() : 0;
-        } catch (Exception e) {
-            log.warn("Failed to get online user count: {}", e.getMessage());
-            return 0;
-        }
+        return countSince(ALL_KEY);
+    }
+
+    /**
+     * Count of currently online users in one organization.
+     */
+    public int getOnlineUserCount(Long organizationId) {
+        return countSince(orgKey(organizationId));
     }
 
     /**
      * List of currently online user IDs.
      */
     public List<Long> getOnlineUserIds() {
-        try {
-            Set<String> keys = redisTemplate.keys(PREFIX + "*");
-            if (keys == null || keys.isEmpty()) return Collections.emptyList();
-            return keys.stream()
-                    .map(k -> k.replace(PREFIX, ""))
-                    .filter(s -> s.matches("\\d+"))
-                    .map(Long::parseLong)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            log.warn("Failed to get online user IDs: {}", e.getMessage());
-            return Collections.emptyList();
-        }
+        return idsSince(ALL_KEY);
+    }
+
+    /**
+     * List of currently online user IDs in one organization.
+     */
+    public List<Long> getOnlineUserIds(Long organizationId) {
+        return idsSince(orgKey(organizationId));
     }
 
     /**
@@ -114,10 +162,68 @@ public class OnlineUserService {
      */
     public boolean isUserOnline(Long userId) {
         try {
-            return Boolean.TRUE.equals(redisTemplate.hasKey(PREFIX + userId));
+            Double lastSeen = redisTemplate.opsForZSet().score(ALL_KEY, userId.toString());
+            return lastSeen != null && lastSeen >= onlineCutoff();
         } catch (Exception e) {
             log.warn("Failed to check online status for user {}: {}", userId, e.getMessage());
             return false;
         }
     }
+
+    /**
+     * Approximate (HyperLogLog) count of distinct users active over the last {@code days} UTC days,
+     * including today; platform-wide when organizationId is null. Null when app.presence.active-users-hll
+     * is off or Redis is unavailable.
+     */
+    public Long getActiveUserCount(Long organizationId, int days) {
+        if (!activeUsersHll) return null;
+        List<String> keys = new ArrayList<>(days);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (int i = 0; i < Math.min(days, ACTIVE_DAY_RETENTION.toDays()); i++) {
+            String dayKey = ACTIVE_DAY_PREFIX + today.minusDays(i);
+            keys.add(organizationId != null ? dayKey + ":org:" + organizationId : dayKey);
+        }
+        try {
+            return redisTemplate.opsForHyperLogLog().size(keys.toArray(new String[0]));
+        } catch (Exception e) {
+            log.warn("Failed to count active users: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private int countSince(String key) {
+        try {
+            Long count = redisTemplate.opsForZSet().count(key, onlineCutoff(), Double.POSITIVE_INFINITY);
+            return count != null ? count.intValue() : 0;
+        } catch (Exception e) {
+            log.warn("Failed to get online user count: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private List<Long> idsSince(String key) {
+        try {
+            Set<String> members = redisTemplate.opsForZSet().rangeByScore(key, onlineCutoff(), Double.POSITIVE_INFINITY);
+            if (members == null || members.isEmpty()) return Collections.emptyList();
+            return members.stream()
+                    .filter(s -> s.matches("\\d+"))
+                    .map(Long::parseLong)
+                    .toList();
+        } catch (Exception e) {
+            log.warn("Failed to get online user IDs: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private static double onlineCutoff() {
+        return System.currentTimeMillis() - TTL.toMillis();
+    }
+
+    private static String orgKey(Long organizationId) {
+        return ORG_PREFIX + orgSuffix(organizationId);
+    }
+
+    private static String orgSuffix(Long organizationId) {
+        return Objects.toString(organizationId, PLATFORM_ORG);
+    }
 }
@@ -0,0 +1,231 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Platform-wide counts for the superadmin console, computed with grouped SQL instead of loading
+ * organizations, cases or invoices into memory.
+ *
+ * {@link #getSnapshot()} serves the last computed {@link PlatformSnapshot}; it is refreshed in the
+ * background every {@code superadmin.platform-metrics.refresh-ms} while the console is in use and
+ * recomputed inline only when missing or older than {@link #MAX_SNAPSHOT_AGE}.
+ * IMPORTANT: Cross-organization by design - only for SUPERADMIN callers.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PlatformMetricsService {
+
+    private static final Duration MAX_SNAPSHOT_AGE = Duration.ofMinutes(5);
+    /** Stop background refreshes when nobody has read the snapshot for this long. */
+    private static final Duration IDLE_AFTER = Duration.ofMinutes(15);
+    private static final double QUOTA_ALERT_PERCENT = 80.0;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    private volatile PlatformSnapshot snapshot;
+    private volatile LocalDateTime lastReadAt = LocalDateTime.MIN;
+
+    public record OrgStats(int userCount, int caseCount, int clientCount, int invoiceCount) {
+        public static final OrgStats EMPTY = new OrgStats(0, 0, 0, 0);
+    }
+
+    /** Organization that is suspended or at/over {@link #QUOTA_ALERT_PERCENT} of its user quota. */
+    public record OrgAlertRow(Long organizationId, String name, String status, int userCount, Integer maxUsers) {}
+
+    public record PlatformCounts(
+            Map<String, Long> organizationsByStatus,
+            Map<String, Long> organizationsByPlan,
+            Map<String, Long> casesByStatus,
+            Map<String, Long> invoicesByStatus,
+            Map<String, BigDecimal> invoiceAmountByStatus,
+            long totalUsers,
+            long totalClients,
+            int activeUsersLastDay,
+            int activeUsersLast7Days,
+            int activeUsersLast30Days) {
+
+        public long totalOrganizations() {
+            return organizationsByStatus.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long totalCases() {
+            return casesByStatus.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long totalInvoices() {
+            return invoicesByStatus.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+
+    public record IdPage(List<Long> ids, long total) {}
+
+    public record PlatformSnapshot(PlatformCounts counts, List<OrgAlertRow> alertRows, LocalDateTime computedAt) {}
+
+    // ==================== Snapshot ====================
+
+    public PlatformSnapshot getSnapshot() {
+        lastReadAt = LocalDateTime.now();
+        PlatformSnapshot current = snapshot;
+        if (current == null || current.computedAt().isBefore(LocalDateTime.now().minus(MAX_SNAPSHOT_AGE))) {
+            current = refresh();
+        }
+        return current;
+    }
+
+    @Scheduled(fixedDelayString = "${superadmin.platform-metrics.refresh-ms:60000}")
+    public void refreshInBackground() {
+        if (lastReadAt.isBefore(LocalDateTime.now().minus(IDLE_AFTER))) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("Platform metrics refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private synchronized PlatformSnapshot refresh() {
+        long start = System.currentTimeMillis();
+        PlatformSnapshot fresh = new PlatformSnapshot(computeCounts(), findAlertRows(), LocalDateTime.now());
+        snapshot = fresh;
+        log.debug("Refreshed platform metrics snapshot in {}ms", System.currentTimeMillis() - start);
+        return fresh;
+    }
+
+    // ==================== Aggregates ====================
+
+    /**
+     * Organization, case, client, user and invoice counts in one grouped pass, plus active users
+     * from the audit log in a second.
+     */
+    public PlatformCounts computeCounts() {
+        Map<String, Long> orgsByStatus = new TreeMap<>();
+        Map<String, Long> orgsByPlan = new TreeMap<>();
+        Map<String, Long> casesByStatus = new TreeMap<>();
+        Map<String, Long> invoicesByStatus = new TreeMap<>();
+        Map<String, BigDecimal> invoiceAmountByStatus = new TreeMap<>();
+        long[] totals = new long[2]; // users, clients
+
+        jdbc.query(
+            "SELECT 'ORG_STATUS' AS metric, COALESCE(status, 'NONE') AS dim, COUNT(*) AS cnt, 0 AS amount FROM organizations GROUP BY status " +
+            "UNION ALL SELECT 'ORG_PLAN', COALESCE(plan_type, 'NONE'), COUNT(*), 0 FROM organizations GROUP BY plan_type " +
+            "UNION ALL SELECT 'CASE_STATUS', COALESCE(status, 'NONE'), COUNT(*), 0 FROM legal_cases GROUP BY status " +
+            "UNION ALL SELECT 'INVOICE_STATUS', COALESCE(status, 'NONE'), COUNT(*), COALESCE(SUM(total_amount), 0) FROM invoices GROUP BY status " +
+            "UNION ALL SELECT 'USERS', '', COUNT(*), 0 FROM users " +
+            "UNION ALL SELECT 'CLIENTS', '', COUNT(*), 0 FROM clients",
+            new MapSqlParameterSource(),
+            rs -> {
+                String dim = rs.getString("dim");
+                long count = rs.getLong("cnt");
+                switch (rs.getString("metric")) {
+                    case "ORG_STATUS" -> orgsByStatus.put(dim, count);
+                    case "ORG_PLAN" -> orgsByPlan.put(dim, count);
+                    case "CASE_STATUS" -> casesByStatus.put(dim, count);
+                    case "INVOICE_STATUS" -> {
+                        invoicesByStatus.put(dim, count);
+                        invoiceAmountByStatus.put(dim, rs.getBigDecimal("amount"));
+                    }
+                    case "USERS" -> totals[0] = count;
+                    case "CLIENTS" -> totals[1] = count;
+                    default -> { }
+                }
+            });
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> active = jdbc.queryForMap(
+            "SELECT COUNT(DISTINCT user_id) FILTER (WHERE timestamp >= :day) AS last_day, " +
+            "COUNT(DISTINCT user_id) FILTER (WHERE timestamp >= :week) AS last_week, " +
+            "COUNT(DISTINCT user_id) AS last_month " +
+            "FROM audit_log WHERE timestamp >= :month AND user_id IS NOT NULL",
+            new MapSqlParameterSource()
+                .addValue("day", now.minusDays(1))
+                .addValue("week", now.minusDays(7))
+                .addValue("month", now.minusDays(30)));
+
+        return new PlatformCounts(orgsByStatus, orgsByPlan, casesByStatus, invoicesByStatus, invoiceAmountByStatus,
+            totals[0], totals[1],
+            ((Number) active.get("last_day")).intValue(),
+            ((Number) active.get("last_week")).intValue(),
+            ((Number) active.get("last_month")).intValue());
+    }
+
+    /**
+     * User, case, client and invoice counts for the given organizations in one query.
+     * Ids that don't exist are absent; callers default to {@link OrgStats#EMPTY}.
+     */
+    public Map<Long, OrgStats> getOrganizationStats(Collection<Long> organizationIds) {
+        Map<Long, OrgStats> stats = new HashMap<>();
+        if (organizationIds.isEmpty()) return stats;
+
+        jdbc.query(
+            "SELECT o.id, COALESCE(u.cnt, 0) AS user_count, COALESCE(c.cnt, 0) AS case_count, " +
+            "COALESCE(cl.cnt, 0) AS client_count, COALESCE(i.cnt, 0) AS invoice_count " +
+            "FROM organizations o " +
+            "LEFT JOIN (SELECT organization_id, COUNT(*) AS cnt FROM users WHERE organization_id IN (:ids) GROUP BY organization_id) u ON u.organization_id = o.id " +
+            "LEFT JOIN (SELECT organization_id, COUNT(*) AS cnt FROM legal_cases WHERE organization_id IN (:ids) GROUP BY organization_id) c ON c.organization_id = o.id " +
+            "LEFT JOIN (SELECT organization_id, COUNT(*) AS cnt FROM clients WHERE organization_id IN (:ids) GROUP BY organization_id) cl ON cl.organization_id = o.id " +
+            "LEFT JOIN (SELECT organization_id, COUNT(*) AS cnt FROM invoices WHERE organization_id IN (:ids) GROUP BY organization_id) i ON i.organization_id = o.id " +
+            "WHERE o.id IN (:ids)",
+            new MapSqlParameterSource().addValue("ids", organizationIds),
+            rs -> {
+                stats.put(rs.getLong("id"), new OrgStats(
+                    rs.getInt("user_count"), rs.getInt("case_count"), rs.getInt("client_count"), rs.getInt("invoice_count")));
+            });
+        return stats;
+    }
+
+    /**
+     * One page of organization ids ordered by user count (ties by id), with the total number of
+     * organizations from a window count.
+     */
+    public IdPage organizationIdsByUserCount(Sort.Direction direction, long offset, int limit) {
+        String order = direction == Sort.Direction.DESC ? "DESC" : "ASC";
+        List<Long> ids = new ArrayList<>();
+        long[] total = {0};
+        jdbc.query(
+            "SELECT o.id, COUNT(*) OVER () AS total " +
+            "FROM organizations o " +
+            "LEFT JOIN (SELECT organization_id, COUNT(*) AS cnt FROM users GROUP BY organization_id) u ON u.organization_id = o.id " +
+            "ORDER BY COALESCE(u.cnt, 0) " + order + ", o.id " +
+            "LIMIT :limit OFFSET :offset",
+            new MapSqlParameterSource().addValue("limit", limit).addValue("offset", offset),
+            rs -> {
+                ids.add(rs.getLong("id"));
+                total[0] = rs.getLong("total");
+            });
+        if (ids.isEmpty() && offset > 0) {
+            Long count = jdbc.queryForObject("SELECT COUNT(*) FROM organizations", new MapSqlParameterSource(), Long.class);
+            total[0] = count != null ? count : 0;
+        }
+        return new IdPage(ids, total[0]);
+    }
+
+    private List<OrgAlertRow> findAlertRows() {
+        return jdbc.query(
+            "SELECT o.id, o.name, o.status, o.max_users, COALESCE(u.cnt, 0) AS user_count " +
+            "FROM organizations o " +
+            "LEFT JOIN (SELECT organization_id, COUNT(*) AS cnt FROM users GROUP BY organization_id) u ON u.organization_id = o.id " +
+            "WHERE o.status = 'SUSPENDED' " +
+            "OR (o.max_users > 0 AND COALESCE(u.cnt, 0) * 100.0 / o.max_users >= :threshold) " +
+            "ORDER BY o.id",
+            new MapSqlParameterSource().addValue("threshold", QUOTA_ALERT_PERCENT),
+            (rs, rowNum) -> new OrgAlertRow(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getString("status"),
+                rs.getInt("user_count"),
+                rs.getObject("max_users", Integer.class)));
+    }
+}
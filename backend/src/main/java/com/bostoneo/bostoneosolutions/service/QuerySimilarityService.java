@@ -1,12 +1,17 @@
 package com.bostoneo.bostoneosolutions.service;
 
+import com.bostoneo.bostoneosolutions.enumeration.QueryType;
 import com.bostoneo.bostoneosolutions.model.AIResearchCache;
 import com.bostoneo.bostoneosolutions.multitenancy.TenantService;
 import com.bostoneo.bostoneosolutions.repository.AIResearchCacheRepository;
+import com.bostoneo.bostoneosolutions.util.QueryMinHash;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -14,6 +19,14 @@ import java.util.stream.Collectors;
 /**
  * Service for detecting similar queries to improve cache hit rates
  * Uses semantic similarity to find related cached responses
+ *
+ * Candidates come from MinHash/LSH buckets instead of a scan: each cached query carries a
+ * MinHash signature of its word set (ai_research_cache.minhash_signature), and each organization's
+ * valid entries are bucketed in memory by band key within their mode/jurisdiction/case scope.
+ * Only queries sharing a bucket are loaded and scored with {@link #calculateSimilarity}; the
+ * blended score can only reach the threshold when word-set Jaccard is at least ~0.58, where a
+ * shared bucket is ~99% likely. Tenant indexes are refreshed from the database every
+ * {@link #INDEX_TTL} and updated in place when this node caches a new answer.
  */
 @Service
 @RequiredArgsConstructor
@@ -26,6 +39,15 @@ public class QuerySimilarityService {
     // Similarity threshold (0.0 to 1.0)
     private static final double SIMILARITY_THRESHOLD = 0.75;
 
+    private static final Duration INDEX_TTL = Duration.ofMinutes(30);
+    private static final int MAX_INDEXED_ORGANIZATIONS = 1_000;
+
+    /** organizationId → LSH index over that organization's valid cached queries. */
+    private final Cache<Long, TenantIndex> tenantIndexes = Caffeine.newBuilder()
+            .maximumSize(MAX_INDEXED_ORGANIZATIONS)
+            .expireAfterWrite(INDEX_TTL)
+            .build();
+
     /**
      * Find similar cached queries that might answer the current query
      * CRITICAL: Only returns cache entries from the same research mode AND same case
@@ -41,63 +63,28 @@ public class QuerySimilarityService {
             return Optional.empty();
         }
 
-        List<AIResearchCache> validCaches = cacheRepository.findByOrganizationIdAndQueryTypeAndIsValidTrue(
-            orgId,
-            com.bostoneo.bostoneosolutions.enumeration.QueryType.valueOf(searchType.toUpperCase())
-        );
-
-        if (validCaches.isEmpty()) {
+        int[] signature = QueryMinHash.signature(wordSet(normalize(query)));
+        if (signature == null) {
             return Optional.empty();
         }
 
-        // CRITICAL: Filter by research mode to prevent cross-mode cache pollution
-        validCaches = validCaches.stream()
-            .filter(cache -> researchMode.equals(cache.getResearchMode()))
-            .collect(Collectors.toList());
-
-        if (validCaches.isEmpty()) {
-            log.debug("No valid caches found for mode: {}", researchMode);
+        // CRITICAL: Candidates are bucketed by research mode, jurisdiction and case, so FAST results never
+        // answer THOROUGH queries, Texas never answers Oregon, and one case never answers another
+        String scope = scopeKey(searchType, researchMode, jurisdiction, caseId);
+        Set<String> candidateHashes = getIndex(orgId).candidates(scope, QueryMinHash.bandKeys(signature), LocalDateTime.now());
+        if (candidateHashes.isEmpty()) {
+            log.debug("No LSH candidates for mode: {}, jurisdiction: {}, caseId: {}", researchMode, jurisdiction, caseId);
             return Optional.empty();
         }
 
-        // CRITICAL: Filter by jurisdiction to prevent cross-jurisdiction cache pollution
-        // "What are the elements of negligence?" for Texas vs Oregon must not match
-        validCaches = validCaches.stream()
-            .filter(cache -> {
-                String cacheJurisdiction = cache.getJurisdiction();
-                if (jurisdiction == null || jurisdiction.isEmpty()) {
-                    return cacheJurisdiction == null || cacheJurisdiction.isEmpty();
-                }
-                return jurisdiction.equalsIgnoreCase(cacheJurisdiction);
-            })
+        // SECURITY: Tenant-filtered load; re-check validity and scope against the row itself
+        List<AIResearchCache> validCaches = cacheRepository.findByOrganizationIdAndQueryHashIn(orgId, candidateHashes).stream()
+            .filter(cache -> Boolean.TRUE.equals(cache.getIsValid()))
+            .filter(cache -> cache.getExpiresAt() != null && cache.getExpiresAt().isAfter(LocalDateTime.now()))
+            .filter(cache -> scope.equals(scopeKey(cache.getQueryType().name(), cache.getResearchMode(),
+                cache.getJurisdiction(), cache.getCaseId())))
             .collect(Collectors.toList());
 
-        if (validCaches.isEmpty()) {
-            log.debug("No valid caches found for mode: {} and jurisdiction: {}", researchMode, jurisdiction);
-            return Optional.empty();
-        }
-
-        // CRITICAL: Filter by caseId to prevent cross-case cache pollution
-        // If caseId is null/empty, only match other null/empty caseIds (general queries)
-        // If caseId is provided, only match that specific case
-        validCaches = validCaches.stream()
-            .filter(cache -> {
-                String cacheCaseId = cache.getCaseId();
-                if (caseId == null || caseId.isEmpty()) {
-                    // General query - only match general cache entries
-                    return cacheCaseId == null || cacheCaseId.isEmpty();
-                } else {
-                    // Case-specific query - only match same case
-                    return caseId.equals(cacheCaseId);
-                }
-            })
-            .collect(Collectors.toList());
-
-        if (validCaches.isEmpty()) {
-            log.debug("No valid caches found for mode: {} and caseId: {}", researchMode, caseId);
-            return Optional.empty();
-        }
-
         // Find most similar query
         SimilarityMatch bestMatch = validCaches.stream()
             .map(cache -> new SimilarityMatch(cache, calculateSimilarity(query, cache.getQueryText())))
@@ -117,6 +104,82 @@ public class QuerySimilarityService {
         return Optional.empty();
     }
 
+    /**
+     * MinHash signature to persist with a new cache row (see {@link AIResearchCacheRepository#upsertCache}).
+     */
+    public byte[] signatureFor(String query) {
+        int[] signature = QueryMinHash.signature(wordSet(normalize(query)));
+        return signature != null ? QueryMinHash.encode(signature) : new byte[0];
+    }
+
+    /**
+     * Add a just-cached query to this node's index for the organization, if that index is loaded.
+     * Unloaded indexes pick the row up from the database when first needed.
+     */
+    public void indexCachedQuery(Long orgId, String queryHash, String query, String searchType, String jurisdiction,
+                                 String researchMode, String caseId, LocalDateTime expiresAt) {
+        TenantIndex index = tenantIndexes.getIfPresent(orgId);
+        int[] signature = QueryMinHash.signature(wordSet(normalize(query)));
+        if (index != null && signature != null) {
+            index.add(queryHash, scopeKey(searchType, researchMode, jurisdiction, caseId),
+                QueryMinHash.bandKeys(signature), expiresAt);
+        }
+    }
+
+    private TenantIndex getIndex(Long orgId) {
+        return tenantIndexes.get(orgId, this::loadIndex);
+    }
+
+    private TenantIndex loadIndex(Long orgId) {
+        // SECURITY: Tenant-filtered query
+        List<AIResearchCacheRepository.CachedQuerySignature> rows =
+            cacheRepository.findValidSignaturesByOrganizationId(orgId, LocalDateTime.now());
+
+        TenantIndex index = new TenantIndex();
+        int backfilled = 0;
+        for (AIResearchCacheRepository.CachedQuerySignature row : rows) {
+            int[] signature = QueryMinHash.decode(row.getMinhashSignature());
+            if (signature == null && row.getQueryText() != null) {
+                // Cached before V83 - compute once and persist for next time
+                signature = QueryMinHash.signature(wordSet(normalize(row.getQueryText())));
+                if (signature != null) {
+                    backfillSignature(orgId, row.getQueryHash(), signature);
+                    backfilled++;
+                }
+            }
+            if (signature == null || row.getQueryType() == null) continue;
+            index.add(row.getQueryHash(),
+                scopeKey(row.getQueryType().name(), row.getResearchMode(), row.getJurisdiction(), row.getCaseId()),
+                QueryMinHash.bandKeys(signature), row.getExpiresAt());
+        }
+        log.debug("Loaded research cache LSH index for org {}: {} queries, {} backfilled", orgId, rows.size(), backfilled);
+        return index;
+    }
+
+    private void backfillSignature(Long orgId, String queryHash, int[] signature) {
+        try {
+            cacheRepository.updateMinhashSignature(orgId, queryHash, QueryMinHash.encode(signature));
+        } catch (Exception e) {
+            log.debug("Could not persist MinHash signature for cached query {}: {}", queryHash, e.getMessage());
+        }
+    }
+
+    /**
+     * Scope within which cached answers are interchangeable; mirrors the mode/jurisdiction/case rules
+     * (jurisdiction case-insensitive, null and empty equivalent).
+     */
+    private static String scopeKey(String searchType, String researchMode, String jurisdiction, String caseId) {
+        QueryType queryType = QueryType.valueOf(searchType.toUpperCase());
+        return queryType.name() + "|" + researchMode
+            + "|" + (jurisdiction == null ? "" : jurisdiction.toLowerCase(Locale.ROOT))
+            + "|" + (caseId == null ? "" : caseId);
+    }
+
+    private static Set<String> wordSet(String normalized) {
+        if (normalized.isEmpty()) return Set.of();
+        return new HashSet<>(Arrays.asList(normalized.split("\\s+")));
+    }
+
     /**
      * Calculate similarity between two queries using multiple algorithms
      */
@@ -259,37 +322,110 @@ public class QuerySimilarityService {
                            cache.getExpiresAt().isAfter(LocalDateTime.now()))
             .collect(Collectors.toList());
 
-        Map<String, List<AIResearchCache>> groups = new HashMap<>();
+        // Candidate pairs share at least one LSH band; only those are scored, so the work grows with
+        // the number of near-duplicates rather than with every pair in the cache
+        Map<BandKey, List<Integer>> buckets = new HashMap<>();
+        for (int i = 0; i < allCaches.size(); i++) {
+            AIResearchCache cache = allCaches.get(i);
+            int[] signature = QueryMinHash.decode(cache.getMinhashSignature());
+            if (signature == null) {
+                signature = QueryMinHash.signature(wordSet(normalize(cache.getQueryText())));
+            }
+            if (signature == null) continue;
+            long[] bandKeys = QueryMinHash.bandKeys(signature);
+            for (int band = 0; band < bandKeys.length; band++) {
+                buckets.computeIfAbsent(new BandKey(band, bandKeys[band]), k -> new ArrayList<>(2)).add(i);
+            }
+        }
+
+        Map<Integer, TreeSet<Integer>> candidates = new HashMap<>();
+        for (List<Integer> bucket : buckets.values()) {
+            for (int a = 0; a < bucket.size(); a++) {
+                for (int b = a + 1; b < bucket.size(); b++) {
+                    candidates.computeIfAbsent(bucket.get(a), k -> new TreeSet<>()).add(bucket.get(b));
+                }
+            }
+        }
 
+        // Each query lands in at most one group: the first primary it duplicates claims it
+        List<DuplicateGroup> groups = new ArrayList<>();
+        boolean[] grouped = new boolean[allCaches.size()];
         for (int i = 0; i < allCaches.size(); i++) {
-            AIResearchCache cache1 = allCaches.get(i);
-            String key = String.valueOf(cache1.getId());
+            TreeSet<Integer> others = candidates.get(i);
+            if (others == null || grouped[i]) continue;
+            AIResearchCache primary = allCaches.get(i);
+            List<AIResearchCache> duplicates = new ArrayList<>();
+            for (int j : others) {
+                if (grouped[j]) continue;
+                AIResearchCache other = allCaches.get(j);
+                if (calculateSimilarity(primary.getQueryText(), other.getQueryText()) >= SIMILARITY_THRESHOLD) {
+                    duplicates.add(other);
+                    grouped[j] = true;
+                }
+            }
+            if (!duplicates.isEmpty()) {
+                groups.add(new DuplicateGroup(primary, duplicates));
+            }
+        }
+        return groups;
+    }
+
+    // Helper classes
+    private record BandKey(int band, long key) {}
+
+    private record ScopedBandKey(String scope, int band, long key) {}
 
-            for (int j = i + 1; j < allCaches.size(); j++) {
-                AIResearchCache cache2 = allCaches.get(j);
-                double similarity = calculateSimilarity(cache1.getQueryText(), cache2.getQueryText());
+    private record IndexedQuery(String queryHash, String scope, long[] bandKeys, LocalDateTime expiresAt) {}
+
+    /**
+     * LSH buckets for one organization: band key (within a scope) → query hashes.
+     */
+    private static final class TenantIndex {
+        private final Map<ScopedBandKey, Set<String>> buckets = new HashMap<>();
+        private final Map<String, IndexedQuery> queries = new HashMap<>();
+
+        synchronized void add(String queryHash, String scope, long[] bandKeys, LocalDateTime expiresAt) {
+            remove(queryHash);
+            IndexedQuery query = new IndexedQuery(queryHash, scope, bandKeys, expiresAt);
+            queries.put(queryHash, query);
+            for (int band = 0; band < bandKeys.length; band++) {
+                buckets.computeIfAbsent(new ScopedBandKey(scope, band, bandKeys[band]), k -> new HashSet<>(2)).add(queryHash);
+            }
+        }
 
-                if (similarity >= SIMILARITY_THRESHOLD) {
-                    groups.computeIfAbsent(key, k -> new ArrayList<>()).add(cache2);
+        /** Unexpired queries in the scope sharing at least one band; expired ones found on the way are dropped. */
+        synchronized Set<String> candidates(String scope, long[] bandKeys, LocalDateTime now) {
+            Set<String> found = new HashSet<>();
+            List<String> expired = new ArrayList<>();
+            for (int band = 0; band < bandKeys.length; band++) {
+                Set<String> bucket = buckets.get(new ScopedBandKey(scope, band, bandKeys[band]));
+                if (bucket == null) continue;
+                for (String queryHash : bucket) {
+                    LocalDateTime expiresAt = queries.get(queryHash).expiresAt();
+                    if (expiresAt != null && expiresAt.isAfter(now)) {
+                        found.add(queryHash);
+                    } else {
+                        expired.add(queryHash);
+                    }
                 }
             }
+            expired.forEach(this::remove);
+            return found;
         }
 
-        return groups.entrySet().stream()
-            .filter(entry -> !entry.getValue().isEmpty())
-            .map(entry -> {
-                Long primaryId = Long.parseLong(entry.getKey());
-                AIResearchCache primary = allCaches.stream()
-                    .filter(c -> c.getId().equals(primaryId))
-                    .findFirst()
-                    .orElse(null);
-                return new DuplicateGroup(primary, entry.getValue());
-            })
-            .filter(group -> group.primary != null)
-            .collect(Collectors.toList());
+        private void remove(String queryHash) {
+            IndexedQuery query = queries.remove(queryHash);
+            if (query == null) return;
+            for (int band = 0; band < query.bandKeys().length; band++) {
+                ScopedBandKey key = new ScopedBandKey(query.scope(), band, query.bandKeys()[band]);
+                Set<String> bucket = buckets.get(key);
+                if (bucket != null && bucket.remove(queryHash) && bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
     }
 
-    // Helper classes
     private static class SimilarityMatch {
         final AIResearchCache cache;
         final double similarity;
@@ -3,6 +3,8 @@ package com.bostoneo.bostoneosolutions.service;
 import com.bostoneo.bostoneosolutions.model.CalendarEvent;
 import com.bostoneo.bostoneosolutions.model.ReminderQueueItem;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface ReminderQueueService {
@@ -16,6 +18,29 @@ public interface ReminderQueueService {
      * Process pending reminders that are ready to be sent
      */
     void processReminderQueue();
+
+    /**
+     * Claim up to {@code limit} pending reminders scheduled at or before {@code dueBefore}
+     * (PENDING → PROCESSING), skipping rows another node is claiming concurrently.
+     * NOTE: Cross-organization by design - for the reminder scheduler only.
+     */
+    List<ReminderQueueItem> claimDueReminders(LocalDateTime dueBefore, int limit);
+
+    /**
+     * Send a claimed reminder and mark it SENT or FAILED
+     */
+    void deliverReminder(ReminderQueueItem reminder);
+
+    /**
+     * Return claimed reminders to PENDING so the next claim picks them up
+     */
+    void releaseClaims(Collection<Long> reminderIds);
+
+    /**
+     * Return reminders claimed before {@code claimedBefore} and never completed (e.g. the claiming node died) to PENDING,
+     * and mark reminders stuck in SENDING since then FAILED (delivery is at-most-once)
+     */
+    int releaseStaleClaims(LocalDateTime claimedBefore);
     
     /**
      * Get all pending reminders
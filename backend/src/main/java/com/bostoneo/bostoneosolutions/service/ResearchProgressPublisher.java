@@ -1,84 +1,60 @@
 package com.bostoneo.bostoneosolutions.service;
 
 import com.bostoneo.bostoneosolutions.dto.ai.ResearchProgressEvent;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
+/**
+ * Research progress events, published through {@link SseStreamBus} so the browser can be
+ * connected to any node and can resume with Last-Event-ID after a dropped connection.
+ */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class ResearchProgressPublisher {
 
-    // Store active SSE connections by session ID
-    private final Map<String, SseEmitter> emitters = new ConcurrentHashMap<>();
+    private static final String STREAM_PREFIX = "research:";
+
+    private final SseStreamBus streamBus;
 
     /**
-     * Register a new SSE emitter for a session
+     * SECURITY: Bind the session's stream to the organization and user, or confirm it is already
+     * theirs. Session ids come from the client, so both the SSE subscription and the research
+     * request claim the session; false when it belongs to someone else.
      */
-    public SseEmitter createEmitter(String sessionId) {
-        SseEmitter emitter = new SseEmitter(600000L); // 10 minute timeout (for thorough research with multiple tools)
-
-        emitter.onCompletion(() -> {
-            log.info("SSE completed for session: {}", sessionId);
-            emitters.remove(sessionId);
-        });
-
-        emitter.onTimeout(() -> {
-            log.warn("SSE timeout for session: {}", sessionId);
-            emitters.remove(sessionId);
-        });
-
-        emitter.onError((ex) -> {
-            log.error("SSE error for session: {}", sessionId, ex);
-            emitters.remove(sessionId);
-        });
-
-        emitters.put(sessionId, emitter);
-        log.info("Created SSE emitter for session: {}", sessionId);
-
-        return emitter;
+    public boolean claimSession(String sessionId, Long organizationId, Long userId) {
+        if (organizationId == null || userId == null) {
+            return false;
+        }
+        return streamBus.claimOwnership(streamKey(sessionId), organizationId + ":" + userId);
     }
 
     /**
-     * Publish a progress event to a specific session
+     * Register a new SSE emitter for a session owned by the given organization and user
+     *
+     * @param lastEventId id of the last event the client received, to resume after a reconnect; null for a new stream
+     * @throws AccessDeniedException if the session belongs to another user
      */
-    public void publishProgress(String sessionId, ResearchProgressEvent event) {
-        SseEmitter emitter = emitters.get(sessionId);
-        if (emitter != null) {
-            try {
-                event.setTimestamp(System.currentTimeMillis());
-                emitter.send(SseEmitter.event()
-                    .name(event.getEventType())
-                    .data(event));
-                log.debug("Published event to session {}: {}", sessionId, event.getMessage());
-            } catch (IOException e) {
-                log.error("Failed to send SSE event to session: {}", sessionId, e);
-                emitters.remove(sessionId);
-            }
-        } else {
-            log.warn("No emitter found for session: {}", sessionId);
+    public SseEmitter createEmitter(String sessionId, String lastEventId, Long organizationId, Long userId) {
+        if (!claimSession(sessionId, organizationId, userId)) {
+            log.warn("SECURITY: User {} (org {}) denied SSE stream for research session {}", userId, organizationId, sessionId);
+            throw new AccessDeniedException("Research session belongs to another user");
         }
+        SseEmitter emitter = new SseEmitter(600000L); // 10 minute timeout (for thorough research with multiple tools)
+        streamBus.subscribe(streamKey(sessionId), emitter, lastEventId,
+                () -> log.info("SSE closed for session: {}", sessionId));
+        log.info("Created SSE emitter for session: {}", sessionId);
+        return emitter;
     }
 
     /**
-     * Complete and close the SSE connection
+     * Publish a progress event to a specific session
      */
-    public void complete(String sessionId) {
-        SseEmitter emitter = emitters.get(sessionId);
-        if (emitter != null) {
-            try {
-                emitter.complete();
-                log.info("Completed SSE for session: {}", sessionId);
-            } catch (Exception e) {
-                log.error("Error completing SSE for session: {}", sessionId, e);
-            } finally {
-                emitters.remove(sessionId);
-            }
-        }
+    public void publishProgress(String sessionId, ResearchProgressEvent event) {
+        publishProgress(sessionId, event, false);
     }
 
     /**
@@ -98,7 +74,7 @@ public class ResearchProgressPublisher {
     }
 
     /**
-     * Helper method to publish completion
+     * Helper method to publish completion; closes the SSE connection
      */
     public void publishComplete(String sessionId, String message) {
         ResearchProgressEvent event = ResearchProgressEvent.builder()
@@ -107,12 +83,11 @@ public class ResearchProgressPublisher {
             .progress(100)
             .build();
 
-        publishProgress(sessionId, event);
-        complete(sessionId);
+        publishProgress(sessionId, event, true);
     }
 
     /**
-     * Helper method to publish error
+     * Helper method to publish error; closes the SSE connection
      */
     public void publishError(String sessionId, String message) {
         ResearchProgressEvent event = ResearchProgressEvent.builder()
@@ -121,7 +96,16 @@ public class ResearchProgressPublisher {
             .icon("ri-error-warning-line")
             .build();
 
-        publishProgress(sessionId, event);
-        complete(sessionId);
+        publishProgress(sessionId, event, true);
+    }
+
+    private void publishProgress(String sessionId, ResearchProgressEvent event, boolean terminal) {
+        event.setTimestamp(System.currentTimeMillis());
+        streamBus.publish(streamKey(sessionId), event.getEventType(), event, terminal);
+        log.debug("Published event to session {}: {}", sessionId, event.getMessage());
+    }
+
+    private static String streamKey(String sessionId) {
+        return STREAM_PREFIX + sessionId;
     }
 }
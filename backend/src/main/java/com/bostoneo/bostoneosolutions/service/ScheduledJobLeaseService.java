@@ -0,0 +1,230 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Single execution of @Scheduled jobs across nodes, backed by the scheduled_job_lease table.
+ *
+ * {@link #runExclusive} runs a job on whichever node takes its lease first; the others skip.
+ * {@link #runSharded} splits organizations into {@code app.scheduling.shards} shards by a hash of
+ * organization_id and leases each shard separately, so nodes firing the same job at once share
+ * the organizations between them.
+ *
+ * Each lease is held for at least {@code minInterval} from the start of the run, so a node whose
+ * trigger fires slightly later in the same period does not run the job again. If a node dies
+ * mid-run, its lease expires after {@code maxRuntime}.
+ *
+ * Metrics: {@code scheduled.job.duration} (timer, by job and outcome), {@code scheduled.job.skipped}
+ * (lease held by another node) and {@code scheduled.job.lag.seconds} (time since the job, or its
+ * least recently completed shard, last succeeded anywhere in the cluster).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduledJobLeaseService {
+
+    private static final String SHARD_SEPARATOR = "#";
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.scheduling.shards:16}")
+    private int shardCount;
+
+    /** Unique per process, so a restarted node never treats a dead predecessor's lease as its own. */
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+
+    private final Map<String, AtomicReference<Instant>> lastSuccessByJob = new ConcurrentHashMap<>();
+
+    /**
+     * Run {@code task} here unless another node is running it or ran it less than {@code minInterval} ago.
+     * Failures are logged and recorded on the lease row, not rethrown.
+     *
+     * @return true if this node ran the task
+     */
+    public boolean runExclusive(String jobName, Duration minInterval, Duration maxRuntime, Runnable task) {
+        if (!tryAcquire(jobName, maxRuntime)) {
+            skipped(jobName);
+            return false;
+        }
+        execute(jobName, jobName, minInterval, task);
+        return true;
+    }
+
+    /**
+     * Run {@code perOrganization} for every organization in each shard this node leases. Shards
+     * are tried from a random starting point, so concurrently firing nodes tend to start on different shards.
+     *
+     * @return number of shards this node ran
+     */
+    public int runSharded(String jobName, Duration minInterval, Duration maxRuntime, Consumer<Long> perOrganization) {
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+        int ran = 0;
+        for (int i = 0; i < shardCount && !Thread.currentThread().isInterrupted(); i++) {
+            int shard = (start + i) % shardCount;
+            String leaseName = jobName + SHARD_SEPARATOR + shard;
+            if (!tryAcquire(leaseName, maxRuntime)) continue;
+            ran++;
+            execute(jobName, leaseName, minInterval, () -> {
+                for (Long organizationId : organizationIdsInShard(shard)) {
+                    perOrganization.accept(organizationId);
+                }
+            });
+        }
+        if (ran == 0) {
+            skipped(jobName);
+        } else {
+            log.debug("Job {} ran {}/{} shards on this node", jobName, ran, shardCount);
+        }
+        return ran;
+    }
+
+    /**
+     * Refresh the lag gauges from the lease table, so they reflect runs on every node.
+     */
+    @Scheduled(fixedDelayString = "${app.scheduling.lag-refresh-ms:60000}")
+    public void refreshLag() {
+        try {
+            // Lag is computed on the database clock, the same clock the leases use
+            jdbc.query(
+                "SELECT split_part(job_name, '" + SHARD_SEPARATOR + "', 1) AS job, " +
+                "EXTRACT(EPOCH FROM now() - MIN(last_success_at)) AS lag_seconds " +
+                "FROM scheduled_job_lease GROUP BY 1",
+                new MapSqlParameterSource(),
+                rs -> {
+                    double lagSeconds = rs.getDouble("lag_seconds");
+                    lastSuccess(rs.getString("job")).set(rs.wasNull() ? null : Instant.now().minusMillis((long) (lagSeconds * 1000)));
+                });
+        } catch (Exception e) {
+            log.debug("Could not refresh scheduled job lag: {}", e.getMessage());
+        }
+    }
+
+    private boolean tryAcquire(String leaseName, Duration maxRuntime) {
+        Integer updated = requiresNew().execute(status -> jdbc.update(
+            "INSERT INTO scheduled_job_lease (job_name, owner, lease_until, last_started_at) " +
+            "VALUES (:job, :owner, now() + :maxRuntimeSeconds * INTERVAL '1 second', now()) " +
+            "ON CONFLICT (job_name) DO UPDATE SET owner = EXCLUDED.owner, lease_until = EXCLUDED.lease_until, " +
+            "last_started_at = EXCLUDED.last_started_at " +
+            "WHERE scheduled_job_lease.lease_until <= now()",
+            new MapSqlParameterSource()
+                .addValue("job", leaseName)
+                .addValue("owner", owner)
+                .addValue("maxRuntimeSeconds", maxRuntime.toSeconds())));
+        return updated != null && updated > 0;
+    }
+
+    private void execute(String jobName, String leaseName, Duration minInterval, Runnable task) {
+        long startNanos = System.nanoTime();
+        String error = null;
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.error("Scheduled job {} failed: {}", leaseName, error, e);
+        } finally {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            Timer.builder("scheduled.job.duration")
+                .tag("job", jobName)
+                .tag("outcome", error == null ? "success" : "failure")
+                .description("Run time of scheduled jobs (per shard for sharded jobs)")
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+            release(leaseName, minInterval, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), error);
+            AtomicReference<Instant> lastSuccess = lastSuccess(jobName);
+            // A sharded job's lag follows its oldest shard, which only the lease table knows
+            if (error == null && leaseName.equals(jobName)) {
+                lastSuccess.set(Instant.now());
+            }
+        }
+    }
+
+    private void release(String leaseName, Duration minInterval, long durationMs, String error) {
+        try {
+            requiresNew().executeWithoutResult(status -> jdbc.update(
+                "UPDATE scheduled_job_lease SET " +
+                "lease_until = GREATEST(now(), last_started_at + :minIntervalSeconds * INTERVAL '1 second'), " +
+                "last_finished_at = now(), last_duration_ms = :durationMs, last_status = :status, last_error = :error, " +
+                "last_success_at = CASE WHEN :succeeded THEN now() ELSE last_success_at END " +
+                "WHERE job_name = :job AND owner = :owner",
+                new MapSqlParameterSource()
+                    .addValue("job", leaseName)
+                    .addValue("owner", owner)
+                    .addValue("minIntervalSeconds", minInterval.toSeconds())
+                    .addValue("durationMs", durationMs)
+                    .addValue("status", error == null ? "SUCCESS" : "FAILED")
+                    .addValue("succeeded", error == null)
+                    .addValue("error", error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error)));
+        } catch (Exception e) {
+            // The lease still expires after maxRuntime
+            log.warn("Could not release lease {}: {}", leaseName, e.getMessage());
+        }
+    }
+
+    /**
+     * NOTE: Cross-organization by design - shard membership for scheduled jobs only.
+     */
+    private List<Long> organizationIdsInShard(int shard) {
+        return jdbc.queryForList(
+            "SELECT id FROM organizations WHERE mod(abs(hashint8(id)::BIGINT), :shards) = :shard ORDER BY id",
+            new MapSqlParameterSource()
+                .addValue("shards", shardCount)
+                .addValue("shard", shard),
+            Long.class);
+    }
+
+    private void skipped(String jobName) {
+        Counter.builder("scheduled.job.skipped")
+            .tag("job", jobName)
+            .description("Scheduled job triggers skipped because another node holds the lease")
+            .register(meterRegistry)
+            .increment();
+        log.trace("Skipping {}: lease held by another node", jobName);
+    }
+
+    private AtomicReference<Instant> lastSuccess(String jobName) {
+        return lastSuccessByJob.computeIfAbsent(jobName, name -> {
+            AtomicReference<Instant> ref = new AtomicReference<>();
+            Gauge.builder("scheduled.job.lag.seconds", ref, r -> r.get() != null
+                    ? Duration.between(r.get(), Instant.now()).toMillis() / 1000.0
+                    : Double.NaN)
+                .tag("job", name)
+                .description("Seconds since the job last completed successfully on any node")
+                .register(meterRegistry);
+            return ref;
+        });
+    }
+
+    private TransactionTemplate requiresNew() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
@@ -1,21 +1,34 @@
 package com.bostoneo.bostoneosolutions.service;
 
+import com.bostoneo.bostoneosolutions.event.DocumentChunksChangedEvent;
 import com.bostoneo.bostoneosolutions.model.DocumentChunk;
 import com.bostoneo.bostoneosolutions.repository.AIDocumentAnalysisRepository;
 import com.bostoneo.bostoneosolutions.repository.CollectionDocumentRepository;
 import com.bostoneo.bostoneosolutions.repository.DocumentChunkRepository;
+import com.bostoneo.bostoneosolutions.service.search.HybridRanking;
+import com.bostoneo.bostoneosolutions.service.search.KeywordIndexService;
+import com.bostoneo.bostoneosolutions.service.search.SearchReranker;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Service for semantic search across documents and collections.
- * Combines embedding-based search with keyword fallback.
+ * In HYBRID mode (default) vector and BM25 retrieval run concurrently and are merged with
+ * reciprocal-rank fusion, optionally followed by a {@link SearchReranker}; SEMANTIC mode uses
+ * embeddings with keyword fallback.
  */
 @Service
 @RequiredArgsConstructor
@@ -31,6 +44,31 @@ public class SemanticSearchService {
     private final LegalSynonymService synonymService;
     private final SearchSuggestionService suggestionService;
     private final com.bostoneo.bostoneosolutions.multitenancy.TenantService tenantService;
+    private final ChunkVectorSearchService vectorSearchService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final KeywordIndexService keywordIndexService;
+    private final ObjectProvider<SearchReranker> rerankerProvider;
+    // TenantAware pool from AsyncConfig (resolved by name)
+    private final TaskExecutor taskExecutor;
+
+    @Value("${search.retrieval.mode:HYBRID}")
+    private RetrievalMode retrievalMode;
+
+    @Value("${search.rerank.top-n:30}")
+    private int rerankTopN;
+
+    // Lowered threshold from 0.3 to 0.15 for better recall on legal documents
+    private static final double MIN_SEMANTIC_SCORE = 0.15;
+    // Each retriever fetches this many candidates per requested result before fusion
+    private static final int CANDIDATE_MULTIPLIER = 3;
+    private static final int MIN_CANDIDATES = 20;
+
+    public enum RetrievalMode {
+        /** Embedding top-k, keyword search only when that finds nothing. */
+        SEMANTIC,
+        /** Embedding and keyword top-k concurrently, merged with reciprocal-rank fusion. */
+        HYBRID
+    }
 
     private Long getRequiredOrganizationId() {
         return tenantService.getCurrentOrganizationId()
@@ -48,6 +86,9 @@ public class SemanticSearchService {
         private boolean fromCache;
         private int totalResults;
         private long processingTimeMs;
+        private RetrievalMode retrievalMode;
+        /** Milliseconds per stage (embedding, vector, lexical, fusion, hydrate, rerank); cache hits report only "cache". */
+        private Map<String, Long> stageTimingsMs;
     }
 
     /**
@@ -59,12 +100,30 @@ public class SemanticSearchService {
         public String content;
         public String sectionTitle;
         public int chunkIndex;
+        /** Ranking score: cosine similarity, keyword score, or the fused RRF / reranker score in hybrid mode. */
         public double score;
+        /** Cosine similarity to the query; the keyword score for keyword-only search, 0 for keyword-only hybrid hits. */
+        public double similarity;
         public String highlightedContent;
         public String sourceDocument;
         public String sourceDocumentType;
 
         public SearchResult() {}
+
+        public SearchResult copy() {
+            SearchResult copy = new SearchResult();
+            copy.chunkId = chunkId;
+            copy.analysisId = analysisId;
+            copy.content = content;
+            copy.sectionTitle = sectionTitle;
+            copy.chunkIndex = chunkIndex;
+            copy.score = score;
+            copy.similarity = similarity;
+            copy.highlightedContent = highlightedContent;
+            copy.sourceDocument = sourceDocument;
+            copy.sourceDocumentType = sourceDocumentType;
+            return copy;
+        }
     }
 
     /**
@@ -79,15 +138,23 @@ public class SemanticSearchService {
             chunkingService.chunkDocument(analysisId);
         }
 
-        // SECURITY: Use tenant-filtered query
-        List<DocumentChunk> chunks = chunkRepository.findByAnalysisIdAndOrganizationIdOrderByChunkIndexAsc(analysisId, orgId);
-        return searchChunks(chunks, query, maxResults);
+        return searchChunks(ChunkVectorSearchService.Scope.document(orgId, analysisId), List.of(analysisId),
+                query, query, maxResults, new LinkedHashMap<>());
     }
 
     /**
      * Search across all documents in a collection (basic version).
      */
     public List<SearchResult> searchCollection(Long collectionId, String query, int maxResults) {
+        return searchCollection(collectionId, query, query, maxResults, new LinkedHashMap<>());
+    }
+
+    /**
+     * Collection search where the embedding query (e.g. synonym-expanded) differs from the
+     * query the keyword index sees; the keyword index expands synonyms itself.
+     */
+    private List<SearchResult> searchCollection(Long collectionId, String query, String semanticQuery, int maxResults,
+                                                Map<String, Long> timings) {
         log.info("Searching collection: collectionId={}, query={}", collectionId, query);
         Long orgId = getRequiredOrganizationId();
 
@@ -103,19 +170,14 @@ public class SemanticSearchService {
                 chunkingService.chunkDocument(analysisId);
 
                 // Update collection ID for new chunks
-                chunkRepository.updateCollectionIdByAnalysisId(collectionId, analysisId);
+                assignChunksToCollection(orgId, collectionId, analysisId);
             }
         }
 
-        // SECURITY: Use tenant-filtered queries
-        List<DocumentChunk> chunks = chunkRepository.findByCollectionIdAndOrganizationIdAndEmbeddingIsNotNull(collectionId, orgId);
-
-        // If no chunks with embeddings, get all chunks
-        if (chunks.isEmpty()) {
-            chunks = chunkRepository.findByAnalysisIdInAndOrganizationId(analysisIds, orgId);
-        }
-
-        return searchChunks(chunks, query, maxResults);
+        // SECURITY: Use tenant-filtered queries. Vector top-k runs over the collection's embeddings;
+        // keyword retrieval searches the BM25 indexes of the collection's documents.
+        return searchChunks(ChunkVectorSearchService.Scope.collection(orgId, collectionId), analysisIds,
+                query, semanticQuery, maxResults, timings);
     }
 
     /**
@@ -132,15 +194,15 @@ public class SemanticSearchService {
         long startTime = System.currentTimeMillis();
         log.info("Enhanced search: collectionId={}, query='{}', userId={}", collectionId, query, userId);
 
-        // 1. Check cache first
+        // 1. Check cache first; a miss is only cached if the collection isn't invalidated meanwhile
+        long cacheGeneration = cacheService.currentGeneration();
         Optional<CollectionSearchCacheService.CachedSearchResult> cached =
                 cacheService.getCachedResults(collectionId, query, userId);
 
         if (cached.isPresent()) {
             CollectionSearchCacheService.CachedSearchResult cacheHit = cached.get();
 
-            // Convert cached results back to SearchResult objects
-            List<SearchResult> results = convertCachedResults(cacheHit.results());
+            List<SearchResult> results = cacheHit.results();
 
             long elapsed = System.currentTimeMillis() - startTime;
             log.info("Cache HIT: {} results in {}ms", results.size(), elapsed);
@@ -151,6 +213,7 @@ public class SemanticSearchService {
                     .fromCache(true)
                     .totalResults(results.size())
                     .processingTimeMs(elapsed)
+                    .stageTimingsMs(Map.of("cache", elapsed))
                     .build();
         }
 
@@ -158,12 +221,12 @@ public class SemanticSearchService {
         String expandedQuery = synonymService.expandQueryWithSynonyms(query);
         log.info("Query expanded: '{}' -> '{}'", query, expandedQuery);
 
-        // 3. Perform semantic search
-        List<SearchResult> results = searchCollection(collectionId, expandedQuery, maxResults);
+        // 3. Perform search
+        Map<String, Long> timings = new LinkedHashMap<>();
+        List<SearchResult> results = searchCollection(collectionId, query, expandedQuery, maxResults, timings);
 
         // 4. Cache results for future use
-        List<Map<String, Object>> resultsForCache = convertResultsForCache(results);
-        cacheService.cacheResults(collectionId, query, userId, resultsForCache, expandedQuery);
+        cacheService.cacheResults(collectionId, query, userId, results, expandedQuery, cacheGeneration);
 
         // 5. Record search in history for suggestions
         suggestionService.recordSearch(collectionId, userId, query, results.size());
@@ -177,79 +240,40 @@ public class SemanticSearchService {
                 .fromCache(false)
                 .totalResults(results.size())
                 .processingTimeMs(elapsed)
+                .retrievalMode(retrievalMode)
+                .stageTimingsMs(timings)
                 .build();
     }
 
     /**
-     * Convert search results to cacheable map format.
-     */
-    private List<Map<String, Object>> convertResultsForCache(List<SearchResult> results) {
-        List<Map<String, Object>> cacheable = new ArrayList<>();
-        for (SearchResult result : results) {
-            Map<String, Object> map = new HashMap<>();
-            map.put("chunkId", result.chunkId);
-            map.put("analysisId", result.analysisId);
-            map.put("content", result.content);
-            map.put("sectionTitle", result.sectionTitle);
-            map.put("chunkIndex", result.chunkIndex);
-            map.put("score", result.score);
-            map.put("highlightedContent", result.highlightedContent);
-            map.put("sourceDocument", result.sourceDocument);
-            map.put("sourceDocumentType", result.sourceDocumentType);
-            cacheable.add(map);
-        }
-        return cacheable;
-    }
-
-    /**
-     * Convert cached map format back to SearchResult objects.
-     */
-    private List<SearchResult> convertCachedResults(List<Map<String, Object>> cached) {
-        List<SearchResult> results = new ArrayList<>();
-        for (Map<String, Object> map : cached) {
-            SearchResult result = new SearchResult();
-            result.chunkId = map.get("chunkId") != null ? ((Number) map.get("chunkId")).longValue() : null;
-            result.analysisId = map.get("analysisId") != null ? ((Number) map.get("analysisId")).longValue() : null;
-            result.content = (String) map.get("content");
-            result.sectionTitle = (String) map.get("sectionTitle");
-            result.chunkIndex = map.get("chunkIndex") != null ? ((Number) map.get("chunkIndex")).intValue() : 0;
-            result.score = map.get("score") != null ? ((Number) map.get("score")).doubleValue() : 0.0;
-            result.highlightedContent = (String) map.get("highlightedContent");
-            result.sourceDocument = (String) map.get("sourceDocument");
-            result.sourceDocumentType = (String) map.get("sourceDocumentType");
-            results.add(result);
-        }
-        return results;
-    }
-
-    /**
-     * Search chunks using embeddings or keyword fallback.
+     * Search chunks with the configured retrieval mode; keyword-only when embeddings are unavailable.
+     * No path loads every chunk: the vector index and the BM25 index return top-k IDs and only
+     * those chunks are hydrated. Stage durations are added to {@code timings}.
      */
-    private List<SearchResult> searchChunks(List<DocumentChunk> chunks, String query, int maxResults) {
-        if (chunks.isEmpty()) {
-            log.warn("searchChunks called with empty chunks list");
-            return new ArrayList<>();
-        }
-
-        log.info("Searching {} chunks for query: '{}'", chunks.size(), query);
+    private List<SearchResult> searchChunks(ChunkVectorSearchService.Scope scope, List<Long> analysisIds,
+                                            String query, String semanticQuery, int maxResults,
+                                            Map<String, Long> timings) {
+        log.info("Searching {} for query: '{}' (mode {})", scope, query, retrievalMode);
         List<SearchResult> results;
 
-        // Try semantic search first if embeddings are available
-        if (embeddingService.isAvailable()) {
-            results = semanticSearch(chunks, query);
+        if (!embeddingService.isAvailable()) {
+            // Fallback to keyword search when embeddings not available
+            log.info("Embeddings not available, using keyword search");
+            results = timed(timings, "lexical", () -> keywordSearch(scope.organizationId(), analysisIds, query, maxResults));
+            log.info("Keyword search returned {} results", results.size());
+        } else if (retrievalMode == RetrievalMode.HYBRID) {
+            results = hybridSearch(scope, analysisIds, query, semanticQuery, maxResults, timings);
+            log.info("Hybrid search returned {} results", results.size());
+        } else {
+            results = semanticSearch(scope, query, semanticQuery, maxResults, timings);
             log.info("Semantic search returned {} results", results.size());
 
             // Fallback to keyword search if semantic search returns no results
             if (results.isEmpty()) {
                 log.info("Semantic search returned no results, falling back to keyword search");
-                results = keywordSearch(chunks, query);
+                results = timed(timings, "lexical", () -> keywordSearch(scope.organizationId(), analysisIds, query, maxResults));
                 log.info("Keyword search returned {} results", results.size());
             }
-        } else {
-            // Fallback to keyword search when embeddings not available
-            log.info("Embeddings not available, using keyword search");
-            results = keywordSearch(chunks, query);
-            log.info("Keyword search returned {} results", results.size());
         }
 
         // Sort by score and limit results
@@ -266,156 +290,186 @@ public class SemanticSearchService {
     }
 
     /**
-     * Semantic search using embeddings.
-     * Threshold lowered to 0.15 for better recall on legal documents.
+     * Hybrid retrieval: BM25 top-k on the task executor while this thread embeds the query and
+     * asks the vector index, then reciprocal-rank fusion, hydration of the fused top-N, and the
+     * optional reranker. Either retriever failing or finding nothing leaves the other's ranking.
      */
-    private List<SearchResult> semanticSearch(List<DocumentChunk> chunks, String query) {
-        float[] queryEmbedding = embeddingService.generateQueryEmbedding(query);
-        if (queryEmbedding == null) {
-            log.warn("Failed to generate query embedding, will use keyword search");
-            return new ArrayList<>(); // Return empty to trigger fallback
-        }
+    private List<SearchResult> hybridSearch(ChunkVectorSearchService.Scope scope, List<Long> analysisIds,
+                                            String query, String semanticQuery, int maxResults,
+                                            Map<String, Long> timings) {
+        int candidates = Math.max(maxResults * CANDIDATE_MULTIPLIER, MIN_CANDIDATES);
+        Long orgId = scope.organizationId();
+
+        long[] lexicalNanos = new long[1];
+        CompletableFuture<List<KeywordIndexService.KeywordHit>> lexical = CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return keywordIndexService.search(orgId, analysisIds, query, candidates);
+            } finally {
+                lexicalNanos[0] = System.nanoTime() - start;
+            }
+        }, taskExecutor);
 
-        List<SearchResult> results = new ArrayList<>();
-        int chunksWithEmbeddings = 0;
-        double maxScore = 0.0;
+        List<ChunkVectorSearchService.ScoredChunk> vectorHits = vectorTopK(scope, semanticQuery, candidates, timings);
 
-        for (DocumentChunk chunk : chunks) {
-            float[] chunkEmbedding = embeddingService.parseEmbedding(chunk.getEmbedding());
-            if (chunkEmbedding == null) {
-                continue;
-            }
-            chunksWithEmbeddings++;
-
-            double score = embeddingService.cosineSimilarity(queryEmbedding, chunkEmbedding);
-            maxScore = Math.max(maxScore, score);
-
-            // Lowered threshold from 0.3 to 0.15 for better recall
-            if (score >= 0.15) {
-                SearchResult result = new SearchResult();
-                result.chunkId = chunk.getId();
-                result.analysisId = chunk.getAnalysisId();
-                result.content = chunk.getContent();
-                result.sectionTitle = chunk.getSectionTitle();
-                result.chunkIndex = chunk.getChunkIndex();
-                result.score = score;
-                result.highlightedContent = highlightMatches(chunk.getContent(), query);
-                results.add(result);
+        List<KeywordIndexService.KeywordHit> keywordHits;
+        try {
+            keywordHits = lexical.join();
+        } catch (Exception e) {
+            log.warn("Keyword retrieval failed, using vector results only: {}", e.getMessage());
+            keywordHits = List.of();
+        }
+        timings.put("lexical", TimeUnit.NANOSECONDS.toMillis(lexicalNanos[0]));
+
+        SearchReranker reranker = rerankerProvider.getIfAvailable();
+        int fusedLimit = reranker != null ? Math.max(rerankTopN, maxResults) : maxResults;
+        Map<Long, int[]> spansByChunk = new HashMap<>();
+        List<KeywordIndexService.KeywordHit> lexicalHits = keywordHits;
+        List<HybridRanking.Fused> fused = timed(timings, "fusion", () -> {
+            List<Long> lexicalRanking = new ArrayList<>(lexicalHits.size());
+            for (KeywordIndexService.KeywordHit hit : lexicalHits) {
+                lexicalRanking.add(hit.chunkId());
+                spansByChunk.put(hit.chunkId(), hit.spans());
             }
+            List<Long> vectorRanking = vectorHits.stream().map(ChunkVectorSearchService.ScoredChunk::chunkId).toList();
+            return HybridRanking.reciprocalRankFusion(List.of(vectorRanking, lexicalRanking),
+                    HybridRanking.DEFAULT_RRF_K, fusedLimit);
+        });
+        if (fused.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        log.info("Semantic search: {} chunks with embeddings, max score: {}, results above threshold: {}",
-                chunksWithEmbeddings, String.format("%.3f", maxScore), results.size());
+        Map<Long, Double> similarityByChunk = new HashMap<>();
+        for (ChunkVectorSearchService.ScoredChunk hit : vectorHits) {
+            similarityByChunk.put(hit.chunkId(), hit.score());
+        }
+        List<SearchResult> results = timed(timings, "hydrate", () -> {
+            Map<Long, DocumentChunk> chunksById = loadChunks(orgId,
+                    fused.stream().map(HybridRanking.Fused::chunkId).collect(Collectors.toList()));
+            List<SearchResult> hydrated = new ArrayList<>(fused.size());
+            for (HybridRanking.Fused hit : fused) {
+                DocumentChunk chunk = chunksById.get(hit.chunkId());
+                if (chunk == null) {
+                    continue;
+                }
+                int[] spans = spansByChunk.get(chunk.getId());
+                if (spans == null) {
+                    spans = keywordIndexService.highlightSpans(orgId, chunk.getAnalysisId(), chunk.getId(), query);
+                }
+                SearchResult result = toSearchResult(chunk, hit.score(), spans);
+                result.similarity = similarityByChunk.getOrDefault(chunk.getId(), 0.0);
+                hydrated.add(result);
+            }
+            return hydrated;
+        });
+
+        if (reranker != null) {
+            List<SearchResult> fusedResults = results;
+            results = timed(timings, "rerank", () -> new ArrayList<>(
+                    HybridRanking.rerank(reranker, query, fusedResults, result -> result.content,
+                            (result, score) -> result.score = score)));
+        }
 
+        log.info("Hybrid search: {} vector + {} keyword candidates -> {} fused{}", vectorHits.size(),
+                keywordHits.size(), fused.size(), reranker != null ? " (reranked)" : "");
         return results;
     }
 
     /**
-     * Keyword-based search fallback.
-     * Filters out stop words for better relevance.
+     * Semantic search using embeddings: top-k from the vector index, then hydrate only those chunks.
      */
-    private List<SearchResult> keywordSearch(List<DocumentChunk> chunks, String query) {
-        // Clean query: remove punctuation and split into words
-        String cleanedQuery = query.toLowerCase().replaceAll("[^a-z0-9\\s]", "");
-        String[] allKeywords = cleanedQuery.split("\\s+");
-
-        // Filter keywords to exclude stop words
-        List<String> meaningfulKeywords = new ArrayList<>();
-        for (String kw : allKeywords) {
-            if (kw.length() >= 3 && !STOP_WORDS.contains(kw)) {
-                meaningfulKeywords.add(kw);
-            }
-        }
-
-        if (meaningfulKeywords.isEmpty()) {
-            log.info("No meaningful keywords after stop word filtering for query: '{}'", query);
+    private List<SearchResult> semanticSearch(ChunkVectorSearchService.Scope scope, String query, String semanticQuery,
+                                              int maxResults, Map<String, Long> timings) {
+        List<ChunkVectorSearchService.ScoredChunk> hits = vectorTopK(scope, semanticQuery, maxResults, timings);
+        if (hits.isEmpty()) {
             return new ArrayList<>();
         }
 
-        log.info("Keyword search using {} meaningful keywords: {}", meaningfulKeywords.size(), meaningfulKeywords);
-        List<SearchResult> results = new ArrayList<>();
-
-        for (DocumentChunk chunk : chunks) {
-            String contentLower = chunk.getContent().toLowerCase();
+        List<SearchResult> results = timed(timings, "hydrate", () -> {
+            Map<Long, DocumentChunk> chunksById = loadChunks(scope.organizationId(),
+                    hits.stream().map(ChunkVectorSearchService.ScoredChunk::chunkId).collect(Collectors.toList()));
 
-            // Calculate keyword match score
-            int matchCount = 0;
-            for (String keyword : meaningfulKeywords) {
-                if (contentLower.contains(keyword)) {
-                    matchCount++;
+            List<SearchResult> hydrated = new ArrayList<>(hits.size());
+            for (ChunkVectorSearchService.ScoredChunk hit : hits) {
+                DocumentChunk chunk = chunksById.get(hit.chunkId());
+                if (chunk == null) {
+                    continue;
                 }
+                int[] spans = keywordIndexService.highlightSpans(scope.organizationId(), chunk.getAnalysisId(), chunk.getId(), query);
+                hydrated.add(toSearchResult(chunk, hit.score(), spans));
             }
+            return hydrated;
+        });
 
-            if (matchCount > 0) {
-                double score = (double) matchCount / meaningfulKeywords.size();
-
-                // Boost score if section title matches
-                if (chunk.getSectionTitle() != null) {
-                    String titleLower = chunk.getSectionTitle().toLowerCase();
-                    for (String keyword : meaningfulKeywords) {
-                        if (titleLower.contains(keyword)) {
-                            score += 0.2;
-                        }
-                    }
-                }
-
-                SearchResult result = new SearchResult();
-                result.chunkId = chunk.getId();
-                result.analysisId = chunk.getAnalysisId();
-                result.content = chunk.getContent();
-                result.sectionTitle = chunk.getSectionTitle();
-                result.chunkIndex = chunk.getChunkIndex();
-                result.score = Math.min(score, 1.0);
-                result.highlightedContent = highlightMatches(chunk.getContent(), query);
-                results.add(result);
-            }
-        }
+        log.info("Semantic search: top score {}, results above threshold: {}",
+                String.format("%.3f", hits.get(0).score()), results.size());
 
         return results;
     }
 
-    // Common English stop words to exclude from highlighting
-    private static final Set<String> STOP_WORDS = Set.of(
-        "the", "and", "for", "are", "but", "not", "you", "all", "can", "her", "was", "one", "our",
-        "out", "has", "have", "had", "what", "when", "where", "who", "which", "this", "that",
-        "with", "from", "they", "been", "would", "there", "their", "will", "each", "about",
-        "how", "its", "may", "were", "some", "these", "than", "other", "into", "any", "only"
-    );
-
     /**
-     * Highlight matching terms in content (excluding stop words).
+     * Embed the query and take the top-k chunks from the vector index; empty if embedding fails.
      */
-    private String highlightMatches(String content, String query) {
-        if (content == null || query == null) {
-            return content;
+    private List<ChunkVectorSearchService.ScoredChunk> vectorTopK(ChunkVectorSearchService.Scope scope, String semanticQuery,
+                                                                  int k, Map<String, Long> timings) {
+        float[] queryEmbedding = timed(timings, "embedding", () -> embeddingService.generateQueryEmbedding(semanticQuery));
+        if (queryEmbedding == null) {
+            log.warn("Failed to generate query embedding, will use keyword search");
+            return new ArrayList<>(); // Return empty to trigger fallback
         }
+        return timed(timings, "vector", () -> vectorSearchService.topK(scope, queryEmbedding, k, MIN_SEMANTIC_SCORE));
+    }
 
-        String[] keywords = query.toLowerCase().split("\\s+");
-        String highlighted = content;
-
-        for (String keyword : keywords) {
-            // Only highlight keywords that are >= 3 chars AND not stop words
-            if (keyword.length() >= 3 && !STOP_WORDS.contains(keyword)) {
-                // Case-insensitive replacement with highlighting
-                highlighted = highlighted.replaceAll(
-                        "(?i)(" + java.util.regex.Pattern.quote(keyword) + ")",
-                        "<mark>$1</mark>"
-                );
-            }
+    private static <T> T timed(Map<String, Long> timings, String stage, Supplier<T> step) {
+        long start = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            timings.merge(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Long::sum);
         }
+    }
 
-        // Truncate to reasonable length with context
-        if (highlighted.length() > 500) {
-            int firstMatch = highlighted.indexOf("<mark>");
-            if (firstMatch > 100) {
-                highlighted = "..." + highlighted.substring(firstMatch - 50);
-            }
-            if (highlighted.length() > 500) {
-                highlighted = highlighted.substring(0, 500) + "...";
+    /**
+     * Keyword search over the BM25 index of the given documents, with synonym expansion and
+     * AND/OR/NOT support. Highlighting uses the term offsets stored in the index.
+     */
+    private List<SearchResult> keywordSearch(Long orgId, List<Long> analysisIds, String query, int maxResults) {
+        List<KeywordIndexService.KeywordHit> hits = keywordIndexService.search(orgId, analysisIds, query, maxResults);
+        if (hits.isEmpty()) {
+            log.info("No keyword matches for query: '{}'", query);
+            return new ArrayList<>();
+        }
+
+        Map<Long, DocumentChunk> chunksById = loadChunks(orgId,
+                hits.stream().map(KeywordIndexService.KeywordHit::chunkId).collect(Collectors.toList()));
+
+        List<SearchResult> results = new ArrayList<>(hits.size());
+        for (KeywordIndexService.KeywordHit hit : hits) {
+            DocumentChunk chunk = chunksById.get(hit.chunkId());
+            if (chunk != null) {
+                results.add(toSearchResult(chunk, hit.score(), hit.spans()));
             }
         }
+        return results;
+    }
 
-        return highlighted;
+    private Map<Long, DocumentChunk> loadChunks(Long orgId, List<Long> chunkIds) {
+        // SECURITY: Use tenant-filtered query
+        return chunkRepository.findByIdInAndOrganizationId(chunkIds, orgId).stream()
+                .collect(Collectors.toMap(DocumentChunk::getId, chunk -> chunk));
+    }
+
+    private SearchResult toSearchResult(DocumentChunk chunk, double score, int[] highlightSpans) {
+        SearchResult result = new SearchResult();
+        result.chunkId = chunk.getId();
+        result.analysisId = chunk.getAnalysisId();
+        result.content = chunk.getContent();
+        result.sectionTitle = chunk.getSectionTitle();
+        result.chunkIndex = chunk.getChunkIndex();
+        result.score = score;
+        result.similarity = score;
+        result.highlightedContent = KeywordIndexService.highlight(chunk.getContent(), highlightSpans);
+        return result;
     }
 
     /**
@@ -451,32 +505,46 @@ public class SemanticSearchService {
 
     /**
      * Index a document (chunk + generate embeddings).
+     * Resumes from existing chunks when a previous run embedded only part of the document.
      */
     public void indexDocument(Long analysisId) {
         log.info("Indexing document: analysisId={}", analysisId);
         Long orgId = getRequiredOrganizationId();
 
-        // SECURITY: Use tenant-filtered query to check existing chunks
-        List<DocumentChunk> existingChunks = chunkRepository.findByAnalysisIdAndOrganizationIdOrderByChunkIndexAsc(analysisId, orgId);
-        boolean hasEmbeddings = existingChunks.stream()
-                .anyMatch(chunk -> chunk.getEmbedding() != null && !chunk.getEmbedding().isEmpty());
+        // SECURITY: Use tenant-filtered counts to check existing chunks
+        long chunkCount = chunkRepository.countByAnalysisIdAndOrganizationId(analysisId, orgId);
+        long embeddedCount = chunkCount == 0 ? 0 : chunkRepository.countEmbeddedByAnalysisIdAndOrganizationId(analysisId, orgId);
 
-        if (!existingChunks.isEmpty() && hasEmbeddings) {
-            log.info("Document {} already has {} chunks with embeddings - using cached version",
-                    analysisId, existingChunks.size());
+        if (chunkCount > 0 && (embeddedCount == chunkCount || !embeddingService.isAvailable())) {
+            log.info("Document {} already has {} chunks ({} with embeddings) - using cached version",
+                    analysisId, chunkCount, embeddedCount);
             return; // Use cached chunks and embeddings
         }
 
-        // No cached embeddings - chunk and generate
-        log.info("No cached embeddings for document {} - generating new ones", analysisId);
-        chunkingService.chunkDocument(analysisId);
+        if (chunkCount == 0) {
+            log.info("No cached chunks for document {} - chunking", analysisId);
+            chunkingService.chunkDocument(analysisId);
+        } else {
+            log.info("Resuming embeddings for document {}: {}/{} chunks already embedded",
+                    analysisId, embeddedCount, chunkCount);
+        }
 
         // Generate embeddings if API is available
         if (embeddingService.isAvailable()) {
             embeddingService.generateEmbeddingsForDocument(analysisId);
+            EmbeddingService.EmbeddingProgress progress = embeddingService.getProgress(analysisId);
+            log.info("Indexed document {}: {}% embedded ({}/{} chunks, {} failed)", analysisId,
+                    progress.percentComplete(), progress.embeddedChunks(), progress.totalChunks(), progress.failedChunks());
         }
     }
 
+    /**
+     * How far embedding generation has progressed for a document.
+     */
+    public EmbeddingService.EmbeddingProgress getIndexingProgress(Long analysisId) {
+        return embeddingService.getProgress(analysisId);
+    }
+
     /**
      * Force re-index a document (delete cached chunks and regenerate).
      * Use this when document content has changed.
@@ -510,7 +578,7 @@ public class SemanticSearchService {
             indexDocument(analysisId);
 
             // Update collection ID for chunks
-            chunkRepository.updateCollectionIdByAnalysisId(collectionId, analysisId);
+            assignChunksToCollection(orgId, collectionId, analysisId);
         }
     }
 
@@ -519,7 +587,13 @@ public class SemanticSearchService {
      */
     public void updateChunksCollectionId(Long collectionId, Long analysisId) {
         log.info("Updating collectionId={} for all chunks of analysisId={}", collectionId, analysisId);
-        chunkRepository.updateCollectionIdByAnalysisId(collectionId, analysisId);
+        assignChunksToCollection(getRequiredOrganizationId(), collectionId, analysisId);
         log.info("Collection ID update complete for analysisId={}", analysisId);
     }
+
+    private void assignChunksToCollection(Long orgId, Long collectionId, Long analysisId) {
+        chunkRepository.updateCollectionIdByAnalysisId(collectionId, analysisId);
+        eventPublisher.publishEvent(new DocumentChunksChangedEvent(this, orgId, analysisId, collectionId,
+                DocumentChunksChangedEvent.Change.COLLECTION_ASSIGNED));
+    }
 }
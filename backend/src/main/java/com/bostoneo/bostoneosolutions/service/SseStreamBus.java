@@ -0,0 +1,727 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.connection.stream.StringRecord;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cluster-wide SSE fan-out with a resumable event log.
+ *
+ * Every event is appended to a Redis stream per stream key (e.g. a draft conversation or research
+ * session), capped at {@code app.sse.replay-max-events} entries, and announced on {@link #EVENTS_CHANNEL}
+ * so whichever node holds the browser's connection delivers it. The stream entry id is sent as the
+ * SSE {@code id}; a reconnecting client's {@code Last-Event-ID} replays everything after it from the
+ * stream, so a dropped connection resumes without rerunning the generation and no sticky sessions
+ * are needed behind the ALB.
+ *
+ * Publishing never waits on Redis or on clients:
+ * - Events go to an outbox drained by one {@code sse-publish} thread, which appends them to their
+ *   streams in order and announces each batch with one pipelined round trip
+ * - Every {@code app.sse.flush-interval-ms} the {@code sse-writer} thread coalesces text chunks from
+ *   {@link #publishText} (model tokens) into one frame per stream, or sooner once
+ *   {@code app.sse.max-frame-chars} have built up, and hands each emitter with work to the
+ *   {@code sse-drain} pool
+ * - An emitter is drained by one task at a time; its queued frames are written in a single batch with
+ *   one flush, so a slow client only holds up its own drain
+ * - Emitters idle for 20 seconds get a ": ping" comment, which resets the AWS ALB idle timeout
+ *
+ * Each emitter's queue holds at most {@code app.sse.max-queued-frames}. A client that falls further
+ * behind is disconnected and resumes from the stream with Last-Event-ID; if Redis is down (no
+ * replay log), its oldest frames are dropped instead.
+ *
+ * Terminal events (complete/error) close the emitter on whichever node serves it; the stream is
+ * then kept for {@code app.sse.completed-retention-minutes} so a late reconnect still gets the result.
+ *
+ * If Redis is unavailable, events are delivered to emitters on this node only, without ids.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SseStreamBus {
+
+    private static final String EVENTS_CHANNEL = "sse:stream:events";
+    private static final String STREAM_KEY_PREFIX = "sse:stream:";
+    private static final String OWNER_KEY_PREFIX = "sse:owner:";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_DATA = "data";
+    private static final String FIELD_TERMINAL = "terminal";
+    private static final int REPLAY_BATCH_SIZE = 500;
+    private static final int PUBLISH_BATCH_SIZE = 256;
+    private static final long HEARTBEAT_NANOS = TimeUnit.SECONDS.toNanos(20);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.sse.replay-max-events:5000}")
+    private long replayMaxEvents;
+
+    @Value("${app.sse.stream-ttl-minutes:30}")
+    private long streamTtlMinutes;
+
+    @Value("${app.sse.completed-retention-minutes:5}")
+    private long completedRetentionMinutes;
+
+    @Value("${app.sse.flush-interval-ms:40}")
+    private long flushIntervalMs;
+
+    @Value("${app.sse.max-frame-chars:2048}")
+    private int maxFrameChars;
+
+    @Value("${app.sse.max-queued-frames:256}")
+    private int maxQueuedFrames;
+
+    @Value("${app.sse.drain-threads:4}")
+    private int drainThreads;
+
+    private record StreamEvent(String origin, String streamKey, String id, String name, String data, boolean terminal) {}
+
+    private record PendingEvent(String streamKey, String name, String data, boolean terminal) {}
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+
+    // Emitters connected to this node, one per stream key
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+    // Text not yet published, per stream key
+    private final Map<String, TextBuffer> textBuffers = new ConcurrentHashMap<>();
+
+    // Stream keys whose TTL this node refreshed recently, so EXPIRE is not sent with every event
+    private final Cache<String, Boolean> ttlRefreshed = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .maximumSize(10_000)
+            .build();
+
+    // Stream owners claimed on this node while Redis is unavailable
+    private final Cache<String, String> localOwners = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .maximumSize(10_000)
+            .build();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean redisAvailable = new AtomicBoolean(true);
+
+    private final MessageListener eventListener = this::onEventMessage;
+
+    // Events waiting to be appended and announced, in publish order
+    private final Queue<PendingEvent> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean outboxScheduled = new AtomicBoolean();
+
+    private final ExecutorService publisher =
+            Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "sse-publish");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private ExecutorService drainers;
+
+    private final ScheduledExecutorService writer =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "sse-writer");
+                t.setDaemon(true);
+                return t;
+            });
+
+    @PostConstruct
+    void start() {
+        try {
+            listenerContainer.addMessageListener(eventListener, new ChannelTopic(EVENTS_CHANNEL));
+        } catch (Exception e) {
+            log.warn("Could not subscribe to SSE stream events - streams will only reach emitters on this node: {}", e.getMessage());
+        }
+        Gauge.builder("sse.queue.depth", subscribers, map -> map.values().stream().mapToInt(Subscriber::queued).sum())
+                .description("Frames queued for SSE clients on this node")
+                .register(meterRegistry);
+        Gauge.builder("sse.emitters", subscribers, Map::size)
+                .description("SSE emitters connected to this node")
+                .register(meterRegistry);
+        AtomicInteger threadCount = new AtomicInteger();
+        drainers = Executors.newFixedThreadPool(Math.max(1, drainThreads), r -> {
+            Thread t = new Thread(r, "sse-drain-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        writer.scheduleWithFixedDelay(this::writeAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        writer.shutdownNow();
+        publisher.shutdownNow();
+        if (drainers != null) {
+            drainers.shutdownNow();
+        }
+        try {
+            listenerContainer.removeMessageListener(eventListener);
+        } catch (Exception e) {
+            log.debug("Failed to remove SSE stream listener: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * SECURITY: Bind {@code streamKey} to {@code owner} (e.g. "orgId:userId") or confirm an existing
+     * binding; false when another owner already holds the stream. Use for stream keys a client can
+     * choose, before subscribing and before publishing, so nobody else can attach to or replay it.
+     * The binding lives at least as long as the stream. Without Redis it is checked on this node only.
+     */
+    public boolean claimOwnership(String streamKey, String owner) {
+        String ownerKey = OWNER_KEY_PREFIX + streamKey;
+        try {
+            Boolean claimed = redisTemplate.opsForValue().setIfAbsent(ownerKey, owner, Duration.ofMinutes(streamTtlMinutes));
+            return Boolean.TRUE.equals(claimed) || owner.equals(redisTemplate.opsForValue().get(ownerKey));
+        } catch (Exception e) {
+            log.debug("Could not claim SSE stream {} in Redis, checking locally: {}", streamKey, e.getMessage());
+            String existing = localOwners.asMap().putIfAbsent(streamKey, owner);
+            return existing == null || existing.equals(owner);
+        }
+    }
+
+    /**
+     * Serve {@code streamKey} on {@code emitter}. Replaces any emitter this node already holds for the key.
+     * With a {@code lastEventId}, events after it are replayed from the stream before live events.
+     *
+     * @param onClose called once when the emitter completes, times out or fails
+     */
+    public void subscribe(String streamKey, SseEmitter emitter, String lastEventId, Runnable onClose) {
+        Subscriber subscriber = new Subscriber(streamKey, emitter, onClose);
+        emitter.onCompletion(subscriber::closed);
+        emitter.onTimeout(() -> {
+            log.warn("SSE timeout for stream {}", streamKey);
+            subscriber.closed();
+        });
+        emitter.onError(ex -> {
+            log.debug("SSE error for stream {}: {}", streamKey, ex.getMessage());
+            subscriber.closed();
+        });
+
+        // Live events queue up while the replay is sent and are written after it, skipping ids already replayed
+        synchronized (subscriber.sendLock) {
+            Subscriber previous = subscribers.put(streamKey, subscriber);
+            if (previous != null) {
+                previous.complete();
+            }
+            subscriber.heartbeat();
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                replay(subscriber, lastEventId.trim());
+            }
+        }
+    }
+
+    /**
+     * Append an event to the stream and deliver it to the emitter for {@code streamKey}, on whichever node holds it.
+     * Text buffered by {@link #publishText} for the stream is published first. Terminal events close the emitter after delivery.
+     * Returns once the event is queued; the Redis writes happen on the publisher thread.
+     */
+    public void publish(String streamKey, String eventName, Object payload, boolean terminal) {
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize SSE event {} for stream {}: {}", eventName, streamKey, e.getMessage());
+            return;
+        }
+
+        TextBuffer buffer = terminal ? textBuffers.remove(streamKey) : textBuffers.get(streamKey);
+        if (buffer == null) {
+            publishData(streamKey, eventName, data, terminal);
+            return;
+        }
+        synchronized (buffer.publishLock) {
+            flush(buffer);
+            publishData(streamKey, eventName, data, terminal);
+        }
+    }
+
+    /**
+     * Buffer a text chunk to be published as {@code {"text": ...}} under {@code eventName}. Consecutive
+     * chunks are merged into one frame per flush interval. Never blocks on I/O, so it is safe to call
+     * from a reactive event loop. A stream buffers text for one event name.
+     */
+    public void publishText(String streamKey, String eventName, String text) {
+        if (text == null || text.isEmpty()) return;
+        TextBuffer buffer = textBuffers.computeIfAbsent(streamKey, key -> new TextBuffer(key, eventName));
+        if (buffer.add(text) && buffer.flushRequested.compareAndSet(false, true)) {
+            try {
+                writer.execute(() -> {
+                    buffer.flushRequested.set(false);
+                    flush(buffer);
+                });
+            } catch (RejectedExecutionException e) {
+                buffer.flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * @return true if an emitter for {@code streamKey} is connected to this node
+     */
+    public boolean hasLocalSubscriber(String streamKey) {
+        return subscribers.containsKey(streamKey);
+    }
+
+    /**
+     * Writer tick: publish coalesced text, then schedule a drain of each emitter's queued frames (or a heartbeat).
+     */
+    private void writeAll() {
+        try {
+            long idleCutoff = System.nanoTime() - TimeUnit.MINUTES.toNanos(streamTtlMinutes);
+            for (TextBuffer buffer : textBuffers.values()) {
+                flush(buffer);
+                if (buffer.lastAppendNanos < idleCutoff) {
+                    textBuffers.remove(buffer.streamKey, buffer);
+                }
+            }
+            for (Subscriber subscriber : subscribers.values()) {
+                subscriber.scheduleDrain();
+            }
+        } catch (Throwable e) {
+            // An exception would cancel the scheduled task
+            log.error("SSE writer tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void flush(TextBuffer buffer) {
+        synchronized (buffer.publishLock) {
+            String text = buffer.take();
+            if (text == null) return;
+            try {
+                publishData(buffer.streamKey, buffer.eventName, objectMapper.writeValueAsString(Map.of("text", text)), false);
+            } catch (JsonProcessingException e) {
+                log.error("Could not serialize SSE text frame for stream {}: {}", buffer.streamKey, e.getMessage());
+            }
+        }
+    }
+
+    private void publishData(String streamKey, String eventName, String data, boolean terminal) {
+        counter("sse.frames.published", streamKey).increment();
+        outbox.add(new PendingEvent(streamKey, eventName, data, terminal));
+        schedulePublish();
+    }
+
+    private void schedulePublish() {
+        if (!outboxScheduled.compareAndSet(false, true)) return;
+        try {
+            publisher.execute(this::publishOutbox);
+        } catch (RejectedExecutionException e) {
+            outboxScheduled.set(false);
+        }
+    }
+
+    /**
+     * Publisher thread: append queued events to their streams in order, deliver them locally with their
+     * ids, and announce each batch to the other nodes in one pipelined round trip.
+     */
+    private void publishOutbox() {
+        try {
+            List<String> announcements = new ArrayList<>();
+            PendingEvent pending;
+            while ((pending = outbox.poll()) != null) {
+                String id = append(pending.streamKey(), pending.name(), pending.data(), pending.terminal());
+                StreamEvent event = new StreamEvent(nodeId, pending.streamKey(), id, pending.name(), pending.data(), pending.terminal());
+                deliverLocal(event);
+                if (id != null) {
+                    try {
+                        announcements.add(objectMapper.writeValueAsString(event));
+                    } catch (JsonProcessingException e) {
+                        log.error("Could not serialize SSE event {} for stream {}: {}", id, event.streamKey(), e.getMessage());
+                    }
+                }
+                if (announcements.size() >= PUBLISH_BATCH_SIZE) {
+                    announce(announcements);
+                    announcements.clear();
+                }
+            }
+            announce(announcements);
+        } catch (Throwable e) {
+            log.error("SSE publish failed: {}", e.getMessage(), e);
+        } finally {
+            outboxScheduled.set(false);
+            // An event queued after the last poll but before the flag was cleared
+            if (!outbox.isEmpty()) {
+                schedulePublish();
+            }
+        }
+    }
+
+    private void announce(List<String> announcements) {
+        if (announcements.isEmpty()) return;
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                for (String announcement : announcements) {
+                    conn.publish(EVENTS_CHANNEL, announcement);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // Remote subscribers recover the events from the stream when they reconnect
+            log.debug("Could not announce {} SSE events: {}", announcements.size(), e.getMessage());
+        }
+    }
+
+    private String append(String streamKey, String eventName, String data, boolean terminal) {
+        String redisKey = STREAM_KEY_PREFIX + streamKey;
+        try {
+            StringRecord record = StreamRecords.string(Map.of(
+                    FIELD_NAME, eventName,
+                    FIELD_DATA, data,
+                    FIELD_TERMINAL, Boolean.toString(terminal))).withStreamKey(redisKey);
+            // XADD with MAXLEN ~ keeps the replay buffer bounded without a separate trim round trip
+            RecordId recordId = redisTemplate.execute((RedisCallback<RecordId>) connection ->
+                    ((StringRedisConnection) connection).xAdd(record,
+                            XAddOptions.maxlen(replayMaxEvents).approximateTrimming(true)));
+
+            if (terminal) {
+                redisTemplate.expire(redisKey, Duration.ofMinutes(completedRetentionMinutes));
+                ttlRefreshed.invalidate(streamKey);
+            } else if (ttlRefreshed.asMap().putIfAbsent(streamKey, Boolean.TRUE) == null) {
+                redisTemplate.expire(redisKey, Duration.ofMinutes(streamTtlMinutes));
+                // A claimed owner must outlive the stream, or someone else could claim it and replay
+                redisTemplate.expire(OWNER_KEY_PREFIX + streamKey, Duration.ofMinutes(streamTtlMinutes));
+            }
+
+            if (redisAvailable.compareAndSet(false, true)) {
+                log.info("SSE stream bus reconnected to Redis");
+            }
+            return recordId != null ? recordId.getValue() : null;
+        } catch (Exception e) {
+            if (redisAvailable.compareAndSet(true, false)) {
+                log.warn("SSE stream bus cannot reach Redis - delivering to local emitters only: {}", e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Caller holds {@code subscriber.sendLock}.
+     */
+    private void replay(Subscriber subscriber, String lastEventId) {
+        String redisKey = STREAM_KEY_PREFIX + subscriber.streamKey;
+        String from = lastEventId;
+        int replayed = 0;
+        subscriber.lastDeliveredId = maxId(subscriber.lastDeliveredId, lastEventId);
+        try {
+            while (!subscriber.closed) {
+                // The range is inclusive; the subscriber skips ids it has already sent
+                List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream()
+                        .range(redisKey, Range.rightUnbounded(Range.Bound.inclusive(from)),
+                                Limit.limit().count(REPLAY_BATCH_SIZE));
+                if (records == null || records.isEmpty()) break;
+
+                List<StreamEvent> events = new ArrayList<>(records.size());
+                for (MapRecord<String, Object, Object> record : records) {
+                    Map<Object, Object> fields = record.getValue();
+                    events.add(new StreamEvent(nodeId, subscriber.streamKey, record.getId().getValue(),
+                            String.valueOf(fields.get(FIELD_NAME)), String.valueOf(fields.get(FIELD_DATA)),
+                            Boolean.parseBoolean(String.valueOf(fields.get(FIELD_TERMINAL)))));
+                }
+                replayed += subscriber.send(events);
+                if (records.size() < REPLAY_BATCH_SIZE) break;
+                from = records.get(records.size() - 1).getId().getValue();
+            }
+            log.info("Replayed {} SSE events for stream {} after {}", replayed, subscriber.streamKey, lastEventId);
+        } catch (Exception e) {
+            log.warn("Could not replay SSE stream {} after {}: {}", subscriber.streamKey, lastEventId, e.getMessage());
+        }
+    }
+
+    private void onEventMessage(Message message, byte[] pattern) {
+        StreamEvent event;
+        try {
+            event = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), StreamEvent.class);
+        } catch (Exception e) {
+            log.warn("Ignoring malformed SSE stream event: {}", e.getMessage());
+            return;
+        }
+        // This node already queued its own events when publishing
+        if (!nodeId.equals(event.origin())) {
+            deliverLocal(event);
+        }
+    }
+
+    private void deliverLocal(StreamEvent event) {
+        Subscriber subscriber = subscribers.get(event.streamKey());
+        if (subscriber != null) {
+            subscriber.enqueue(event);
+        }
+    }
+
+    private Counter counter(String name, String streamKey) {
+        int separator = streamKey.indexOf(':');
+        String type = separator > 0 ? streamKey.substring(0, separator) : "other";
+        return counters.computeIfAbsent(name + "|" + type, key -> Counter.builder(name)
+                .tag("type", type)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Compare Redis stream ids ("millis-sequence") numerically; null sorts first.
+     */
+    private static int compareIds(String a, String b) {
+        if (a == null || b == null) return a == null ? (b == null ? 0 : -1) : 1;
+        int dashA = a.indexOf('-');
+        int dashB = b.indexOf('-');
+        try {
+            long msA = Long.parseLong(dashA < 0 ? a : a.substring(0, dashA));
+            long msB = Long.parseLong(dashB < 0 ? b : b.substring(0, dashB));
+            if (msA != msB) return Long.compare(msA, msB);
+            long seqA = dashA < 0 ? 0 : Long.parseLong(a.substring(dashA + 1));
+            long seqB = dashB < 0 ? 0 : Long.parseLong(b.substring(dashB + 1));
+            return Long.compare(seqA, seqB);
+        } catch (NumberFormatException e) {
+            return a.compareTo(b);
+        }
+    }
+
+    private static String maxId(String a, String b) {
+        return compareIds(a, b) >= 0 ? a : b;
+    }
+
+    private final class TextBuffer {
+        final String streamKey;
+        final String eventName;
+        // Orders this stream's text frames before the events published after them
+        final Object publishLock = new Object();
+        final AtomicBoolean flushRequested = new AtomicBoolean();
+        private final StringBuilder pending = new StringBuilder();
+        volatile long lastAppendNanos = System.nanoTime();
+
+        TextBuffer(String streamKey, String eventName) {
+            this.streamKey = streamKey;
+            this.eventName = eventName;
+        }
+
+        /**
+         * @return true once the pending text has reached a full frame
+         */
+        synchronized boolean add(String text) {
+            pending.append(text);
+            lastAppendNanos = System.nanoTime();
+            return pending.length() >= maxFrameChars;
+        }
+
+        synchronized String take() {
+            if (pending.isEmpty()) return null;
+            String text = pending.toString();
+            pending.setLength(0);
+            return text;
+        }
+    }
+
+    private final class Subscriber {
+        final String streamKey;
+        final SseEmitter emitter;
+        final Runnable onClose;
+        final AtomicBoolean closeHandled = new AtomicBoolean();
+        final AtomicBoolean draining = new AtomicBoolean();
+        // Serializes writes to the emitter; the queue itself is guarded by this subscriber's monitor
+        final Object sendLock = new Object();
+        private final ArrayDeque<StreamEvent> queue = new ArrayDeque<>();
+        volatile boolean closed;
+        String lastDeliveredId;
+        long lastSendNanos = System.nanoTime();
+
+        Subscriber(String streamKey, SseEmitter emitter, Runnable onClose) {
+            this.streamKey = streamKey;
+            this.emitter = emitter;
+            this.onClose = onClose;
+        }
+
+        synchronized int queued() {
+            return queue.size();
+        }
+
+        /**
+         * Queue an event for the next drain. Never blocks on the client.
+         */
+        void enqueue(StreamEvent event) {
+            boolean overflow = false;
+            synchronized (this) {
+                if (closed) return;
+                queue.addLast(event);
+                if (queue.size() > maxQueuedFrames) {
+                    if (event.id() != null) {
+                        overflow = true;
+                        queue.clear();
+                    } else {
+                        // No replay log to resume from: drop the oldest frames
+                        while (queue.size() > maxQueuedFrames) {
+                            queue.pollFirst();
+                            counter("sse.frames.dropped", streamKey).increment();
+                        }
+                    }
+                }
+            }
+            if (overflow) {
+                log.info("SSE client for stream {} fell {} frames behind - disconnecting so it resumes from the stream",
+                        streamKey, maxQueuedFrames);
+                counter("sse.slow.client.disconnects", streamKey).increment();
+                complete();
+            }
+        }
+
+        /**
+         * Queue a drain on the drain pool unless one is already queued or running for this emitter.
+         */
+        void scheduleDrain() {
+            if (closed || !draining.compareAndSet(false, true)) return;
+            try {
+                drainers.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+
+        /**
+         * Send everything queued in one batch, or a heartbeat if the connection has been idle.
+         */
+        private void drain() {
+            try {
+                drainQueued();
+            } catch (Throwable e) {
+                log.error("SSE drain failed for stream {}: {}", streamKey, e.getMessage(), e);
+            } finally {
+                draining.set(false);
+            }
+        }
+
+        private void drainQueued() {
+            List<StreamEvent> batch = null;
+            synchronized (this) {
+                if (!queue.isEmpty()) {
+                    batch = new ArrayList<>(queue);
+                    queue.clear();
+                }
+            }
+            synchronized (sendLock) {
+                if (batch != null) {
+                    send(batch);
+                } else if (System.nanoTime() - lastSendNanos >= HEARTBEAT_NANOS) {
+                    heartbeat();
+                }
+            }
+        }
+
+        /**
+         * Write events in id order with a single flush, skipping ids already sent. Caller holds {@link #sendLock}.
+         *
+         * @return number of events written
+         */
+        int send(List<StreamEvent> events) {
+            if (closed) return 0;
+            Set<ResponseBodyEmitter.DataWithMediaType> items = new LinkedHashSet<>();
+            int frames = 0;
+            boolean terminal = false;
+            for (StreamEvent event : events) {
+                if (event.id() != null) {
+                    if (compareIds(event.id(), lastDeliveredId) <= 0) continue;
+                    lastDeliveredId = event.id();
+                }
+                SseEmitter.SseEventBuilder builder = SseEmitter.event().name(event.name()).data(event.data());
+                if (event.id() != null) {
+                    builder.id(event.id());
+                }
+                items.addAll(builder.build());
+                frames++;
+                if (event.terminal()) {
+                    terminal = true;
+                    break;
+                }
+            }
+            if (items.isEmpty()) return 0;
+            try {
+                emitter.send(items);
+                lastSendNanos = System.nanoTime();
+                counter("sse.frames.sent", streamKey).increment(frames);
+            } catch (IOException | IllegalStateException e) {
+                // Don't remove here — the emitter's onError/onCompletion callbacks handle cleanup
+                log.debug("Failed to send SSE events for stream {}: {}", streamKey, e.getMessage());
+            }
+            if (terminal) {
+                complete();
+            }
+            return frames;
+        }
+
+        /**
+         * Send an SSE comment line (": ping"); invisible to the app but resets the ALB idle timer.
+         * Caller holds {@link #sendLock}.
+         */
+        void heartbeat() {
+            if (closed) return;
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+                lastSendNanos = System.nanoTime();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Failed to send heartbeat for stream {}: {}", streamKey, e.getMessage());
+            }
+        }
+
+        void complete() {
+            try {
+                emitter.complete();
+            } catch (Exception ignored) {
+            }
+            closed();
+        }
+
+        void closed() {
+            closed = true;
+            subscribers.remove(streamKey, this);
+            if (closeHandled.compareAndSet(false, true) && onClose != null) {
+                onClose.run();
+            }
+        }
+    }
+}
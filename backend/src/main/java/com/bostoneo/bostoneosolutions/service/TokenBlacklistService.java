@@ -1,13 +1,49 @@
 package com.bostoneo.bostoneosolutions.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * Token revocation checks backed by Redis, with a per-node near-cache in front.
+ *
+ * Hot path ({@link #checkRequest}) resolves locally whenever it can:
+ * - a Bloom filter of blacklisted token hashes answers "definitely not revoked" for the token check
+ * - short-lived negative caches remember recent clean lookups for tokens and users
+ * On a miss, the remaining token/user checks go to Redis together in one pipelined round trip.
+ *
+ * Every node subscribes to {@link #INVALIDATION_CHANNEL}; blacklist writes publish there so other
+ * nodes update their Bloom filter and drop stale negative entries immediately. The negative caches
+ * expire after {@link #NEGATIVE_CACHE_TTL}, which bounds staleness if a pub/sub message is lost and
+ * guarantees Redis is still consulted often enough to notice an outage (fail-closed, see below).
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -15,8 +51,28 @@ public class TokenBlacklistService {
 
     private static final String BLACKLIST_PREFIX = "token:blacklist:";
     private static final String USER_BLACKLIST_PREFIX = "token:user-blacklist:";
+    private static final String INVALIDATION_CHANNEL = "token:blacklist:events";
+    private static final String TOKEN_EVENT = "T:";
+    private static final String USER_EVENT = "U:";
+
+    private static final Duration NEGATIVE_CACHE_TTL = Duration.ofSeconds(5);
+    private static final int NEGATIVE_CACHE_SIZE = 20_000;
+    private static final int BLOOM_EXPECTED_TOKENS = 100_000;
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.001;
+    private static final long NO_USER_BLACKLIST = 0L;
+
+    /** Outcome of the combined per-request check. */
+    public enum BlacklistStatus {
+        /** Neither the token nor the user's sessions are revoked. */
+        CLEAR,
+        /** This specific token was revoked (logout) — or Redis is down and we fail closed. */
+        TOKEN_REVOKED,
+        /** All of the user's tokens issued before a cutoff were revoked (password change, forced logout). */
+        USER_REVOKED
+    }
 
     private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
 
     // Track whether Redis was ever successfully connected
     // If Redis was never available (local dev), fail open; if it went down (production outage), fail closed
@@ -28,13 +84,55 @@ public class TokenBlacklistService {
     private static final int MAX_BLACKLIST_SIZE = 500;
     private static final ConcurrentHashMap<Long, Long> memoryBlacklist = new ConcurrentHashMap<>();
 
+    /** Token hashes recently confirmed NOT blacklisted. */
+    private final Cache<String, Boolean> cleanTokens = Caffeine.newBuilder()
+            .maximumSize(NEGATIVE_CACHE_SIZE)
+            .expireAfterWrite(NEGATIVE_CACHE_TTL)
+            .build();
+
+    /** userId → user-blacklist cutoff millis from Redis ({@link #NO_USER_BLACKLIST} when none). */
+    private final Cache<Long, Long> userCutoffs = Caffeine.newBuilder()
+            .maximumSize(NEGATIVE_CACHE_SIZE)
+            .expireAfterWrite(NEGATIVE_CACHE_TTL)
+            .build();
+
+    /** Only trusted once built from a full SCAN while the invalidation channel is subscribed. */
+    private volatile BloomFilter bloom = new BloomFilter(BLOOM_EXPECTED_TOKENS, BLOOM_FALSE_POSITIVE_RATE);
+    private volatile BloomFilter rebuilding;
+    private volatile boolean bloomReady = false;
+    private final AtomicBoolean rebuildInProgress = new AtomicBoolean(false);
+
+    private final InvalidationListener invalidationListener = new InvalidationListener();
+
+    @PostConstruct
+    void subscribe() {
+        try {
+            listenerContainer.addMessageListener(invalidationListener, new ChannelTopic(INVALIDATION_CHANNEL));
+        } catch (Exception e) {
+            log.warn("Could not subscribe to token blacklist invalidations — near-cache limited to {} TTL: {}",
+                NEGATIVE_CACHE_TTL, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        try {
+            listenerContainer.removeMessageListener(invalidationListener);
+        } catch (Exception e) {
+            log.debug("Failed to remove token blacklist listener: {}", e.getMessage());
+        }
+    }
+
     /**
      * Blacklist a specific token (e.g., on logout)
      */
     public void blacklistToken(String token, Duration ttl) {
+        String tokenHash = hashToken(token);
+        applyTokenRevocation(tokenHash);
         try {
             redisTemplate.opsForValue().set(BLACKLIST_PREFIX + token, "1", ttl);
             redisEverConnected = true;
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, TOKEN_EVENT + tokenHash);
             log.debug("Token blacklisted, expires in {}", ttl);
         } catch (Exception e) {
             log.error("Failed to blacklist token: {}", e.getMessage());
@@ -47,23 +145,69 @@ public class TokenBlacklistService {
     public void blacklistAllUserTokens(Long userId) {
         long now = System.currentTimeMillis();
         // Always write to in-memory fallback (works without Redis)
-        // Evict oldest entries if at capacity to prevent unbounded growth
-        if (memoryBlacklist.size() >= MAX_BLACKLIST_SIZE) {
-            memoryBlacklist.entrySet().stream()
-                .min(java.util.Map.Entry.comparingByValue())
-                .ifPresent(oldest -> memoryBlacklist.remove(oldest.getKey()));
-        }
-        memoryBlacklist.put(userId, now);
+        applyUserRevocation(userId, now);
         // Also try Redis for cross-instance consistency
         try {
             redisTemplate.opsForValue().set(USER_BLACKLIST_PREFIX + userId, String.valueOf(now), Duration.ofHours(8));
             redisEverConnected = true;
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, USER_EVENT + userId + ":" + now);
             log.info("All tokens blacklisted for user {} (Redis + memory)", userId);
         } catch (Exception e) {
             log.warn("Redis unavailable — tokens blacklisted in memory only for user {}", userId);
         }
     }
 
+    /**
+     * Combined token + user revocation check for the authorization filter.
+     * Resolves from the near-cache when possible, otherwise issues a single pipelined Redis call.
+     * Preserves the fail-closed/fail-open semantics of {@link #isTokenBlacklisted}: a Redis outage
+     * after Redis was seen healthy reports {@link BlacklistStatus#TOKEN_REVOKED}.
+     */
+    public BlacklistStatus checkRequest(String token, Long userId, long tokenIssuedAtMillis) {
+        String tokenHash = hashToken(token);
+        boolean tokenKnownClean = cleanTokens.getIfPresent(tokenHash) != null
+            || (bloomReady && !bloom.mightContain(tokenHash));
+        Long cachedCutoff = userCutoffs.getIfPresent(userId);
+
+        if (tokenKnownClean && cachedCutoff != null) {
+            return isUserRevoked(userId, tokenIssuedAtMillis, cachedCutoff)
+                ? BlacklistStatus.USER_REVOKED : BlacklistStatus.CLEAR;
+        }
+
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                if (!tokenKnownClean) conn.exists(BLACKLIST_PREFIX + token);
+                if (cachedCutoff == null) conn.get(USER_BLACKLIST_PREFIX + userId);
+                return null;
+            });
+            redisEverConnected = true;
+
+            int i = 0;
+            if (!tokenKnownClean) {
+                Object exists = results.get(i++);
+                boolean revoked = exists instanceof Boolean b ? b : exists instanceof Long l && l > 0;
+                if (revoked) {
+                    return BlacklistStatus.TOKEN_REVOKED;
+                }
+                cleanTokens.put(tokenHash, Boolean.TRUE);
+            }
+            long cutoff = cachedCutoff != null ? cachedCutoff : parseCutoff(results.get(i));
+            userCutoffs.put(userId, cutoff);
+            return isUserRevoked(userId, tokenIssuedAtMillis, cutoff)
+                ? BlacklistStatus.USER_REVOKED : BlacklistStatus.CLEAR;
+        } catch (Exception e) {
+            if (redisEverConnected) {
+                log.error("SECURITY: Redis went down — failing closed (denying access): {}", e.getMessage());
+                markRedisUnhealthy();
+                return BlacklistStatus.TOKEN_REVOKED;
+            }
+            log.trace("Redis not available (not started) — skipping blacklist check: {}", e.getMessage());
+            return isUserRevoked(userId, tokenIssuedAtMillis, NO_USER_BLACKLIST)
+                ? BlacklistStatus.USER_REVOKED : BlacklistStatus.CLEAR;
+        }
+    }
+
     /**
      * SECURITY: If Redis was previously working and went down (production outage), fail closed.
      * If Redis was never available (local dev without Redis), fail open to avoid blocking all auth.
@@ -76,6 +220,7 @@ public class TokenBlacklistService {
         } catch (Exception e) {
             if (redisEverConnected) {
                 log.error("SECURITY: Redis went down — failing closed (denying access): {}", e.getMessage());
+                markRedisUnhealthy();
                 return true;
             }
             log.trace("Redis not available (not started) — skipping blacklist check: {}", e.getMessage());
@@ -101,10 +246,179 @@ public class TokenBlacklistService {
         } catch (Exception e) {
             if (redisEverConnected) {
                 log.error("SECURITY: Redis went down — failing closed (denying access): {}", e.getMessage());
+                markRedisUnhealthy();
                 return true;
             }
             // Redis never connected — memory check already done above
             return false;
         }
     }
+
+    /**
+     * Rebuild the Bloom filter from Redis so entries for expired tokens stop contributing false positives.
+     */
+    @Scheduled(fixedDelay = 30 * 60 * 1000, initialDelay = 30 * 60 * 1000)
+    public void refreshBloomFilter() {
+        if (bloomReady) {
+            rebuildBloomFilter();
+        }
+    }
+
+    private boolean isUserRevoked(Long userId, long tokenIssuedAtMillis, long redisCutoff) {
+        Long memoryTimestamp = memoryBlacklist.get(userId);
+        if (memoryTimestamp != null && tokenIssuedAtMillis < memoryTimestamp) {
+            return true;
+        }
+        return redisCutoff != NO_USER_BLACKLIST && tokenIssuedAtMillis < redisCutoff;
+    }
+
+    private static long parseCutoff(Object value) {
+        if (value == null) return NO_USER_BLACKLIST;
+        return Long.parseLong(value.toString());
+    }
+
+    private void applyTokenRevocation(String tokenHash) {
+        bloom.put(tokenHash);
+        BloomFilter pending = rebuilding;
+        if (pending != null) pending.put(tokenHash);
+        cleanTokens.invalidate(tokenHash);
+    }
+
+    private void applyUserRevocation(Long userId, long cutoffMillis) {
+        // Evict oldest entries if at capacity to prevent unbounded growth
+        if (memoryBlacklist.size() >= MAX_BLACKLIST_SIZE) {
+            memoryBlacklist.entrySet().stream()
+                .min(java.util.Map.Entry.comparingByValue())
+                .ifPresent(oldest -> memoryBlacklist.remove(oldest.getKey()));
+        }
+        memoryBlacklist.merge(userId, cutoffMillis, Math::max);
+        userCutoffs.invalidate(userId);
+    }
+
+    /** Drop every local shortcut so the next checks go to Redis (and fail closed while it is down). */
+    private void markRedisUnhealthy() {
+        bloomReady = false;
+        cleanTokens.invalidateAll();
+        userCutoffs.invalidateAll();
+    }
+
+    private void rebuildBloomFilter() {
+        if (!rebuildInProgress.compareAndSet(false, true)) return;
+        CompletableFuture.runAsync(() -> {
+            BloomFilter fresh = new BloomFilter(BLOOM_EXPECTED_TOKENS, BLOOM_FALSE_POSITIVE_RATE);
+            rebuilding = fresh;
+            try (Cursor<String> cursor = redisTemplate.scan(
+                    ScanOptions.scanOptions().match(BLACKLIST_PREFIX + "*").count(1000).build())) {
+                int count = 0;
+                while (cursor.hasNext()) {
+                    fresh.put(hashToken(cursor.next().substring(BLACKLIST_PREFIX.length())));
+                    count++;
+                }
+                bloom = fresh;
+                bloomReady = true;
+                log.info("Token blacklist Bloom filter rebuilt with {} entries", count);
+            } catch (Exception e) {
+                bloomReady = false;
+                log.warn("Token blacklist Bloom filter rebuild failed — using Redis lookups: {}", e.getMessage());
+            } finally {
+                rebuilding = null;
+                rebuildInProgress.set(false);
+            }
+        });
+    }
+
+    private static String hashToken(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Receives revocations published by any node (including this one) and keeps the
+     * near-cache consistent. Subscription (re)establishment triggers a Bloom rebuild so
+     * revocations missed while disconnected are picked up.
+     */
+    private class InvalidationListener implements MessageListener, SubscriptionListener {
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                if (body.startsWith(TOKEN_EVENT)) {
+                    applyTokenRevocation(body.substring(TOKEN_EVENT.length()));
+                } else if (body.startsWith(USER_EVENT)) {
+                    String[] parts = body.substring(USER_EVENT.length()).split(":");
+                    applyUserRevocation(Long.valueOf(parts[0]), Long.parseLong(parts[1]));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Ignoring malformed token blacklist event: {}", e.getMessage());
+            }
+        }
+
+        @Override
+        public void onChannelSubscribed(byte[] channel, long count) {
+            log.debug("Subscribed to token blacklist invalidations");
+            rebuildBloomFilter();
+        }
+
+        @Override
+        public void onChannelUnsubscribed(byte[] channel, long count) {
+            log.warn("Unsubscribed from token blacklist invalidations — disabling Bloom shortcut");
+            bloomReady = false;
+        }
+    }
+
+    /**
+     * Minimal thread-safe Bloom filter over hex SHA-256 token hashes. The hash is already
+     * uniformly distributed, so two 64-bit halves feed Kirsch–Mitzenmacher double hashing.
+     */
+    static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final int bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedInsertions, double falsePositiveRate) {
+            long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, m));
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+            this.bits = new AtomicLongArray((bitCount + 63) / 64);
+        }
+
+        void put(String hexHash) {
+            long[] h = halves(hexHash);
+            for (int i = 0; i < hashCount; i++) {
+                int index = index(h, i);
+                int word = index >>> 6;
+                long mask = 1L << (index & 63);
+                long current;
+                do {
+                    current = bits.get(word);
+                    if ((current & mask) != 0) break;
+                } while (!bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String hexHash) {
+            long[] h = halves(hexHash);
+            for (int i = 0; i < hashCount; i++) {
+                int index = index(h, i);
+                if ((bits.get(index >>> 6) & (1L << (index & 63))) == 0) return false;
+            }
+            return true;
+        }
+
+        private int index(long[] h, int i) {
+            long combined = h[0] + i * h[1];
+            return (int) Math.floorMod(combined, (long) bitCount);
+        }
+
+        private static long[] halves(String hexHash) {
+            ByteBuffer buffer = ByteBuffer.wrap(HexFormat.of().parseHex(hexHash));
+            return new long[]{buffer.getLong(), buffer.getLong()};
+        }
+    }
 }
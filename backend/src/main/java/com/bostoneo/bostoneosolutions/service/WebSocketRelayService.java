@@ -0,0 +1,344 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Relays WebSocket frames to the nodes holding the target sessions.
+ *
+ * Each node records which users and organizations it holds sessions for in Redis hashes
+ * ({@code ws:presence:user:{id}} / {@code ws:presence:org:{id}}, field = node id, value = expiry
+ * millis), refreshed every {@link #PRESENCE_REFRESH} so a crashed node's entries lapse. Frames for
+ * users or organizations are queued, and every {@link #FLUSH_INTERVAL_MS} the queue is grouped by
+ * destination node and sent as one pub/sub message per node on that node's own channel.
+ *
+ * The caller delivers to its own sessions directly; the relay only reaches other nodes. If Redis
+ * is unavailable, delivery stays local.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WebSocketRelayService {
+
+    private static final String NODE_CHANNEL_PREFIX = "ws:relay:";
+    private static final String USER_PRESENCE_PREFIX = "ws:presence:user:";
+    private static final String ORG_PRESENCE_PREFIX = "ws:presence:org:";
+    private static final long FLUSH_INTERVAL_MS = 25;
+    private static final Duration PRESENCE_REFRESH = Duration.ofSeconds(30);
+    private static final Duration PRESENCE_TTL = Duration.ofSeconds(90);
+    private static final int MAX_QUEUED_FRAMES = 10_000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The sessions held by this node; implemented by the WebSocket handler.
+     */
+    public interface LocalSessions {
+        void deliverToUser(String userId, String frame);
+
+        void deliverToOrganization(Long organizationId, String frame, String excludeUserId);
+
+        boolean hasUser(String userId);
+
+        boolean hasOrganization(Long organizationId);
+
+        Set<String> userIds();
+
+        Set<Long> organizationIds();
+    }
+
+    /** type is "user" or "org"; target is the user or organization id. */
+    private record Envelope(String type, String target, String excludeUserId, String frame) {}
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+
+    private final Queue<Envelope> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean redisAvailable = new AtomicBoolean(true);
+    private final MessageListener relayListener = this::onRelayMessage;
+
+    // Flushes, presence writes and refreshes all run here, in submission order
+    private final ScheduledExecutorService relayExecutor =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ws-relay");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private volatile LocalSessions localSessions;
+
+    @PostConstruct
+    void start() {
+        try {
+            listenerContainer.addMessageListener(relayListener, new ChannelTopic(NODE_CHANNEL_PREFIX + nodeId));
+        } catch (Exception e) {
+            log.warn("Could not subscribe to WebSocket relay channel - notifications will only reach sessions on this node: {}",
+                    e.getMessage());
+        }
+        relayExecutor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        relayExecutor.scheduleWithFixedDelay(this::refreshPresence,
+                PRESENCE_REFRESH.toMillis(), PRESENCE_REFRESH.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        try {
+            listenerContainer.removeMessageListener(relayListener);
+        } catch (Exception e) {
+            log.debug("Failed to remove WebSocket relay listener: {}", e.getMessage());
+        }
+        relayExecutor.shutdownNow();
+        LocalSessions sessions = localSessions;
+        if (sessions != null) {
+            // Withdraw this node's presence so other nodes stop routing to it before the entries lapse
+            writePresence(sessions.userIds(), sessions.organizationIds(), false);
+        }
+    }
+
+    /**
+     * Called once by the WebSocket handler at startup.
+     */
+    public void attach(LocalSessions sessions) {
+        this.localSessions = sessions;
+    }
+
+    /**
+     * Queue a frame for the user's sessions on other nodes.
+     */
+    public void relayToUser(String userId, String frame) {
+        enqueue(new Envelope("user", userId, null, frame));
+    }
+
+    /**
+     * Queue a frame for the organization's sessions on other nodes, optionally skipping one user.
+     */
+    public void relayToOrganization(Long organizationId, String frame, String excludeUserId) {
+        enqueue(new Envelope("org", organizationId.toString(), excludeUserId, frame));
+    }
+
+    /**
+     * Record that this node now holds sessions for the user (and organization).
+     */
+    public void sessionsOpened(String userId, Long organizationId) {
+        submit(() -> writePresence(Set.of(userId), organizationId != null ? Set.of(organizationId) : Set.of(), true));
+    }
+
+    /**
+     * Withdraw this node's presence for a user or organization it no longer holds sessions for.
+     * Re-checked on the relay thread, so a reconnect in the meantime keeps the entry.
+     */
+    public void sessionsClosed(String userId, Long organizationId) {
+        submit(() -> {
+            LocalSessions sessions = localSessions;
+            if (sessions == null) return;
+            Set<String> users = userId != null && !sessions.hasUser(userId) ? Set.of(userId) : Set.of();
+            Set<Long> orgs = organizationId != null && !sessions.hasOrganization(organizationId) ? Set.of(organizationId) : Set.of();
+            if (!users.isEmpty() || !orgs.isEmpty()) {
+                writePresence(users, orgs, false);
+            }
+        });
+    }
+
+    /**
+     * @return true if any node (including this one) holds a session for the user
+     */
+    public boolean isUserConnected(String userId) {
+        LocalSessions sessions = localSessions;
+        if (sessions != null && sessions.hasUser(userId)) return true;
+        try {
+            return !liveNodes(redisTemplate.<String, String>opsForHash().entries(USER_PRESENCE_PREFIX + userId)).isEmpty();
+        } catch (Exception e) {
+            log.debug("Could not check cluster presence for user {}: {}", userId, e.getMessage());
+            return false;
+        }
+    }
+
+    private void enqueue(Envelope envelope) {
+        if (queued.incrementAndGet() > MAX_QUEUED_FRAMES) {
+            queued.decrementAndGet();
+            log.debug("WebSocket relay queue full; dropping frame for {} {}", envelope.type(), envelope.target());
+            return;
+        }
+        outbound.add(envelope);
+    }
+
+    private void submit(Runnable task) {
+        try {
+            relayExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("WebSocket relay is shut down; dropping presence update");
+        }
+    }
+
+    /**
+     * Relay tick: resolve the nodes for each queued target and publish one batch per node.
+     */
+    private void flush() {
+        if (outbound.isEmpty()) return;
+        List<Envelope> envelopes = new ArrayList<>();
+        Envelope next;
+        while ((next = outbound.poll()) != null) {
+            queued.decrementAndGet();
+            envelopes.add(next);
+        }
+
+        try {
+            Map<String, List<String>> nodesByPresenceKey = resolveNodes(envelopes);
+            Map<String, List<Envelope>> batches = new LinkedHashMap<>();
+            for (Envelope envelope : envelopes) {
+                for (String node : nodesByPresenceKey.getOrDefault(presenceKey(envelope), List.of())) {
+                    if (!node.equals(nodeId)) {
+                        batches.computeIfAbsent(node, key -> new ArrayList<>()).add(envelope);
+                    }
+                }
+            }
+            for (Map.Entry<String, List<Envelope>> batch : batches.entrySet()) {
+                redisTemplate.convertAndSend(NODE_CHANNEL_PREFIX + batch.getKey(), objectMapper.writeValueAsString(batch.getValue()));
+            }
+            markRedis(true, null);
+        } catch (Exception e) {
+            // Frames are fire-and-forget like local sends; clients refetch on reconnect
+            markRedis(false, e);
+        }
+    }
+
+    /**
+     * Look up the live nodes for every distinct presence key in one pipelined round trip.
+     */
+    private Map<String, List<String>> resolveNodes(List<Envelope> envelopes) {
+        List<String> keys = envelopes.stream().map(this::presenceKey).distinct().toList();
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (String key : keys) {
+                conn.hGetAll(key);
+            }
+            return null;
+        });
+        Map<String, List<String>> nodes = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> entries = results.get(i) instanceof Map<?, ?> map ? (Map<String, String>) map : Map.of();
+            nodes.put(keys.get(i), liveNodes(entries));
+        }
+        return nodes;
+    }
+
+    private List<String> liveNodes(Map<String, String> entries) {
+        long now = System.currentTimeMillis();
+        List<String> nodes = new ArrayList<>();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            try {
+                if (Long.parseLong(entry.getValue()) > now) {
+                    nodes.add(entry.getKey());
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return nodes;
+    }
+
+    private String presenceKey(Envelope envelope) {
+        return ("org".equals(envelope.type()) ? ORG_PRESENCE_PREFIX : USER_PRESENCE_PREFIX) + envelope.target();
+    }
+
+    private void onRelayMessage(Message message, byte[] pattern) {
+        LocalSessions sessions = localSessions;
+        if (sessions == null) return;
+        List<Envelope> envelopes;
+        try {
+            envelopes = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8),
+                    new TypeReference<List<Envelope>>() {});
+        } catch (Exception e) {
+            log.warn("Ignoring malformed WebSocket relay batch: {}", e.getMessage());
+            return;
+        }
+        for (Envelope envelope : envelopes) {
+            try {
+                if ("org".equals(envelope.type())) {
+                    sessions.deliverToOrganization(Long.valueOf(envelope.target()), envelope.frame(), envelope.excludeUserId());
+                } else {
+                    sessions.deliverToUser(envelope.target(), envelope.frame());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to deliver relayed WebSocket frame to {} {}: {}", envelope.type(), envelope.target(), e.getMessage());
+            }
+        }
+    }
+
+    private void refreshPresence() {
+        LocalSessions sessions = localSessions;
+        if (sessions != null) {
+            writePresence(sessions.userIds(), sessions.organizationIds(), true);
+        }
+    }
+
+    private void writePresence(Set<String> userIds, Set<Long> organizationIds, boolean present) {
+        if (userIds.isEmpty() && organizationIds.isEmpty()) return;
+        String expiry = Long.toString(System.currentTimeMillis() + PRESENCE_TTL.toMillis());
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                List<String> keys = new ArrayList<>(userIds.size() + organizationIds.size());
+                userIds.forEach(id -> keys.add(USER_PRESENCE_PREFIX + id));
+                organizationIds.forEach(id -> keys.add(ORG_PRESENCE_PREFIX + id));
+                for (String key : keys) {
+                    if (present) {
+                        conn.hSet(key, nodeId, expiry);
+                        conn.expire(key, PRESENCE_TTL.toSeconds());
+                    } else {
+                        conn.hDel(key, nodeId);
+                    }
+                }
+                return null;
+            });
+            markRedis(true, null);
+        } catch (Exception e) {
+            markRedis(false, e);
+        }
+    }
+
+    private void markRedis(boolean available, Exception failure) {
+        if (available) {
+            if (redisAvailable.compareAndSet(false, true)) {
+                log.info("WebSocket relay reconnected to Redis");
+                submit(this::refreshPresence);
+            }
+        } else if (redisAvailable.compareAndSet(true, false)) {
+            log.warn("WebSocket relay cannot reach Redis - notifications will only reach sessions on this node: {}",
+                    failure.getMessage());
+        }
+    }
+}
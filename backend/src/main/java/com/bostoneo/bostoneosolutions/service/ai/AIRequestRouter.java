@@ -4,28 +4,24 @@ import com.bostoneo.bostoneosolutions.dto.ai.AIRoutingRequest;
 import com.bostoneo.bostoneosolutions.dto.ai.AIRoutingResult;
 import com.bostoneo.bostoneosolutions.dto.ai.ConversationMessage;
 import com.bostoneo.bostoneosolutions.enumeration.AIOperationType;
+import com.bostoneo.bostoneosolutions.multitenancy.TenantService;
 import com.bostoneo.bostoneosolutions.utils.PiiDetector;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.HexFormat;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 /**
  * Centralized AI request router. ALL AI operations should flow through this service.
  *
  * Responsibilities:
- * 1. Check router-level cache before making API calls
+ * 1. Check the per-organization response cache (or join an identical in-flight call) before making API calls
  * 2. Score complexity and select model (Sonnet vs Opus) + mode (FAST vs THOROUGH)
  * 3. Prune conversation history if present
  * 4. Delegate to ClaudeSonnet4Service with selected configuration
@@ -40,10 +36,8 @@ public class AIRequestRouter {
     private final ClaudeSonnet4Service claudeService;
     private final AIComplexityScorer complexityScorer;
     private final ConversationHistoryPruner historyPruner;
-
-    /** In-memory response cache: cacheKey → CachedEntry. Max 500 entries to prevent OOM. */
-    private final ConcurrentHashMap<String, CachedEntry> responseCache = new ConcurrentHashMap<>();
-    private static final int MAX_CACHE_SIZE = 500;
+    private final AIResponseCache responseCache;
+    private final TenantService tenantService;
 
     // ===== MAIN ROUTING METHOD =====
 
@@ -53,23 +47,23 @@ public class AIRequestRouter {
      */
     public CompletableFuture<AIRoutingResult> route(AIRoutingRequest request) {
         AIOperationType opType = request.getOperationType();
-        String query = request.getQuery();
 
-        // 1. Check cache
+        // 1. Check cache / coalesce with an identical in-flight request
         if (opType.isCacheable()) {
-            String cacheKey = buildCacheKey(opType, query, request.getCaseId());
-            CachedEntry cached = responseCache.get(cacheKey);
-            if (cached != null && !cached.isExpired()) {
-                log.info("Cache HIT for {} (key: {}...)", opType, cacheKey.substring(0, 8));
-                return CompletableFuture.completedFuture(AIRoutingResult.builder()
-                        .response(cached.response)
-                        .modelUsed(cached.modelUsed)
-                        .modeUsed(cached.modeUsed)
-                        .cacheHit(true)
-                        .operationType(opType.name())
-                        .build());
-            }
+            // Resolve the tenant on the calling thread - the model call completes on another
+            Long orgId = tenantService.getCurrentOrganizationId().orElse(null);
+            String cacheKey = buildCacheKey(opType, request);
+            return responseCache.getOrCall(orgId, opType, cacheKey, () -> invoke(request));
         }
+        return invoke(request);
+    }
+
+    /**
+     * Score, redact and call the model; no caching.
+     */
+    private CompletableFuture<AIRoutingResult> invoke(AIRoutingRequest request) {
+        AIOperationType opType = request.getOperationType();
+        String query = request.getQuery();
 
         // 2. Score complexity → pick model + mode
         AIComplexityScorer.RoutingDecision decision = complexityScorer.decide(opType, query);
@@ -104,35 +98,14 @@ public class AIRequestRouter {
                 selectedModel
         );
 
-        // 5. Wrap result and cache if applicable
-        return aiResponse.thenApply(response -> {
-            AIRoutingResult result = AIRoutingResult.builder()
-                    .response(response)
-                    .modelUsed(selectedModel)
-                    .modeUsed(selectedMode)
-                    .cacheHit(false)
-                    .operationType(opType.name())
-                    .build();
-
-            // Cache if cacheable (with max size enforcement)
-            if (opType.isCacheable() && response != null && !response.isBlank()) {
-                // Evict oldest entries if cache is at max capacity
-                if (responseCache.size() >= MAX_CACHE_SIZE) {
-                    responseCache.entrySet().stream()
-                            .min(java.util.Comparator.comparing(e -> e.getValue().cachedAt()))
-                            .ifPresent(oldest -> responseCache.remove(oldest.getKey()));
-                }
-                String cacheKey = buildCacheKey(opType, query, request.getCaseId());
-                responseCache.put(cacheKey, new CachedEntry(
-                        response, selectedModel, selectedMode,
-                        LocalDateTime.now(),
-                        opType.getCacheTtlDays()
-                ));
-                log.debug("Cached response for {} (TTL: {} days, cache size: {})", opType, opType.getCacheTtlDays(), responseCache.size());
-            }
-
-            return result;
-        });
+        // 6. Wrap result (AIResponseCache stores it for cacheable operations)
+        return aiResponse.thenApply(response -> AIRoutingResult.builder()
+                .response(response)
+                .modelUsed(selectedModel)
+                .modeUsed(selectedMode)
+                .cacheHit(false)
+                .operationType(opType.name())
+                .build());
     }
 
     // ===== STREAMING ROUTING =====
@@ -217,10 +190,17 @@ public class AIRequestRouter {
     // ===== CACHE MANAGEMENT =====
 
     /**
-     * Build a deterministic cache key from operation type, query, and context.
+     * Build a deterministic cache key from operation type, prompt, and context.
+     * Everything that changes the model's answer is included, so coalesced callers get the
+     * response they would have received themselves.
      */
-    private String buildCacheKey(AIOperationType opType, String query, String caseId) {
-        String raw = opType.name() + "|" + (query != null ? query.trim() : "") + "|" + (caseId != null ? caseId : "");
+    private String buildCacheKey(AIOperationType opType, AIRoutingRequest request) {
+        String raw = opType.name()
+                + "|" + (request.getQuery() != null ? request.getQuery().trim() : "")
+                + "|" + (request.getSystemMessage() != null ? request.getSystemMessage().trim() : "")
+                + "|" + (request.getCaseId() != null ? request.getCaseId() : "")
+                + "|" + request.isUseDeepThinking()
+                + "|" + (request.getTemperature() != null ? request.getTemperature() : "");
         try {
             byte[] hash = MessageDigest.getInstance("SHA-256")
                     .digest(raw.getBytes(StandardCharsets.UTF_8));
@@ -232,51 +212,17 @@ public class AIRequestRouter {
     }
 
     /**
-     * Cleanup expired cache entries. Runs every hour.
-     */
-    @Scheduled(fixedRate = 3600000)
-    public void cleanupExpiredCache() {
-        int before = responseCache.size();
-        responseCache.entrySet().removeIf(entry -> entry.getValue().isExpired());
-        int removed = before - responseCache.size();
-        if (removed > 0) {
-            log.info("Cache cleanup: removed {} expired entries ({} remaining)", removed, responseCache.size());
-        }
-    }
-
-    /**
-     * Get current cache statistics.
+     * Get current cache statistics, including hit/miss/coalesced counts per operation type.
      */
     public Map<String, Object> getCacheStats() {
-        long total = responseCache.size();
-        long expired = responseCache.values().stream().filter(CachedEntry::isExpired).count();
-        return Map.of(
-                "totalEntries", total,
-                "activeEntries", total - expired,
-                "expiredEntries", expired
-        );
+        return responseCache.getStats();
     }
 
     /**
      * Clear all cached responses.
      */
     public void clearCache() {
-        int size = responseCache.size();
-        responseCache.clear();
+        long size = responseCache.clear();
         log.info("Router cache cleared ({} entries removed)", size);
     }
-
-    // ===== INNER CLASSES =====
-
-    private record CachedEntry(
-            String response,
-            String modelUsed,
-            String modeUsed,
-            LocalDateTime cachedAt,
-            int ttlDays
-    ) {
-        boolean isExpired() {
-            return LocalDateTime.now().isAfter(cachedAt.plusDays(ttlDays));
-        }
-    }
 }
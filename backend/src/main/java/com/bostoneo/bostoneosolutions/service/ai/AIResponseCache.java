@@ -0,0 +1,224 @@
+package com.bostoneo.bostoneosolutions.service.ai;
+
+import com.bostoneo.bostoneosolutions.dto.ai.AIRoutingResult;
+import com.bostoneo.bostoneosolutions.enumeration.AIOperationType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Response cache for {@link AIRequestRouter}.
+ *
+ * Each organization gets its own Caffeine partition bounded by response bytes
+ * ({@code ai.router.cache.max-bytes-per-org}), so one firm's traffic can only evict its own
+ * entries. Entries expire after their operation's {@link AIOperationType#getCacheTtlDays()}.
+ * Concurrent identical requests share one in-flight model call. Lookups are counted in
+ * Micrometer as {@code ai.router.cache.requests} by operation and result (hit, miss, coalesced).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AIResponseCache {
+
+    /** Partition for calls made without an organization context (scheduled jobs, system tasks). */
+    private static final Long SYSTEM_PARTITION = 0L;
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+    private static final Duration IDLE_PARTITION_TTL = Duration.ofDays(1);
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ai.router.cache.max-bytes-per-org:16777216}")
+    private long maxBytesPerOrg;
+
+    /** organizationId → that organization's response partition; idle partitions are dropped. */
+    private final Cache<Long, Cache<String, CachedEntry>> partitions = Caffeine.newBuilder()
+            .expireAfterAccess(IDLE_PARTITION_TTL)
+            .build();
+
+    private final ConcurrentHashMap<Key, CompletableFuture<AIRoutingResult>> inFlight = new ConcurrentHashMap<>();
+    private final Map<AIOperationType, Counter[]> counters = new EnumMap<>(AIOperationType.class);
+
+    private record Key(Long organizationId, String cacheKey) {}
+
+    record CachedEntry(String response, String modelUsed, String modeUsed, AIOperationType operationType) {}
+
+    private enum Outcome { HIT, MISS, COALESCED }
+
+    @PostConstruct
+    void registerMetrics() {
+        for (AIOperationType opType : AIOperationType.values()) {
+            if (!opType.isCacheable()) continue;
+            Counter[] byOutcome = new Counter[Outcome.values().length];
+            for (Outcome outcome : Outcome.values()) {
+                byOutcome[outcome.ordinal()] = Counter.builder("ai.router.cache.requests")
+                        .tag("operation", opType.name())
+                        .tag("result", outcome.name().toLowerCase(Locale.ROOT))
+                        .description("AI router cache lookups for cacheable operations")
+                        .register(meterRegistry);
+            }
+            counters.put(opType, byOutcome);
+        }
+        log.info("AI response cache bounded to {} MB per organization", maxBytesPerOrg / (1024 * 1024));
+    }
+
+    /**
+     * Cached response, else join an identical in-flight call, else start one with {@code call}.
+     * The started call's result is cached when non-blank; failures are not cached.
+     */
+    public CompletableFuture<AIRoutingResult> getOrCall(Long organizationId, AIOperationType opType, String cacheKey,
+                                                        Supplier<CompletableFuture<AIRoutingResult>> call) {
+        Key key = new Key(organizationId != null ? organizationId : SYSTEM_PARTITION, cacheKey);
+        Cache<String, CachedEntry> partition = partition(key.organizationId());
+
+        CachedEntry cached = partition.getIfPresent(cacheKey);
+        if (cached != null) {
+            record(opType, Outcome.HIT);
+            log.info("Cache HIT for {} (key: {}...)", opType, cacheKey.substring(0, 8));
+            return CompletableFuture.completedFuture(toResult(cached, true));
+        }
+
+        CompletableFuture<AIRoutingResult> promise = new CompletableFuture<>();
+        CompletableFuture<AIRoutingResult> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            record(opType, Outcome.COALESCED);
+            log.info("Coalesced {} with an identical in-flight request (key: {}...)", opType, cacheKey.substring(0, 8));
+            return existing;
+        }
+
+        record(opType, Outcome.MISS);
+        try {
+            call.get().whenComplete((result, error) -> {
+                try {
+                    if (error == null && result != null && result.getResponse() != null && !result.getResponse().isBlank()) {
+                        partition.put(cacheKey, new CachedEntry(result.getResponse(), result.getModelUsed(),
+                                result.getModeUsed(), opType));
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Failed to cache {} response (key: {}...): {}", opType, cacheKey.substring(0, 8), e.getMessage());
+                } finally {
+                    // Remove only after caching so a follow-up request finds one or the other; always
+                    // complete the promise so coalesced callers are never left waiting
+                    inFlight.remove(key, promise);
+                    if (error != null) {
+                        promise.completeExceptionally(error);
+                    } else {
+                        promise.complete(result);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+        }
+        return promise;
+    }
+
+    /**
+     * Entry counts, byte weight and evictions, plus hit/miss/coalesced counts per operation type.
+     */
+    public Map<String, Object> getStats() {
+        long entries = 0;
+        long weightedBytes = 0;
+        long evictions = 0;
+        for (Cache<String, CachedEntry> partition : partitions.asMap().values()) {
+            entries += partition.estimatedSize();
+            weightedBytes += partition.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+            CacheStats stats = partition.stats();
+            evictions += stats.evictionCount();
+        }
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        counters.forEach((opType, byOutcome) -> {
+            long hits = (long) byOutcome[Outcome.HIT.ordinal()].count();
+            long misses = (long) byOutcome[Outcome.MISS.ordinal()].count();
+            long coalesced = (long) byOutcome[Outcome.COALESCED.ordinal()].count();
+            if (hits + misses + coalesced > 0) {
+                operations.put(opType.name(), Map.of(
+                        "hits", hits,
+                        "misses", misses,
+                        "coalesced", coalesced,
+                        "ttlDays", opType.getCacheTtlDays()));
+            }
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalEntries", entries);
+        stats.put("organizations", partitions.estimatedSize());
+        stats.put("weightedBytes", weightedBytes);
+        stats.put("maxBytesPerOrg", maxBytesPerOrg);
+        stats.put("evictions", evictions);
+        stats.put("inFlight", inFlight.size());
+        stats.put("operations", operations);
+        return stats;
+    }
+
+    /**
+     * Drop every cached response; in-flight calls are unaffected.
+     */
+    public long clear() {
+        long size = 0;
+        for (Cache<String, CachedEntry> partition : partitions.asMap().values()) {
+            size += partition.estimatedSize();
+        }
+        partitions.invalidateAll();
+        return size;
+    }
+
+    private Cache<String, CachedEntry> partition(Long organizationId) {
+        return partitions.get(organizationId, id -> Caffeine.newBuilder()
+                .maximumWeight(maxBytesPerOrg)
+                .weigher((String cacheKey, CachedEntry entry) -> ENTRY_OVERHEAD_BYTES + cacheKey.length()
+                        + entry.response().length() * 2)
+                .expireAfter(new OperationTtl())
+                .recordStats()
+                .build());
+    }
+
+    private void record(AIOperationType opType, Outcome outcome) {
+        Counter[] byOutcome = counters.get(opType);
+        if (byOutcome != null) byOutcome[outcome.ordinal()].increment();
+    }
+
+    private static AIRoutingResult toResult(CachedEntry entry, boolean cacheHit) {
+        return AIRoutingResult.builder()
+                .response(entry.response())
+                .modelUsed(entry.modelUsed())
+                .modeUsed(entry.modeUsed())
+                .cacheHit(cacheHit)
+                .operationType(entry.operationType().name())
+                .build();
+    }
+
+    /** Expire each entry after its operation type's TTL; reads do not extend it. */
+    private static final class OperationTtl implements Expiry<String, CachedEntry> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedEntry entry, long currentTime) {
+            return Duration.ofDays(entry.operationType().getCacheTtlDays()).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedEntry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedEntry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,15 +1,30 @@
 package com.bostoneo.bostoneosolutions.service.ai.importing;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.jodconverter.core.DocumentConverter;
+import org.jodconverter.core.document.DefaultDocumentFormatRegistry;
+import org.jodconverter.core.document.DocumentFormat;
+import org.jodconverter.core.office.OfficeException;
+import org.jodconverter.local.LocalConverter;
+import org.jodconverter.local.office.LocalOfficeManager;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -22,10 +37,22 @@ import java.util.stream.Stream;
  *       and the "Download as PDF" output.</li>
  * </ul>
  *
- * <p>Spawns {@code soffice --headless --convert-to <fmt>} per call. The subprocess is heavy
- * (~500 MB RAM, 1–3 s per conversion), so all calls go through a {@link Semaphore} cap
- * (default 3 concurrent — configurable via {@code template.import.libreoffice.max-concurrent})
- * to prevent OOM on multi-file batches.
+ * <p>Conversions run on a warm pool of long-lived {@code soffice} listeners driven over UNO
+ * sockets (JODConverter), started in the background once the application is ready:
+ * {@code template.import.libreoffice.pool-size} workers (default: max-concurrent) on consecutive
+ * ports from {@code base-port}, each with its own profile directory. Jobs queue across the pool
+ * for up to {@code queue-timeout-seconds} and are killed after {@code timeout-seconds}; a worker
+ * is recycled after {@code max-conversions-per-worker} jobs or when it crashes. The pool is
+ * started, health-checked every {@code health-check-ms} and restarted on its own
+ * {@code soffice-pool-start} thread; failed starts are retried with exponential backoff up to
+ * {@code max-retry-delay-ms}. Without an explicit {@code office-home}, an absolute
+ * {@code command} path locates the installation.
+ *
+ * <p>PDF input (Draw's import filter), conversions attempted before the pool is up, and pool
+ * failures fall back to spawning {@code soffice --headless --convert-to <fmt>} per call. That
+ * subprocess is heavy (~500 MB RAM, 1–3 s per conversion), so those calls go through a
+ * {@link Semaphore} cap (default 3 concurrent — configurable via
+ * {@code template.import.libreoffice.max-concurrent}) to prevent OOM on multi-file batches.
  *
  * <p>{@link #isEnabled()} reports whether the configured {@code soffice} binary is reachable.
  * Callers should check it once and fall back to legacy text-extraction paths when LibreOffice
@@ -53,7 +80,40 @@ public class LibreOfficeConverterService {
     @Value("${template.import.libreoffice.max-concurrent:3}")
     private int maxConcurrent;
 
+    @Value("${template.import.libreoffice.pool-size:${template.import.libreoffice.max-concurrent:3}}")
+    private int poolSize;
+
+    @Value("${template.import.libreoffice.office-home:}")
+    private String officeHome;
+
+    @Value("${template.import.libreoffice.base-port:2002}")
+    private int basePort;
+
+    @Value("${template.import.libreoffice.max-conversions-per-worker:200}")
+    private int maxConversionsPerWorker;
+
+    @Value("${template.import.libreoffice.queue-timeout-seconds:120}")
+    private int queueTimeoutSeconds;
+
+    @Value("${template.import.libreoffice.health-check-ms:60000}")
+    private long healthCheckMs;
+
+    @Value("${template.import.libreoffice.max-retry-delay-ms:900000}")
+    private long maxRetryDelayMs;
+
     private Semaphore slots;
+    private volatile LocalOfficeManager officeManager;
+    private volatile DocumentConverter pooledConverter;
+    private volatile boolean shuttingDown;
+    private long retryDelayMs;
+
+    // Starts, checks and restarts the pool; soffice startup blocks for seconds, so it stays off the shared scheduler
+    private final ScheduledExecutorService poolSupervisor =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "soffice-pool-start");
+                t.setDaemon(true);
+                return t;
+            });
     private Boolean reachableCache;  // tri-state: null=not checked, true/false=cached result
 
     /**
@@ -109,10 +169,160 @@ public class LibreOfficeConverterService {
         return convert(docxBytes, "docx", "pdf");
     }
 
+    /**
+     * Start the worker pool off the startup thread; soffice takes a few seconds per worker to come up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPoolInBackground() {
+        if (poolSize <= 0 || !isEnabled()) return;
+        retryDelayMs = healthCheckMs;
+        scheduleHealthCheck(0);
+    }
+
+    /**
+     * Start the pool if it is not running, or restart it if it has stopped, then schedule the next
+     * check: after {@code health-check-ms} while the pool is up, with doubling backoff while it
+     * fails to start. JODConverter already restarts individual workers that crash, hang past the
+     * task timeout or reach max-conversions-per-worker.
+     */
+    void checkPoolHealth() {
+        if (shuttingDown) return;
+        LocalOfficeManager manager = officeManager;
+        if (manager != null && manager.isRunning()) {
+            scheduleHealthCheck(healthCheckMs);
+            return;
+        }
+        if (manager != null) {
+            log.warn("LibreOffice worker pool is no longer running — restarting");
+            pooledConverter = null;
+            officeManager = null;
+        }
+        if (startPool()) {
+            retryDelayMs = healthCheckMs;
+            scheduleHealthCheck(healthCheckMs);
+        } else {
+            log.info("Retrying LibreOffice worker pool start in {} s", retryDelayMs / 1000);
+            scheduleHealthCheck(retryDelayMs);
+            retryDelayMs = Math.min(retryDelayMs * 2, Math.max(healthCheckMs, maxRetryDelayMs));
+        }
+    }
+
+    private void scheduleHealthCheck(long delayMs) {
+        if (shuttingDown) return;
+        try {
+            poolSupervisor.schedule(this::checkPoolHealth, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("LibreOffice pool supervisor stopped; not scheduling another check");
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stopPool() {
+        shuttingDown = true;
+        poolSupervisor.shutdownNow();
+        LocalOfficeManager manager = officeManager;
+        pooledConverter = null;
+        officeManager = null;
+        if (manager != null) {
+            try {
+                manager.stop();
+            } catch (OfficeException e) {
+                log.debug("Error stopping LibreOffice worker pool: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Start the worker pool; true once it is running. Called only on the supervisor thread.
+     */
+    private synchronized boolean startPool() {
+        if (shuttingDown) return false;
+        if (officeManager != null) return true;
+        long start = System.currentTimeMillis();
+        LocalOfficeManager manager = null;
+        try {
+            LocalOfficeManager.Builder builder = LocalOfficeManager.builder()
+                .portNumbers(IntStream.range(0, poolSize).map(i -> basePort + i).toArray())
+                .maxTasksPerProcess(maxConversionsPerWorker)
+                .taskExecutionTimeout(TimeUnit.SECONDS.toMillis(timeoutSeconds))
+                .taskQueueTimeout(TimeUnit.SECONDS.toMillis(queueTimeoutSeconds));
+            String home = resolveOfficeHome();
+            if (home != null) {
+                builder.officeHome(home);
+            }
+            // build() auto-detects the office home when none is set, and throws if it can't
+            manager = builder.build();
+            manager.start();
+            officeManager = manager;
+            pooledConverter = LocalConverter.make(manager);
+            log.info("LibreOffice worker pool ready ({} workers on ports {}-{}) in {} ms",
+                poolSize, basePort, basePort + poolSize - 1, System.currentTimeMillis() - start);
+            return true;
+        } catch (Exception e) {
+            log.warn("LibreOffice worker pool failed to start: {} — conversions will spawn soffice per call",
+                e.getMessage());
+            if (manager != null) {
+                try { manager.stop(); } catch (Exception ignored) { /* best-effort */ }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The configured office home, else the installation the absolute {@code command} belongs to
+     * ({@code <home>/program/soffice}, or {@code <home>/MacOS/soffice} in a macOS bundle), else
+     * null to let JODConverter auto-detect one.
+     */
+    private String resolveOfficeHome() {
+        if (officeHome != null && !officeHome.isBlank()) {
+            return officeHome;
+        }
+        try {
+            Path bin = Path.of(command);
+            if (!bin.isAbsolute()) {
+                return null;
+            }
+            // /usr/bin/soffice is usually a symlink into the installation
+            Path binDir = bin.toRealPath().getParent();
+            return binDir != null && binDir.getParent() != null ? binDir.getParent().toString() : null;
+        } catch (Exception e) {
+            log.debug("Could not derive LibreOffice home from '{}': {}", command, e.getMessage());
+            return null;
+        }
+    }
+
     private byte[] convert(byte[] inputBytes, String inputExt, String outputExt) throws ConversionException {
         if (!isEnabled()) {
             throw new ConversionException("LibreOffice is not enabled or not reachable on this host");
         }
+        DocumentConverter converter = pooledConverter;
+        // PDF is opened by Draw, which can't store to DOCX through the default filter mapping
+        if (converter != null && !"pdf".equals(inputExt)) {
+            try {
+                return convertWithPool(converter, inputBytes, inputExt, outputExt);
+            } catch (OfficeException e) {
+                log.warn("Pooled LibreOffice conversion {} -> {} failed, retrying with a one-off soffice process: {}",
+                    inputExt, outputExt, e.getMessage());
+            }
+        }
+        return convertWithSubprocess(inputBytes, inputExt, outputExt);
+    }
+
+    private byte[] convertWithPool(DocumentConverter converter, byte[] inputBytes, String inputExt, String outputExt)
+            throws OfficeException {
+        DocumentFormat inputFormat = DefaultDocumentFormatRegistry.getFormatByExtension(inputExt);
+        DocumentFormat outputFormat = DefaultDocumentFormatRegistry.getFormatByExtension(outputExt);
+        long start = System.currentTimeMillis();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32 * 1024, inputBytes.length));
+        converter.convert(new ByteArrayInputStream(inputBytes)).as(inputFormat)
+            .to(out).as(outputFormat)
+            .execute();
+        log.debug("LibreOffice pool converted {} -> {} ({} bytes) in {} ms",
+            inputExt, outputExt, inputBytes.length, System.currentTimeMillis() - start);
+        return out.toByteArray();
+    }
+
+    private byte[] convertWithSubprocess(byte[] inputBytes, String inputExt, String outputExt) throws ConversionException {
         Path tmpDir = null;
         boolean acquired = false;
         try {
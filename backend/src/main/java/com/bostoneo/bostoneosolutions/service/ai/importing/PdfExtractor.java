@@ -1,11 +1,11 @@
 package com.bostoneo.bostoneosolutions.service.ai.importing;
 
+import com.bostoneo.bostoneosolutions.service.DocumentTextCacheService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
-import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -16,7 +16,9 @@ import java.util.Map;
 import java.util.TreeMap;
 
 /**
- * Extracts text from PDF templates using PDFBox directly (not Tika).
+ * Extracts text from PDF templates using PDFBox directly (not Tika), through the organization's
+ * shared {@link DocumentTextCacheService} so a PDF already extracted — or OCR'd — by any pipeline
+ * is not processed again.
  *
  * <p>Why bypass Tika for the primary read: PDFBox gives us the page count cheaply, which we
  * use to distinguish a legitimate short text PDF (1 page, few words is fine) from an
@@ -35,8 +37,9 @@ public class PdfExtractor {
     private static final int SCANNED_PDF_CHAR_THRESHOLD = 100;
 
     private final PdfOcrService ocrService;
+    private final DocumentTextCacheService textCache;
 
-    public ExtractedDocument extract(MultipartFile file) throws IOException {
+    public ExtractedDocument extract(MultipartFile file, Long organizationId) throws IOException {
         byte[] bytes = file.getBytes();
         try (PDDocument doc = Loader.loadPDF(bytes)) {
             if (doc.isEncrypted()) {
@@ -49,25 +52,23 @@ public class PdfExtractor {
             }
 
             int pageCount = doc.getNumberOfPages();
-            PDFTextStripper stripper = new PDFTextStripper();
-            // Preserve reading order and paragraph spacing so placeholder detection sees structure.
-            stripper.setSortByPosition(true);
-            stripper.setParagraphEnd("\n\n");
-            String rawText = stripper.getText(doc);
-            if (rawText == null) rawText = "";
-
-            String trimmed = rawText.trim();
+            // Layout-sorted, paragraph-spaced text (see DocumentTextCacheService) so placeholder detection sees structure.
+            DocumentTextCacheService.ExtractedText extracted = textCache.extractPdf(organizationId, bytes, doc);
+
+            String trimmed = extracted.text();
             List<ImportWarning> warnings = new ArrayList<>();
-            boolean usedOcr = false;
+            boolean usedOcr = extracted.isOcr();
 
             // PDF has no text layer (or only a trickle on a multi-pager) — fall back to Tesseract OCR.
             // OCR is slower and noisier than a clean text extract, but for template import the
             // attorney reviews every detected variable anyway, so producing *something* the
             // classifier can chew on is better than rejecting the upload outright.
-            if (trimmed.isEmpty() || (pageCount > 1 && trimmed.length() < SCANNED_PDF_CHAR_THRESHOLD)) {
+            if (!usedOcr && (trimmed.isEmpty() || (pageCount > 1 && trimmed.length() < SCANNED_PDF_CHAR_THRESHOLD))) {
                 log.info("PDF {} has no extractable text layer ({} chars / {} pages) — falling back to OCR.",
                     file.getOriginalFilename(), trimmed.length(), pageCount);
-                String ocrText = ocrService.ocrPdfBytes(bytes, file.getOriginalFilename());
+                List<String> ocrPages = new ArrayList<>(pageCount);
+                String ocrText = ocrService.ocrPdfBytes(bytes, file.getOriginalFilename(),
+                    (pageNumber, total, pageText) -> ocrPages.add(pageText));
                 if (ocrText.isEmpty()) {
                     throw new TemplateImportException(
                         TemplateImportException.Code.SCANNED_PDF,
@@ -77,6 +78,14 @@ public class PdfExtractor {
                 }
                 trimmed = ocrText;
                 usedOcr = true;
+                // Every pipeline now gets the OCR text for this file instead of the empty text layer.
+                // Failed pages never reach the listener, so only a complete OCR result is shared.
+                if (ocrPages.size() == pageCount) {
+                    textCache.saveOcrResult(organizationId, extracted.contentHash(), ocrPages,
+                        DocumentTextCacheService.METHOD_TESSERACT, "application/pdf");
+                }
+            }
+            if (usedOcr) {
                 warnings.add(ImportWarning.warning(
                     "ocr_used",
                     "This PDF has no text layer — the body was reconstructed via OCR. " +
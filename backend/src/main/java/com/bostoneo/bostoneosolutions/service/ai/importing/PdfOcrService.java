@@ -1,6 +1,13 @@
 package com.bostoneo.bostoneosolutions.service.ai.importing;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.parser.ParseContext;
@@ -8,31 +15,355 @@ import org.apache.tika.parser.ocr.TesseractOCRConfig;
 import org.apache.tika.parser.pdf.PDFParser;
 import org.apache.tika.parser.pdf.PDFParserConfig;
 import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 /**
- * Runs Tesseract OCR on image-only / scanned PDFs via Apache Tika. Used as a fallback inside
- * {@link PdfExtractor} when PDFBox's direct text extraction returns nothing — i.e., a PDF whose
- * pages are images rather than a text layer.
+ * Runs Tesseract OCR on image-only / scanned PDFs. Used as a fallback inside {@link PdfExtractor}
+ * when PDFBox's direct text extraction returns nothing — i.e., a PDF whose pages are images
+ * rather than a text layer.
+ *
+ * <p>Pages are rasterized with PDFBox on the calling thread and OCR'd concurrently on a shared
+ * pool ({@code app.ocr.threads}, default one per core), each page by its own single-threaded
+ * {@code tesseract} process; page texts are reassembled in page order. At most two pages per
+ * OCR thread are rendered ahead, which bounds the memory held in page images. Callers that can
+ * use partial text pass a {@link PageListener}, which receives each page in order as soon as it
+ * and every page before it are done.
+ *
+ * <p>Results are cached in Redis under the SHA-256 of the PDF bytes
+ * ({@code ocr:pdf:{hash}}, {@code app.ocr.cache-ttl-days}), so re-importing the same scan —
+ * in another batch or on another node — never OCRs it twice. A document is only cached when
+ * every page was OCR'd; a page that timed out or failed is retried on the next import.
  *
  * <p>Requires the system Tesseract binary (same requirement as
- * {@code AIDocumentAnalysisService}'s document-analysis OCR path). If Tesseract is missing,
- * Tika raises a {@link TikaException}; this service swallows the failure and returns an empty
- * string so the caller can fall back to a user-actionable error.
+ * {@code AIDocumentAnalysisService}'s document-analysis OCR path). If the page engine can't run
+ * Tesseract, the whole document goes through Tika's serial OCR path instead; if that fails too,
+ * this service swallows the failure and returns an empty string so the caller can fall back to
+ * a user-actionable error.
  */
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class PdfOcrService {
 
+    private static final String CACHE_PREFIX = "ocr:pdf:";
+    // Separates page texts in the cached value; Tesseract ends each page with one itself
+    private static final String PAGE_SEPARATOR = "\f";
+    private static final Pattern PAGE_SPLIT = Pattern.compile(PAGE_SEPARATOR);
+    private static final String LANGUAGE = "eng";
+
+    /**
+     * Receives OCR text page by page, in page order. Pages whose OCR failed are not passed on, so
+     * a listener that received all {@code pageCount} pages has the complete document.
+     */
+    @FunctionalInterface
+    public interface PageListener {
+        /**
+         * @param pageNumber 1-based page number
+         * @param pageCount  total pages in the document
+         * @param text       trimmed text of this page; empty when the page is blank
+         */
+        void onPage(int pageNumber, int pageCount, String text);
+    }
+
+    /** One page's OCR outcome; a failed page has empty text but is not a blank page. */
+    private record PageText(String text, boolean failed) {
+        static final PageText FAILED = new PageText("", true);
+
+        static PageText of(String text) {
+            return new PageText(text, false);
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${app.ocr.threads:0}")
+    private int configuredThreads;
+
+    @Value("${app.ocr.dpi:300}")
+    private int dpi;
+
+    @Value("${app.ocr.tesseract-command:tesseract}")
+    private String tesseractCommand;
+
+    @Value("${app.ocr.page-timeout-seconds:120}")
+    private int pageTimeoutSeconds;
+
+    @Value("${app.ocr.cache-ttl-days:30}")
+    private int cacheTtlDays;
+
+    private ExecutorService ocrExecutor;
+    private Semaphore renderAhead;
+
+    @PostConstruct
+    void startPool() {
+        int threads = configuredThreads > 0 ? configuredThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        ocrExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pdf-ocr-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        renderAhead = new Semaphore(threads * 2);
+    }
+
+    @PreDestroy
+    void stopPool() {
+        ocrExecutor.shutdownNow();
+    }
+
     /**
      * OCR a PDF byte stream. Returns extracted text (trimmed) or an empty string if OCR was
      * unavailable or produced no output. Never returns null.
      */
     public String ocrPdfBytes(byte[] bytes, String filenameForLog) {
+        return ocrPdfBytes(bytes, filenameForLog, null);
+    }
+
+    /**
+     * OCR a PDF byte stream, handing each page's text to {@code listener} (may be null) as it
+     * becomes available. Returns the full text (trimmed) or an empty string if OCR was unavailable
+     * or produced no output. Never returns null.
+     */
+    public String ocrPdfBytes(byte[] bytes, String filenameForLog, PageListener listener) {
+        String cacheKey = CACHE_PREFIX + sha256Hex(bytes);
+        List<String> cached = readCache(cacheKey);
+        if (cached != null) {
+            log.info("OCR cache hit for {} ({} pages)", filenameForLog, cached.size());
+            for (int i = 0; i < cached.size(); i++) {
+                notifyPage(listener, i + 1, cached.size(), cached.get(i));
+            }
+            return joinPages(cached);
+        }
+
+        List<PageText> results;
+        try {
+            results = ocrPages(bytes, filenameForLog, listener);
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted()) return "";
+            log.warn("Page-parallel OCR unavailable for {} ({}) — using Tika's serial OCR",
+                filenameForLog, e.getMessage());
+            return ocrWithTika(bytes, filenameForLog);
+        }
+
+        List<String> pages = results.stream().map(PageText::text).toList();
+        String text = joinPages(pages);
+        long failedPages = results.stream().filter(PageText::failed).count();
+        if (failedPages > 0) {
+            log.warn("OCR of {} failed on {} of {} pages — result not cached", filenameForLog, failedPages, results.size());
+        } else if (!text.isEmpty()) {
+            writeCache(cacheKey, pages);
+        }
+        return text;
+    }
+
+    /**
+     * Render every page and OCR them in parallel; returns trimmed page texts in page order, with
+     * pages whose OCR failed marked as such.
+     *
+     * @throws IOException if the PDF can't be rendered or Tesseract can't be started at all
+     */
+    private List<PageText> ocrPages(byte[] bytes, String filenameForLog, PageListener listener) throws IOException {
+        long start = System.currentTimeMillis();
+        try (PDDocument doc = Loader.loadPDF(bytes)) {
+            int pageCount = doc.getNumberOfPages();
+            // PDDocument isn't thread-safe, so rendering stays on this thread; only OCR fans out
+            PDFRenderer renderer = new PDFRenderer(doc);
+            List<CompletableFuture<PageText>> futures = new ArrayList<>(pageCount);
+            List<PageText> pages = new ArrayList<>(pageCount);
+            // Queued pages check this and skip OCR once the document has failed
+            AtomicBoolean aborted = new AtomicBoolean();
+            try {
+                for (int i = 0; i < pageCount; i++) {
+                    renderAhead.acquire();
+                    byte[] png;
+                    try {
+                        png = renderPage(renderer, i);
+                    } catch (IOException | RuntimeException e) {
+                        renderAhead.release();
+                        throw e;
+                    }
+                    int pageNumber = i + 1;
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return aborted.get() ? PageText.FAILED : ocrImage(png, filenameForLog, pageNumber);
+                        } finally {
+                            renderAhead.release();
+                        }
+                    }, ocrExecutor));
+                    // Hand over every page that is already done, in order, while later pages render
+                    while (pages.size() < futures.size() && futures.get(pages.size()).isDone()) {
+                        collectPage(futures, pages, pageCount, listener);
+                    }
+                }
+                while (pages.size() < pageCount) {
+                    collectPage(futures, pages, pageCount, listener);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                aborted.set(true);
+                throw new IOException("Interrupted while OCR-ing " + filenameForLog, e);
+            } catch (IOException | RuntimeException e) {
+                aborted.set(true);
+                throw e;
+            }
+            log.info("OCR on {}: {} pages, {} chars in {} ms", filenameForLog, pageCount,
+                pages.stream().mapToInt(page -> page.text().length()).sum(), System.currentTimeMillis() - start);
+            return pages;
+        }
+    }
+
+    private void collectPage(List<CompletableFuture<PageText>> futures, List<PageText> pages, int pageCount,
+                             PageListener listener) throws IOException, InterruptedException {
+        try {
+            PageText page = futures.get(pages.size()).get();
+            pages.add(page);
+            if (!page.failed()) {
+                notifyPage(listener, pages.size(), pageCount, page.text());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof TesseractUnavailableException tue ? tue.getCause() : new IOException(cause);
+        }
+    }
+
+    private byte[] renderPage(PDFRenderer renderer, int pageIndex) throws IOException {
+        BufferedImage image = renderer.renderImageWithDPI(pageIndex, dpi, ImageType.GRAY);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * OCR one page image with a single-threaded tesseract process. A page that fails or times out
+     * is marked failed rather than losing the rest of the document.
+     *
+     * @throws TesseractUnavailableException if the tesseract binary can't be started
+     */
+    private PageText ocrImage(byte[] png, String filenameForLog, int pageNumber) {
+        Path image = null;
+        Path outputBase = null;
+        Process process = null;
+        try {
+            image = Files.createTempFile("ocr-page-", ".png");
+            Files.write(image, png);
+            outputBase = Files.createTempFile("ocr-page-", "");
+            ProcessBuilder pb = new ProcessBuilder(tesseractCommand, image.toString(), outputBase.toString(), "-l", LANGUAGE);
+            // Parallelism comes from the pool; tesseract's own OpenMP threads would only oversubscribe the cores
+            pb.environment().put("OMP_THREAD_LIMIT", "1");
+            pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+            try {
+                process = pb.start();
+            } catch (IOException e) {
+                throw new TesseractUnavailableException(e);
+            }
+            if (!process.waitFor(pageTimeoutSeconds, TimeUnit.SECONDS)) {
+                log.warn("OCR of {} page {} timed out after {}s", filenameForLog, pageNumber, pageTimeoutSeconds);
+                return PageText.FAILED;
+            }
+            if (process.exitValue() != 0) {
+                log.warn("OCR of {} page {} failed: tesseract exited with {}", filenameForLog, pageNumber, process.exitValue());
+                return PageText.FAILED;
+            }
+            return PageText.of(Files.readString(Path.of(outputBase + ".txt"), StandardCharsets.UTF_8).trim());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return PageText.FAILED;
+        } catch (IOException e) {
+            log.warn("OCR of {} page {} failed: {}", filenameForLog, pageNumber, e.getMessage());
+            return PageText.FAILED;
+        } finally {
+            if (process != null) process.destroyForcibly();
+            deleteQuietly(image);
+            if (outputBase != null) {
+                deleteQuietly(outputBase);
+                deleteQuietly(Path.of(outputBase + ".txt"));
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // temp dir is cleaned by the OS eventually
+        }
+    }
+
+    private void notifyPage(PageListener listener, int pageNumber, int pageCount, String text) {
+        if (listener == null) return;
+        try {
+            listener.onPage(pageNumber, pageCount, text);
+        } catch (RuntimeException e) {
+            log.warn("OCR page listener failed on page {}: {}", pageNumber, e.getMessage());
+        }
+    }
+
+    private List<String> readCache(String key) {
+        try {
+            String value = redisTemplate.opsForValue().get(key);
+            return value != null ? List.of(PAGE_SPLIT.split(value, -1)) : null;
+        } catch (Exception e) {
+            log.debug("Redis unavailable — OCR cache lookup skipped: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCache(String key, List<String> pages) {
+        try {
+            redisTemplate.opsForValue().set(key, String.join(PAGE_SEPARATOR, pages), Duration.ofDays(cacheTtlDays));
+        } catch (Exception e) {
+            log.debug("Redis unavailable — OCR result not cached: {}", e.getMessage());
+        }
+    }
+
+    private static String joinPages(List<String> pages) {
+        return String.join("\n\n", pages.stream().filter(p -> !p.isEmpty()).toList()).trim();
+    }
+
+    private static String sha256Hex(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is mandated by the JDK — this path is unreachable on any conformant JVM.
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Whole-document OCR through Tika's PDFParser, which rasterizes and OCRs pages serially.
+     * Kept as the fallback for hosts where tesseract can't be run directly.
+     */
+    private String ocrWithTika(byte[] bytes, String filenameForLog) {
         TesseractOCRConfig ocrConfig = new TesseractOCRConfig();
-        ocrConfig.setLanguage("eng");
+        ocrConfig.setLanguage(LANGUAGE);
 
         PDFParserConfig pdfConfig = new PDFParserConfig();
         // OCR_ONLY rasterizes each PDF page (via PDFBox's PDFRenderer) and OCRs the
@@ -82,4 +413,16 @@ public class PdfOcrService {
             return "";
         }
     }
+
+    /** Tesseract couldn't be started at all — the whole document falls back to Tika. */
+    private static final class TesseractUnavailableException extends RuntimeException {
+        TesseractUnavailableException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
 }
@@ -38,7 +38,7 @@ public class TemplateImportExtractor {
     private final PdfExtractor pdfExtractor;
     private final DocxExtractor docxExtractor;
 
-    public ExtractedDocument extract(MultipartFile file) throws IOException {
+    public ExtractedDocument extract(MultipartFile file, Long organizationId) throws IOException {
         if (file == null || file.isEmpty()) {
             throw new TemplateImportException(
                 TemplateImportException.Code.EMPTY_DOCUMENT,
@@ -53,7 +53,7 @@ public class TemplateImportExtractor {
         }
 
         ExtractedDocument doc = switch (classify(file)) {
-            case PDF  -> pdfExtractor.extract(file);
+            case PDF  -> pdfExtractor.extract(file, organizationId);
             case DOCX -> docxExtractor.extractDocx(file);
             case DOC  -> docxExtractor.extractDoc(file);
             case UNSUPPORTED -> throw new TemplateImportException(
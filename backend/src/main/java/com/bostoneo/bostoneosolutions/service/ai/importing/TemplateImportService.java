@@ -305,7 +305,7 @@ public class TemplateImportService {
         try {
             sf.setStatus(ImportSessionResponse.FileStatus.Status.EXTRACTING);
             log.info("Extracting {} (session {})", sf.getFilename(), session.getSessionId());
-            doc = extractor.extract(detached);
+            doc = extractor.extract(detached, session.getOrganizationId());
         } catch (TemplateImportException tie) {
             log.warn("Extraction rejected for {}: {} ({})", sf.getFilename(), tie.getCode(), tie.getMessage());
             markError(sf, tie.getCode().name(), tie.getMessage());
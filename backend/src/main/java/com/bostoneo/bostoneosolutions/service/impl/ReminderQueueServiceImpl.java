@@ -19,11 +19,14 @@ import com.bostoneo.bostoneosolutions.multitenancy.TenantService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -56,6 +59,9 @@ public class ReminderQueueServiceImpl implements ReminderQueueService {
     @Autowired
     private OrganizationRepository organizationRepository;
 
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
     @Value("${UI_APP_URL:http://localhost:4200}")
     private String frontendUrl;
 
@@ -69,6 +75,25 @@ public class ReminderQueueServiceImpl implements ReminderQueueService {
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMMM d, yyyy");
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("h:mm a");
+    private static final int CLAIM_BATCH_SIZE = 200;
+
+    /**
+     * Claim in one statement: the inner SELECT locks due rows with SKIP LOCKED so concurrent
+     * claimers on other nodes get disjoint batches; served by idx_reminder_queue_pending_due.
+     */
+    private static final String CLAIM_DUE_REMINDERS =
+        "UPDATE reminder_queue SET status = 'PROCESSING', last_attempt = :now, updated_at = :now " +
+        "WHERE id IN (SELECT id FROM reminder_queue WHERE status = 'PENDING' AND scheduled_time <= :dueBefore " +
+        "ORDER BY scheduled_time LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+        "RETURNING id, event_id, user_id, organization_id, scheduled_time, minutes_before, reminder_type, retry_count";
+
+    /**
+     * Take a claimed reminder out of PROCESSING before sending. A stale-claim release, a shutdown
+     * release or a deleted row (event rescheduled or removed) all make this match nothing, so a
+     * reminder already returned to the queue is never sent by the node that parked it.
+     */
+    private static final String MARK_SENDING =
+        "UPDATE reminder_queue SET status = 'SENDING', updated_at = :now WHERE id = :id AND status = 'PROCESSING'";
 
     @Override
     public ReminderQueueItem enqueueReminder(CalendarEvent event, Integer minutesBefore, String reminderType) {
@@ -135,139 +160,212 @@ public class ReminderQueueServiceImpl implements ReminderQueueService {
 
     @Override
     public void processReminderQueue() {
-        List<ReminderQueueItem> pendingReminders = 
-                reminderQueueRepository.findPendingRemindersReadyToSend(LocalDateTime.now());
-        
-        
-        for (ReminderQueueItem reminder : pendingReminders) {
-            try {
-                // Set tenant context so user/org lookups work correctly in the scheduler thread
-                TenantContext.setCurrentTenant(reminder.getOrganizationId());
+        List<ReminderQueueItem> claimed;
+        do {
+            claimed = claimDueReminders(LocalDateTime.now(), CLAIM_BATCH_SIZE);
+            for (ReminderQueueItem reminder : claimed) {
+                deliverReminder(reminder);
+            }
+        } while (claimed.size() == CLAIM_BATCH_SIZE);
+    }
+
+    @Override
+    public List<ReminderQueueItem> claimDueReminders(LocalDateTime dueBefore, int limit) {
+        // SECURITY: Intentionally global - each claimed row carries its organizationId and is delivered in that tenant context
+        return jdbc.query(CLAIM_DUE_REMINDERS,
+                new MapSqlParameterSource()
+                        .addValue("now", LocalDateTime.now())
+                        .addValue("dueBefore", dueBefore)
+                        .addValue("limit", limit),
+                (rs, rowNum) -> {
+                    ReminderQueueItem reminder = new ReminderQueueItem();
+                    reminder.setId(rs.getLong("id"));
+                    reminder.setEventId(rs.getLong("event_id"));
+                    reminder.setUserId(rs.getLong("user_id"));
+                    reminder.setOrganizationId(rs.getObject("organization_id", Long.class));
+                    reminder.setScheduledTime(rs.getTimestamp("scheduled_time").toLocalDateTime());
+                    reminder.setMinutesBefore(rs.getInt("minutes_before"));
+                    reminder.setReminderType(rs.getString("reminder_type"));
+                    reminder.setRetryCount(rs.getInt("retry_count"));
+                    reminder.setStatus("PROCESSING");
+                    return reminder;
+                });
+    }
 
-                // SECURITY: Use org-filtered query to ensure event belongs to same org as reminder
-                Optional<CalendarEvent> eventOpt = calendarEventRepository.findByIdAndOrganizationId(
-                        reminder.getEventId(), reminder.getOrganizationId());
+    @Override
+    public void deliverReminder(ReminderQueueItem reminder) {
+        try {
+            // Set tenant context so user/org lookups work correctly in the scheduler thread
+            TenantContext.setCurrentTenant(reminder.getOrganizationId());
+
+            if (!markReminderAsSending(reminder.getId())) {
+                log.info("Reminder {} is no longer claimed by this node, skipping delivery", reminder.getId());
+                return;
+            }
 
-                if (eventOpt.isEmpty()) {
-                    log.error("Event not found for reminder: {} (org: {})", reminder.getId(), reminder.getOrganizationId());
-                    markReminderAsFailed(reminder.getId(), "Event not found");
-                    continue;
-                }
-                
-                CalendarEvent event = eventOpt.get();
-                
-                // Skip if the event has already passed
-                if (event.getStartTime().isBefore(LocalDateTime.now())) {
-                    markReminderAsFailed(reminder.getId(), "Event already passed");
-                    continue;
-                }
-                
-                User user = userRepository.get(reminder.getUserId());
-                
-                if (user == null) {
-                    log.error("User not found for reminder: {}", reminder.getId());
-                    markReminderAsFailed(reminder.getId(), "User not found");
-                    continue;
-                }
-                
-                // Get organization for branding
-                Organization org = organizationRepository.findById(reminder.getOrganizationId()).orElse(null);
-
-                // Build branding - determine if client-facing or internal
-                boolean isClientFacing = "CLIENT_MEETING".equals(event.getEventType());
-                EmailBranding branding;
-                if (org != null) {
-                    if (isClientFacing) {
-                        branding = EmailBranding.firmClient(org.getName(), org.getLogoUrl(), org.getPrimaryColor(),
-                                org.getEmail(), org.getPhone(), org.getAddress(), frontendUrl);
-                    } else {
-                        branding = EmailBranding.firmInternal(org.getName(), org.getLogoUrl(), org.getPrimaryColor(),
-                                org.getEmail(), frontendUrl);
-                    }
+            // SECURITY: Use org-filtered query to ensure event belongs to same org as reminder
+            Optional<CalendarEvent> eventOpt = calendarEventRepository.findByIdAndOrganizationId(
+                    reminder.getEventId(), reminder.getOrganizationId());
+
+            if (eventOpt.isEmpty()) {
+                log.error("Event not found for reminder: {} (org: {})", reminder.getId(), reminder.getOrganizationId());
+                markReminderAsFailed(reminder.getId(), "Event not found");
+                return;
+            }
+            
+            CalendarEvent event = eventOpt.get();
+            
+            // Skip if the event has already passed
+            if (event.getStartTime().isBefore(LocalDateTime.now())) {
+                markReminderAsFailed(reminder.getId(), "Event already passed");
+                return;
+            }
+            
+            User user = userRepository.get(reminder.getUserId());
+            
+            if (user == null) {
+                log.error("User not found for reminder: {}", reminder.getId());
+                markReminderAsFailed(reminder.getId(), "User not found");
+                return;
+            }
+            
+            // Get organization for branding
+            Organization org = organizationRepository.findById(reminder.getOrganizationId()).orElse(null);
+
+            // Build branding - determine if client-facing or internal
+            boolean isClientFacing = "CLIENT_MEETING".equals(event.getEventType());
+            EmailBranding branding;
+            if (org != null) {
+                if (isClientFacing) {
+                    branding = EmailBranding.firmClient(org.getName(), org.getLogoUrl(), org.getPrimaryColor(),
+                            org.getEmail(), org.getPhone(), org.getAddress(), frontendUrl);
                 } else {
-                    branding = EmailBranding.platform(frontendUrl, legienceLogoUrl);
+                    branding = EmailBranding.firmInternal(org.getName(), org.getLogoUrl(), org.getPrimaryColor(),
+                            org.getEmail(), frontendUrl);
                 }
+            } else {
+                branding = EmailBranding.platform(frontendUrl, legienceLogoUrl);
+            }
 
-                // Determine urgency banner
-                EmailContent.UrgencyBanner urgency = getUrgencyBanner(event.getEventType());
+            // Determine urgency banner
+            EmailContent.UrgencyBanner urgency = getUrgencyBanner(event.getEventType());
 
-                // Determine detail card accent color
-                String accentColor = getAccentColor(event.getEventType());
+            // Determine detail card accent color
+            String accentColor = getAccentColor(event.getEventType());
 
-                // Build detail card rows
-                List<Map.Entry<String, String>> rows = new ArrayList<>();
-                rows.add(Map.entry("Date", event.getStartTime().format(DATE_FORMATTER)));
-                rows.add(Map.entry("Time", event.getStartTime().format(TIME_FORMATTER)));
-                if (event.getLocation() != null && !event.getLocation().isEmpty()) {
-                    rows.add(Map.entry("Location", event.getLocation()));
+            // Build detail card rows
+            List<Map.Entry<String, String>> rows = new ArrayList<>();
+            rows.add(Map.entry("Date", event.getStartTime().format(DATE_FORMATTER)));
+            rows.add(Map.entry("Time", event.getStartTime().format(TIME_FORMATTER)));
+            if (event.getLocation() != null && !event.getLocation().isEmpty()) {
+                rows.add(Map.entry("Location", event.getLocation()));
+            }
+            if (event.getCaseId() != null && event.getLegalCase() != null) {
+                if (event.getLegalCase().getTitle() != null) {
+                    rows.add(Map.entry("Case", event.getLegalCase().getTitle()));
                 }
-                if (event.getCaseId() != null && event.getLegalCase() != null) {
-                    if (event.getLegalCase().getTitle() != null) {
-                        rows.add(Map.entry("Case", event.getLegalCase().getTitle()));
-                    }
-                    if (event.getLegalCase().getCaseNumber() != null) {
-                        rows.add(Map.entry("Case #", event.getLegalCase().getCaseNumber()));
-                    }
+                if (event.getLegalCase().getCaseNumber() != null) {
+                    rows.add(Map.entry("Case #", event.getLegalCase().getCaseNumber()));
                 }
+            }
 
-                // Build CTA
-                String ctaText = getCtaText(event.getEventType());
-                String ctaUrl = getCtaUrl(event, frontendUrl);
-
-                // Time remaining text
-                String timeText = formatTimeBefore(reminder.getMinutesBefore());
-
-                // Build content
-                String signOff = org != null ? org.getName() : "Legience Team";
-                EmailContent content = EmailContent.builder()
-                        .recipientName(user.getFirstName() + " " + user.getLastName())
-                        .bodyParagraphs(List.of(getReminderIntroText(event.getEventType()), timeText))
-                        .detailCard(EmailContent.DetailCard.builder()
-                                .title(event.getTitle())
-                                .rows(rows)
-                                .accentColor(accentColor)
-                                .build())
-                        .ctaButton(EmailContent.CtaButton.builder().text(ctaText).url(ctaUrl).build())
-                        .signOffName(signOff)
-                        .urgency(urgency)
-                        .build();
-
-                String htmlBody = templateEngine.render(branding, content);
-                String subject = "Reminder: " + event.getTitle();
-
-                boolean emailSent = emailService.sendEmail(user.getEmail(), subject, htmlBody);
-                
-                // Send push notification if enabled for this event
-                boolean pushSent = false;
-                if (event.getPushNotification() != null && event.getPushNotification()) {
-                    try {
-                        notificationService.sendEventReminderNotification(
-                            event, 
-                            reminder.getMinutesBefore(), 
-                            reminder.getUserId()
-                        );
-                        pushSent = true;
-                        log.info("Push notification sent successfully for event: {}", event.getId());
-                    } catch (Exception e) {
-                        log.error("Failed to send push notification for event: {}", event.getId(), e);
-                    }
-                }
-                
-                if (emailSent) {
-                    markReminderAsSent(reminder.getId());
-                    log.info("Reminder email sent successfully for event: {}", event.getId());
-                } else {
-                    markReminderAsFailed(reminder.getId(), "Failed to send email");
-                    log.error("Failed to send reminder email for event: {}", event.getId());
+            // Build CTA
+            String ctaText = getCtaText(event.getEventType());
+            String ctaUrl = getCtaUrl(event, frontendUrl);
+
+            // Time remaining text
+            String timeText = formatTimeBefore(reminder.getMinutesBefore());
+
+            // Build content
+            String signOff = org != null ? org.getName() : "Legience Team";
+            EmailContent content = EmailContent.builder()
+                    .recipientName(user.getFirstName() + " " + user.getLastName())
+                    .bodyParagraphs(List.of(getReminderIntroText(event.getEventType()), timeText))
+                    .detailCard(EmailContent.DetailCard.builder()
+                            .title(event.getTitle())
+                            .rows(rows)
+                            .accentColor(accentColor)
+                            .build())
+                    .ctaButton(EmailContent.CtaButton.builder().text(ctaText).url(ctaUrl).build())
+                    .signOffName(signOff)
+                    .urgency(urgency)
+                    .build();
+
+            String htmlBody = templateEngine.render(branding, content);
+            String subject = "Reminder: " + event.getTitle();
+
+            boolean emailSent = emailService.sendEmail(user.getEmail(), subject, htmlBody);
+            
+            // Send push notification if enabled for this event
+            boolean pushSent = false;
+            if (event.getPushNotification() != null && event.getPushNotification()) {
+                try {
+                    notificationService.sendEventReminderNotification(
+                        event, 
+                        reminder.getMinutesBefore(), 
+                        reminder.getUserId()
+                    );
+                    pushSent = true;
+                    log.info("Push notification sent successfully for event: {}", event.getId());
+                } catch (Exception e) {
+                    log.error("Failed to send push notification for event: {}", event.getId(), e);
                 }
-                
-            } catch (Exception e) {
-                log.error("Error processing reminder: {}", reminder.getId(), e);
-                markReminderAsFailed(reminder.getId(), e.getMessage());
-            } finally {
-                TenantContext.clear();
             }
+            
+            if (emailSent) {
+                markReminderAsSent(reminder.getId());
+                log.info("Reminder email sent successfully for event: {}", event.getId());
+            } else {
+                markReminderAsFailed(reminder.getId(), "Failed to send email");
+                log.error("Failed to send reminder email for event: {}", event.getId());
+            }
+            
+        } catch (Exception e) {
+            log.error("Error processing reminder: {}", reminder.getId(), e);
+            markReminderAsFailed(reminder.getId(), e.getMessage());
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    private boolean markReminderAsSending(Long reminderId) {
+        // SECURITY: Scoped by primary key of a row this node claimed; the tenant was taken from that row
+        return jdbc.update(MARK_SENDING, new MapSqlParameterSource()
+                .addValue("now", LocalDateTime.now())
+                .addValue("id", reminderId)) == 1;
+    }
+
+    @Override
+    public void releaseClaims(Collection<Long> reminderIds) {
+        if (reminderIds.isEmpty()) return;
+        jdbc.update("UPDATE reminder_queue SET status = 'PENDING', updated_at = :now WHERE status = 'PROCESSING' AND id IN (:ids)",
+                new MapSqlParameterSource()
+                        .addValue("now", LocalDateTime.now())
+                        .addValue("ids", reminderIds));
+    }
+
+    @Override
+    public int releaseStaleClaims(LocalDateTime claimedBefore) {
+        int released = jdbc.update(
+                "UPDATE reminder_queue SET status = 'PENDING', updated_at = :now WHERE status = 'PROCESSING' AND last_attempt < :claimedBefore",
+                new MapSqlParameterSource()
+                        .addValue("now", LocalDateTime.now())
+                        .addValue("claimedBefore", claimedBefore));
+        if (released > 0) {
+            log.warn("Released {} reminder claims older than {}", released, claimedBefore);
+        }
+        // A row left in SENDING means the node died mid-send and the email may have gone out.
+        // Delivery is at-most-once, so it is failed rather than released for a second send.
+        int abandoned = jdbc.update(
+                "UPDATE reminder_queue SET status = 'FAILED', error_message = 'Delivery outcome unknown', " +
+                "retry_count = COALESCE(retry_count, 0) + 1, updated_at = :now WHERE status = 'SENDING' AND updated_at < :claimedBefore",
+                new MapSqlParameterSource()
+                        .addValue("now", LocalDateTime.now())
+                        .addValue("claimedBefore", claimedBefore));
+        if (abandoned > 0) {
+            log.warn("Failed {} reminders left in SENDING since before {}", abandoned, claimedBefore);
         }
+        return released;
     }
 
     @Override
@@ -10,9 +10,7 @@ import com.bostoneo.bostoneosolutions.model.User;
 import com.bostoneo.bostoneosolutions.repository.AppointmentRequestRepository;
 import com.bostoneo.bostoneosolutions.repository.ClientRepository;
 import com.bostoneo.bostoneosolutions.repository.LegalCaseRepository;
-import com.bostoneo.bostoneosolutions.repository.OrganizationRepository;
 import com.bostoneo.bostoneosolutions.repository.UserRepository;
-import com.bostoneo.bostoneosolutions.model.Organization;
 import com.bostoneo.bostoneosolutions.service.AppointmentRequestService;
 import com.bostoneo.bostoneosolutions.service.CalendarEventService;
 import com.bostoneo.bostoneosolutions.service.NotificationService;
@@ -45,7 +43,6 @@ public class AppointmentRequestServiceImpl implements AppointmentRequestService
     private final CalendarEventService calendarEventService;
     private final NotificationService notificationService;
     private final TenantService tenantService;
-    private final OrganizationRepository organizationRepository;
 
     private Long getRequiredOrganizationId() {
         return tenantService.getCurrentOrganizationId()
@@ -762,43 +759,41 @@ public class AppointmentRequestServiceImpl implements AppointmentRequestService
     public void processAppointmentReminders() {
         log.trace("Processing appointment reminders...");
 
-        // TENANT ISOLATED: Process each organization separately
+        // NOTE: One window query per reminder type across all organizations; each appointment
+        // carries its own organizationId, so there is no need to walk every organization
         LocalDateTime now = LocalDateTime.now();
-        List<Organization> organizations = organizationRepository.findAll();
-
-        for (Organization org : organizations) {
-            // Process 24-hour reminders
-            LocalDateTime twentyFourHoursFromNow = now.plusHours(24);
-            LocalDateTime twentyThreeHoursFromNow = now.plusHours(23);
-            List<AppointmentRequest> needing24hReminder = appointmentRequestRepository
-                    .findNeedingReminder24hByOrganizationId(org.getId(), twentyThreeHoursFromNow, twentyFourHoursFromNow);
-
-            for (AppointmentRequest appointment : needing24hReminder) {
-                try {
-                    send24HourReminder(appointment);
-                    appointment.setReminder24hSent(true);
-                    appointmentRequestRepository.save(appointment);
-                    log.info("Sent 24-hour reminder for appointment: {}", appointment.getId());
-                } catch (Exception e) {
-                    log.error("Failed to send 24-hour reminder for appointment {}: {}", appointment.getId(), e.getMessage());
-                }
+
+        // Process 24-hour reminders
+        LocalDateTime twentyFourHoursFromNow = now.plusHours(24);
+        LocalDateTime twentyThreeHoursFromNow = now.plusHours(23);
+        List<AppointmentRequest> needing24hReminder = appointmentRequestRepository
+                .findNeedingReminder24h(twentyThreeHoursFromNow, twentyFourHoursFromNow);
+
+        for (AppointmentRequest appointment : needing24hReminder) {
+            try {
+                send24HourReminder(appointment);
+                appointment.setReminder24hSent(true);
+                appointmentRequestRepository.save(appointment);
+                log.info("Sent 24-hour reminder for appointment: {}", appointment.getId());
+            } catch (Exception e) {
+                log.error("Failed to send 24-hour reminder for appointment {}: {}", appointment.getId(), e.getMessage());
             }
+        }
 
-            // Process 1-hour reminders
-            LocalDateTime oneHourFromNow = now.plusHours(1);
-            LocalDateTime fiftyMinutesFromNow = now.plusMinutes(50);
-            List<AppointmentRequest> needing1hReminder = appointmentRequestRepository
-                    .findNeedingReminder1hByOrganizationId(org.getId(), fiftyMinutesFromNow, oneHourFromNow);
-
-            for (AppointmentRequest appointment : needing1hReminder) {
-                try {
-                    send1HourReminder(appointment);
-                    appointment.setReminder1hSent(true);
-                    appointmentRequestRepository.save(appointment);
-                    log.info("Sent 1-hour reminder for appointment: {}", appointment.getId());
-                } catch (Exception e) {
-                    log.error("Failed to send 1-hour reminder for appointment {}: {}", appointment.getId(), e.getMessage());
-                }
+        // Process 1-hour reminders
+        LocalDateTime oneHourFromNow = now.plusHours(1);
+        LocalDateTime fiftyMinutesFromNow = now.plusMinutes(50);
+        List<AppointmentRequest> needing1hReminder = appointmentRequestRepository
+                .findNeedingReminder1h(fiftyMinutesFromNow, oneHourFromNow);
+
+        for (AppointmentRequest appointment : needing1hReminder) {
+            try {
+                send1HourReminder(appointment);
+                appointment.setReminder1hSent(true);
+                appointmentRequestRepository.save(appointment);
+                log.info("Sent 1-hour reminder for appointment: {}", appointment.getId());
+            } catch (Exception e) {
+                log.error("Failed to send 1-hour reminder for appointment {}: {}", appointment.getId(), e.getMessage());
             }
         }
 
@@ -15,9 +15,7 @@ import com.bostoneo.bostoneosolutions.service.NotificationService;
 import com.bostoneo.bostoneosolutions.service.ReminderQueueService;
 import com.bostoneo.bostoneosolutions.service.RoleService;
 import com.bostoneo.bostoneosolutions.repository.CaseAssignmentRepository;
-import com.bostoneo.bostoneosolutions.repository.OrganizationRepository;
 import com.bostoneo.bostoneosolutions.model.CaseAssignment;
-import com.bostoneo.bostoneosolutions.model.Organization;
 import com.bostoneo.bostoneosolutions.multitenancy.TenantService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -55,7 +53,6 @@ public class CalendarEventServiceImpl implements CalendarEventService {
     private final RoleService roleService;
     private final CaseAssignmentRepository caseAssignmentRepository;
     private final TenantService tenantService;
-    private final OrganizationRepository organizationRepository;
 
     private Long getRequiredOrganizationId() {
         return tenantService.getCurrentOrganizationId()
@@ -387,23 +384,21 @@ public class CalendarEventServiceImpl implements CalendarEventService {
     public void processEventReminders() {
         //log.info("Processing calendar event reminders");
 
-        // TENANT ISOLATED: Process each organization separately
+        // TENANT ISOLATED: Manual processing for the current organization only. Scheduled
+        // delivery goes through reminder_queue (see ReminderScheduler), not this scan.
+        Long orgId = getRequiredOrganizationId();
         LocalDateTime now = LocalDateTime.now();
-        List<Organization> organizations = organizationRepository.findAll();
-
-        for (Organization org : organizations) {
-            List<CalendarEvent> eventsRequiringReminders = calendarEventRepository
-                    .findEventsRequiringRemindersByOrganizationId(org.getId(), now);
 
-            for (CalendarEvent event : eventsRequiringReminders) {
-                // Process reminder for this event
-                processEventReminder(event);
-            }
+        List<CalendarEvent> eventsRequiringReminders = calendarEventRepository
+                .findEventsRequiringRemindersByOrganizationId(orgId, now);
 
-            // Also process additional reminders for deadlines within this organization
-            // SECURITY: Process per-organization to maintain tenant isolation
-            processAdditionalReminders(org.getId());
+        for (CalendarEvent event : eventsRequiringReminders) {
+            // Process reminder for this event
+            processEventReminder(event);
         }
+
+        // Also process additional reminders for deadlines within this organization
+        processAdditionalReminders(orgId);
     }
     
     /**
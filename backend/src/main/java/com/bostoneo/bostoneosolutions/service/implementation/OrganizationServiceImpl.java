@@ -10,6 +10,7 @@ import com.bostoneo.bostoneosolutions.model.PipelineStage;
 import com.bostoneo.bostoneosolutions.model.User;
 import com.bostoneo.bostoneosolutions.repository.OrganizationRepository;
 import com.bostoneo.bostoneosolutions.repository.PipelineStageRepository;
+import com.bostoneo.bostoneosolutions.service.OnlineUserService;
 import com.bostoneo.bostoneosolutions.service.OrganizationService;
 import com.bostoneo.bostoneosolutions.util.PracticeAreaCsvValidator;
 import jakarta.persistence.EntityManager;
@@ -38,6 +39,7 @@ public class OrganizationServiceImpl implements OrganizationService {
     private final PipelineStageRepository pipelineStageRepository;
     private final EntityManager entityManager;
     private final com.bostoneo.bostoneosolutions.multitenancy.TenantService tenantService;
+    private final OnlineUserService onlineUserService;
 
     /**
      * SECURITY: Verify the requested organization matches the current tenant context.
@@ -381,6 +383,9 @@ public class OrganizationServiceImpl implements OrganizationService {
 
         PlanQuotaDTO quota = PlanQuotaDTO.forPlanType(org.getPlanType());
 
+        // Presence from Redis: weekly actives (HyperLogLog) and users online right now
+        Long weeklyActiveUsers = onlineUserService.getActiveUserCount(organizationId, 7);
+
         // Calculate usage percentages
         Double userUsagePercent = quota.getMaxUsers() > 0 && quota.getMaxUsers() != Integer.MAX_VALUE
                 ? (userCount.doubleValue() / quota.getMaxUsers()) * 100 : 0.0;
@@ -391,7 +396,8 @@ public class OrganizationServiceImpl implements OrganizationService {
                 .organizationId(organizationId)
                 .organizationName(org.getName())
                 .userCount(userCount)
-                .activeUserCount(userCount) // For now, same as total
+                .activeUserCount(weeklyActiveUsers != null ? weeklyActiveUsers.intValue() : null)
+                .onlineUserCount(onlineUserService.getOnlineUserCount(organizationId))
                 .caseCount(caseCount)
                 .activeCaseCount(caseCount) // For now, same as total
                 .documentCount(documentCount)
@@ -5,6 +5,7 @@ import com.bostoneo.bostoneosolutions.exception.ResourceNotFoundException;
 import com.bostoneo.bostoneosolutions.model.FileItem;
 import com.bostoneo.bostoneosolutions.model.LegalCase;
 import com.bostoneo.bostoneosolutions.model.PIMedicalRecord;
+import com.bostoneo.bostoneosolutions.multitenancy.TenantAwareTaskDecorator;
 import com.bostoneo.bostoneosolutions.multitenancy.TenantService;
 import com.bostoneo.bostoneosolutions.repository.FileItemRepository;
 import com.bostoneo.bostoneosolutions.repository.LegalCaseRepository;
@@ -14,18 +15,19 @@ import com.bostoneo.bostoneosolutions.repository.PIMedicalRecordRepository;
 import com.bostoneo.bostoneosolutions.repository.PIMedicalSummaryRepository;
 import com.bostoneo.bostoneosolutions.service.CaseDocumentService;
 import com.bostoneo.bostoneosolutions.service.CaseStageService;
+import com.bostoneo.bostoneosolutions.service.DocumentTextCacheService;
 import com.bostoneo.bostoneosolutions.service.PIMedicalRecordService;
 import com.bostoneo.bostoneosolutions.service.PIDocumentChecklistService;
 import com.bostoneo.bostoneosolutions.service.FileStorageService;
 import com.bostoneo.bostoneosolutions.service.ai.ClaudeSonnet4Service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.tika.metadata.Metadata;
-import org.apache.tika.parser.AutoDetectParser;
-import org.apache.tika.parser.ParseContext;
-import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -36,6 +38,13 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -60,6 +69,32 @@ public class PIMedicalRecordServiceImpl implements PIMedicalRecordService {
     private final FileStorageService fileStorageService;
     private final CaseDocumentService caseDocumentService;
     private final CaseStageService caseStageService;
+    private final DocumentTextCacheService documentTextCacheService;
+
+    // SECURITY: scan workers run with the tenant + security context of the thread that submitted them
+    private final TaskDecorator tenantAwareTaskDecorator = new TenantAwareTaskDecorator();
+
+    // Files analyzed at once across all case scans — each runs its AI calls one after another,
+    // so this is the scan pipeline's budget of concurrent Bedrock requests.
+    @Value("${app.pi-scan.ai-concurrency:6}")
+    private int scanConcurrency;
+
+    private ExecutorService scanExecutor;
+
+    @PostConstruct
+    void startScanPool() {
+        AtomicInteger threadCount = new AtomicInteger();
+        scanExecutor = Executors.newFixedThreadPool(Math.max(1, scanConcurrency), runnable -> {
+            Thread thread = new Thread(runnable, "pi-scan-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopScanPool() {
+        scanExecutor.shutdownNow();
+    }
 
     private Long getRequiredOrganizationId() {
         return tenantService.getCurrentOrganizationId()
@@ -564,33 +599,85 @@ public class PIMedicalRecordServiceImpl implements PIMedicalRecordService {
 
         // Send initial progress (0/total)
         sendProgress(onProgress, caseId, 0, totalFiles, "Starting scan...");
+        int completed = 0;
+
+        // Pipelined scan: text extraction + AI analysis run concurrently on the shared scan pool
+        // (app.pi-scan.ai-concurrency files at a time across all scans), while every write —
+        // merge-dedup on provider+date+type, record creation, insurance fields, tracking — stays
+        // on this thread, in this transaction, in the order analyses finish. A single writer means
+        // two files for the same encounter can never both miss the merge lookup.
+        CompletionService<FileScanAnalysis> analyses = new ExecutorCompletionService<>(
+                task -> scanExecutor.execute(tenantAwareTaskDecorator.decorate(task)));
+        List<Future<FileScanAnalysis>> pending = new ArrayList<>();
+        for (FileItem file : pdfFiles) {
+            // Check if this document was already processed (using tracking table, not medical records).
+            // Skipped entirely on forceRescan — tracking was just cleared above.
+            boolean alreadyProcessed = !forceRescan
+                    && scannedDocumentRepository.existsByDocumentIdAndOrganizationId(file.getId(), orgId);
+            // A record already exists for this document — reuse it without re-calling the AI.
+            // Prevents billing amounts from doubling if the same file is analyzed more than once.
+            Optional<PIMedicalRecord> existingByDoc = alreadyProcessed
+                    ? Optional.empty()
+                    : repository.findByDocumentIdAndOrganizationId(file.getId(), orgId);
+            if (!alreadyProcessed && existingByDoc.isEmpty()) {
+                pending.add(analyses.submit(() -> analyzeFileForScan(file)));
+                continue;
+            }
 
-        // Process files sequentially with progress updates after each file.
-        // Sequential avoids race conditions in the merge-dedup logic (same provider+date+type).
-        // The Sonnet model switch (vs Opus) provides the major speedup (~3-5x faster AI calls).
-        for (int i = 0; i < pdfFiles.size(); i++) {
-            FileItem file = pdfFiles.get(i);
+            Map<String, Object> fileResult = new HashMap<>();
+            fileResult.put("fileId", file.getId());
+            fileResult.put("fileName", file.getOriginalName());
+            if (alreadyProcessed) {
+                fileResult.put("status", "skipped");
+                fileResult.put("reason", "Already processed");
+            } else {
+                log.info("Record already exists for document {}, returning existing record {}", file.getId(), existingByDoc.get().getId());
+                PIMedicalRecordDTO record = mapToDTO(existingByDoc.get());
+                boolean firstForRecord = countedRecordIds.add(record.getId());
+                if (firstForRecord) createdRecords.add(record);
+                fileResult.put("status", firstForRecord ? "success" : "merged");
+                fileResult.put("recordId", record.getId());
+                fileResult.put("provider", record.getProviderName());
+                fileResult.put("recordType", record.getRecordType());
+            }
+            scannedFiles.add(fileResult);
+            sendProgress(onProgress, caseId, ++completed, totalFiles, file.getOriginalName());
+        }
+        int submitted = pending.size();
+        log.info("Scanning {} files for case {} with up to {} concurrent analyses", submitted, caseId, scanConcurrency);
+
+        for (int n = 0; n < submitted; n++) {
+            FileScanAnalysis analysis;
             try {
+                analysis = analyses.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Nobody will persist the rest — free their pool slots instead of paying for the AI calls
+                pending.forEach(future -> future.cancel(true));
+                log.warn("Scan of case {} interrupted, cancelled {} files still being analyzed", caseId, submitted - n);
+                break;
+            } catch (ExecutionException e) {
+                // analyzeFileForScan reports failures in its result, so this is unexpected
+                log.error("Scan analysis task failed for case {}: {}", caseId, e.getCause().getMessage());
+                errors.add("Scan task failed: " + e.getCause().getMessage());
+                sendProgress(onProgress, caseId, ++completed, totalFiles, "unknown file");
+                continue;
+            }
+            FileItem file = analysis.file();
+            try {
+                if (analysis.failure() != null) {
+                    throw analysis.failure();
+                }
                 Map<String, Object> fileResult = new HashMap<>();
                 fileResult.put("fileId", file.getId());
                 fileResult.put("fileName", file.getOriginalName());
 
-                // Check if this document was already processed (using tracking table, not medical records).
-                // Skipped entirely on forceRescan — tracking was just cleared above.
-                boolean alreadyProcessed = !forceRescan
-                        && scannedDocumentRepository.existsByDocumentIdAndOrganizationId(file.getId(), orgId);
-                if (alreadyProcessed) {
-                    fileResult.put("status", "skipped");
-                    fileResult.put("reason", "Already processed");
-                    scannedFiles.add(fileResult);
-                    sendProgress(onProgress, caseId, i + 1, totalFiles, file.getOriginalName());
-                    continue;
-                }
-
-                // Analyze the file and create record. Tracking (created/merged status + raw AI
-                // extraction caching) happens INSIDE analyzeFileAndCreateRecord — the scan loop
+                // Persist the medical extraction. Tracking (created/merged status + raw AI
+                // extraction caching) happens INSIDE persistMedicalAnalysis — the scan loop
                 // only handles the non-medical/insurance/failed branches below.
-                PIMedicalRecordDTO record = analyzeFileAndCreateRecord(caseId, file.getId());
+                PIMedicalRecordDTO record = analysis.medical() != null
+                        ? persistMedicalAnalysis(caseId, orgId, file.getId(), analysis.medical())
+                        : null;
                 if (record != null && countedRecordIds.add(record.getId())) {
                     createdRecords.add(record);
                     fileResult.put("status", "success");
@@ -605,7 +692,8 @@ public class PIMedicalRecordServiceImpl implements PIMedicalRecordService {
                     fileResult.put("recordType", record.getRecordType());
                 } else {
                     // Not a medical document — check if it's an insurance document
-                    boolean extractedInsurance = tryExtractInsuranceInfo(caseId, orgId, file);
+                    boolean extractedInsurance = analysis.insurance() != null
+                            && applyInsuranceInfo(caseId, orgId, file, analysis.insurance());
                     if (extractedInsurance) {
                         fileResult.put("status", "insurance_extracted");
                         fileResult.put("reason", "Insurance policy information extracted");
@@ -632,8 +720,8 @@ public class PIMedicalRecordServiceImpl implements PIMedicalRecordService {
                 trackScannedDocument(caseId, orgId, file.getId(), "failed", null, e.getMessage());
             }
 
-            // Send progress after each file
-            sendProgress(onProgress, caseId, i + 1, totalFiles, file.getOriginalName());
+            // Send progress after each file, in completion order
+            sendProgress(onProgress, caseId, ++completed, totalFiles, file.getOriginalName());
         }
 
         // Mark summary as stale if records were created
@@ -951,6 +1039,33 @@ public class PIMedicalRecordServiceImpl implements PIMedicalRecordService {
         }
     }
 
+    /**
+     * Read-only half of scanning one file, run on a scan worker: extract text, then ask the AI
+     * whether it is a medical document and, if not, whether it is an insurance document.
+     * Never throws — failures are carried back to the writer in {@link FileScanAnalysis#failure()}.
+     */
+    private FileScanAnalysis analyzeFileForScan(FileItem file) {
+        try {
+            String extractedText = extractTextFromFile(file);
+            if (extractedText == null || extractedText.trim().isEmpty()) {
+                log.warn("Could not extract text from file: {}", file.getOriginalName());
+                return new FileScanAnalysis(file, null, null, null);
+            }
+            Map<String, Object> medical = analyzeMedicalText(file, extractedText);
+            Map<String, Object> insurance = medical == null ? analyzeInsuranceText(file, extractedText) : null;
+            return new FileScanAnalysis(file, medical, insurance, null);
+        } catch (Exception e) {
+            return new FileScanAnalysis(file, null, null, e);
+        }
+    }
+
+    /**
+     * AI output for one scanned file, handed from a scan worker to the writer.
+     * At most one of medical/insurance is set; failure is set when analysis threw.
+     */
+    private record FileScanAnalysis(FileItem file, Map<String, Object> medical,
+                                    Map<String, Object> insurance, Exception failure) {}
+
     private void sendProgress(Consumer<Map<String, Object>> onProgress, Long caseId,
                                int current, int total, String currentFile) {
         if (onProgress == null) return;
@@ -1028,6 +1143,19 @@ public class PIMedicalRecordServiceImpl implements PIMedicalRecordService {
             return null;
         }
 
+        Map<String, Object> analysisResult = analyzeMedicalText(file, extractedText);
+        if (analysisResult == null) {
+            return null;
+        }
+        return persistMedicalAnalysis(caseId, orgId, fileId, analysisResult);
+    }
+
+    /**
+     * AI half of {@link #analyzeFileAndCreateRecord}: returns the extraction for a medical
+     * document, or null when the AI call failed or the file isn't one. Touches no entities,
+     * so scan workers can run it concurrently.
+     */
+    private Map<String, Object> analyzeMedicalText(FileItem file, String extractedText) {
         // Limit text length for API
         // 30K char cap — large enough to capture vitals/ROM/special tests across multi-page
         // clinical notes (Tier 2 extraction needs more context than the legacy 15K cap allowed).
@@ -1042,7 +1170,17 @@ public class PIMedicalRecordServiceImpl implements PIMedicalRecordService {
             log.info("File {} is not identified as a medical document", file.getOriginalName());
             return null;
         }
+        return analysisResult;
+    }
 
+    /**
+     * Persistence half of {@link #analyzeFileAndCreateRecord}: merge the extraction into a
+     * same provider+date record or create a new one. Not safe to run concurrently for one case —
+     * two files for the same encounter would both miss the merge lookup and create duplicates —
+     * so the scan pipeline calls it from its single writer thread.
+     */
+    private PIMedicalRecordDTO persistMedicalAnalysis(Long caseId, Long orgId, Long fileId,
+                                                      Map<String, Object> analysisResult) {
         // Normalize provider name for consistent matching
         String rawProviderName = (String) analysisResult.getOrDefault("providerName", "Unknown Provider");
         String normalizedProvider = normalizeProviderName(rawProviderName);
@@ -1135,37 +1273,27 @@ public class PIMedicalRecordServiceImpl implements PIMedicalRecordService {
     }
 
     private String extractTextFromFile(FileItem file) {
-        // Primary: Tika text extraction (fast, works for text-based PDFs)
+        // Primary: the organization's shared text-extraction cache (PDFBox for PDFs, Tika otherwise);
+        // a file already extracted by another pipeline — or OCR'd by one — isn't parsed again
         try {
             org.springframework.core.io.Resource resource = fileStorageService.loadFileAsResource(file.getFilePath());
+            byte[] bytes;
             try (InputStream stream = resource.getInputStream()) {
-                BodyContentHandler handler = new BodyContentHandler(-1);
-                Metadata metadata = new Metadata();
-                metadata.set(org.apache.tika.metadata.TikaCoreProperties.RESOURCE_NAME_KEY, file.getOriginalName());
-                if (file.getMimeType() != null) {
-                    metadata.set(Metadata.CONTENT_TYPE, file.getMimeType());
-                }
-                // Use PDFParser directly for PDFs to avoid AutoDetectParser misidentifying them as archives
-                boolean isPdf = "application/pdf".equals(file.getMimeType())
-                        || (file.getOriginalName() != null && file.getOriginalName().toLowerCase().endsWith(".pdf"));
-                org.apache.tika.parser.Parser parser = isPdf
-                        ? new org.apache.tika.parser.pdf.PDFParser()
-                        : new AutoDetectParser();
-                ParseContext context = new ParseContext();
-                parser.parse(stream, handler, metadata, context);
-                String text = handler.toString();
-                if (text != null && !text.trim().isEmpty()) {
-                    log.info("Tika extracted {} chars from file {}", text.length(), file.getOriginalName());
-                    return text;
-                }
+                bytes = stream.readAllBytes();
+            }
+            DocumentTextCacheService.ExtractedText extracted = documentTextCacheService.extract(
+                    file.getOrganizationId(), bytes, file.getOriginalName(), file.getMimeType());
+            if (!extracted.isEmpty()) {
+                log.info("Extracted {} chars from file {} ({})", extracted.text().length(), file.getOriginalName(), extracted.method());
+                return extracted.text();
             }
         } catch (Exception e) {
-            log.warn("Tika extraction failed for file {} (id={}): {}", file.getOriginalName(), file.getId(), e.getMessage());
+            log.warn("Text extraction failed for file {} (id={}): {}", file.getOriginalName(), file.getId(), e.getMessage());
         }
 
         // Fallback: CaseDocumentService has Vision OCR (PDF→JPEG + Claude Haiku) for scanned PDFs
         if ("application/pdf".equals(file.getMimeType())) {
-            log.info("Tika returned empty for file {} — attempting OCR fallback via CaseDocumentService", file.getId());
+            log.info("Text layer empty for file {} — attempting OCR fallback via CaseDocumentService", file.getId());
             try {
                 Long orgId = getRequiredOrganizationId();
                 String ocrText = caseDocumentService.getDocumentText(file.getId(), orgId, 15000);
@@ -2038,27 +2166,32 @@ public class PIMedicalRecordServiceImpl implements PIMedicalRecordService {
     // ==========================================
 
     /**
-     * Attempt to extract insurance information (policy limit, company, adjuster, etc.)
-     * from a non-medical document. If found, saves directly to the case entity.
-     *
-     * @return true if insurance information was extracted and saved
+     * AI half of insurance extraction: returns the extracted fields when the document is
+     * insurance-related, otherwise null. Touches no entities, so scan workers can run it concurrently.
      */
-    private boolean tryExtractInsuranceInfo(Long caseId, Long orgId, FileItem file) {
+    private Map<String, Object> analyzeInsuranceText(FileItem file, String extractedText) {
         try {
-            String extractedText = extractTextFromFile(file);
-            if (extractedText == null || extractedText.trim().isEmpty()) {
-                return false;
-            }
-
             String textForAnalysis = extractedText.length() > 15000
                     ? extractedText.substring(0, 15000)
                     : extractedText;
 
             Map<String, Object> insuranceData = analyzeInsuranceDocumentWithAI(file.getOriginalName(), textForAnalysis);
             if (insuranceData == null || !Boolean.TRUE.equals(insuranceData.get("isInsuranceDocument"))) {
-                return false;
+                return null;
             }
+            return insuranceData;
+        } catch (Exception e) {
+            log.error("Error extracting insurance info from file {}: {}", file.getId(), e.getMessage());
+            return null;
+        }
+    }
 
+    /**
+     * Persistence half of insurance extraction: copy verified fields onto the case.
+     * Returns whether the case was updated.
+     */
+    private boolean applyInsuranceInfo(Long caseId, Long orgId, FileItem file, Map<String, Object> insuranceData) {
+        try {
             // Load the case with tenant isolation
             Optional<LegalCase> caseOpt = legalCaseRepository.findByIdAndOrganizationId(caseId, orgId);
             if (caseOpt.isEmpty()) {
@@ -2110,7 +2243,7 @@ public class PIMedicalRecordServiceImpl implements PIMedicalRecordService {
             return updated;
 
         } catch (Exception e) {
-            log.error("Error extracting insurance info from file {}: {}", file.getId(), e.getMessage());
+            log.error("Error saving insurance info from file {}: {}", file.getId(), e.getMessage());
             return false;
         }
     }
@@ -13,6 +13,7 @@ import com.bostoneo.bostoneosolutions.rowmapper.UserRowMapper;
 import com.bostoneo.bostoneosolutions.service.EmailService;
 import com.bostoneo.bostoneosolutions.service.NotificationService;
 import com.bostoneo.bostoneosolutions.service.OnlineUserService;
+import com.bostoneo.bostoneosolutions.service.PlatformMetricsService;
 import com.bostoneo.bostoneosolutions.service.SuperAdminService;
 import com.bostoneo.bostoneosolutions.service.TokenBlacklistService;
 import com.bostoneo.bostoneosolutions.util.PracticeAreaCsvValidator;
@@ -51,8 +52,6 @@ import java.util.stream.Collectors;
 public class SuperAdminServiceImpl implements SuperAdminService {
 
     private final OrganizationRepository organizationRepository;
-    private final LegalCaseRepository legalCaseRepository;
-    private final ClientRepository clientRepository;
     private final InvoiceRepository invoiceRepository;
     private final AuditLogRepository auditLogRepository;
     private final PlatformAnnouncementRepository platformAnnouncementRepository;
@@ -64,6 +63,7 @@ public class SuperAdminServiceImpl implements SuperAdminService {
     private final BCryptPasswordEncoder passwordEncoder;
     private final TokenBlacklistService tokenBlacklistService;
     private final OnlineUserService onlineUserService;
+    private final PlatformMetricsService platformMetricsService;
 
     @Value("${UI_APP_URL:http://localhost:4200}")
     private String frontendBaseUrl;
@@ -81,54 +81,30 @@ public class SuperAdminServiceImpl implements SuperAdminService {
         "SELECT * FROM users WHERE LOWER(first_name) LIKE LOWER(:query) OR LOWER(last_name) LIKE LOWER(:query) OR LOWER(email) LIKE LOWER(:query) ORDER BY id LIMIT :pageSize OFFSET :offset";
     private static final String COUNT_SEARCH_USERS =
         "SELECT COUNT(*) FROM users WHERE LOWER(first_name) LIKE LOWER(:query) OR LOWER(last_name) LIKE LOWER(:query) OR LOWER(email) LIKE LOWER(:query)";
-    private static final String COUNT_ACTIVE_USERS_LAST_N_DAYS =
-        "SELECT COUNT(DISTINCT user_id) FROM audit_log WHERE timestamp >= :since AND user_id IS NOT NULL";
 
     @Override
     public PlatformStatsDTO getPlatformStats() {
         log.info("SUPERADMIN: Fetching platform-wide statistics");
 
-        // Organization counts
-        List<Organization> allOrgs = organizationRepository.findAll();
-        int totalOrgs = allOrgs.size();
-        int activeOrgs = (int) allOrgs.stream()
-            .filter(o -> o.getStatus() == Organization.OrganizationStatus.ACTIVE)
-            .count();
-        int suspendedOrgs = (int) allOrgs.stream()
-            .filter(o -> o.getStatus() == Organization.OrganizationStatus.SUSPENDED)
-            .count();
-
-        // User counts
-        Integer totalUsers = jdbc.queryForObject(COUNT_ALL_USERS, new MapSqlParameterSource(), Integer.class);
-
-        // Active users in last 7 days
-        LocalDateTime sevenDaysAgo = LocalDateTime.now().minusDays(7);
-        Integer activeUsersLast7Days = jdbc.queryForObject(COUNT_ACTIVE_USERS_LAST_N_DAYS,
-            new MapSqlParameterSource().addValue("since", sevenDaysAgo), Integer.class);
-
-        // Active users in last 30 days
-        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-        Integer activeUsersLast30Days = jdbc.queryForObject(COUNT_ACTIVE_USERS_LAST_N_DAYS,
-            new MapSqlParameterSource().addValue("since", thirtyDaysAgo), Integer.class);
-
-        // Case counts (across all orgs)
-        long totalCases = legalCaseRepository.count();
-        long activeCases = legalCaseRepository.findByStatus(CaseStatus.ACTIVE).size();
-        long closedCases = legalCaseRepository.findByStatus(CaseStatus.CLOSED).size();
-
-        // Client counts
-        long totalClients = clientRepository.count();
-
-        // Invoice counts and revenue
-        long totalInvoices = invoiceRepository.count();
-        Double paidRevenue = invoiceRepository.sumTotalAmountByStatus(InvoiceStatus.PAID);
-        BigDecimal totalRevenue = paidRevenue != null ? BigDecimal.valueOf(paidRevenue) : BigDecimal.ZERO;
+        // Counts come from the background-refreshed platform snapshot (grouped SQL, no entity loads)
+        PlatformMetricsService.PlatformSnapshot snapshot = platformMetricsService.getSnapshot();
+        PlatformMetricsService.PlatformCounts counts = snapshot.counts();
+
+        int totalOrgs = (int) counts.totalOrganizations();
+        int activeOrgs = counts.organizationsByStatus().getOrDefault(Organization.OrganizationStatus.ACTIVE.name(), 0L).intValue();
+        int suspendedOrgs = counts.organizationsByStatus().getOrDefault(Organization.OrganizationStatus.SUSPENDED.name(), 0L).intValue();
+
+        long totalCases = counts.totalCases();
+        long activeCases = counts.casesByStatus().getOrDefault(CaseStatus.ACTIVE.name(), 0L);
+        long closedCases = counts.casesByStatus().getOrDefault(CaseStatus.CLOSED.name(), 0L);
+
+        BigDecimal totalRevenue = counts.invoiceAmountByStatus().getOrDefault(InvoiceStatus.PAID.name(), BigDecimal.ZERO);
 
         // Recent activity (last 10 across all orgs) — raw SQL with name resolution
         List<PlatformStatsDTO.RecentActivityDTO> recentActivity = getRecentActivityWithNames(null);
 
         // Build alerts
-        List<PlatformStatsDTO.AlertDTO> alerts = buildAlerts(allOrgs);
+        List<PlatformStatsDTO.AlertDTO> alerts = buildAlerts(snapshot.alertRows());
 
         // New signups — 5 most recent organizations created in last 30 days
         List<PlatformStatsDTO.NewSignupDTO> newSignups = getNewSignups();
@@ -137,14 +113,14 @@ public class SuperAdminServiceImpl implements SuperAdminService {
             .totalOrganizations(totalOrgs)
             .activeOrganizations(activeOrgs)
             .suspendedOrganizations(suspendedOrgs)
-            .totalUsers(totalUsers != null ? totalUsers : 0)
-            .activeUsersLast7Days(activeUsersLast7Days != null ? activeUsersLast7Days : 0)
-            .activeUsersLast30Days(activeUsersLast30Days != null ? activeUsersLast30Days : 0)
+            .totalUsers((int) counts.totalUsers())
+            .activeUsersLast7Days(counts.activeUsersLast7Days())
+            .activeUsersLast30Days(counts.activeUsersLast30Days())
             .totalCases((int) totalCases)
             .activeCases((int) activeCases)
             .closedCases((int) closedCases)
-            .totalClients((int) totalClients)
-            .totalInvoices((int) totalInvoices)
+            .totalClients((int) counts.totalClients())
+            .totalInvoices((int) counts.totalInvoices())
             .totalRevenue(totalRevenue)
             .systemHealth("HEALTHY")
             .recentActivity(recentActivity)
@@ -165,25 +141,21 @@ public class SuperAdminServiceImpl implements SuperAdminService {
             .map(Sort.Order::getDirection)
             .findFirst().orElse(Sort.Direction.ASC);
 
-        // Strip non-column sort fields — use default sort for DB query
-        Pageable dbPageable = sortByUserCount
-            ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("id").ascending())
-            : pageable;
-
-        Page<Organization> orgsPage = organizationRepository.findAll(dbPageable);
-
-        List<OrganizationWithStatsDTO> orgsWithStats = orgsPage.getContent().stream()
-            .map(this::mapToOrganizationWithStats)
-            .collect(Collectors.toList());
-
-        // Sort by computed userCount in-memory if requested
         if (sortByUserCount) {
-            orgsWithStats.sort((a, b) -> sortDirection == Sort.Direction.DESC
-                ? Integer.compare(b.getUserCount(), a.getUserCount())
-                : Integer.compare(a.getUserCount(), b.getUserCount()));
+            // Order across all organizations in SQL rather than re-sorting one page in memory
+            PlatformMetricsService.IdPage idPage = platformMetricsService.organizationIdsByUserCount(
+                sortDirection, pageable.getOffset(), pageable.getPageSize());
+            Map<Long, Organization> orgsById = organizationRepository.findAllById(idPage.ids()).stream()
+                .collect(Collectors.toMap(Organization::getId, o -> o));
+            List<Organization> orgs = idPage.ids().stream()
+                .map(orgsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+            return new PageImpl<>(mapToOrganizationsWithStats(orgs), pageable, idPage.total());
         }
 
-        return new PageImpl<>(orgsWithStats, pageable, orgsPage.getTotalElements());
+        Page<Organization> orgsPage = organizationRepository.findAll(pageable);
+        return new PageImpl<>(mapToOrganizationsWithStats(orgsPage.getContent()), pageable, orgsPage.getTotalElements());
     }
 
     @Override
@@ -210,6 +182,9 @@ public class SuperAdminServiceImpl implements SuperAdminService {
         // Recent activity — raw SQL with name resolution
         List<PlatformStatsDTO.RecentActivityDTO> recentActivity = getRecentActivityWithNames(organizationId);
 
+        // Presence from Redis: weekly actives (HyperLogLog) and users online right now
+        Long weeklyActiveUsers = onlineUserService.getActiveUserCount(organizationId, 7);
+
         // Calculate quota percentages
         Double userQuotaPercent = calculateQuotaPercent(userCount, org.getMaxUsers());
         Double caseQuotaPercent = calculateQuotaPercent(caseCount, org.getMaxCases());
@@ -217,6 +192,8 @@ public class SuperAdminServiceImpl implements SuperAdminService {
 
         OrganizationDetailDTO.OrganizationStatsInfo stats = OrganizationDetailDTO.OrganizationStatsInfo.builder()
             .userCount(userCount != null ? userCount : 0)
+            .activeUserCount(weeklyActiveUsers != null ? weeklyActiveUsers.intValue() : null)
+            .onlineUserCount(onlineUserService.getOnlineUserCount(organizationId))
             .caseCount(caseCount != null ? caseCount : 0)
             .clientCount(clientCount != null ? clientCount : 0)
             .invoiceCount((int) invoiceCount)
@@ -520,9 +497,9 @@ public class SuperAdminServiceImpl implements SuperAdminService {
         int start = (int) pageable.getOffset();
         int end = Math.min(start + pageable.getPageSize(), matchingOrgs.size());
 
-        List<OrganizationWithStatsDTO> pagedOrgs = matchingOrgs.subList(start, end).stream()
-            .map(this::mapToOrganizationWithStats)
-            .collect(Collectors.toList());
+        List<OrganizationWithStatsDTO> pagedOrgs = start < end
+            ? mapToOrganizationsWithStats(matchingOrgs.subList(start, end))
+            : new ArrayList<>();
 
         return new PageImpl<>(pagedOrgs, pageable, matchingOrgs.size());
     }
@@ -580,15 +557,21 @@ public class SuperAdminServiceImpl implements SuperAdminService {
 
     // ==================== HELPER METHODS ====================
 
-    private OrganizationWithStatsDTO mapToOrganizationWithStats(Organization org) {
-        Integer userCount = organizationRepository.countUsersByOrganizationId(org.getId());
-        Integer caseCount = organizationRepository.countCasesByOrganizationId(org.getId());
-        Integer clientCount = organizationRepository.countClientsByOrganizationId(org.getId());
-        long invoiceCount = invoiceRepository.countByOrganizationId(org.getId());
+    /**
+     * Map a page of organizations with their counts from one grouped query.
+     */
+    private List<OrganizationWithStatsDTO> mapToOrganizationsWithStats(List<Organization> orgs) {
+        Map<Long, PlatformMetricsService.OrgStats> stats = platformMetricsService.getOrganizationStats(
+            orgs.stream().map(Organization::getId).collect(Collectors.toList()));
+        return orgs.stream()
+            .map(org -> mapToOrganizationWithStats(org, stats.getOrDefault(org.getId(), PlatformMetricsService.OrgStats.EMPTY)))
+            .collect(Collectors.toList());
+    }
 
+    private OrganizationWithStatsDTO mapToOrganizationWithStats(Organization org, PlatformMetricsService.OrgStats stats) {
         // Calculate quota percentages
-        Double userQuotaPercent = calculateQuotaPercent(userCount, org.getMaxUsers());
-        Double caseQuotaPercent = calculateQuotaPercent(caseCount, org.getMaxCases());
+        Double userQuotaPercent = calculateQuotaPercent(stats.userCount(), org.getMaxUsers());
+        Double caseQuotaPercent = calculateQuotaPercent(stats.caseCount(), org.getMaxCases());
         Double storageQuotaPercent = calculateStorageQuotaPercent(0L, org.getMaxStorageBytes());
 
         return OrganizationWithStatsDTO.builder()
@@ -599,10 +582,10 @@ public class SuperAdminServiceImpl implements SuperAdminService {
             .status(org.getStatus() != null ? org.getStatus().name() : null)
             .email(org.getEmail())
             .phone(org.getPhone())
-            .userCount(userCount != null ? userCount : 0)
-            .caseCount(caseCount != null ? caseCount : 0)
-            .clientCount(clientCount != null ? clientCount : 0)
-            .invoiceCount((int) invoiceCount)
+            .userCount(stats.userCount())
+            .caseCount(stats.caseCount())
+            .clientCount(stats.clientCount())
+            .invoiceCount(stats.invoiceCount())
             .createdAt(org.getCreatedAt())
             .userQuotaPercent(userQuotaPercent)
             .caseQuotaPercent(caseQuotaPercent)
@@ -754,30 +737,29 @@ public class SuperAdminServiceImpl implements SuperAdminService {
         return (usedBytes.doubleValue() / maxBytes.doubleValue()) * 100.0;
     }
 
-    private List<PlatformStatsDTO.AlertDTO> buildAlerts(List<Organization> organizations) {
+    private List<PlatformStatsDTO.AlertDTO> buildAlerts(List<PlatformMetricsService.OrgAlertRow> rows) {
         List<PlatformStatsDTO.AlertDTO> alerts = new ArrayList<>();
 
-        for (Organization org : organizations) {
+        for (PlatformMetricsService.OrgAlertRow row : rows) {
             // Check for quota warnings (>80% usage)
-            Integer userCount = organizationRepository.countUsersByOrganizationId(org.getId());
-            if (userCount != null && org.getMaxUsers() != null && org.getMaxUsers() > 0) {
-                double userPercent = (userCount.doubleValue() / org.getMaxUsers()) * 100;
+            if (row.maxUsers() != null && row.maxUsers() > 0) {
+                double userPercent = ((double) row.userCount() / row.maxUsers()) * 100;
                 if (userPercent >= 80) {
                     alerts.add(PlatformStatsDTO.AlertDTO.builder()
                         .type("WARNING")
-                        .message(String.format("User quota at %.0f%% (%d/%d)", userPercent, userCount, org.getMaxUsers()))
-                        .organizationName(org.getName())
+                        .message(String.format("User quota at %.0f%% (%d/%d)", userPercent, row.userCount(), row.maxUsers()))
+                        .organizationName(row.name())
                         .timestamp(LocalDateTime.now().toString())
                         .build());
                 }
             }
 
             // Check for suspended organizations
-            if (org.getStatus() == Organization.OrganizationStatus.SUSPENDED) {
+            if (Organization.OrganizationStatus.SUSPENDED.name().equals(row.status())) {
                 alerts.add(PlatformStatsDTO.AlertDTO.builder()
                     .type("INFO")
                     .message("Organization is suspended")
-                    .organizationName(org.getName())
+                    .organizationName(row.name())
                     .timestamp(LocalDateTime.now().toString())
                     .build());
             }
@@ -963,24 +945,9 @@ public class SuperAdminServiceImpl implements SuperAdminService {
             "SELECT o.id, o.name, COALESCE(SUM(i.total_amount), 0) as value FROM organizations o LEFT JOIN invoices i ON i.organization_id = o.id AND i.status = 'PAID' GROUP BY o.id, o.name HAVING COALESCE(SUM(i.total_amount), 0) > 0 ORDER BY value DESC LIMIT 5"
         );
 
-        // Plan distribution
-        Map<String, Long> orgsByPlan = new HashMap<>();
-        List<Organization> allOrgs = organizationRepository.findAll();
-        for (Organization org : allOrgs) {
-            String plan = org.getPlanType() != null ? org.getPlanType().name() : "NONE";
-            orgsByPlan.merge(plan, 1L, Long::sum);
-        }
-
-        // Active users
-        LocalDateTime sevenDaysAgo = LocalDateTime.now().minusDays(7);
-        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-
-        Integer dau = jdbc.queryForObject(COUNT_ACTIVE_USERS_LAST_N_DAYS,
-            new MapSqlParameterSource().addValue("since", LocalDateTime.now().minusDays(1)), Integer.class);
-        Integer wau = jdbc.queryForObject(COUNT_ACTIVE_USERS_LAST_N_DAYS,
-            new MapSqlParameterSource().addValue("since", sevenDaysAgo), Integer.class);
-        Integer mau = jdbc.queryForObject(COUNT_ACTIVE_USERS_LAST_N_DAYS,
-            new MapSqlParameterSource().addValue("since", thirtyDaysAgo), Integer.class);
+        // Plan distribution and active users from the platform snapshot
+        PlatformMetricsService.PlatformCounts counts = platformMetricsService.getSnapshot().counts();
+        Map<String, Long> orgsByPlan = new HashMap<>(counts.organizationsByPlan());
 
         return PlatformAnalyticsDTO.builder()
             .organizationGrowth(orgGrowth)
@@ -991,9 +958,9 @@ public class SuperAdminServiceImpl implements SuperAdminService {
             .topOrgsByRevenue(topOrgsByRevenue)
             .usersByRole(usersByRole)
             .organizationsByPlan(orgsByPlan)
-            .dailyActiveUsers(dau != null ? dau : 0)
-            .weeklyActiveUsers(wau != null ? wau : 0)
-            .monthlyActiveUsers(mau != null ? mau : 0)
+            .dailyActiveUsers(counts.activeUsersLastDay())
+            .weeklyActiveUsers(counts.activeUsersLast7Days())
+            .monthlyActiveUsers(counts.activeUsersLast30Days())
             .build();
     }
 
@@ -12,6 +12,10 @@ import java.util.regex.Pattern;
 @Slf4j
 public class BooleanSearchParser {
 
+    private static final Pattern QUOTED_PHRASE = Pattern.compile("\"([^\"]+)\"");
+    // Stand-in for spaces inside a quoted phrase (not matched by \s)
+    private static final String PHRASE_SPACE = "\u00A0";
+
     public ParsedQuery parseQuery(String query) {
         if (query == null || query.trim().isEmpty()) {
             return new ParsedQuery();
@@ -27,10 +31,16 @@ public class BooleanSearchParser {
         query = query.replaceAll("(?i)\\bOR\\b", "OR");
         query = query.replaceAll("(?i)\\bNOT\\b", "NOT");
 
-        // Handle quoted phrases
-        query = query.replaceAll("\"([^\"]+)\"", "PHRASE:$1");
+        // Handle quoted phrases; keep each phrase a single token through whitespace tokenization
+        Matcher phraseMatcher = QUOTED_PHRASE.matcher(query);
+        StringBuilder normalized = new StringBuilder();
+        while (phraseMatcher.find()) {
+            String phrase = phraseMatcher.group(1).trim().replaceAll("\\s+", PHRASE_SPACE);
+            phraseMatcher.appendReplacement(normalized, Matcher.quoteReplacement("PHRASE:" + phrase));
+        }
+        phraseMatcher.appendTail(normalized);
 
-        return query;
+        return normalized.toString();
     }
 
     private ParsedQuery parseExpression(String query) {
@@ -47,6 +57,7 @@ public class BooleanSearchParser {
             List<String> phrases = new ArrayList<>();
 
             boolean isNegated = false;
+            String lastMustTerm = null;
 
             for (String token : tokens) {
                 token = token.trim();
@@ -54,33 +65,33 @@ public class BooleanSearchParser {
                 if (token.equals("AND")) {
                     currentOperator = "AND";
                     isNegated = false;
+                    lastMustTerm = null;
                 } else if (token.equals("OR")) {
                     currentOperator = "OR";
                     isNegated = false;
+                    // "a OR b": the left operand belongs to the OR group, not to the required terms
+                    if (lastMustTerm != null) {
+                        mustTerms.remove(mustTerms.size() - 1);
+                        shouldTerms.add(lastMustTerm);
+                        lastMustTerm = null;
+                    }
                 } else if (token.equals("NOT")) {
                     isNegated = true;
                 } else if (!token.isEmpty()) {
                     // Process the term
                     if (token.startsWith("PHRASE:")) {
-                        String phrase = token.substring(7); // Remove PHRASE: prefix
+                        String phrase = token.substring(7).replace(PHRASE_SPACE, " "); // Remove PHRASE: prefix
                         phrases.add(phrase);
-                        if (!isNegated) {
-                            if ("OR".equals(currentOperator)) {
-                                shouldTerms.add(phrase);
-                            } else {
-                                mustTerms.add(phrase);
-                            }
-                        } else {
-                            mustNotTerms.add(phrase);
-                        }
+                        token = phrase;
+                    }
+                    lastMustTerm = null;
+                    if (isNegated) {
+                        mustNotTerms.add(token);
+                    } else if ("OR".equals(currentOperator)) {
+                        shouldTerms.add(token);
                     } else {
-                        if (isNegated) {
-                            mustNotTerms.add(token);
-                        } else if ("OR".equals(currentOperator)) {
-                            shouldTerms.add(token);
-                        } else {
-                            mustTerms.add(token);
-                        }
+                        mustTerms.add(token);
+                        lastMustTerm = token;
                     }
                     isNegated = false;
                 }
@@ -0,0 +1,127 @@
+package com.bostoneo.bostoneosolutions.service.search;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Per-chunk term occurrences, persisted in document_chunks.term_vector.
+ *
+ * For each term, occurrences are stored as (position, start, end) triples in ascending order.
+ * The binary form is a version byte followed by varints, with positions and start offsets
+ * delta-encoded, which keeps a 3,000 character chunk to a few KB.
+ */
+public final class ChunkTermVector {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final int tokenCount;
+    private final Map<String, int[]> occurrences;
+
+    private ChunkTermVector(int tokenCount, Map<String, int[]> occurrences) {
+        this.tokenCount = tokenCount;
+        this.occurrences = occurrences;
+    }
+
+    public static ChunkTermVector of(String content) {
+        Map<String, List<LegalTextTokenizer.Token>> byTerm = new LinkedHashMap<>();
+        for (LegalTextTokenizer.Token token : LegalTextTokenizer.tokenize(content)) {
+            byTerm.computeIfAbsent(token.term(), term -> new ArrayList<>()).add(token);
+        }
+        Map<String, int[]> occurrences = new LinkedHashMap<>(byTerm.size() * 2);
+        byTerm.forEach((term, tokens) -> {
+            int[] triples = new int[tokens.size() * 3];
+            for (int i = 0; i < tokens.size(); i++) {
+                LegalTextTokenizer.Token token = tokens.get(i);
+                triples[i * 3] = token.position();
+                triples[i * 3 + 1] = token.start();
+                triples[i * 3 + 2] = token.end();
+            }
+            occurrences.put(term, triples);
+        });
+        return new ChunkTermVector(LegalTextTokenizer.countTokens(content), occurrences);
+    }
+
+    /** BM25 document length. */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /** term → flattened (position, start, end) triples. */
+    public Map<String, int[]> getOccurrences() {
+        return occurrences;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(occurrences.size() * 24);
+        out.write(FORMAT_VERSION);
+        writeVarInt(out, tokenCount);
+        writeVarInt(out, occurrences.size());
+        for (Map.Entry<String, int[]> entry : occurrences.entrySet()) {
+            byte[] term = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, term.length);
+            out.write(term, 0, term.length);
+            int[] triples = entry.getValue();
+            writeVarInt(out, triples.length / 3);
+            int lastPosition = 0;
+            int lastStart = 0;
+            for (int i = 0; i < triples.length; i += 3) {
+                writeVarInt(out, triples[i] - lastPosition);
+                writeVarInt(out, triples[i + 1] - lastStart);
+                writeVarInt(out, triples[i + 2] - triples[i + 1]);
+                lastPosition = triples[i];
+                lastStart = triples[i + 1];
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the decoded vector, or null if the bytes are missing or in an unknown format
+     */
+    public static ChunkTermVector fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0 || bytes[0] != FORMAT_VERSION) return null;
+        ByteBuffer in = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+        int tokenCount = readVarInt(in);
+        int termCount = readVarInt(in);
+        Map<String, int[]> occurrences = new LinkedHashMap<>(termCount * 2);
+        for (int t = 0; t < termCount; t++) {
+            byte[] term = new byte[readVarInt(in)];
+            in.get(term);
+            int count = readVarInt(in);
+            int[] triples = new int[count * 3];
+            int position = 0;
+            int start = 0;
+            for (int i = 0; i < triples.length; i += 3) {
+                position += readVarInt(in);
+                start += readVarInt(in);
+                triples[i] = position;
+                triples[i + 1] = start;
+                triples[i + 2] = start + readVarInt(in);
+            }
+            occurrences.put(new String(term, StandardCharsets.UTF_8), triples);
+        }
+        return new ChunkTermVector(tokenCount, occurrences);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
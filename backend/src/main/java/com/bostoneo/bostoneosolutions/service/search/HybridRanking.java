@@ -0,0 +1,80 @@
+package com.bostoneo.bostoneosolutions.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Merging and reranking steps of hybrid (vector + lexical) retrieval.
+ */
+@Slf4j
+public final class HybridRanking {
+
+    /** Standard RRF damping constant; keeps a single #1 rank from dominating the fused list. */
+    public static final int DEFAULT_RRF_K = 60;
+
+    /** A chunk in the fused ranking, with its score scaled so a #1 rank in every list is 1.0. */
+    public record Fused(Long chunkId, double score) {}
+
+    private HybridRanking() {}
+
+    /**
+     * Reciprocal-rank fusion: each ranking contributes 1 / (k + rank) for every chunk it contains.
+     * Only ranks matter, so cosine similarities and BM25 scores need no calibration against each other.
+     *
+     * @param rankings chunk IDs per retriever, best first
+     * @return up to {@code limit} chunks, best first; ties keep first-seen order
+     */
+    public static List<Fused> reciprocalRankFusion(List<List<Long>> rankings, int k, int limit) {
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (List<Long> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                scores.merge(ranking.get(rank), 1.0 / (k + rank + 1), Double::sum);
+            }
+        }
+
+        double best = rankings.isEmpty() ? 1.0 : (double) rankings.size() / (k + 1);
+        List<Fused> fused = new ArrayList<>(scores.size());
+        scores.forEach((chunkId, score) -> fused.add(new Fused(chunkId, score / best)));
+        fused.sort(Comparator.comparingDouble(Fused::score).reversed());
+        return fused.size() > limit ? new ArrayList<>(fused.subList(0, limit)) : fused;
+    }
+
+    /**
+     * Reorder items by reranker score and record that score on each item. If the reranker fails
+     * or returns the wrong number of scores, the input order and scores are kept.
+     */
+    public static <T> List<T> rerank(SearchReranker reranker, String query, List<T> items,
+                                     Function<T, String> text, ObjDoubleConsumer<T> setScore) {
+        if (reranker == null || items.size() < 2) {
+            return items;
+        }
+
+        double[] scores;
+        try {
+            scores = reranker.score(query, items.stream().map(text).toList());
+        } catch (Exception e) {
+            log.warn("Reranker failed, keeping fused order: {}", e.getMessage());
+            return items;
+        }
+        if (scores == null || scores.length != items.size()) {
+            log.warn("Reranker returned {} scores for {} passages, keeping fused order",
+                    scores == null ? 0 : scores.length, items.size());
+            return items;
+        }
+
+        Integer[] order = new Integer[items.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        List<T> reranked = new ArrayList<>(items.size());
+        for (int i : order) {
+            T item = items.get(i);
+            setScore.accept(item, scores[i]);
+            reranked.add(item);
+        }
+        return reranked;
+    }
+}
@@ -0,0 +1,521 @@
+package com.bostoneo.bostoneosolutions.service.search;
+
+import com.bostoneo.bostoneosolutions.event.DocumentChunksChangedEvent;
+import com.bostoneo.bostoneosolutions.repository.DocumentChunkRepository;
+import com.bostoneo.bostoneosolutions.service.LegalSynonymService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * BM25 keyword search over document chunks.
+ *
+ * Each document's chunks are inverted once into an in-memory posting list (term → chunks →
+ * occurrences) built from the term vectors persisted at chunking time, and cached until the
+ * document is re-chunked on any node ({@link #INVALIDATION_CHANNEL}), or for at most
+ * {@code search.keyword-index.ttl-minutes} if that message is lost. A collection query combines
+ * the indexes of its current documents, so BM25 statistics (chunk count, average length, document
+ * frequency) are collection-wide without a per-collection index to keep in sync with membership
+ * changes.
+ *
+ * Queries go through {@link BooleanSearchParser} when they use explicit operators (AND/OR/NOT,
+ * quoted phrases); plain queries rank chunks matching any term. Terms are expanded with
+ * {@link LegalSynonymService} at a reduced weight. Highlight spans come straight from the
+ * stored offsets.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KeywordIndexService {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double SYNONYM_WEIGHT = 0.6;
+    private static final int MAX_CLAUSES = 64;
+    private static final int MAX_HIGHLIGHT_LENGTH = 500;
+    private static final Pattern EXPLICIT_OPERATORS = Pattern.compile("\\b(AND|OR|NOT)\\b|\"");
+
+    private static final String INVALIDATION_CHANNEL = "search:keyword-index:events";
+
+    private final DocumentChunkRepository chunkRepository;
+    private final BooleanSearchParser booleanSearchParser;
+    private final LegalSynonymService synonymService;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${search.keyword-index.max-bytes:134217728}")
+    private long maxBytes;
+
+    @Value("${search.keyword-index.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    private final MessageListener invalidationListener = this::onInvalidationMessage;
+
+    private Cache<DocumentKey, DocumentIndex> indexes;
+
+    /** A ranked chunk with character spans to highlight, as [start0, end0, start1, end1, ...]. */
+    public record KeywordHit(Long chunkId, Long analysisId, double score, int[] spans) {}
+
+    private record DocumentKey(Long organizationId, Long analysisId) {}
+
+    @PostConstruct
+    void init() {
+        indexes = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((DocumentKey key, DocumentIndex index) -> index.weight)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        try {
+            listenerContainer.addMessageListener(invalidationListener, new ChannelTopic(INVALIDATION_CHANNEL));
+        } catch (Exception e) {
+            log.warn("Could not subscribe to keyword index invalidations - staleness limited to {} minutes: {}",
+                    ttlMinutes, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        try {
+            listenerContainer.removeMessageListener(invalidationListener);
+        } catch (Exception e) {
+            log.debug("Failed to remove keyword index listener: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Top-k chunks across the given documents by BM25, highest first. Scores are scaled to [0, 1]
+     * relative to the best hit and the fraction of query clauses matched.
+     */
+    public List<KeywordHit> search(Long organizationId, Collection<Long> analysisIds, String query, int k) {
+        CompiledQuery compiled = compile(query);
+        if (compiled.clauses.isEmpty() || analysisIds.isEmpty() || k <= 0) {
+            return List.of();
+        }
+
+        List<Long> ids = new ArrayList<>(analysisIds);
+        List<DocumentIndex> docs = new ArrayList<>(ids.size());
+        long chunkCount = 0;
+        long totalLength = 0;
+        for (Long analysisId : ids) {
+            DocumentIndex index = getIndex(organizationId, analysisId);
+            docs.add(index);
+            chunkCount += index.chunkIds.length;
+            totalLength += index.totalLength;
+        }
+        if (chunkCount == 0) {
+            return List.of();
+        }
+        double avgLength = Math.max(1.0, (double) totalLength / chunkCount);
+
+        // Phase 1: postings per alternative per document, and collection-wide document frequency
+        int altCount = compiled.alternatives.size();
+        Posting[][] views = new Posting[docs.size()][altCount];
+        long[] df = new long[altCount];
+        for (int d = 0; d < docs.size(); d++) {
+            for (int a = 0; a < altCount; a++) {
+                Posting posting = docs.get(d).lookup(compiled.alternatives.get(a));
+                views[d][a] = posting;
+                if (posting != null) df[a] += posting.ordinals.length;
+            }
+        }
+        double[] idf = new double[altCount];
+        for (int a = 0; a < altCount; a++) {
+            idf[a] = Math.log(1.0 + (chunkCount - df[a] + 0.5) / (df[a] + 0.5));
+        }
+
+        // Phase 2: score, apply boolean constraints, keep top-k
+        PriorityQueue<Candidate> top = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Candidate::score));
+        for (int d = 0; d < docs.size(); d++) {
+            DocumentIndex doc = docs.get(d);
+            double[] scores = new double[doc.chunkIds.length];
+            long[] masks = new long[doc.chunkIds.length];
+            for (int a = 0; a < altCount; a++) {
+                Posting posting = views[d][a];
+                if (posting == null) continue;
+                Alternative alt = compiled.alternatives.get(a);
+                long bit = 1L << alt.clause;
+                for (int i = 0; i < posting.ordinals.length; i++) {
+                    int ord = posting.ordinals[i];
+                    int tf = posting.occurrences[i].length / 3;
+                    double norm = K1 * (1 - B + B * doc.lengths[ord] / avgLength);
+                    scores[ord] += alt.weight * idf[a] * tf * (K1 + 1) / (tf + norm);
+                    masks[ord] |= bit;
+                }
+            }
+            for (int ord = 0; ord < masks.length; ord++) {
+                long mask = masks[ord];
+                if (!compiled.accepts(mask) || scores[ord] <= 0) continue;
+                double coverage = (double) Long.bitCount(mask & compiled.positiveMask) / Long.bitCount(compiled.positiveMask);
+                top.add(new Candidate(d, ord, scores[ord], coverage));
+                if (top.size() > k) top.poll();
+            }
+        }
+
+        List<Candidate> ranked = new ArrayList<>(top);
+        ranked.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        double best = ranked.isEmpty() ? 1.0 : ranked.get(0).score();
+
+        List<KeywordHit> hits = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            DocumentIndex doc = docs.get(candidate.doc());
+            int[] spans = collectSpans(compiled, views[candidate.doc()], candidate.ordinal());
+            hits.add(new KeywordHit(doc.chunkIds[candidate.ordinal()], ids.get(candidate.doc()),
+                    candidate.score() / best * candidate.coverage(), spans));
+        }
+        return hits;
+    }
+
+    /**
+     * Spans of query terms inside one chunk, for highlighting results found by other retrievers.
+     */
+    public int[] highlightSpans(Long organizationId, Long analysisId, Long chunkId, String query) {
+        CompiledQuery compiled = compile(query);
+        if (compiled.clauses.isEmpty()) return new int[0];
+        DocumentIndex doc = getIndex(organizationId, analysisId);
+        int ordinal = Arrays.binarySearch(doc.chunkIds, chunkId);
+        if (ordinal < 0) return new int[0];
+        Posting[] views = new Posting[compiled.alternatives.size()];
+        for (int a = 0; a < views.length; a++) {
+            views[a] = doc.lookup(compiled.alternatives.get(a));
+        }
+        return collectSpans(compiled, views, ordinal);
+    }
+
+    /**
+     * Wrap spans in &lt;mark&gt; in a single pass over the content, then trim to a preview window
+     * around the first match.
+     */
+    public static String highlight(String content, int[] spans) {
+        if (content == null) return null;
+        StringBuilder highlighted = new StringBuilder(content.length() + spans.length * 7);
+        int cursor = 0;
+        for (int i = 0; i + 1 < spans.length; i += 2) {
+            int start = Math.max(spans[i], cursor);
+            int end = Math.min(spans[i + 1], content.length());
+            if (start >= end) continue;
+            highlighted.append(content, cursor, start).append("<mark>").append(content, start, end).append("</mark>");
+            cursor = end;
+        }
+        highlighted.append(content, cursor, content.length());
+
+        String result = highlighted.toString();
+        // Truncate to reasonable length with context
+        if (result.length() > MAX_HIGHLIGHT_LENGTH) {
+            int firstMatch = result.indexOf("<mark>");
+            if (firstMatch > 100) {
+                result = "..." + result.substring(firstMatch - 50);
+            }
+            if (result.length() > MAX_HIGHLIGHT_LENGTH) {
+                result = result.substring(0, MAX_HIGHLIGHT_LENGTH) + "...";
+            }
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onChunksChanged(DocumentChunksChangedEvent event) {
+        if (event.getChange() == DocumentChunksChangedEvent.Change.CHUNKED
+                || event.getChange() == DocumentChunksChangedEvent.Change.DELETED) {
+            indexes.invalidate(new DocumentKey(event.getOrganizationId(), event.getAnalysisId()));
+            try {
+                redisTemplate.convertAndSend(INVALIDATION_CHANNEL, event.getOrganizationId() + ":" + event.getAnalysisId());
+            } catch (Exception e) {
+                log.warn("Could not broadcast keyword index invalidation for document {}: {}", event.getAnalysisId(), e.getMessage());
+            }
+        }
+    }
+
+    private void onInvalidationMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            String[] parts = body.split(":");
+            indexes.invalidate(new DocumentKey(Long.valueOf(parts[0]), Long.valueOf(parts[1])));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed keyword index event: {}", e.getMessage());
+        }
+    }
+
+    private DocumentIndex getIndex(Long organizationId, Long analysisId) {
+        return indexes.get(new DocumentKey(organizationId, analysisId), this::load);
+    }
+
+    private DocumentIndex load(DocumentKey key) {
+        // SECURITY: Use tenant-filtered query
+        List<DocumentChunkRepository.ChunkTerms> rows =
+                chunkRepository.findTermsByAnalysisIdAndOrganizationId(key.analysisId(), key.organizationId());
+
+        long[] chunkIds = new long[rows.size()];
+        int[] lengths = new int[rows.size()];
+        Map<String, PostingBuilder> builders = new HashMap<>();
+        int backfilled = 0;
+        for (int ord = 0; ord < rows.size(); ord++) {
+            DocumentChunkRepository.ChunkTerms row = rows.get(ord);
+            ChunkTermVector vector = ChunkTermVector.fromBytes(row.getTermVector());
+            if (vector == null) {
+                // Chunk predates V82 (or an older format) - tokenize now and persist for next time
+                vector = ChunkTermVector.of(row.getContent() != null ? row.getContent() : "");
+                backfill(row.getId(), key.organizationId(), vector);
+                backfilled++;
+            }
+            chunkIds[ord] = row.getId();
+            lengths[ord] = vector.getTokenCount();
+            int ordinal = ord;
+            vector.getOccurrences().forEach((term, triples) ->
+                    builders.computeIfAbsent(term, t -> new PostingBuilder()).add(ordinal, triples));
+        }
+
+        Map<String, Posting> postings = new HashMap<>(builders.size() * 2);
+        builders.forEach((term, builder) -> postings.put(term, builder.build()));
+        DocumentIndex index = new DocumentIndex(chunkIds, lengths, postings);
+        log.debug("Loaded keyword index for analysis {}: {} chunks, {} terms, {} backfilled",
+                key.analysisId(), chunkIds.length, postings.size(), backfilled);
+        return index;
+    }
+
+    private void backfill(Long chunkId, Long organizationId, ChunkTermVector vector) {
+        try {
+            chunkRepository.updateTermVector(chunkId, organizationId, vector.toBytes(), vector.getTokenCount());
+        } catch (Exception e) {
+            log.debug("Could not persist term vector for chunk {}: {}", chunkId, e.getMessage());
+        }
+    }
+
+    private int[] collectSpans(CompiledQuery compiled, Posting[] views, int ordinal) {
+        List<int[]> spans = new ArrayList<>();
+        for (int a = 0; a < views.length; a++) {
+            Posting posting = views[a];
+            if (posting == null || compiled.clauses.get(compiled.alternatives.get(a).clause).kind == Kind.MUST_NOT) continue;
+            int i = Arrays.binarySearch(posting.ordinals, ordinal);
+            if (i < 0) continue;
+            int[] triples = posting.occurrences[i];
+            for (int t = 0; t < triples.length; t += 3) {
+                spans.add(new int[]{triples[t + 1], triples[t + 2]});
+            }
+        }
+        spans.sort(Comparator.<int[]>comparingInt(span -> span[0]).thenComparingInt(span -> -span[1]));
+        int[] flat = new int[spans.size() * 2];
+        int size = 0;
+        for (int[] span : spans) {
+            if (size > 0 && span[0] <= flat[size - 1]) {
+                flat[size - 1] = Math.max(flat[size - 1], span[1]); // merge overlapping spans
+            } else {
+                flat[size++] = span[0];
+                flat[size++] = span[1];
+            }
+        }
+        return Arrays.copyOf(flat, size);
+    }
+
+    // ==================== Query compilation ====================
+
+    private enum Kind { MUST, SHOULD, MUST_NOT }
+
+    private record Clause(Kind kind) {}
+
+    /** One way to satisfy a clause: a term, or a phrase (terms at relative positions). */
+    private record Alternative(int clause, String[] terms, int[] offsets, double weight) {}
+
+    private static final class CompiledQuery {
+        final List<Clause> clauses = new ArrayList<>();
+        final List<Alternative> alternatives = new ArrayList<>();
+        long mustMask;
+        long shouldMask;
+        long mustNotMask;
+        long positiveMask;
+
+        boolean accepts(long mask) {
+            if ((mask & positiveMask) == 0) return false;
+            if ((mask & mustNotMask) != 0) return false;
+            if ((mask & mustMask) != mustMask) return false;
+            // "x AND (a OR b)": with required terms present, the OR group still needs one match
+            return mustMask == 0 || shouldMask == 0 || (mask & shouldMask) != 0;
+        }
+    }
+
+    private CompiledQuery compile(String query) {
+        CompiledQuery compiled = new CompiledQuery();
+        if (query == null || query.isBlank()) return compiled;
+
+        if (EXPLICIT_OPERATORS.matcher(query).find()) {
+            BooleanSearchParser.ParsedQuery parsed = booleanSearchParser.parseQuery(query);
+            parsed.getMustTerms().forEach(term -> addClause(compiled, Kind.MUST, term));
+            parsed.getShouldTerms().forEach(term -> addClause(compiled, Kind.SHOULD, term));
+            parsed.getMustNotTerms().forEach(term -> addClause(compiled, Kind.MUST_NOT, term));
+        } else {
+            // Plain query: rank chunks matching any term; multi-word legal terms also match as phrases
+            List<LegalTextTokenizer.Token> tokens = LegalTextTokenizer.tokenize(query);
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                LegalTextTokenizer.Token token = tokens.get(i);
+                if (seen.add(token.term())) {
+                    addClause(compiled, Kind.SHOULD, token.term());
+                }
+                if (i + 1 < tokens.size()) {
+                    String bigram = token.term() + " " + tokens.get(i + 1).term();
+                    if (synonymService.isLegalTerm(bigram) && seen.add(bigram)) {
+                        addClause(compiled, Kind.SHOULD, bigram);
+                    }
+                }
+            }
+        }
+        return compiled;
+    }
+
+    private void addClause(CompiledQuery compiled, Kind kind, String text) {
+        if (compiled.clauses.size() >= MAX_CLAUSES) return;
+        int clause = compiled.clauses.size();
+        if (!addAlternative(compiled, clause, text, 1.0)) return;
+        compiled.clauses.add(new Clause(kind));
+
+        if (kind != Kind.MUST_NOT) {
+            for (String synonym : synonymService.getSynonymsForTerm(text)) {
+                if (!synonym.equalsIgnoreCase(text.trim())) {
+                    addAlternative(compiled, clause, synonym, SYNONYM_WEIGHT);
+                }
+            }
+        }
+
+        long bit = 1L << clause;
+        switch (kind) {
+            case MUST -> compiled.mustMask |= bit;
+            case SHOULD -> compiled.shouldMask |= bit;
+            case MUST_NOT -> compiled.mustNotMask |= bit;
+        }
+        if (kind != Kind.MUST_NOT) compiled.positiveMask |= bit;
+    }
+
+    private static boolean addAlternative(CompiledQuery compiled, int clause, String text, double weight) {
+        List<LegalTextTokenizer.Token> tokens = LegalTextTokenizer.tokenize(text);
+        if (tokens.isEmpty()) return false;
+        String[] terms = new String[tokens.size()];
+        int[] offsets = new int[tokens.size()];
+        int base = tokens.get(0).position();
+        for (int i = 0; i < tokens.size(); i++) {
+            terms[i] = tokens.get(i).term();
+            offsets[i] = tokens.get(i).position() - base;
+        }
+        compiled.alternatives.add(new Alternative(clause, terms, offsets, weight));
+        return true;
+    }
+
+    // ==================== Index structures ====================
+
+    private record Candidate(int doc, int ordinal, double score, double coverage) {}
+
+    /** Chunks containing a term (ascending ordinals), each with its (position, start, end) triples. */
+    private record Posting(int[] ordinals, int[][] occurrences) {}
+
+    private static final class PostingBuilder {
+        private int[] ordinals = new int[4];
+        private int[][] occurrences = new int[4][];
+        private int size;
+
+        void add(int ordinal, int[] triples) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                occurrences = Arrays.copyOf(occurrences, size * 2);
+            }
+            ordinals[size] = ordinal;
+            occurrences[size++] = triples;
+        }
+
+        Posting build() {
+            return new Posting(Arrays.copyOf(ordinals, size), Arrays.copyOf(occurrences, size));
+        }
+    }
+
+    private static final class DocumentIndex {
+        final long[] chunkIds;
+        final int[] lengths;
+        final long totalLength;
+        final Map<String, Posting> postings;
+        final int weight;
+
+        DocumentIndex(long[] chunkIds, int[] lengths, Map<String, Posting> postings) {
+            this.chunkIds = chunkIds;
+            this.lengths = lengths;
+            this.postings = postings;
+            long total = 0;
+            for (int length : lengths) total += length;
+            this.totalLength = total;
+
+            long bytes = 64L + chunkIds.length * 12L;
+            for (Map.Entry<String, Posting> entry : postings.entrySet()) {
+                bytes += 96 + entry.getKey().length() * 2L + entry.getValue().ordinals.length * 24L;
+                for (int[] triples : entry.getValue().occurrences) bytes += triples.length * 4L;
+            }
+            this.weight = (int) Math.min(Integer.MAX_VALUE, bytes);
+        }
+
+        /** Posting for a term, or the chunks/occurrences where a phrase appears. */
+        Posting lookup(Alternative alt) {
+            Posting first = postings.get(alt.terms()[0]);
+            if (first == null || alt.terms().length == 1) return first;
+
+            Posting[] rest = new Posting[alt.terms().length - 1];
+            for (int i = 1; i < alt.terms().length; i++) {
+                rest[i - 1] = postings.get(alt.terms()[i]);
+                if (rest[i - 1] == null) return null;
+            }
+
+            PostingBuilder matches = new PostingBuilder();
+            for (int i = 0; i < first.ordinals.length; i++) {
+                int ordinal = first.ordinals[i];
+                int[][] others = new int[rest.length][];
+                boolean all = true;
+                for (int r = 0; r < rest.length && all; r++) {
+                    int at = Arrays.binarySearch(rest[r].ordinals, ordinal);
+                    if (at < 0) all = false;
+                    else others[r] = rest[r].occurrences[at];
+                }
+                if (!all) continue;
+
+                int[] starts = first.occurrences[i];
+                int[] found = new int[starts.length];
+                int count = 0;
+                for (int t = 0; t < starts.length; t += 3) {
+                    int position = starts[t];
+                    int end = -1;
+                    for (int r = 0; r < rest.length; r++) {
+                        end = endAt(others[r], position + alt.offsets()[r + 1]);
+                        if (end < 0) break;
+                    }
+                    if (end >= 0) {
+                        found[count++] = position;
+                        found[count++] = starts[t + 1];
+                        found[count++] = end;
+                    }
+                }
+                if (count > 0) matches.add(ordinal, Arrays.copyOf(found, count));
+            }
+            Posting phrase = matches.build();
+            return phrase.ordinals.length == 0 ? null : phrase;
+        }
+
+        private static int endAt(int[] triples, int position) {
+            for (int t = 0; t < triples.length; t += 3) {
+                if (triples[t] == position) return triples[t + 2];
+                if (triples[t] > position) break;
+            }
+            return -1;
+        }
+    }
+}
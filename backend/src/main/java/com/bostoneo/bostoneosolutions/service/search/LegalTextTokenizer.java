@@ -0,0 +1,71 @@
+package com.bostoneo.bostoneosolutions.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tokenizer shared by the keyword index and keyword queries, so both sides agree on terms,
+ * positions and character offsets.
+ *
+ * Tokens are maximal runs of letters/digits, lowercased. Every token advances the position
+ * counter, but stop words and single characters are not emitted — phrase matching therefore
+ * still sees the gap a skipped word leaves.
+ */
+public final class LegalTextTokenizer {
+
+    // Common English stop words, never indexed or highlighted
+    public static final Set<String> STOP_WORDS = Set.of(
+        "the", "and", "for", "are", "but", "not", "you", "all", "can", "her", "was", "one", "our",
+        "out", "has", "have", "had", "what", "when", "where", "who", "which", "this", "that",
+        "with", "from", "they", "been", "would", "there", "their", "will", "each", "about",
+        "how", "its", "may", "were", "some", "these", "than", "other", "into", "any", "only"
+    );
+
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 64;
+
+    /** One indexed occurrence: term, token ordinal, and [start, end) offsets in the source text. */
+    public record Token(String term, int position, int start, int end) {}
+
+    private LegalTextTokenizer() {}
+
+    public static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        StringBuilder term = new StringBuilder();
+        int position = 0;
+        int start = -1;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (start < 0) start = i;
+                term.append(Character.toLowerCase(c));
+            } else if (start >= 0) {
+                String value = term.toString();
+                if (value.length() >= MIN_TERM_LENGTH && value.length() <= MAX_TERM_LENGTH && !STOP_WORDS.contains(value)) {
+                    tokens.add(new Token(value, position, start, i));
+                }
+                position++;
+                term.setLength(0);
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /** Total number of tokens (including skipped ones), i.e. the position after the last token. */
+    public static int countTokens(String text) {
+        if (text == null) return 0;
+        int count = 0;
+        boolean inToken = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean letter = Character.isLetterOrDigit(text.charAt(i));
+            if (letter && !inToken) count++;
+            inToken = letter;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,18 @@
+package com.bostoneo.bostoneosolutions.service.search;
+
+import java.util.List;
+
+/**
+ * Optional second-stage scorer for hybrid search (e.g. a cross-encoder).
+ *
+ * When a bean of this type exists, SemanticSearchService passes it the fused top-N passages and
+ * reorders them by the returned scores; without one the fused order is kept.
+ */
+public interface SearchReranker {
+
+    /**
+     * @return one relevance score per passage, in the same order; higher is more relevant,
+     *         ideally in [0, 1] since it becomes the result score
+     */
+    double[] score(String query, List<String> passages);
+}
@@ -0,0 +1,96 @@
+package com.bostoneo.bostoneosolutions.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Packs embedding vectors as little-endian float32 for the document_chunks.embedding_vector column,
+ * and renders the pgvector text literal used when the database has the vector extension.
+ */
+@Slf4j
+public final class EmbeddingVectorCodec {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int DEFAULT_DIMENSIONS = 1536;
+
+    private EmbeddingVectorCodec() {}
+
+    public static byte[] encode(float[] vector) {
+        if (vector == null) return null;
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    public static float[] decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0 || bytes.length % Float.BYTES != 0) return null;
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    /**
+     * Packed float32 when present, otherwise the legacy JSON text column.
+     */
+    public static float[] read(byte[] packed, String legacyJson) {
+        return packed != null ? decode(packed) : parseJson(legacyJson);
+    }
+
+    /**
+     * Parse a legacy JSON embedding ("[0.123, -0.456, ...]") straight into a float[]
+     * without materializing a List&lt;Double&gt;.
+     */
+    public static float[] parseJson(String json) {
+        if (json == null || json.isEmpty()) return null;
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                log.error("Stored embedding is not a JSON array");
+                return null;
+            }
+            float[] vector = new float[DEFAULT_DIMENSIONS];
+            int size = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (size == vector.length) {
+                    vector = Arrays.copyOf(vector, vector.length * 2);
+                }
+                vector[size++] = parser.getFloatValue();
+            }
+            return size == vector.length ? vector : Arrays.copyOf(vector, size);
+        } catch (IOException e) {
+            log.error("Failed to parse embedding JSON", e);
+            return null;
+        }
+    }
+
+    /**
+     * pgvector input format: "[0.1,0.2,...]"
+     */
+    public static String toPgVectorLiteral(float[] vector) {
+        StringBuilder sb = new StringBuilder(vector.length * 12).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(vector[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Scale to unit length in place so cosine similarity reduces to a dot product.
+     * Zero vectors are left untouched.
+     */
+    public static float[] normalize(float[] vector) {
+        double norm = 0.0;
+        for (float v : vector) norm += v * v;
+        if (norm == 0.0) return vector;
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) vector[i] *= inv;
+        return vector;
+    }
+}
@@ -0,0 +1,133 @@
+package com.bostoneo.bostoneosolutions.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel for firing in-memory items at a deadline.
+ *
+ * Level 0 has {@code wheelSize} slots of {@code tickMillis}; each higher level, created on demand,
+ * has slots as wide as the whole level below. Scheduling is O(1) and each tick only touches the
+ * slot that just ended, so cost does not grow with the number of pending items. Items in higher
+ * levels cascade down when their slot comes up.
+ *
+ * An item is returned by the first {@link #advance} at or after its deadline, at most one tick late.
+ * Methods are synchronized; callers may schedule and advance from different threads.
+ */
+public final class HierarchicalTimingWheel<T> {
+
+    private record Entry<T>(long deadline, T item) {}
+
+    private final Level<T> root;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMillis must be positive and wheelSize at least 2");
+        }
+        this.root = new Level<>(tickMillis, wheelSize, startMillis);
+    }
+
+    /**
+     * @return false if the deadline is already behind the wheel's clock; the caller should fire the item itself
+     */
+    public synchronized boolean schedule(long deadlineMillis, T item) {
+        if (deadlineMillis < root.currentTime) return false;
+        root.add(new Entry<>(deadlineMillis, item));
+        size++;
+        return true;
+    }
+
+    /**
+     * Move the clock to {@code nowMillis} and return every item whose deadline has passed, in deadline-slot order.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> due = new ArrayList<>();
+        while (root.currentTime + root.tick <= nowMillis) {
+            for (Entry<T> entry : root.drain(root.currentTime)) {
+                due.add(entry.item());
+            }
+            root.currentTime += root.tick;
+            root.cascade();
+        }
+        size -= due.size();
+        return due;
+    }
+
+    /**
+     * Remove and return every pending item regardless of deadline.
+     */
+    public synchronized List<T> drainAll() {
+        List<T> items = new ArrayList<>(size);
+        for (Level<T> level = root; level != null; level = level.overflow) {
+            for (int i = 0; i < level.slots.length; i++) {
+                for (Entry<T> entry : level.slots[i]) {
+                    items.add(entry.item());
+                }
+                level.slots[i] = new ArrayList<>();
+            }
+        }
+        size = 0;
+        return items;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static final class Level<T> {
+        final long tick;
+        final long interval;
+        final List<Entry<T>>[] slots;
+        long currentTime;
+        Level<T> overflow;
+
+        @SuppressWarnings("unchecked")
+        Level(long tick, int wheelSize, long startMillis) {
+            this.tick = tick;
+            this.interval = tick * wheelSize;
+            this.slots = new List[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                slots[i] = new ArrayList<>();
+            }
+            this.currentTime = startMillis - Math.floorMod(startMillis, tick);
+        }
+
+        void add(Entry<T> entry) {
+            if (entry.deadline() < currentTime + interval) {
+                slots[slot(entry.deadline())].add(entry);
+            } else {
+                if (overflow == null) {
+                    overflow = new Level<>(interval, slots.length, currentTime);
+                }
+                overflow.add(entry);
+            }
+        }
+
+        List<Entry<T>> drain(long slotStart) {
+            int index = slot(slotStart);
+            List<Entry<T>> entries = slots[index];
+            if (!entries.isEmpty()) {
+                slots[index] = new ArrayList<>();
+            }
+            return entries;
+        }
+
+        /**
+         * Called after this level's clock moved one tick. When that starts a new slot in the level
+         * above, that slot's entries now fall within this level's range and move down.
+         */
+        void cascade() {
+            if (overflow == null || currentTime < overflow.currentTime + overflow.tick) return;
+            overflow.currentTime += overflow.tick;
+            overflow.cascade();
+            for (Entry<T> entry : overflow.drain(overflow.currentTime)) {
+                add(entry);
+            }
+        }
+
+        private int slot(long time) {
+            return (int) Math.floorMod(time / tick, (long) slots.length);
+        }
+    }
+}
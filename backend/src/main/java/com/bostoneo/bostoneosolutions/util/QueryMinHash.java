@@ -0,0 +1,98 @@
+package com.bostoneo.bostoneosolutions.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * MinHash signatures over a query's word set, with banded LSH keys, for the research-cache
+ * similarity lookup (ai_research_cache.minhash_signature).
+ *
+ * Two signatures agree at each position with probability equal to the Jaccard similarity of the
+ * word sets. Signatures are split into {@link #BANDS} bands of {@link #ROWS} values; queries that
+ * share any band hash become candidates. With 20 x 3, pairs at Jaccard 0.6 collide in at least
+ * one band ~99% of the time and pairs at 0.2 ~15% of the time.
+ *
+ * Hash seeds are fixed, so persisted signatures stay comparable across restarts and nodes.
+ */
+public final class QueryMinHash {
+
+    public static final int BANDS = 20;
+    public static final int ROWS = 3;
+    public static final int NUM_HASHES = BANDS * ROWS;
+
+    private static final long[] SEEDS = new long[NUM_HASHES];
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            SEEDS[i] = mix(seed);
+        }
+    }
+
+    private QueryMinHash() {}
+
+    /**
+     * @return the signature, or null for an empty word set
+     */
+    public static int[] signature(Set<String> words) {
+        if (words == null || words.isEmpty()) return null;
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String word : words) {
+            long base = fnv1a(word);
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int hash = (int) (mix(base ^ SEEDS[i]) >>> 33);
+                if (hash < signature[i]) signature[i] = hash;
+            }
+        }
+        return signature;
+    }
+
+    /** One key per band; equal keys at the same band index mean the band matched. */
+    public static long[] bandKeys(int[] signature) {
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = 0xCBF29CE484222325L;
+            for (int row = 0; row < ROWS; row++) {
+                key = mix(key ^ signature[band * ROWS + row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    public static byte[] encode(int[] signature) {
+        if (signature == null) return null;
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Integer.BYTES);
+        buffer.asIntBuffer().put(signature);
+        return buffer.array();
+    }
+
+    /**
+     * @return the signature, or null if the bytes are missing or from a different configuration
+     */
+    public static int[] decode(byte[] bytes) {
+        if (bytes == null || bytes.length != NUM_HASHES * Integer.BYTES) return null;
+        int[] signature = new int[NUM_HASHES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+        return signature;
+    }
+
+    private static long fnv1a(String text) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,48 @@
+-- V80: Binary embedding storage + optional pgvector ANN index for document_chunks
+--
+-- Embeddings were stored as JSON text (~30 KB per 1536-dim vector) and parsed into
+-- List<Double> on every semantic search. New rows store packed little-endian float32
+-- in embedding_vector (6 KB per vector); the legacy TEXT column stays readable for
+-- rows embedded before this migration.
+--
+-- When the pgvector extension is installable (RDS supports it), a native vector column
+-- with an HNSW cosine index is added so collection search can run top-k in SQL.
+-- Environments without pgvector, or whose migration role may not create extensions,
+-- skip that block and use the in-process scorer.
+
+ALTER TABLE document_chunks
+    ADD COLUMN IF NOT EXISTS embedding_vector     BYTEA   NULL,
+    ADD COLUMN IF NOT EXISTS embedding_dimensions INTEGER NULL;
+
+COMMENT ON COLUMN document_chunks.embedding_vector IS
+    'Embedding as packed little-endian float32 (embedding_dimensions * 4 bytes). Supersedes the JSON embedding column.';
+
+-- Tenant + collection scoped lookup for vector candidates (ANN filter and in-process fallback)
+CREATE INDEX IF NOT EXISTS idx_chunk_org_collection_embedded
+    ON document_chunks (organization_id, collection_id)
+    WHERE embedding_vector IS NOT NULL;
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_available_extensions WHERE name = 'vector') THEN
+        BEGIN
+            CREATE EXTENSION IF NOT EXISTS vector;
+        EXCEPTION WHEN insufficient_privilege THEN
+            RAISE NOTICE 'pgvector available but this role cannot create it - document_chunks.embedding_pgv not created';
+        END;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'vector') THEN
+        ALTER TABLE document_chunks ADD COLUMN IF NOT EXISTS embedding_pgv vector(1536) NULL;
+
+        -- HNSW over cosine distance. Queries always filter by organization_id and
+        -- collection_id/analysis_id, so the planner can also choose the btree index
+        -- above and rank a single collection exactly when that is cheaper.
+        CREATE INDEX IF NOT EXISTS idx_chunk_embedding_pgv_hnsw
+            ON document_chunks USING hnsw (embedding_pgv vector_cosine_ops)
+            WITH (m = 16, ef_construction = 64);
+    ELSE
+        RAISE NOTICE 'pgvector not available - document_chunks.embedding_pgv not created';
+    END IF;
+END
+$$;
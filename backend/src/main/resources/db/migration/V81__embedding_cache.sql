@@ -0,0 +1,33 @@
+-- V81: Content-addressed embedding cache, shared across documents within an organization
+--
+-- Legal collections repeat the same boilerplate clauses, exhibits and re-uploaded versions.
+-- Embeddings are keyed by SHA-256 of the whitespace-normalized chunk text plus the embedding
+-- model, so identical text is sent to the embeddings API once per organization.
+--
+-- document_chunks.content_hash records the same key at chunking time so resumed or
+-- re-indexed documents can look up the cache without rehashing chunk text.
+
+CREATE TABLE IF NOT EXISTS embedding_cache (
+    id                   BIGSERIAL    PRIMARY KEY,
+    organization_id      BIGINT       NOT NULL,
+    content_hash         CHAR(64)     NOT NULL,
+    embedding_model      VARCHAR(100) NOT NULL,
+    embedding_vector     BYTEA        NOT NULL,
+    embedding_dimensions INTEGER      NOT NULL,
+    hit_count            BIGINT       NOT NULL DEFAULT 0,
+    created_at           TIMESTAMP    NOT NULL DEFAULT NOW(),
+    last_used_at         TIMESTAMP    NOT NULL DEFAULT NOW(),
+    CONSTRAINT uq_embedding_cache_org_model_hash UNIQUE (organization_id, embedding_model, content_hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_embedding_cache_last_used
+    ON embedding_cache (last_used_at);
+
+COMMENT ON TABLE embedding_cache IS
+    'Embeddings keyed by (organization_id, embedding_model, SHA-256 of normalized text). Vector is packed little-endian float32.';
+
+ALTER TABLE document_chunks
+    ADD COLUMN IF NOT EXISTS content_hash CHAR(64) NULL;
+
+COMMENT ON COLUMN document_chunks.content_hash IS
+    'SHA-256 of the whitespace-normalized chunk text; key into embedding_cache.';
@@ -0,0 +1,17 @@
+-- V82: Persisted term vectors for the BM25 keyword index over document_chunks
+--
+-- Keyword search used to lowercase every chunk and run String.contains per keyword per query.
+-- Chunks now store their tokenized terms with positions and character offsets (term_vector,
+-- see ChunkTermVector) and their token count (term_count, the BM25 document length), written
+-- once when DocumentChunkingService creates the chunk. KeywordIndexService inverts these per
+-- document in memory; chunks created before this migration are tokenized on first load and
+-- backfilled.
+
+ALTER TABLE document_chunks
+    ADD COLUMN IF NOT EXISTS term_vector BYTEA   NULL,
+    ADD COLUMN IF NOT EXISTS term_count  INTEGER NULL;
+
+COMMENT ON COLUMN document_chunks.term_vector IS
+    'Serialized term -> (position, start offset, end offset) occurrences for keyword search and highlighting.';
+COMMENT ON COLUMN document_chunks.term_count IS
+    'Number of tokens in the chunk (BM25 document length).';
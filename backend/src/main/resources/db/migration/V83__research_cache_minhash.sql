@@ -0,0 +1,16 @@
+-- V83: MinHash signatures for similarity lookup in the AI research cache
+--
+-- QuerySimilarityService used to load every valid cached query for the organization and score
+-- each one against the new query. Each row now stores a 60 x int32 MinHash signature of its
+-- normalized word set (see QueryMinHash); per-tenant in-memory LSH buckets are built from these
+-- signatures so a lookup only scores queries that share a bucket. Rows cached before this
+-- migration get a signature the first time their organization's index is loaded.
+
+ALTER TABLE ai_research_cache
+    ADD COLUMN IF NOT EXISTS minhash_signature BYTEA NULL;
+
+COMMENT ON COLUMN ai_research_cache.minhash_signature IS
+    'MinHash signature (60 big-endian int32) of the normalized query words; LSH band keys are derived from it.';
+
+CREATE INDEX IF NOT EXISTS idx_ai_research_cache_org_valid_expires
+    ON ai_research_cache (organization_id, is_valid, expires_at);
@@ -0,0 +1,44 @@
+-- V84: Per-organization analytics rollups behind /analytics
+--
+-- The analytics endpoints used to load every case for the organization and group them in Java on
+-- each request. These tables hold the aggregates instead, kept current from case and invoice
+-- write events (deltas applied after commit) and rebuilt per organization by a nightly reconcile.
+--
+-- analytics_case_rollup: current case counts by status and effective practice area
+-- (practice_area, falling back to type; '' when neither is set).
+-- analytics_daily_rollup: dated activity per (day, hour) bucket. Date-only metrics use hour 0.
+--   CASE_CREATED     legal_cases.created_at
+--   CASE_UPDATED     legal_cases.updated_at, when different from created_at
+--   INVOICE_CREATED  invoices.created_at
+--   INVOICE_ISSUED   invoices.issue_date, amount = total_amount
+--   INVOICE_PAID     invoices.issue_date for PAID invoices, amount = total_amount
+-- analytics_rollup_state: organizations whose rollups have been built; a missing row means the
+-- next read rebuilds from the source tables.
+
+CREATE TABLE IF NOT EXISTS analytics_case_rollup (
+    organization_id  BIGINT           NOT NULL,
+    status           VARCHAR(50)      NOT NULL,
+    practice_area    VARCHAR(255)     NOT NULL DEFAULT '',
+    case_count       BIGINT           NOT NULL DEFAULT 0,
+    total_amount     DOUBLE PRECISION NOT NULL DEFAULT 0,
+    resolution_days  BIGINT           NOT NULL DEFAULT 0,
+    PRIMARY KEY (organization_id, status, practice_area)
+);
+
+COMMENT ON COLUMN analytics_case_rollup.resolution_days IS
+    'Sum of whole days from created_at to updated_at over CLOSED cases in the bucket';
+
+CREATE TABLE IF NOT EXISTS analytics_daily_rollup (
+    organization_id  BIGINT        NOT NULL,
+    metric           VARCHAR(40)   NOT NULL,
+    bucket_date      DATE          NOT NULL,
+    bucket_hour      SMALLINT      NOT NULL DEFAULT 0,
+    event_count      BIGINT        NOT NULL DEFAULT 0,
+    amount           NUMERIC(19,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (organization_id, metric, bucket_date, bucket_hour)
+);
+
+CREATE TABLE IF NOT EXISTS analytics_rollup_state (
+    organization_id  BIGINT    PRIMARY KEY,
+    rebuilt_at       TIMESTAMP NOT NULL DEFAULT NOW()
+);
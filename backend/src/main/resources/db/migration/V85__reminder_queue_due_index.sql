@@ -0,0 +1,53 @@
+-- V85: Due-time index for the reminder queue
+--
+-- ReminderScheduler used to walk every organization each minute and scan its calendar events for
+-- due reminders. Reminders are already materialized into reminder_queue when events are saved, so
+-- the scheduler now claims due rows from the queue directly (status PENDING → PROCESSING with
+-- FOR UPDATE SKIP LOCKED) and fires them from an in-memory timing wheel.
+
+-- Claims are range scans on scheduled_time over pending rows only
+CREATE INDEX IF NOT EXISTS idx_reminder_queue_pending_due
+    ON reminder_queue (scheduled_time)
+    WHERE status = 'PENDING';
+
+-- Stale-claim recovery looks up PROCESSING rows by claim time
+CREATE INDEX IF NOT EXISTS idx_reminder_queue_processing_claimed
+    ON reminder_queue (last_attempt)
+    WHERE status = 'PROCESSING';
+
+-- Cross-organization appointment reminder windows
+CREATE INDEX IF NOT EXISTS idx_appointment_requests_confirmed_datetime
+    ON appointment_requests (confirmed_datetime)
+    WHERE status = 'CONFIRMED';
+
+-- Backfill queue rows for future reminders on events that were only covered by the old scan
+INSERT INTO reminder_queue (event_id, user_id, organization_id, scheduled_time, minutes_before,
+                            status, retry_count, created_at, updated_at, reminder_type)
+SELECT e.id, e.user_id, e.organization_id, e.start_time - make_interval(mins => e.reminder_minutes),
+       e.reminder_minutes, 'PENDING', 0, NOW(), NOW(), 'PRIMARY'
+FROM calendar_events e
+WHERE e.reminder_minutes > 0
+  AND e.user_id IS NOT NULL
+  AND COALESCE(e.reminder_sent, FALSE) = FALSE
+  AND e.start_time - make_interval(mins => e.reminder_minutes) > NOW()
+  AND NOT EXISTS (SELECT 1 FROM reminder_queue r
+                  WHERE r.event_id = e.id AND r.minutes_before = e.reminder_minutes AND r.reminder_type = 'PRIMARY');
+
+INSERT INTO reminder_queue (event_id, user_id, organization_id, scheduled_time, minutes_before,
+                            status, retry_count, created_at, updated_at, reminder_type)
+SELECT e.id, e.user_id, e.organization_id, e.start_time - make_interval(mins => a.minutes),
+       a.minutes, 'PENDING', 0, NOW(), NOW(), 'ADDITIONAL'
+FROM calendar_events e
+CROSS JOIN LATERAL (
+    SELECT DISTINCT TRIM(m)::INT AS minutes
+    FROM unnest(string_to_array(e.additional_reminders, ',')) AS m
+    WHERE TRIM(m) ~ '^[0-9]+$'
+) a
+WHERE e.additional_reminders IS NOT NULL AND e.additional_reminders <> ''
+  AND e.reminder_minutes > 0
+  AND e.user_id IS NOT NULL
+  AND a.minutes > 0
+  AND e.start_time - make_interval(mins => a.minutes) > NOW()
+  AND NOT (a.minutes::TEXT = ANY (string_to_array(COALESCE(e.reminders_sent, ''), ',')))
+  AND NOT EXISTS (SELECT 1 FROM reminder_queue r
+                  WHERE r.event_id = e.id AND r.minutes_before = a.minutes AND r.reminder_type = 'ADDITIONAL');
@@ -0,0 +1,20 @@
+-- V86: Cluster-wide leases for @Scheduled jobs
+--
+-- Every node runs the same @Scheduled methods. ScheduledJobLeaseService takes a row here before a
+-- job (or one shard of an organization-iterating job, job_name 'name#shard') runs, so each run
+-- happens on one node. A lease is taken only when lease_until has passed. While the job runs,
+-- lease_until is start + max runtime, so a crashed node's lease expires. When the job finishes,
+-- lease_until becomes start + min interval, so a node whose trigger fires a little later in the
+-- same period skips.
+
+CREATE TABLE IF NOT EXISTS scheduled_job_lease (
+    job_name          VARCHAR(150) PRIMARY KEY,
+    owner             VARCHAR(255) NOT NULL,
+    lease_until       TIMESTAMP    NOT NULL,
+    last_started_at   TIMESTAMP,
+    last_finished_at  TIMESTAMP,
+    last_success_at   TIMESTAMP,
+    last_duration_ms  BIGINT,
+    last_status       VARCHAR(20),
+    last_error        TEXT
+);
@@ -0,0 +1,31 @@
+-- V87: Content-addressed text-extraction cache, shared across document pipelines within an organization
+--
+-- The same uploaded file is text-extracted by medical-record scanning, AI workspace exhibits,
+-- template import and document analysis. Extractions are keyed by SHA-256 of the file bytes,
+-- so each pipeline reuses the text the organization already extracted from an identical file.
+--
+-- extraction_method records how the text was produced: 'pdfbox' / 'tika' for the text layer,
+-- or an OCR method ('tesseract', 'vision-ocr') once a pipeline had to OCR a scanned file —
+-- an OCR result replaces an empty text-layer entry so the file is never OCR'd twice.
+
+CREATE TABLE IF NOT EXISTS document_text_cache (
+    id                BIGSERIAL    PRIMARY KEY,
+    organization_id   BIGINT       NOT NULL,
+    content_hash      CHAR(64)     NOT NULL,
+    extraction_method VARCHAR(30)  NOT NULL,
+    mime_type         VARCHAR(255) NULL,
+    extracted_text    TEXT         NOT NULL,
+    page_offsets      JSONB        NOT NULL DEFAULT '[]'::jsonb,
+    page_count        INTEGER      NOT NULL DEFAULT 0,
+    char_count        INTEGER      NOT NULL DEFAULT 0,
+    hit_count         BIGINT       NOT NULL DEFAULT 0,
+    created_at        TIMESTAMP    NOT NULL DEFAULT NOW(),
+    last_used_at      TIMESTAMP    NOT NULL DEFAULT NOW(),
+    CONSTRAINT uq_document_text_cache_org_hash UNIQUE (organization_id, content_hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_document_text_cache_last_used
+    ON document_text_cache (last_used_at);
+
+COMMENT ON TABLE document_text_cache IS
+    'Normalized extracted text keyed by (organization_id, SHA-256 of file bytes). page_offsets holds the char offset where each page starts.';
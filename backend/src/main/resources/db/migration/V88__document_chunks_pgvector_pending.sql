@@ -0,0 +1,21 @@
+-- V88: Find chunks that have an embedding but no pgvector copy yet
+--
+-- Chunks embedded before V80, and embeddings whose dimensions don't fit vector(1536), have
+-- embedding_pgv NULL. Vector search checks a scope for such rows before trusting the HNSW
+-- index, and the backfill job walks them; both probes stay tiny with these partial indexes.
+-- Skipped when V80 did not create embedding_pgv (no pgvector).
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'document_chunks' AND column_name = 'embedding_pgv') THEN
+        CREATE INDEX IF NOT EXISTS idx_chunk_pgv_pending_collection
+            ON document_chunks (organization_id, collection_id)
+            WHERE embedding_pgv IS NULL AND (embedding_vector IS NOT NULL OR embedding IS NOT NULL);
+
+        CREATE INDEX IF NOT EXISTS idx_chunk_pgv_pending_analysis
+            ON document_chunks (organization_id, analysis_id)
+            WHERE embedding_pgv IS NULL AND (embedding_vector IS NOT NULL OR embedding IS NOT NULL);
+    END IF;
+END
+$$;
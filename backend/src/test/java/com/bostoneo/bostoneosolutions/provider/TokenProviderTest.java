@@ -0,0 +1,92 @@
+package com.bostoneo.bostoneosolutions.provider;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.bostoneo.bostoneosolutions.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import static com.bostoneo.bostoneosolutions.constant.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for the verify-once access token path used by CustomAuthorizationFilter —
+ * the decoded token is shared across accessors and the verified-token cache never
+ * serves a token the verifier itself would reject.
+ */
+class TokenProviderTest {
+
+    private static final String SECRET = "test-secret-for-token-provider";
+
+    private TokenProvider tokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = new TokenProvider(mock(UserService.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tokenProvider, "secret", SECRET);
+    }
+
+    private String accessToken(String secret, long expiresInMillis) {
+        return JWT.create().withIssuer(BOSTONEO_SOLUTIONS_LLC).withAudience(CLIENT_MANAGEMENT_SERVICE)
+                .withIssuedAt(new Date())
+                .withSubject("42")
+                .withClaim("tokenType", "access")
+                .withClaim("organizationId", 7L)
+                .withArrayClaim(AUTHORITIES, new String[]{"ROLE_USER", "READ:CASE"})
+                .withExpiresAt(new Date(System.currentTimeMillis() + expiresInMillis))
+                .sign(HMAC512(secret.getBytes()));
+    }
+
+    @Test
+    void verifyAccessToken_exposesAllClaimsFromOneDecode() {
+        DecodedJWT decoded = tokenProvider.verifyAccessToken(accessToken(SECRET, 60_000), null);
+
+        assertEquals(42L, tokenProvider.getSubject(decoded));
+        assertEquals(7L, tokenProvider.getOrganizationId(decoded));
+        assertTrue(tokenProvider.isTokenValid(42L, decoded));
+        assertTrue(tokenProvider.getIssuedAt(decoded) > 0);
+        assertEquals(2, tokenProvider.getAuthorities(decoded).size());
+    }
+
+    @Test
+    void verifyAccessToken_repeatCallReturnsCachedDecode() {
+        String token = accessToken(SECRET, 60_000);
+
+        DecodedJWT first = tokenProvider.verifyAccessToken(token, null);
+        DecodedJWT second = tokenProvider.verifyAccessToken(token, null);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void verifyAccessToken_rejectsTokenSignedWithOtherSecret() {
+        String forged = accessToken("some-other-secret", 60_000);
+
+        assertThrows(JWTVerificationException.class, () -> tokenProvider.verifyAccessToken(forged, null));
+    }
+
+    @Test
+    void verifyAccessToken_rejectsExpiredToken() {
+        String expired = accessToken(SECRET, -1_000);
+
+        assertThrows(TokenExpiredException.class, () -> tokenProvider.verifyAccessToken(expired, null));
+    }
+
+    @Test
+    void stringAccessors_stillWorkForOtherCallers() {
+        String token = accessToken(SECRET, 60_000);
+
+        assertEquals(42L, tokenProvider.getSubject(token, null));
+        assertEquals(7L, tokenProvider.getOrganizationId(token));
+        assertTrue(tokenProvider.isTokenValid(42L, token));
+        assertEquals(0, tokenProvider.getIssuedAt("not-a-jwt"));
+    }
+}
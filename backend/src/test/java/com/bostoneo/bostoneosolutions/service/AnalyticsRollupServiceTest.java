@@ -0,0 +1,184 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import com.bostoneo.bostoneosolutions.event.InvoiceChangedEvent;
+import com.bostoneo.bostoneosolutions.event.LegalCaseChangedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the rollup delta path: deltas are collected while the writing transaction flushes and
+ * applied once, under the organization's shared lock, before that transaction commits.
+ */
+class AnalyticsRollupServiceTest {
+
+    private static final Long ORG = 7L;
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2026, 3, 2, 9, 15);
+
+    private JdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+    private AnalyticsRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(jdbcTemplate.queryForObject(contains("analytics_rollup_state"), eq(Boolean.class), eq(ORG))).thenReturn(true);
+        service = new AnalyticsRollupService(jdbcTemplate, transactionManager,
+                mock(ScheduledJobLeaseService.class), mock(EntityManagerFactory.class));
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.unbindResourceIfPossible(service);
+    }
+
+    private static LegalCaseChangedEvent caseEvent(LegalCaseChangedEvent.Change change,
+                                                   LegalCaseChangedEvent.Snapshot before,
+                                                   LegalCaseChangedEvent.Snapshot after) {
+        return new LegalCaseChangedEvent(new Object(), ORG, 1L, change, before, after);
+    }
+
+    private static InvoiceChangedEvent invoiceEvent(InvoiceChangedEvent.Change change,
+                                                    InvoiceChangedEvent.Snapshot before,
+                                                    InvoiceChangedEvent.Snapshot after) {
+        return new InvoiceChangedEvent(new Object(), ORG, 2L, change, before, after);
+    }
+
+    private static void beforeCommit() {
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+    }
+
+    private static void afterCommit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> batchArgs(String table) {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO " + table), captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void caseChangesInOneTransactionAreAppliedOnceBeforeCommitAndNetOut() {
+        LegalCaseChangedEvent.Snapshot open = new LegalCaseChangedEvent.Snapshot("OPEN", "PI", 100.0, CREATED_AT, CREATED_AT);
+        LegalCaseChangedEvent.Snapshot closed = new LegalCaseChangedEvent.Snapshot("CLOSED", "PI", 100.0, CREATED_AT, CREATED_AT.plusDays(3));
+
+        service.onLegalCaseChanged(caseEvent(LegalCaseChangedEvent.Change.CREATED, null, open));
+        service.onLegalCaseChanged(caseEvent(LegalCaseChangedEvent.Change.UPDATED, open, closed));
+        verifyNoInteractions(jdbcTemplate);
+
+        beforeCommit();
+
+        List<Object[]> caseRows = batchArgs("analytics_case_rollup");
+        assertEquals(1, caseRows.size());
+        assertArrayEquals(new Object[]{ORG, "CLOSED", "PI", 1L, 100.0, 3L}, caseRows.get(0));
+
+        List<Object[]> dailyRows = batchArgs("analytics_daily_rollup");
+        assertEquals(2, dailyRows.size());
+        assertEquals("CASE_CREATED", dailyRows.get(0)[1]);
+        assertEquals("CASE_UPDATED", dailyRows.get(1)[1]);
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).queryForList(contains("pg_advisory_xact_lock_shared"), anyInt(), eq(ORG.intValue()));
+        order.verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO analytics_case_rollup"), anyList());
+
+        afterCommit();
+        assertNull(TransactionSynchronizationManager.getResource(service));
+    }
+
+    @Test
+    void invoicePaymentMovesOnlyThePaidBucket() {
+        LocalDate issued = LocalDate.of(2026, 3, 1);
+        InvoiceChangedEvent.Snapshot pending = new InvoiceChangedEvent.Snapshot("PENDING", new BigDecimal("250.00"), issued, CREATED_AT);
+        InvoiceChangedEvent.Snapshot paid = new InvoiceChangedEvent.Snapshot("PAID", new BigDecimal("250.00"), issued, CREATED_AT);
+
+        service.onInvoiceChanged(invoiceEvent(InvoiceChangedEvent.Change.UPDATED, pending, paid));
+        beforeCommit();
+
+        List<Object[]> dailyRows = batchArgs("analytics_daily_rollup");
+        assertEquals(1, dailyRows.size());
+        assertArrayEquals(new Object[]{ORG, "INVOICE_PAID", issued, 0, 1L, new BigDecimal("250.00")}, dailyRows.get(0));
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("INSERT INTO analytics_case_rollup"), anyList());
+    }
+
+    @Test
+    void updateWithoutPreviousStateMarksTheOrganizationStale() {
+        LegalCaseChangedEvent.Snapshot after = new LegalCaseChangedEvent.Snapshot("OPEN", null, null, CREATED_AT, CREATED_AT.plusHours(1));
+
+        service.onLegalCaseChanged(caseEvent(LegalCaseChangedEvent.Change.UPDATED, null, after));
+        beforeCommit();
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).queryForList(contains("pg_advisory_xact_lock_shared"), anyInt(), eq(ORG.intValue()));
+        order.verify(jdbcTemplate).update("DELETE FROM analytics_rollup_state WHERE organization_id = ?", ORG);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void deltasForAnUnbuiltOrganizationAreLeftToTheRebuild() {
+        when(jdbcTemplate.queryForObject(contains("analytics_rollup_state"), eq(Boolean.class), eq(ORG))).thenReturn(false);
+        LegalCaseChangedEvent.Snapshot open = new LegalCaseChangedEvent.Snapshot("OPEN", "PI", 100.0, CREATED_AT, CREATED_AT);
+
+        service.onLegalCaseChanged(caseEvent(LegalCaseChangedEvent.Change.CREATED, null, open));
+        beforeCommit();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void eventsFromAFlushAfterThePreCommitCallbackAreAppliedImmediately() {
+        service.onLegalCaseChanged(caseEvent(LegalCaseChangedEvent.Change.CREATED, null,
+                new LegalCaseChangedEvent.Snapshot("OPEN", "PI", null, CREATED_AT, CREATED_AT)));
+        beforeCommit();
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("INSERT INTO analytics_case_rollup"), anyList());
+
+        // e.g. the commit's own flush, which Hibernate runs after the pre-commit callbacks
+        service.onLegalCaseChanged(caseEvent(LegalCaseChangedEvent.Change.CREATED, null,
+                new LegalCaseChangedEvent.Snapshot("PENDING", "PI", null, CREATED_AT, CREATED_AT)));
+
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT INTO analytics_case_rollup"), anyList());
+    }
+
+    @Test
+    void outsideATransactionTheDeltaIsAppliedInItsOwnTransaction() {
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+
+        service.onLegalCaseChanged(caseEvent(LegalCaseChangedEvent.Change.CREATED, null,
+                new LegalCaseChangedEvent.Snapshot("OPEN", "PI", null, CREATED_AT, CREATED_AT)));
+
+        verify(transactionManager).getTransaction(any());
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO analytics_case_rollup"), anyList());
+        verify(transactionManager).commit(any());
+    }
+}
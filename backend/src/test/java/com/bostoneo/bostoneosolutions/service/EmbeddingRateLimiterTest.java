@@ -0,0 +1,85 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the embeddings token bucket, driven by a fake clock.
+ */
+class EmbeddingRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void allowsBurstThenWaitsForRequestBudget() {
+        // 60 RPM → 1 request/second, 10 second burst
+        EmbeddingRateLimiter limiter = new EmbeddingRateLimiter(60, 1_000_000, now::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.tryAcquire(100), "request " + i + " should fit the burst");
+        }
+        long wait = limiter.tryAcquire(100);
+        assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1), "expected up to 1s wait, got " + wait);
+
+        advance(Duration.ofSeconds(1));
+        assertEquals(0, limiter.tryAcquire(100));
+    }
+
+    @Test
+    void tokenBudgetLimitsLargeRequests() {
+        // 6000 TPM → 100 tokens/second, 1000 token bucket
+        EmbeddingRateLimiter limiter = new EmbeddingRateLimiter(6000, 6000, now::get);
+
+        assertEquals(0, limiter.tryAcquire(800));
+        assertTrue(limiter.tryAcquire(800) > 0);
+
+        advance(Duration.ofSeconds(6));
+        assertEquals(0, limiter.tryAcquire(800));
+    }
+
+    @Test
+    void oversizedRequestPassesOnceBucketIsFull() {
+        EmbeddingRateLimiter limiter = new EmbeddingRateLimiter(6000, 6000, now::get);
+        assertEquals(0, limiter.tryAcquire(50_000));
+    }
+
+    @Test
+    void rateLimitPausesForRetryAfterAndSlowsDown() {
+        EmbeddingRateLimiter limiter = new EmbeddingRateLimiter(600, 1_000_000, now::get);
+
+        limiter.onRateLimited(Duration.ofSeconds(3));
+        assertEquals(0.5, limiter.getRateFactor(), 1e-9);
+
+        long wait = limiter.tryAcquire(10);
+        assertEquals(TimeUnit.SECONDS.toNanos(3), wait);
+
+        advance(Duration.ofSeconds(3));
+        // Paused period refilled at half rate: 3s * 10 req/s * 0.5 = 15 requests
+        assertEquals(0, limiter.tryAcquire(10));
+    }
+
+    @Test
+    void successRecoversRateGradually() {
+        EmbeddingRateLimiter limiter = new EmbeddingRateLimiter(600, 1_000_000, now::get);
+        limiter.onRateLimited(Duration.ZERO);
+        limiter.onRateLimited(Duration.ZERO);
+        assertEquals(0.25, limiter.getRateFactor(), 1e-9);
+
+        limiter.onSuccess();
+        assertEquals(0.30, limiter.getRateFactor(), 1e-9);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(1.0, limiter.getRateFactor(), 1e-9);
+    }
+}
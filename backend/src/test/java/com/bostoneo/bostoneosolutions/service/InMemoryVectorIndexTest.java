@@ -0,0 +1,159 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import com.bostoneo.bostoneosolutions.repository.DocumentChunkRepository;
+import com.bostoneo.bostoneosolutions.util.EmbeddingVectorCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the in-process vector index: cosine top-k ordering, the bounded heap, and dropping
+ * cached matrices on invalidation or expiry.
+ */
+class InMemoryVectorIndexTest {
+
+    private static final Long ORG = 7L;
+    private static final Long ANALYSIS = 11L;
+    private static final ChunkVectorSearchService.Scope DOCUMENT = new ChunkVectorSearchService.Scope(ORG, null, ANALYSIS);
+
+    private DocumentChunkRepository chunkRepository;
+    private RedisMessageListenerContainer listenerContainer;
+    private InMemoryVectorIndex index;
+
+    private static final class Row implements DocumentChunkRepository.ChunkEmbedding {
+        private final Long id;
+        private final byte[] vector;
+
+        Row(long id, float... vector) {
+            this.id = id;
+            this.vector = EmbeddingVectorCodec.encode(vector);
+        }
+
+        @Override public Long getId() { return id; }
+        @Override public Long getAnalysisId() { return ANALYSIS; }
+        @Override public byte[] getEmbeddingVector() { return vector; }
+        @Override public String getEmbedding() { return null; }
+    }
+
+    @BeforeEach
+    void setUp() {
+        chunkRepository = mock(DocumentChunkRepository.class);
+        listenerContainer = mock(RedisMessageListenerContainer.class);
+        when(chunkRepository.findEmbeddingsByAnalysisIdAndOrganizationId(ANALYSIS, ORG)).thenReturn(List.of(
+                new Row(1, 1f, 0f, 0f),
+                new Row(2, 1f, 1f, 0f),
+                new Row(3, 0f, 1f, 0f),
+                new Row(4, -1f, 0f, 0f)));
+        index = newIndex(30);
+    }
+
+    private InMemoryVectorIndex newIndex(long ttlMinutes) {
+        InMemoryVectorIndex created = new InMemoryVectorIndex(chunkRepository, mock(StringRedisTemplate.class), listenerContainer);
+        ReflectionTestUtils.setField(created, "maxBytes", 1L << 20);
+        ReflectionTestUtils.setField(created, "ttlMinutes", ttlMinutes);
+        created.init();
+        return created;
+    }
+
+    private static List<Long> ids(List<ChunkVectorSearchService.ScoredChunk> hits) {
+        return hits.stream().map(ChunkVectorSearchService.ScoredChunk::chunkId).toList();
+    }
+
+    @Test
+    void returnsMostSimilarChunksFirstAboveMinScore() {
+        List<ChunkVectorSearchService.ScoredChunk> hits = index.topK(DOCUMENT, new float[]{2f, 0f, 0f}, 3, 0.1);
+
+        assertEquals(List.of(1L, 2L), ids(hits));
+        assertEquals(1.0, hits.get(0).score(), 1e-6);
+        assertEquals(Math.sqrt(0.5), hits.get(1).score(), 1e-6);
+    }
+
+    @Test
+    void queryWithOtherDimensionsMatchesNothing() {
+        assertTrue(index.topK(DOCUMENT, new float[]{1f, 0f}, 3, -1.0).isEmpty());
+    }
+
+    @Test
+    void heapKeepsOnlyTheBestKRowsInOrder() {
+        int rows = 500;
+        List<Float> values = new ArrayList<>();
+        for (int i = 0; i < rows; i++) values.add(i / (float) rows);
+        Collections.shuffle(values, new Random(42));
+
+        // One-dimensional rows, so each row's score is its value
+        float[] data = new float[rows];
+        long[] chunkIds = new long[rows];
+        for (int r = 0; r < rows; r++) {
+            data[r] = values.get(r);
+            chunkIds[r] = Math.round(values.get(r) * rows);
+        }
+        InMemoryVectorIndex.VectorMatrix matrix =
+                new InMemoryVectorIndex.VectorMatrix(data, chunkIds, new long[]{ANALYSIS}, rows, 1);
+
+        List<ChunkVectorSearchService.ScoredChunk> hits = matrix.topK(new float[]{1f}, 5, -1f);
+
+        assertEquals(List.of(499L, 498L, 497L, 496L, 495L), ids(hits));
+    }
+
+    @Test
+    void kLargerThanTheScopeReturnsEveryRow() {
+        List<ChunkVectorSearchService.ScoredChunk> hits = index.topK(DOCUMENT, new float[]{1f, 0f, 0f}, 50, -1.0);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(hits));
+    }
+
+    @Test
+    void matrixIsLoadedOnceUntilTheDocumentChanges() {
+        index.topK(DOCUMENT, new float[]{1f, 0f, 0f}, 3, 0.0);
+        index.topK(DOCUMENT, new float[]{0f, 1f, 0f}, 3, 0.0);
+        verify(chunkRepository, times(1)).findEmbeddingsByAnalysisIdAndOrganizationId(ANALYSIS, ORG);
+
+        // Another organization's document with the same id leaves this one cached
+        index.invalidate(99L, ANALYSIS, null);
+        index.topK(DOCUMENT, new float[]{1f, 0f, 0f}, 3, 0.0);
+        verify(chunkRepository, times(1)).findEmbeddingsByAnalysisIdAndOrganizationId(ANALYSIS, ORG);
+
+        index.invalidate(ORG, ANALYSIS, null);
+        index.topK(DOCUMENT, new float[]{1f, 0f, 0f}, 3, 0.0);
+        verify(chunkRepository, times(2)).findEmbeddingsByAnalysisIdAndOrganizationId(ANALYSIS, ORG);
+    }
+
+    @Test
+    void invalidationFromAnotherNodeDropsTheMatrix() {
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(listenerContainer).addMessageListener(listener.capture(), any(Topic.class));
+
+        index.topK(DOCUMENT, new float[]{1f, 0f, 0f}, 3, 0.0);
+        listener.getValue().onMessage(new DefaultMessage("search:vector-index:events".getBytes(StandardCharsets.UTF_8),
+                (ORG + ":" + ANALYSIS + ":").getBytes(StandardCharsets.UTF_8)), null);
+        index.topK(DOCUMENT, new float[]{1f, 0f, 0f}, 3, 0.0);
+
+        verify(chunkRepository, times(2)).findEmbeddingsByAnalysisIdAndOrganizationId(ANALYSIS, ORG);
+    }
+
+    @Test
+    void expiredMatrixIsReloaded() {
+        InMemoryVectorIndex expiring = newIndex(0);
+
+        expiring.topK(DOCUMENT, new float[]{1f, 0f, 0f}, 3, 0.0);
+        expiring.topK(DOCUMENT, new float[]{1f, 0f, 0f}, 3, 0.0);
+
+        verify(chunkRepository, times(2)).findEmbeddingsByAnalysisIdAndOrganizationId(ANALYSIS, ORG);
+    }
+}
@@ -0,0 +1,71 @@
+package com.bostoneo.bostoneosolutions.service;
+
+import com.bostoneo.bostoneosolutions.model.AIResearchCache;
+import com.bostoneo.bostoneosolutions.multitenancy.TenantService;
+import com.bostoneo.bostoneosolutions.repository.AIResearchCacheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for duplicate detection over an organization's research cache.
+ */
+class QuerySimilarityServiceTest {
+
+    private static final Long ORG = 7L;
+
+    private AIResearchCacheRepository cacheRepository;
+    private QuerySimilarityService service;
+
+    @BeforeEach
+    void setUp() {
+        cacheRepository = mock(AIResearchCacheRepository.class);
+        TenantService tenantService = mock(TenantService.class);
+        when(tenantService.getCurrentOrganizationId()).thenReturn(Optional.of(ORG));
+        service = new QuerySimilarityService(cacheRepository, tenantService);
+    }
+
+    private static AIResearchCache cached(long id, String queryText) {
+        return AIResearchCache.builder()
+                .id(id)
+                .organizationId(ORG)
+                .queryText(queryText)
+                .isValid(true)
+                .expiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+    }
+
+    @Test
+    void eachDuplicateIsReportedInOneGroupOnly() {
+        AIResearchCache first = cached(1, "Statute of limitations for medical malpractice in Texas");
+        AIResearchCache second = cached(2, "statute of limitations for medical malpractice in texas?");
+        AIResearchCache third = cached(3, "Statute of limitations, for medical malpractice in Texas!");
+        AIResearchCache unrelated = cached(4, "Elements of a breach of contract claim in California");
+        when(cacheRepository.findByOrganizationId(ORG)).thenReturn(List.of(first, second, third, unrelated));
+
+        List<QuerySimilarityService.DuplicateGroup> groups = service.findDuplicateQueries();
+
+        assertEquals(1, groups.size());
+        assertSame(first, groups.get(0).primary);
+        assertEquals(List.of(second, third), groups.get(0).duplicates);
+        assertEquals(2, groups.get(0).getPotentialSavings());
+    }
+
+    @Test
+    void expiredAndInvalidEntriesAreIgnored() {
+        AIResearchCache live = cached(1, "Statute of limitations for medical malpractice in Texas");
+        AIResearchCache expired = cached(2, "Statute of limitations for medical malpractice in Texas");
+        expired.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        AIResearchCache invalid = cached(3, "Statute of limitations for medical malpractice in Texas");
+        invalid.setIsValid(false);
+        when(cacheRepository.findByOrganizationId(ORG)).thenReturn(List.of(live, expired, invalid));
+
+        assertTrue(service.findDuplicateQueries().isEmpty());
+    }
+}
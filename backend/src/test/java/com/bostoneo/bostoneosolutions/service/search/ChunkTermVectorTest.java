@@ -0,0 +1,48 @@
+package com.bostoneo.bostoneosolutions.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for keyword-index tokenization and the persisted term vector format.
+ */
+class ChunkTermVectorTest {
+
+    private static final String TEXT = "The plaintiff filed a motion to dismiss; the Motion was denied.";
+
+    @Test
+    void recordsPositionsAndOffsetsSkippingStopWords() {
+        ChunkTermVector vector = ChunkTermVector.of(TEXT);
+
+        assertEquals(11, vector.getTokenCount());
+        assertFalse(vector.getOccurrences().containsKey("the"));
+        assertFalse(vector.getOccurrences().containsKey("a"));
+
+        int[] motion = vector.getOccurrences().get("motion");
+        assertArrayEquals(new int[]{4, 22, 28, 8, 45, 51}, motion);
+        assertEquals("Motion", TEXT.substring(motion[4], motion[5]));
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        ChunkTermVector vector = ChunkTermVector.of(TEXT);
+        ChunkTermVector decoded = ChunkTermVector.fromBytes(vector.toBytes());
+
+        assertNotNull(decoded);
+        assertEquals(vector.getTokenCount(), decoded.getTokenCount());
+        assertEquals(vector.getOccurrences().keySet(), decoded.getOccurrences().keySet());
+        for (Map.Entry<String, int[]> entry : vector.getOccurrences().entrySet()) {
+            assertArrayEquals(entry.getValue(), decoded.getOccurrences().get(entry.getKey()), entry.getKey());
+        }
+    }
+
+    @Test
+    void unknownFormatDecodesToNull() {
+        assertNull(ChunkTermVector.fromBytes(null));
+        assertNull(ChunkTermVector.fromBytes(new byte[0]));
+        assertNull(ChunkTermVector.fromBytes(new byte[]{99, 1, 2}));
+    }
+}
@@ -0,0 +1,84 @@
+package com.bostoneo.bostoneosolutions.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for reciprocal-rank fusion and the rerank stage, using a term-overlap stand-in for a cross-encoder.
+ */
+class HybridRankingTest {
+
+    private static final class Passage {
+        final String text;
+        double score;
+
+        Passage(String text, double score) {
+            this.text = text;
+            this.score = score;
+        }
+    }
+
+    /** Scores a passage by the fraction of query words it contains. */
+    private static final SearchReranker OVERLAP_RERANKER = (query, passages) -> {
+        String[] words = query.toLowerCase().split("\\s+");
+        double[] scores = new double[passages.size()];
+        for (int i = 0; i < scores.length; i++) {
+            String passage = passages.get(i).toLowerCase();
+            for (String word : words) {
+                if (passage.contains(word)) scores[i] += 1.0 / words.length;
+            }
+        }
+        return scores;
+    };
+
+    @Test
+    void chunkFoundByBothRetrieversRanksFirst() {
+        List<HybridRanking.Fused> fused = HybridRanking.reciprocalRankFusion(
+                List.of(List.of(1L, 2L, 3L), List.of(3L, 4L, 1L)), HybridRanking.DEFAULT_RRF_K, 10);
+
+        assertEquals(List.of(1L, 3L, 2L, 4L), fused.stream().map(HybridRanking.Fused::chunkId).toList());
+        assertTrue(fused.get(0).score() < 1.0);
+    }
+
+    @Test
+    void topRankInEveryListScoresOne() {
+        List<HybridRanking.Fused> fused = HybridRanking.reciprocalRankFusion(
+                List.of(List.of(7L, 8L), List.of(7L)), HybridRanking.DEFAULT_RRF_K, 1);
+
+        assertEquals(1, fused.size());
+        assertEquals(7L, fused.get(0).chunkId());
+        assertEquals(1.0, fused.get(0).score(), 1e-9);
+    }
+
+    @Test
+    void rerankerReordersAndRescores() {
+        List<Passage> passages = new ArrayList<>(List.of(
+                new Passage("The lease term is five years", 0.9),
+                new Passage("Tenant may terminate the lease with notice", 0.8)));
+
+        List<Passage> reranked = HybridRanking.rerank(OVERLAP_RERANKER, "terminate lease", passages,
+                passage -> passage.text, (passage, score) -> passage.score = score);
+
+        assertEquals("Tenant may terminate the lease with notice", reranked.get(0).text);
+        assertEquals(1.0, reranked.get(0).score, 1e-9);
+        assertEquals(0.5, reranked.get(1).score, 1e-9);
+    }
+
+    @Test
+    void failingRerankerKeepsFusedOrder() {
+        List<Passage> passages = List.of(new Passage("first", 0.9), new Passage("second", 0.8));
+        SearchReranker failing = (query, texts) -> {
+            throw new IllegalStateException("model unavailable");
+        };
+
+        List<Passage> result = HybridRanking.rerank(failing, "query", passages,
+                passage -> passage.text, (passage, score) -> passage.score = score);
+
+        assertSame(passages, result);
+        assertEquals(0.9, result.get(0).score, 1e-9);
+    }
+}
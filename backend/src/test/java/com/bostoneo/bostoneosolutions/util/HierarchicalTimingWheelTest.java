@@ -0,0 +1,65 @@
+package com.bostoneo.bostoneosolutions.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the reminder timing wheel, driven by explicit clock values.
+ * Tick 10ms and 4 slots: level 0 spans 40ms, level 1 160ms, level 2 640ms, level 3 2560ms.
+ */
+class HierarchicalTimingWheelTest {
+
+    private final HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 4, 0);
+
+    @Test
+    void sameSlotItemsFireInScheduleOrderAfterEarlierSlots() {
+        wheel.schedule(15, "first");
+        wheel.schedule(12, "second");
+        wheel.schedule(19, "third");
+        wheel.schedule(5, "earlier-slot");
+
+        assertEquals(List.of(), wheel.advance(9));
+        assertEquals(List.of("earlier-slot", "first", "second", "third"), wheel.advance(20));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void itemsBeyondLevelZeroCascadeDownAndFireAtMostOneTickLate() {
+        wheel.schedule(95, "level-1");
+        wheel.schedule(1000, "level-3");
+        assertEquals(2, wheel.size());
+
+        assertEquals(List.of(), wheel.advance(99));
+        assertEquals(List.of("level-1"), wheel.advance(100));
+
+        assertEquals(List.of(), wheel.advance(999));
+        assertEquals(List.of("level-3"), wheel.advance(1010));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void drainAllCancelsEveryPendingItemAcrossLevels() {
+        wheel.schedule(15, "level-0");
+        wheel.schedule(95, "level-1");
+        wheel.schedule(1000, "level-3");
+
+        List<String> drained = wheel.drainAll();
+
+        assertEquals(3, drained.size());
+        assertTrue(drained.containsAll(List.of("level-0", "level-1", "level-3")));
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.advance(2000));
+    }
+
+    @Test
+    void rejectsDeadlinesBehindTheClock() {
+        wheel.advance(50);
+
+        assertFalse(wheel.schedule(20, "late"));
+        assertTrue(wheel.schedule(50, "on-time"));
+        assertEquals(1, wheel.size());
+    }
+}
@@ -0,0 +1,100 @@
+package com.bostoneo.bostoneosolutions.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MinHash signatures and the 20 x 3 LSH banding used by the research-cache lookup.
+ * Word sets are built with an exact Jaccard similarity; rates are averaged over many pairs.
+ */
+class QueryMinHashTest {
+
+    private static final int PAIRS = 300;
+
+    /** Two word sets sharing {@code shared} words, each with {@code unique} words of its own. */
+    private static List<Set<String>> pair(int id, int shared, int unique) {
+        Set<String> a = new HashSet<>();
+        Set<String> b = new HashSet<>();
+        for (int i = 0; i < shared; i++) {
+            a.add("shared" + id + "_" + i);
+            b.add("shared" + id + "_" + i);
+        }
+        for (int i = 0; i < unique; i++) {
+            a.add("left" + id + "_" + i);
+            b.add("right" + id + "_" + i);
+        }
+        return List.of(a, b);
+    }
+
+    private static boolean shareBand(int[] a, int[] b) {
+        long[] keysA = QueryMinHash.bandKeys(a);
+        long[] keysB = QueryMinHash.bandKeys(b);
+        for (int band = 0; band < QueryMinHash.BANDS; band++) {
+            if (keysA[band] == keysB[band]) return true;
+        }
+        return false;
+    }
+
+    private static double bandCollisionRate(int shared, int unique) {
+        int collisions = 0;
+        for (int p = 0; p < PAIRS; p++) {
+            List<Set<String>> sets = pair(p, shared, unique);
+            if (shareBand(QueryMinHash.signature(sets.get(0)), QueryMinHash.signature(sets.get(1)))) collisions++;
+        }
+        return collisions / (double) PAIRS;
+    }
+
+    @Test
+    void signatureDependsOnlyOnTheWordSet() {
+        int[] first = QueryMinHash.signature(Set.of("statute", "of", "limitations", "texas"));
+        int[] second = QueryMinHash.signature(new HashSet<>(List.of("texas", "limitations", "of", "statute")));
+
+        assertEquals(QueryMinHash.NUM_HASHES, first.length);
+        assertArrayEquals(first, second);
+        assertArrayEquals(QueryMinHash.bandKeys(first), QueryMinHash.bandKeys(second));
+        assertNull(QueryMinHash.signature(Set.of()));
+        assertNull(QueryMinHash.signature(null));
+    }
+
+    @Test
+    void encodedSignatureRoundTripsAndRejectsOtherLengths() {
+        int[] signature = QueryMinHash.signature(Set.of("breach", "of", "contract"));
+
+        assertArrayEquals(signature, QueryMinHash.decode(QueryMinHash.encode(signature)));
+        assertNull(QueryMinHash.decode(new byte[QueryMinHash.NUM_HASHES]));
+        assertNull(QueryMinHash.decode(null));
+        assertNull(QueryMinHash.encode(null));
+    }
+
+    @Test
+    void signatureAgreementEstimatesJaccardSimilarity() {
+        int agreeing = 0;
+        for (int p = 0; p < PAIRS; p++) {
+            // 10 shared of 20 distinct words: Jaccard 0.5
+            List<Set<String>> sets = pair(p, 10, 5);
+            int[] a = QueryMinHash.signature(sets.get(0));
+            int[] b = QueryMinHash.signature(sets.get(1));
+            for (int i = 0; i < QueryMinHash.NUM_HASHES; i++) {
+                if (a[i] == b[i]) agreeing++;
+            }
+        }
+
+        assertEquals(0.5, agreeing / (double) (PAIRS * QueryMinHash.NUM_HASHES), 0.05);
+    }
+
+    @Test
+    void bandingSeparatesNearDuplicatesFromUnrelatedQueries() {
+        assertEquals(20, QueryMinHash.BANDS);
+        assertEquals(3, QueryMinHash.ROWS);
+
+        // 1 - (1 - J^3)^20: ~99% at Jaccard 0.6, ~15% at Jaccard 0.2
+        assertTrue(bandCollisionRate(6, 2) >= 0.95);
+        assertTrue(bandCollisionRate(2, 4) <= 0.30);
+        assertEquals(1.0, bandCollisionRate(8, 0));
+    }
+}